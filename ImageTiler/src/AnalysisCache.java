@@ -0,0 +1,483 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * On-disk cache of what opening an image costs: the preview, stored as a pyramid of halved
+ * copies, the ImageStatistics of the preview (background estimate, histograms, colour class)
+ * and the per-tile content statistics of the grids analyzed on it. Entries are keyed by a
+ * hash of sampled file content plus the file's size and modification time, so a changed or
+ * replaced file misses. Reopening a large scan then reads a few megabytes instead of
+ * decoding the whole file. Entries are written on a background thread and the folder is
+ * trimmed to its size limit, least recently used first.
+ */
+public class AnalysisCache {
+
+    private static final int FORMAT = 2;
+
+    /**
+     * Bytes hashed at each of SAMPLE_COUNT evenly spaced offsets; smaller files are hashed whole
+     */
+    static final int SAMPLE_BYTES = 64 * 1024;
+    static final int SAMPLE_COUNT = 16;
+
+    /**
+     * The pyramid is halved until its longest side is at most this
+     */
+    static final int MIN_LEVEL_SIDE = 256;
+
+    /**
+     * Analyzed grids kept per image, most recent first
+     */
+    static final int MAX_GRIDS = 8;
+
+    private static final String ENTRY_FILE = "entry.bin";
+
+    private static AnalysisCache shared;
+
+    private final File directory;
+    private final long maxBytes;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "analysis-cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Entry of every preview read from or written to the cache, for storing its analysis later
+    private final java.util.Map<BufferedImage, String> keys =
+        java.util.Collections.synchronizedMap(new java.util.WeakHashMap<>());
+
+    /**
+     * A cached preview chosen for the heap it will live in
+     */
+    public static class Preview {
+        public final int width; // full-resolution size of the image
+        public final int height;
+        public final BufferedImage image;
+        public final int subsampling; // full-resolution pixels per preview pixel
+        public final int level; // 0 for the preview as decoded
+
+        Preview(int width, int height, BufferedImage image, int subsampling, int level) {
+            this.width = width;
+            this.height = height;
+            this.image = image;
+            this.subsampling = subsampling;
+            this.level = level;
+        }
+    }
+
+    /**
+     * @param maxBytes size the folder is trimmed to; 0 turns the cache off
+     */
+    AnalysisCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The cache in the folder and size from Settings
+     */
+    public static synchronized AnalysisCache shared() {
+        if (shared == null) {
+            Settings settings = Settings.getInstance();
+            shared = new AnalysisCache(settings.getAnalysisCacheDir(), settings.getAnalysisCacheMegabytes() * 1024L * 1024);
+        }
+        return shared;
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Entry name for a file: sampled content hash, size and modification time; null if the cache
+     * is off or the file cannot be read
+     */
+    public String keyFor(File file) {
+        if (!isEnabled()) {
+            return null;
+        }
+        long size = file.length();
+        long modified = file.lastModified();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            ByteBuffer buffer = ByteBuffer.allocate(SAMPLE_BYTES);
+            boolean whole = size <= (long) SAMPLE_BYTES * SAMPLE_COUNT;
+            int samples = whole ? (int) ((size + SAMPLE_BYTES - 1) / SAMPLE_BYTES) : SAMPLE_COUNT;
+            for (int i = 0; i < samples; i++) {
+                long offset = whole ? (long) i * SAMPLE_BYTES : (size - SAMPLE_BYTES) * i / (SAMPLE_COUNT - 1);
+                buffer.clear();
+                while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) > 0) {
+                    // Positional reads until the sample is full or the file ends
+                }
+                buffer.flip();
+                digest.update(buffer);
+            }
+            StringBuilder key = new StringBuilder();
+            byte[] hash = digest.digest();
+            for (int i = 0; i < 8; i++) {
+                key.append(String.format("%02x", hash[i]));
+            }
+            return key.append('-').append(size).append('-').append(modified).toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            System.err.println("[CACHE] Cannot hash " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The cached preview for an entry, at the finest pyramid level that fits the heap the
+     * loader would size a fresh preview against, or null on a miss. A preview decoded for a
+     * smaller heap than this one misses, so the image is decoded again with more detail.
+     */
+    public Preview lookup(String key, long heapBytes) {
+        if (key == null) {
+            return null;
+        }
+        File entry = new File(directory, key);
+        File header = new File(entry, ENTRY_FILE);
+        if (!header.isFile()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(header)))) {
+            if (in.readInt() != FORMAT) {
+                return null;
+            }
+            int width = in.readInt();
+            int height = in.readInt();
+            int step = in.readInt();
+            int levels = in.readInt();
+            int[] levelWidths = new int[levels];
+            int[] levelHeights = new int[levels];
+            for (int level = 0; level < levels; level++) {
+                levelWidths[level] = in.readInt();
+                levelHeights[level] = in.readInt();
+            }
+            ImageStatistics statistics = in.readBoolean() ? ImageStatistics.readFrom(in) : null;
+
+            int wantedStep = FileImageSource.calculatePreviewSubsampling(width, height, heapBytes);
+            if (wantedStep < step || levels == 0) {
+                return null;
+            }
+            long wantedPixels = (long) ((width + wantedStep - 1) / wantedStep) * ((height + wantedStep - 1) / wantedStep);
+            int level = 0;
+            while (wantedStep > step && level + 1 < levels && (long) levelWidths[level] * levelHeights[level] > wantedPixels) {
+                level++;
+            }
+            BufferedImage image = readLevel(new File(entry, "level-" + level + ".bin"));
+            if (image.getWidth() != levelWidths[level] || image.getHeight() != levelHeights[level]) {
+                return null;
+            }
+            if (statistics != null && level == 0) {
+                ImageStatistics.remember(image, statistics);
+            }
+            keys.put(image, key);
+            entry.setLastModified(System.currentTimeMillis());
+            System.out.println("[CACHE] Hit " + key + ": preview " + image.getWidth() + "×" + image.getHeight() + " (level " + level +
+                               ") in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return new Preview(width, height, image, step << level, level);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[CACHE] Ignoring unreadable entry " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes a freshly decoded preview and its statistics in the background
+     * @param step subsampling the loader chose for the heap the preview was sized against
+     */
+    public void store(String key, BufferedImage preview, int width, int height, int step) {
+        if (key == null) {
+            return;
+        }
+        keys.put(preview, key);
+        writer.execute(() -> {
+            long start = System.nanoTime();
+            File entry = new File(directory, key);
+            File staging = new File(directory, key + ".tmp" + System.nanoTime());
+            try {
+                if (!staging.mkdirs()) {
+                    throw new IOException("Cannot create " + staging);
+                }
+                ImageStatistics statistics = ImageStatistics.of(preview);
+                java.util.List<int[]> sizes = writePyramid(preview, staging);
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(staging, ENTRY_FILE))))) {
+                    out.writeInt(FORMAT);
+                    out.writeInt(width);
+                    out.writeInt(height);
+                    out.writeInt(step);
+                    out.writeInt(sizes.size());
+                    for (int[] size : sizes) {
+                        out.writeInt(size[0]);
+                        out.writeInt(size[1]);
+                    }
+                    out.writeBoolean(true);
+                    statistics.writeTo(out);
+                }
+                deleteRecursively(entry);
+                Files.move(staging.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                System.out.println("[CACHE] Stored " + key + ": " + sizes.size() + " preview levels in " +
+                                   (System.nanoTime() - start) / 1_000_000 + " ms");
+            } catch (IOException | RuntimeException e) {
+                System.err.println("[CACHE] Could not store " + key + ": " + e.getMessage());
+            } finally {
+                deleteRecursively(staging);
+            }
+            trim();
+        });
+    }
+
+    /**
+     * Fills a grid's tile statistics from the cache
+     * @param preview preview the image was loaded with; grids are only cached for previews read from or written to the cache
+     * @param grid description of the grid and the image region it was analyzed on (see gridName)
+     * @return true if the statistics were cached for this grid
+     */
+    public boolean loadTileStats(BufferedImage preview, String grid, TileContentStats stats) {
+        String key = keys.get(preview);
+        if (key == null) {
+            return false;
+        }
+        File file = new File(new File(directory, key), gridFileName(grid));
+        if (!file.isFile()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new FileInputStream(file))))) {
+            if (!in.readUTF().equals(grid) || !stats.readFrom(in)) {
+                return false;
+            }
+            file.setLastModified(System.currentTimeMillis());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[CACHE] Ignoring unreadable tile statistics: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes a fully analyzed grid's tile statistics in the background
+     */
+    public void storeTileStats(BufferedImage preview, String grid, TileContentStats stats) {
+        String key = keys.get(preview);
+        if (key == null) {
+            return;
+        }
+        writer.execute(() -> {
+            File entry = new File(directory, key);
+            if (!entry.isDirectory()) {
+                return; // Evicted, or never written
+            }
+            File file = new File(entry, gridFileName(grid));
+            File staging = new File(entry, file.getName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DeflaterOutputStream(new FileOutputStream(staging), new Deflater(Deflater.BEST_SPEED))))) {
+                out.writeUTF(grid);
+                stats.writeTo(out);
+            } catch (IOException e) {
+                System.err.println("[CACHE] Could not store tile statistics: " + e.getMessage());
+                staging.delete();
+                return;
+            }
+            try {
+                Files.move(staging.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                staging.delete();
+                return;
+            }
+            File[] grids = entry.listFiles((dir, name) -> name.startsWith("grid-") && name.endsWith(".bin"));
+            if (grids != null && grids.length > MAX_GRIDS) {
+                java.util.Arrays.sort(grids, java.util.Comparator.comparingLong(File::lastModified).reversed());
+                for (int i = MAX_GRIDS; i < grids.length; i++) {
+                    grids[i].delete();
+                }
+            }
+            trim();
+        });
+    }
+
+    /**
+     * Waits for queued writes, for tests
+     */
+    void flush() throws InterruptedException {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (java.util.concurrent.ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Total bytes in the cache folder
+     */
+    long sizeOnDisk() {
+        long total = 0;
+        File[] entries = directory.listFiles();
+        if (entries != null) {
+            for (File entry : entries) {
+                total += sizeOf(entry);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Deletes least recently used entries until the folder fits maxBytes
+     */
+    private void trim() {
+        File[] entries = directory.listFiles(File::isDirectory);
+        if (entries == null) {
+            return;
+        }
+        java.util.Arrays.sort(entries, java.util.Comparator.comparingLong(File::lastModified).reversed());
+        long total = 0;
+        for (File entry : entries) {
+            total += sizeOf(entry);
+            if (total > maxBytes) {
+                System.out.println("[CACHE] Evicting " + entry.getName());
+                deleteRecursively(entry);
+            }
+        }
+    }
+
+    /**
+     * Writes the preview and its halvings, each a subsample of the one before as a decoder's
+     * subsampling would give, and returns their sizes
+     */
+    private static java.util.List<int[]> writePyramid(BufferedImage preview, File entry) throws IOException {
+        java.util.List<int[]> sizes = new java.util.ArrayList<>();
+        boolean alpha = preview.getColorModel().hasAlpha();
+        int width = preview.getWidth();
+        int height = preview.getHeight();
+        int[] row = new int[width];
+        try (DataOutputStream out = levelOutput(new File(entry, "level-0.bin"), width, height, alpha)) {
+            for (int y = 0; y < height; y++) {
+                preview.getRGB(0, y, width, 1, row, 0, width);
+                writeRow(out, row, width);
+            }
+        }
+        sizes.add(new int[] {width, height});
+
+        int[] pixels = null;
+        while (Math.max(width, height) > MIN_LEVEL_SIDE) {
+            int halfWidth = (width + 1) / 2;
+            int halfHeight = (height + 1) / 2;
+            int[] half = new int[halfWidth * halfHeight];
+            for (int y = 0; y < halfHeight; y++) {
+                if (pixels == null) {
+                    preview.getRGB(0, y * 2, width, 1, row, 0, width);
+                    for (int x = 0; x < halfWidth; x++) {
+                        half[y * halfWidth + x] = row[x * 2];
+                    }
+                } else {
+                    for (int x = 0; x < halfWidth; x++) {
+                        half[y * halfWidth + x] = pixels[y * 2 * width + x * 2];
+                    }
+                }
+            }
+            pixels = half;
+            width = halfWidth;
+            height = halfHeight;
+            try (DataOutputStream out = levelOutput(new File(entry, "level-" + sizes.size() + ".bin"), width, height, alpha)) {
+                int[] levelRow = new int[width];
+                for (int y = 0; y < height; y++) {
+                    System.arraycopy(pixels, y * width, levelRow, 0, width);
+                    writeRow(out, levelRow, width);
+                }
+            }
+            sizes.add(new int[] {width, height});
+        }
+        return sizes;
+    }
+
+    private static DataOutputStream levelOutput(File file, int width, int height, boolean alpha) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new DeflaterOutputStream(new FileOutputStream(file), new Deflater(Deflater.BEST_SPEED), 64 * 1024)));
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeBoolean(alpha);
+        return out;
+    }
+
+    private static void writeRow(DataOutputStream out, int[] row, int width) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(width * 4);
+        bytes.asIntBuffer().put(row, 0, width);
+        out.write(bytes.array());
+    }
+
+    /**
+     * Reads one pyramid level straight into an INT_RGB or INT_ARGB raster
+     */
+    private static BufferedImage readLevel(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new FileInputStream(file),
+                                                                                                      new java.util.zip.Inflater(), 64 * 1024)))) {
+            int width = in.readInt();
+            int height = in.readInt();
+            boolean alpha = in.readBoolean();
+            BufferedImage image = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            byte[] row = new byte[width * 4];
+            for (int y = 0; y < height; y++) {
+                in.readFully(row);
+                ByteBuffer.wrap(row).asIntBuffer().get(pixels, y * width, width);
+            }
+            return image;
+        }
+    }
+
+    /**
+     * Describes a grid by its tiling, orientation and the region of the image it covers, so
+     * cached tile statistics are only reused for exactly the same tiles
+     */
+    public static String gridName(TileCalculator.TilingResult tiling, Orientation orientation, java.awt.Rectangle region,
+                                  int analysisWidth, int analysisHeight) {
+        return String.format(java.util.Locale.ROOT, "%dx%d %.4fx%.4f of %dx%d at %.4f,%.4f %s on %dx%d %s",
+                             tiling.tilesWide, tiling.tilesHigh, tiling.tileWidth, tiling.tileHeight, tiling.imageWidth,
+                             tiling.imageHeight, tiling.originX, tiling.originY, orientation, analysisWidth, analysisHeight,
+                             region == null ? "whole" : region.x + "," + region.y + "," + region.width + "," + region.height);
+    }
+
+    private static String gridFileName(String grid) {
+        return "grid-" + Integer.toHexString(grid.hashCode()) + ".bin";
+    }
+
+    private static long sizeOf(File file) {
+        File[] children = file.listFiles();
+        if (children == null) {
+            return file.length();
+        }
+        long total = 0;
+        for (File child : children) {
+            total += sizeOf(child);
+        }
+        return total;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
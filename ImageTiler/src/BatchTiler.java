@@ -0,0 +1,372 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Command-line batch mode: tiles a list of images into PDFs without any window or dialog, so
+ * it runs with java.awt.headless=true on a server. Files are tiled in parallel on a pool sized
+ * to the cores and to a memory budget: each worker holds one preview tier and one page of
+ * pixels at a time, while full-resolution decoding goes through the shared DecodeBudget.
+ * Blank pages are dropped as in the GUI, and a timing and page summary is printed per file.
+ */
+public class BatchTiler {
+
+    /**
+     * Heap one worker is assumed to need: a preview tier at its cap plus one page of pixels
+     * and its encoded copy
+     */
+    static final long WORKER_BYTES = FileImageSource.MAX_PREVIEW_PIXELS * 4 + 32L * 1024 * 1024;
+
+    static final String USAGE =
+        "Usage: java -jar ImageTiler.jar [options] <image|glob>...\n" +
+        "  --scale <s>            scale, 1.0 fits the image to one page (default 1.0)\n" +
+        "  --paper <size>         A4, A3, LETTER, LEGAL or TABLOID (default A4)\n" +
+        "  --min-content <ratio>  share of content pixels for a page to print (default 0.03)\n" +
+        "  --near-white <0-256>   closeness to the background counted as blank (default 240)\n" +
+        "  --min-alpha <0-256>    least opacity counted as content (default 30)\n" +
+        "  --out <dir>            where PDFs go (default: next to each image)\n" +
+        "  --list <file>          read image paths, one per line\n" +
+        "  --jobs <n>             most files tiled at once (default: cores)\n" +
+        "  --memory <MB>          heap the workers may use (default: 3/4 of the heap)\n" +
+        "  --pack-edges           pack partial edge tiles onto shared sheets\n" +
+        "  --help                 show this help\n" +
+        "Globs such as scans/*.png or pieces/**/*.tif are expanded here, so quote them.";
+
+    private BatchTiler() {
+    }
+
+    /**
+     * Parsed command line
+     */
+    static class Options {
+        float scale = 1.0f;
+        Settings.PaperSize paper = Settings.PaperSize.A4;
+        double minContentRatio = ContentThresholds.DEFAULT.minContentRatio;
+        int nearWhite = ContentThresholds.DEFAULT.nearWhite;
+        int minAlpha = ContentThresholds.DEFAULT.minAlpha;
+        File outputDir;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        long memoryBytes = Runtime.getRuntime().maxMemory() / 4 * 3;
+        boolean packEdges;
+        boolean useAnalysisCache = true; // off for one-shot inputs such as server uploads
+        final java.util.List<File> images = new java.util.ArrayList<>();
+
+        static Options parse(String[] args) throws IOException {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (!arg.startsWith("--")) {
+                    options.images.addAll(expand(arg));
+                    continue;
+                }
+                if (arg.equals("--pack-edges")) {
+                    options.packEdges = true;
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                String value = args[++i];
+                try {
+                    switch (arg) {
+                        case "--scale":
+                            options.scale = Float.parseFloat(value);
+                            if (!(options.scale > 0)) {
+                                throw new IllegalArgumentException("Scale must be positive: " + value);
+                            }
+                            break;
+                        case "--paper":
+                            options.paper = paperSize(value);
+                            break;
+                        case "--min-content":
+                            options.minContentRatio = Double.parseDouble(value);
+                            break;
+                        case "--near-white":
+                            options.nearWhite = Integer.parseInt(value);
+                            break;
+                        case "--min-alpha":
+                            options.minAlpha = Integer.parseInt(value);
+                            break;
+                        case "--out":
+                            options.outputDir = new File(value);
+                            break;
+                        case "--list":
+                            for (String line : Files.readAllLines(Paths.get(value), StandardCharsets.UTF_8)) {
+                                if (!line.trim().isEmpty()) {
+                                    options.images.addAll(expand(line.trim()));
+                                }
+                            }
+                            break;
+                        case "--jobs":
+                            options.jobs = Math.max(1, Integer.parseInt(value));
+                            break;
+                        case "--memory":
+                            options.memoryBytes = Long.parseLong(value) * 1024 * 1024;
+                            break;
+                        default:
+                            throw new IllegalArgumentException("Unknown option " + arg);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid value for " + arg + ": " + value);
+                }
+            }
+            if (options.images.isEmpty()) {
+                throw new IllegalArgumentException("No images given");
+            }
+            return options;
+        }
+
+        /**
+         * Options matching the saved settings: default scale, paper size, blank-tile thresholds
+         * and edge packing
+         */
+        static Options fromSettings(Settings settings) {
+            Options options = new Options();
+            options.scale = settings.getDefaultScale() > 0 ? settings.getDefaultScale() : Settings.DEFAULT_SCALE;
+            options.paper = settings.getPaperSize();
+            ContentThresholds thresholds = settings.getContentThresholds();
+            options.minContentRatio = thresholds.minContentRatio;
+            options.nearWhite = thresholds.nearWhite;
+            options.minAlpha = thresholds.minAlpha;
+            options.packEdges = settings.isPackEdgeTiles();
+            return options;
+        }
+
+        private static Settings.PaperSize paperSize(String name) {
+            for (Settings.PaperSize size : Settings.PaperSize.values()) {
+                if (size.name().equalsIgnoreCase(name)) {
+                    return size;
+                }
+            }
+            throw new IllegalArgumentException("Unknown paper size " + name);
+        }
+
+        ContentThresholds thresholdsFor(BufferedImage preview) {
+            return ContentThresholds.forImage(preview).withLevels(minContentRatio, nearWhite, minAlpha);
+        }
+
+        /**
+         * Workers to run: no more than the cores, the files, or the memory budget allows
+         */
+        int workers() {
+            long byMemory = Math.max(1, memoryBytes / WORKER_BYTES);
+            return (int) Math.max(1, Math.min(Math.min(jobs, images.size()), byMemory));
+        }
+    }
+
+    /**
+     * What happened to one file
+     */
+    static class FileResult {
+        final File image;
+        final File output;
+        final int pages;
+        final int tiles;
+        final long millis;
+        final String error;
+
+        FileResult(File image, File output, int pages, int tiles, long millis, String error) {
+            this.image = image;
+            this.output = output;
+            this.pages = pages;
+            this.tiles = tiles;
+            this.millis = millis;
+            this.error = error;
+        }
+
+        boolean isOk() {
+            return error == null;
+        }
+    }
+
+    /**
+     * Runs the batch and returns the process exit code: 0 if every file was tiled, 1 if any
+     * failed, 2 for a bad command line
+     */
+    public static int run(String[] args) {
+        if (java.util.Arrays.asList(args).contains("--help")) {
+            System.out.println(USAGE);
+            return 0;
+        }
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("[BATCH] " + e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        java.util.List<FileResult> results = run(options);
+        printSummary(results, System.out);
+        for (FileResult result : results) {
+            if (!result.isOk()) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    static java.util.List<FileResult> run(Options options) {
+        if (options.outputDir != null && !options.outputDir.isDirectory() && !options.outputDir.mkdirs()) {
+            System.err.println("[BATCH] Cannot create output directory " + options.outputDir);
+        }
+        int workers = options.workers();
+        long heapShare = DecodeBudget.previewHeapShare(workers);
+        System.out.println("[BATCH] Tiling " + options.images.size() + " images on " + workers + " workers (" +
+                           options.memoryBytes / (1024 * 1024) + " MB budget, scale " + options.scale + ", " + options.paper.name() + ")");
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "batch-tiler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            java.util.List<File> outputs = outputsFor(options.images, options.outputDir);
+            java.util.List<Future<FileResult>> futures = new java.util.ArrayList<>();
+            for (int i = 0; i < options.images.size(); i++) {
+                File image = options.images.get(i);
+                File output = outputs.get(i);
+                futures.add(pool.submit(() -> tileFile(image, output, options, heapShare, null)));
+            }
+            java.util.List<FileResult> results = new java.util.ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (Exception e) {
+                    results.add(new FileResult(options.images.get(i), null, 0, 0, 0, String.valueOf(e.getCause())));
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Tiles one image into the given PDF, reporting pages written to the progress callback,
+     * which may also cancel the export
+     */
+    static FileResult tileFile(File image, File output, Options options, long heapShare, TileExportService.Progress progress) {
+        long start = System.nanoTime();
+        try (ImageSource source = ImageLoader.open(image, heapShare, options.useAnalysisCache)) {
+            BufferedImage preview = source.getPreviewImage();
+            ContentThresholds thresholds = options.thresholdsFor(preview);
+            TileExportService.Spec spec = new TileExportService.Spec(source.getWidth(), source.getHeight(), options.scale,
+                                                                     TileCalculator.GridLayout.DEFAULT, options.packEdges);
+            TileCalculator.TilingResult tiling = spec.tilingFor(options.paper.getWidthPoints(), options.paper.getHeightPoints());
+            java.util.List<TileCalculator.TileInfo> tiles = TileContentStats.of(tiling, preview, Orientation.NORMAL, thresholds.backgroundRgb)
+                                                                            .nonBlankTiles(thresholds);
+            TileExportService.Result exported = TileExportService.exportPdf(source, spec, tiles, options.paper.getWidthPoints(),
+                                                                            options.paper.getHeightPoints(), output, progress);
+            if (exported.cancelled) {
+                return new FileResult(image, output, exported.pages, tiling.tilesWide * tiling.tilesHigh,
+                                      (System.nanoTime() - start) / 1_000_000, "Cancelled");
+            }
+            int pages = exported.pages;
+
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("[BATCH] " + image.getName() + ": " + pages + " pages in " + millis + " ms");
+            return new FileResult(image, output, pages, tiling.tilesWide * tiling.tilesHigh, millis, null);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[BATCH] " + image.getName() + " failed: " + e);
+            return new FileResult(image, output, 0, 0, (System.nanoTime() - start) / 1_000_000, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    /**
+     * image.png becomes image_tiled.pdf, in the output directory or next to the image
+     */
+    static File outputFor(File image, File outputDir) {
+        return outputFor(image, outputDir, "");
+    }
+
+    /**
+     * As outputFor, with the suffix before _tiled: image_2_tiled.pdf
+     */
+    static File outputFor(File image, File outputDir, String suffix) {
+        String name = image.getName();
+        int dot = name.lastIndexOf('.');
+        String pdfName = (dot > 0 ? name.substring(0, dot) : name) + suffix + "_tiled.pdf";
+        File dir = outputDir != null ? outputDir : image.getAbsoluteFile().getParentFile();
+        return new File(dir, pdfName);
+    }
+
+    /**
+     * One output per image, as outputFor names it, except that a PDF two images would share
+     * (plan.png from two folders into one --out directory, or plan.png and plan.tif side by
+     * side) gets a _2, _3... suffix in list order, so no two workers write the same file
+     */
+    static java.util.List<File> outputsFor(java.util.List<File> images, File outputDir) {
+        java.util.Set<File> taken = new java.util.HashSet<>();
+        java.util.List<File> outputs = new java.util.ArrayList<>(images.size());
+        for (File image : images) {
+            File output = outputFor(image, outputDir);
+            for (int n = 2; !taken.add(output.getAbsoluteFile()); n++) {
+                output = outputFor(image, outputDir, "_" + n);
+            }
+            outputs.add(output);
+        }
+        return outputs;
+    }
+
+    /**
+     * Expands a glob (relative to its leading directories) into the matching files in name
+     * order; anything without glob characters is taken as a file name
+     */
+    static java.util.List<File> expand(String pattern) throws IOException {
+        int firstGlob = -1;
+        for (int i = 0; i < pattern.length() && firstGlob < 0; i++) {
+            if ("*?[{".indexOf(pattern.charAt(i)) >= 0) {
+                firstGlob = i;
+            }
+        }
+        if (firstGlob < 0) {
+            return java.util.Collections.singletonList(new File(pattern));
+        }
+        int cut = Math.max(pattern.lastIndexOf('/', firstGlob), pattern.lastIndexOf(File.separatorChar, firstGlob));
+        Path base = Paths.get(cut < 0 ? "." : pattern.substring(0, cut + 1));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern.substring(cut + 1));
+        java.util.List<File> files = new java.util.ArrayList<>();
+        if (!Files.isDirectory(base)) {
+            return files;
+        }
+        try (Stream<Path> paths = Files.walk(base)) {
+            paths.filter(Files::isRegularFile)
+                 .filter(path -> matcher.matches(base.relativize(path)))
+                 .sorted()
+                 .forEach(path -> files.add(path.toFile()));
+        }
+        return files;
+    }
+
+    static void printSummary(java.util.List<FileResult> results, PrintStream out) {
+        int pages = 0;
+        int tiles = 0;
+        long millis = 0;
+        int failed = 0;
+        out.println(String.format("%-40s %8s %8s %10s", "Image", "Pages", "Tiles", "Time (ms)"));
+        for (FileResult result : results) {
+            if (result.isOk()) {
+                out.println(String.format("%-40s %8d %8d %10d", result.image.getName(), result.pages, result.tiles, result.millis));
+                pages += result.pages;
+                tiles += result.tiles;
+            } else {
+                out.println(String.format("%-40s FAILED: %s", result.image.getName(), result.error));
+                failed++;
+            }
+            millis += result.millis;
+        }
+        out.println(String.format("%-40s %8d %8d %10d", "Total (" + results.size() + " images, " + failed + " failed)",
+                                  pages, tiles, millis));
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Thresholds that decide whether a tile has content worth printing.
+ * A sampled pixel counts as content if it is at least minAlpha opaque and differs from the
+ * background colour: its closeness (255 minus the largest channel difference) is below
+ * nearWhite. On white paper closeness is the darkest channel, so this is the classic
+ * "some channel below 240" rule. A tile is non-blank if more than minContentRatio of its
+ * samples are content.
+ */
+public class ContentThresholds {
+
+    public static final ContentThresholds DEFAULT = new ContentThresholds(0.03, 240, 30);
+
+    public final double minContentRatio;
+    public final int nearWhite;
+    public final int minAlpha;
+    public final int backgroundRgb;
+
+    public ContentThresholds(double minContentRatio, int nearWhite, int minAlpha) {
+        this(minContentRatio, nearWhite, minAlpha, 0xFFFFFF);
+    }
+
+    public ContentThresholds(double minContentRatio, int nearWhite, int minAlpha, int backgroundRgb) {
+        this.minContentRatio = Math.max(0, Math.min(1, minContentRatio));
+        this.nearWhite = Math.max(0, Math.min(256, nearWhite));
+        this.minAlpha = Math.max(0, Math.min(256, minAlpha));
+        this.backgroundRgb = backgroundRgb & 0xFFFFFF;
+    }
+
+    /**
+     * Default thresholds against the background estimated for the image (see ImageStatistics)
+     */
+    public static ContentThresholds forImage(java.awt.image.BufferedImage image) {
+        return image == null ? DEFAULT : DEFAULT.withBackground(ImageStatistics.of(image).getBackgroundRgb());
+    }
+
+    public ContentThresholds withBackground(int rgb) {
+        return new ContentThresholds(minContentRatio, nearWhite, minAlpha, rgb);
+    }
+
+    /**
+     * Same background, new levels
+     */
+    public ContentThresholds withLevels(double minContentRatio, int nearWhite, int minAlpha) {
+        return new ContentThresholds(minContentRatio, nearWhite, minAlpha, backgroundRgb);
+    }
+
+    /**
+     * True if a sampled ARGB pixel counts as content
+     */
+    public boolean isContentPixel(int argb) {
+        int alpha = (argb >>> 24) & 0xFF;
+        return alpha >= minAlpha && closeness(argb, backgroundRgb) < nearWhite;
+    }
+
+    /**
+     * 255 minus the largest per-channel difference between a pixel and the background;
+     * the darkest channel when the background is white
+     */
+    static int closeness(int argb, int backgroundRgb) {
+        int dr = Math.abs(((argb >> 16) & 0xFF) - ((backgroundRgb >> 16) & 0xFF));
+        int dg = Math.abs(((argb >> 8) & 0xFF) - ((backgroundRgb >> 8) & 0xFF));
+        int db = Math.abs((argb & 0xFF) - (backgroundRgb & 0xFF));
+        return 255 - Math.max(dr, Math.max(dg, db));
+    }
+
+    /**
+     * True if the fraction of content samples makes a tile non-blank
+     */
+    public boolean isNonBlank(double contentRatio) {
+        return contentRatio > minContentRatio;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ContentThresholds)) {
+            return false;
+        }
+        ContentThresholds that = (ContentThresholds) other;
+        return minContentRatio == that.minContentRatio && nearWhite == that.nearWhite && minAlpha == that.minAlpha &&
+               backgroundRgb == that.backgroundRgb;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((Double.hashCode(minContentRatio) * 31 + nearWhite) * 31 + minAlpha) * 31 + backgroundRgb;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.1f%% content, background #%06X within %d, transparent < %d",
+                             minContentRatio * 100, backgroundRgb, 255 - nearWhite, minAlpha);
+    }
+}
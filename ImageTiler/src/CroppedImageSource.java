@@ -0,0 +1,61 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * View of a rectangular part of another image source, used to tile only an image's
+ * content when its margins are trimmed. Nothing is copied: the preview is a sub-image
+ * sharing the source preview's raster and region reads are offset into the source.
+ * Closing the view leaves the underlying source open.
+ */
+public class CroppedImageSource implements ImageSource {
+    private final ImageSource source;
+    private final Rectangle region;
+    private final Rectangle previewRegion;
+
+    /**
+     * @param region        part of the source in full-resolution pixels
+     * @param previewRegion the same part in the source's preview pixels
+     */
+    public CroppedImageSource(ImageSource source, Rectangle region, Rectangle previewRegion) {
+        this.source = source;
+        this.region = new Rectangle(region);
+        this.previewRegion = new Rectangle(previewRegion);
+    }
+
+    public ImageSource getSource() {
+        return source;
+    }
+
+    /**
+     * The cropped part of the source, in full-resolution pixels
+     */
+    public Rectangle getRegion() {
+        return new Rectangle(region);
+    }
+
+    @Override
+    public int getWidth() {
+        return region.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return region.height;
+    }
+
+    @Override
+    public BufferedImage getPreviewImage() {
+        return source.getPreviewImage().getSubimage(previewRegion.x, previewRegion.y, previewRegion.width, previewRegion.height);
+    }
+
+    @Override
+    public BufferedImage getFullImage() throws IOException {
+        return readRegion(new Rectangle(0, 0, region.width, region.height));
+    }
+
+    @Override
+    public BufferedImage readRegion(Rectangle r) throws IOException {
+        return source.readRegion(new Rectangle(region.x + r.x, region.y + r.y, r.width, r.height));
+    }
+}
@@ -0,0 +1,121 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One memory budget for decoded full-resolution pixels, shared by every open image source.
+ * FileImageSource stripes and TiffImageSource tiles are cached here rather than per source,
+ * so a job holding many images uses no more heap for output decoding than a single image:
+ * the least recently used block is evicted, whichever image it belongs to.
+ */
+public class DecodeBudget {
+
+    /**
+     * Fraction of the maximum heap the shared cache may hold, and an absolute cap
+     */
+    private static final int HEAP_FRACTION = 4;
+    private static final long MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final DecodeBudget SHARED =
+        new DecodeBudget(Math.min(MAX_BYTES, Runtime.getRuntime().maxMemory() / HEAP_FRACTION));
+
+    private final long capacityBytes;
+    private final Map<Key, Block> blocks = new LinkedHashMap<>(64, 0.75f, true);
+    private long usedBytes;
+
+    DecodeBudget(long capacityBytes) {
+        this.capacityBytes = capacityBytes;
+    }
+
+    public static DecodeBudget shared() {
+        return SHARED;
+    }
+
+    /**
+     * Heap to size one preview tier against when images are open together, for
+     * FileImageSource.calculatePreviewSubsampling: the previews of all of them then fit the
+     * share of the heap a single image's preview would
+     */
+    public static long previewHeapShare(int openImages) {
+        return Runtime.getRuntime().maxMemory() / Math.max(1, openImages);
+    }
+
+    /**
+     * The cached block, or null
+     */
+    public synchronized Object get(Object owner, int index) {
+        Block block = blocks.get(new Key(owner, index));
+        return block == null ? null : block.pixels;
+    }
+
+    /**
+     * Caches a decoded block, evicting the least recently used blocks of any owner until the
+     * budget holds. The newest block is always kept, even if it alone exceeds the budget.
+     */
+    public synchronized void put(Object owner, int index, Object pixels, long bytes) {
+        Block previous = blocks.put(new Key(owner, index), new Block(pixels, bytes));
+        usedBytes += bytes - (previous == null ? 0 : previous.bytes);
+        Iterator<Block> eldest = blocks.values().iterator();
+        while (usedBytes > capacityBytes && blocks.size() > 1) {
+            usedBytes -= eldest.next().bytes;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Drops every block of one owner, as its source closes
+     */
+    public synchronized void release(Object owner) {
+        Iterator<Map.Entry<Key, Block>> entries = blocks.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Key, Block> entry = entries.next();
+            if (entry.getKey().owner == owner) {
+                usedBytes -= entry.getValue().bytes;
+                entries.remove();
+            }
+        }
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    private static class Key {
+        final Object owner;
+        final int index;
+
+        Key(Object owner, int index) {
+            this.owner = owner;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return owner == other.owner && index == other.index;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(owner), index);
+        }
+    }
+
+    private static class Block {
+        final Object pixels;
+        final long bytes;
+
+        Block(Object pixels, long bytes) {
+            this.pixels = pixels;
+            this.bytes = bytes;
+        }
+    }
+}
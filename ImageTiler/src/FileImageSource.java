@@ -0,0 +1,474 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+
+/**
+ * Image source backed by an image file.
+ * Only a subsampled preview, sized to the available heap, is decoded at load time.
+ * Output reads full-resolution regions, which are served from full-width stripes decoded
+ * with ImageReadParam.setSourceRegion and cached in the shared DecodeBudget, so printing and
+ * export run in a fixed memory footprint however large the file is. Images too large
+ * for the heap are spooled once into a MappedRasterStore, PNG and JPEG in a single decode,
+ * and read from there.
+ */
+public class FileImageSource implements ImageSource {
+
+    /**
+     * Upper bound on preview pixels; blank-tile analysis gains nothing from more detail
+     */
+    public static final long MAX_PREVIEW_PIXELS = 16_000_000L;
+
+    /**
+     * Fraction of the maximum heap the preview tier may occupy
+     */
+    private static final int PREVIEW_HEAP_FRACTION = 8;
+
+    /**
+     * Target size of one decoded stripe
+     */
+    private static final long STRIPE_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * Formats whose ImageIO readers write the destination through the Raster API, top to bottom
+     * unless interlaced, and so can spool in one pass (see spoolSequentially)
+     */
+    private static final java.util.Set<String> SEQUENTIAL_FORMATS = java.util.Set.of("png", "jpeg");
+
+    private final File file;
+    private final int width;
+    private final int height;
+    private final BufferedImage previewImage;
+    private final int previewSubsampling;
+    private final int stripeHeight;
+    private SoftReference<BufferedImage> fullImageRef = new SoftReference<>(null);
+    private MappedRasterStore rasterStore;
+
+    private FileImageSource(File file, int width, int height, BufferedImage previewImage, int previewSubsampling) {
+        this.file = file;
+        this.width = width;
+        this.height = height;
+        this.previewImage = previewImage;
+        this.previewSubsampling = previewSubsampling;
+        this.stripeHeight = calculateStripeHeight(width, height);
+        if (previewSubsampling == 1) {
+            fullImageRef = new SoftReference<>(previewImage);
+        }
+    }
+
+    /**
+     * Opens an image file and decodes its preview tier
+     * @param progressListener optional listener for decode progress events
+     */
+    public static FileImageSource open(File file, IIOReadProgressListener progressListener) throws IOException {
+        return open(file, progressListener, Runtime.getRuntime().maxMemory());
+    }
+
+    /**
+     * Opens an image file with its preview sized against a share of the heap, for images
+     * open together (see DecodeBudget.previewHeapShare)
+     */
+    public static FileImageSource open(File file, IIOReadProgressListener progressListener, long heapBytes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                throw new IOException("Cannot open " + file.getName());
+            }
+            ImageReader reader = createReader(input, file);
+            try {
+                if (progressListener != null) {
+                    reader.addIIOReadProgressListener(progressListener);
+                }
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int step = calculatePreviewSubsampling(width, height, heapBytes);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage preview = reader.read(0, param);
+
+                System.out.println("[LOADER] " + file.getName() + ": " + width + "×" + height +
+                                   " pixels, preview at 1/" + step + " (" + preview.getWidth() + "×" + preview.getHeight() + ")");
+                return new FileImageSource(file, width, height, preview, step);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Source whose preview was decoded earlier, such as one from the AnalysisCache; nothing is read until output
+     */
+    static FileImageSource withPreview(File file, int width, int height, BufferedImage preview, int previewSubsampling) {
+        return new FileImageSource(file, width, height, preview, previewSubsampling);
+    }
+
+    /**
+     * Chooses the smallest subsampling step whose preview fits both MAX_PREVIEW_PIXELS and
+     * a fixed fraction of the heap (4 bytes per pixel)
+     */
+    public static int calculatePreviewSubsampling(int width, int height, long maxHeapBytes) {
+        long budgetPixels = Math.min(MAX_PREVIEW_PIXELS, maxHeapBytes / PREVIEW_HEAP_FRACTION / 4);
+        long pixels = (long) width * height;
+        int step = 1;
+        while (pixels / ((long) step * step) > budgetPixels) {
+            step++;
+        }
+        return step;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public BufferedImage getPreviewImage() {
+        return previewImage;
+    }
+
+    public int getPreviewSubsampling() {
+        return previewSubsampling;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized BufferedImage getFullImage() throws IOException {
+        BufferedImage full = fullImageRef.get();
+        if (full == null) {
+            if (!MappedRasterStore.fitsInHeap(width, height)) {
+                throw new IOException("Image is too large to decode in memory (" + width + "×" + height + "); use region reads");
+            }
+            System.out.println("[LOADER] Decoding full resolution for output: " + file.getName());
+            full = ImageIO.read(file);
+            if (full == null) {
+                throw new IOException("Could not decode " + file.getName());
+            }
+            fullImageRef = new SoftReference<>(full);
+        }
+        return full;
+    }
+
+    @Override
+    public BufferedImage readRegion(Rectangle region) throws IOException {
+        BufferedImage full = fullImageRef.get();
+        if (full != null) {
+            return full.getSubimage(region.x, region.y, region.width, region.height);
+        }
+        if (!MappedRasterStore.fitsInHeap(width, height)) {
+            return getRasterStore().readRegion(region);
+        }
+
+        int firstStripe = region.y / stripeHeight;
+        int lastStripe = (region.y + region.height - 1) / stripeHeight;
+        if (firstStripe == lastStripe) {
+            BufferedImage stripe = getStripe(firstStripe);
+            return stripe.getSubimage(region.x, region.y - firstStripe * stripeHeight, region.width, region.height);
+        }
+
+        // Region spans stripes - copy the overlapping rows of each into one image
+        BufferedImage result = null;
+        for (int index = firstStripe; index <= lastStripe; index++) {
+            BufferedImage stripe = getStripe(index);
+            if (result == null) {
+                ColorModel colorModel = stripe.getColorModel();
+                WritableRaster raster = colorModel.createCompatibleWritableRaster(region.width, region.height);
+                result = new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
+            }
+            int stripeTop = index * stripeHeight;
+            int top = Math.max(region.y, stripeTop);
+            int bottom = Math.min(region.y + region.height, stripeTop + stripe.getHeight());
+            result.getRaster().setRect(0, top - region.y,
+                stripe.getRaster().createChild(region.x, top - stripeTop, region.width, bottom - top, 0, 0, null));
+        }
+        return result;
+    }
+
+    /**
+     * Off-heap copy of the full-resolution image, spooled on first use in one pass over the
+     * file, or stripe by stripe when the reader can't write into a window of rows.
+     * Random region reads then cost a few tile copies instead of a stripe decode each.
+     */
+    public synchronized MappedRasterStore getRasterStore() throws IOException {
+        if (rasterStore == null) {
+            System.out.println("[LOADER] Spooling " + file.getName() + " to off-heap raster store");
+            MappedRasterStore store = MappedRasterStore.create(width, height);
+            try {
+                if (!spoolSequentially(store)) {
+                    int stripeCount = (height + stripeHeight - 1) / stripeHeight;
+                    for (int index = 0; index < stripeCount; index++) {
+                        store.writeRegion(0, index * stripeHeight, decodeStripe(index));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                store.close();
+                throw e;
+            }
+            rasterStore = store;
+        }
+        return rasterStore;
+    }
+
+    /**
+     * Spools the image into a store in a single decode. The reader writes into a full-size
+     * destination whose buffer holds one stripe of rows, and each stripe goes to the store as
+     * the reader moves past it. Decoding stripes through setSourceRegion instead makes the PNG
+     * and JPEG readers decode every row above each stripe again, so the work grows with the
+     * square of the height.
+     * @return false, with the store partly written, for formats outside SEQUENTIAL_FORMATS,
+     *         interlaced PNGs, and pixel layouts that can't be windowed
+     */
+    private boolean spoolSequentially(MappedRasterStore store) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                throw new IOException("Cannot open " + file.getName());
+            }
+            ImageReader reader = createReader(input, file);
+            try {
+                if (!SEQUENTIAL_FORMATS.contains(reader.getFormatName().toLowerCase(java.util.Locale.ROOT))) {
+                    return false;
+                }
+                // The layout a plain read would decode to, as the stripes are
+                Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+                ImageTypeSpecifier type = types.hasNext() ? types.next() : null;
+                RowWindow window = type == null ? null : RowWindow.create(type, width, height, stripeHeight, store);
+                if (window == null) {
+                    return false;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setDestination(window.destination());
+                try {
+                    reader.read(0, param);
+                    window.finish();
+                } catch (IOException | RuntimeException e) {
+                    // Readers may wrap what the window throws
+                    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                        if (cause instanceof RowWindow.OutOfOrder) {
+                            System.out.println("[LOADER] " + file.getName() + " is not decoded top to bottom - spooling stripe by stripe");
+                            return false;
+                        }
+                        if (cause instanceof UncheckedIOException) {
+                            throw ((UncheckedIOException) cause).getCause();
+                        }
+                    }
+                    throw e;
+                }
+                return true;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Data buffer of a full-size destination raster that holds only a window of rows, in the
+     * reader's own pixel layout. When the reader moves below the window, the window is written
+     * to the store as ARGB and the next one begins; going back above it means the reader does
+     * not decode top to bottom.
+     */
+    private static class RowWindow extends DataBuffer {
+
+        /**
+         * Thrown when the reader touches rows already written to the store, or skips a window
+         */
+        static class OutOfOrder extends RuntimeException {
+            OutOfOrder() {
+                super("Rows decoded out of order", null, false, false);
+            }
+        }
+
+        private final ImageTypeSpecifier type;
+        private final int width;
+        private final int height;
+        private final int rows;
+        private final int scanlineStride;
+        private final BufferedImage window;
+        private final DataBuffer windowBuffer;
+        private final MappedRasterStore store;
+        private int top;
+        private int windowStart; // element index of the window's first row
+        private int windowEnd;
+
+        private RowWindow(ImageTypeSpecifier type, int width, int height, int rows, int scanlineStride,
+                          BufferedImage window, MappedRasterStore store) {
+            super(window.getRaster().getDataBuffer().getDataType(), scanlineStride * height);
+            this.type = type;
+            this.width = width;
+            this.height = height;
+            this.rows = rows;
+            this.scanlineStride = scanlineStride;
+            this.window = window;
+            this.windowBuffer = window.getRaster().getDataBuffer();
+            this.store = store;
+            this.windowEnd = Math.min(rows, height) * scanlineStride;
+        }
+
+        /**
+         * A window for the given pixel layout, or null if its rows aren't contiguous runs of
+         * one bank or the full image has more elements than a raster can index
+         */
+        static RowWindow create(ImageTypeSpecifier type, int width, int height, int rows, MappedRasterStore store) {
+            SampleModel model = type.getSampleModel(width, 1);
+            int stride = scanlineStride(model);
+            if (stride <= 0 || (long) stride * height > Integer.MAX_VALUE) {
+                return null;
+            }
+            BufferedImage window = type.createBufferedImage(width, Math.min(rows, height));
+            if (scanlineStride(window.getSampleModel()) != stride || window.getRaster().getDataBuffer().getNumBanks() != 1) {
+                return null;
+            }
+            return new RowWindow(type, width, height, rows, stride, window, store);
+        }
+
+        private static int scanlineStride(SampleModel model) {
+            if (model instanceof PixelInterleavedSampleModel) {
+                return ((PixelInterleavedSampleModel) model).getScanlineStride();
+            }
+            if (model instanceof SinglePixelPackedSampleModel) {
+                return ((SinglePixelPackedSampleModel) model).getScanlineStride();
+            }
+            if (model instanceof MultiPixelPackedSampleModel) {
+                return ((MultiPixelPackedSampleModel) model).getScanlineStride();
+            }
+            return 0;
+        }
+
+        /**
+         * The image to hand the reader as its destination
+         */
+        BufferedImage destination() {
+            ColorModel colorModel = type.getColorModel();
+            WritableRaster raster = Raster.createWritableRaster(type.getSampleModel(width, height), this, null);
+            return new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
+        }
+
+        @Override
+        public int getElem(int bank, int i) {
+            return windowBuffer.getElem(windowIndex(i));
+        }
+
+        @Override
+        public void setElem(int bank, int i, int value) {
+            windowBuffer.setElem(windowIndex(i), value);
+        }
+
+        /**
+         * Writes the last window, once the reader is done
+         */
+        void finish() {
+            if (top + rows < height) {
+                throw new OutOfOrder(); // The reader stopped before the last window
+            }
+            flush();
+        }
+
+        private int windowIndex(int i) {
+            if (i >= windowStart && i < windowEnd) {
+                return i - windowStart;
+            }
+            if (i < windowStart || i / scanlineStride >= top + 2 * rows) {
+                throw new OutOfOrder();
+            }
+            flush();
+            top += rows;
+            windowStart = windowEnd;
+            windowEnd = Math.min(top + rows, height) * scanlineStride;
+            return i - windowStart;
+        }
+
+        private void flush() {
+            int count = Math.min(rows, height - top);
+            try {
+                store.writeRegion(0, top, count == window.getHeight() ? window : window.getSubimage(0, 0, width, count));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Deletes the off-heap store, if one was created, and drops cached stripes
+     */
+    @Override
+    public synchronized void close() {
+        DecodeBudget.shared().release(this);
+        if (rasterStore != null) {
+            rasterStore.close();
+            rasterStore = null;
+        }
+    }
+
+    /**
+     * Returns a full-width stripe of full-resolution rows, decoding it if it isn't cached
+     */
+    private synchronized BufferedImage getStripe(int index) throws IOException {
+        BufferedImage stripe = (BufferedImage) DecodeBudget.shared().get(this, index);
+        if (stripe == null) {
+            stripe = decodeStripe(index);
+            DecodeBudget.shared().put(this, index, stripe, 4L * stripe.getWidth() * stripe.getHeight());
+        }
+        return stripe;
+    }
+
+    private BufferedImage decodeStripe(int index) throws IOException {
+        BufferedImage stripe;
+        int top = index * stripeHeight;
+        Rectangle stripeRegion = new Rectangle(0, top, width, Math.min(stripeHeight, height - top));
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                throw new IOException("Cannot open " + file.getName());
+            }
+            ImageReader reader = createReader(input, file);
+            try {
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(stripeRegion);
+                stripe = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+        return stripe;
+    }
+
+    /**
+     * Rows per stripe so that one stripe is about STRIPE_BYTES at 4 bytes per pixel
+     */
+    static int calculateStripeHeight(int width, int height) {
+        long rows = STRIPE_BYTES / (4L * Math.max(1, width));
+        return (int) Math.max(16, Math.min(height, rows));
+    }
+
+    private static ImageReader createReader(ImageInputStream input, File file) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IOException("Unsupported image format: " + file.getName());
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input, true, true);
+        return reader;
+    }
+}
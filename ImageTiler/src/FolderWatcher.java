@@ -0,0 +1,417 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watch-folder daemon: tiles every image dropped into a folder into a PDF in an output folder,
+ * with the scale, paper, blank-tile thresholds and edge packing saved in Settings. Files are
+ * picked up from WatchService events and, at start and after an event overflow, by listing
+ * the folder. A file is tiled only once its size and modification time have stayed unchanged
+ * for the settle time, so a file still being copied is not read half written, and a file is
+ * not tiled again unless it changes. Jobs run on a fixed pool with a bounded backlog; when the
+ * backlog is full the watcher waits rather than queueing without limit. Each job is logged
+ * and appended to tiling-metrics.csv in the output folder.
+ */
+public class FolderWatcher {
+
+    static final String USAGE =
+        "Usage: java -jar ImageTiler.jar --watch <drop folder> --out <output folder> [options]\n" +
+        "  --jobs <n>         images tiled at once (default: watchWorkers setting)\n" +
+        "  --settle <ms>      how long a file must be unchanged before it is tiled (default: watchSettleMillis setting)\n" +
+        "Scale, paper, blank-tile thresholds and edge packing come from the app's saved settings.";
+
+    static final String METRICS_FILE = "tiling-metrics.csv";
+
+    /**
+     * Jobs that may wait for a worker, per worker
+     */
+    static final int BACKLOG_PER_WORKER = 4;
+
+    private static final java.util.Set<String> IMAGE_EXTENSIONS = new java.util.HashSet<>(java.util.Arrays.asList(
+        "png", "jpg", "jpeg", "tif", "tiff"));
+
+    /**
+     * What one tiled file cost
+     */
+    static class JobMetrics {
+        final String file;
+        final long bytes;
+        final long waitMillis; // settled until a worker picked it up
+        final long runMillis;
+        final int pages;
+        final int tiles;
+        final String error;
+
+        JobMetrics(String file, long bytes, long waitMillis, long runMillis, int pages, int tiles, String error) {
+            this.file = file;
+            this.bytes = bytes;
+            this.waitMillis = waitMillis;
+            this.runMillis = runMillis;
+            this.pages = pages;
+            this.tiles = tiles;
+            this.error = error;
+        }
+
+        boolean isOk() {
+            return error == null;
+        }
+
+        String toCsv() {
+            return String.join(",", java.time.Instant.now().toString(), csv(file), Long.toString(bytes), Long.toString(waitMillis),
+                               Long.toString(runMillis), Integer.toString(pages), Integer.toString(tiles),
+                               error == null ? "ok" : csv(error));
+        }
+
+        private static String csv(String text) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+    }
+
+    /**
+     * Size and modification time of a file as last seen
+     */
+    private static class Snapshot {
+        final long size;
+        final long modified;
+        long stableSinceMillis;
+
+        Snapshot(long size, long modified, long stableSinceMillis) {
+            this.size = size;
+            this.modified = modified;
+            this.stableSinceMillis = stableSinceMillis;
+        }
+
+        boolean sameAs(Snapshot other) {
+            return other != null && size == other.size && modified == other.modified;
+        }
+    }
+
+    private final Path inbox;
+    private final File outputDir;
+    private final BatchTiler.Options options;
+    private final int workers;
+    private final long settleMillis;
+    private final long previewHeapShare;
+    private final ExecutorService pool;
+    private final Semaphore slots; // running plus waiting jobs
+    private final java.util.Map<Path, Snapshot> pending = new java.util.HashMap<>(); // seen, not yet settled
+    private final java.util.Map<Path, Snapshot> handled = new java.util.concurrent.ConcurrentHashMap<>(); // tiled or in flight
+    private final java.util.List<JobMetrics> metrics = java.util.Collections.synchronizedList(new java.util.ArrayList<>());
+    private final java.util.Map<Path, File> outputs = new java.util.HashMap<>(); // guarded by itself
+    private volatile boolean running;
+    private WatchService watchService;
+    private Thread watchThread;
+
+    FolderWatcher(Path inbox, File outputDir, BatchTiler.Options options, int workers, long settleMillis) {
+        this.inbox = inbox;
+        this.outputDir = outputDir;
+        this.options = options;
+        this.workers = Math.max(1, workers);
+        this.settleMillis = settleMillis;
+        this.previewHeapShare = DecodeBudget.previewHeapShare(this.workers);
+        this.slots = new Semaphore(this.workers * (1 + BACKLOG_PER_WORKER));
+        this.pool = Executors.newFixedThreadPool(this.workers, runnable -> {
+            Thread thread = new Thread(runnable, "folder-watcher-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs until the process is stopped; returns the exit code on a bad command line
+     */
+    public static int run(String[] args) {
+        Settings settings = Settings.getInstance();
+        Path inbox = null;
+        File outputDir = null;
+        int workers = settings.getWatchWorkers();
+        long settleMillis = settings.getWatchSettleMillis();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--watch":
+                        inbox = Paths.get(value);
+                        break;
+                    case "--out":
+                        outputDir = new File(value);
+                        break;
+                    case "--jobs":
+                        workers = Math.max(1, Integer.parseInt(value));
+                        break;
+                    case "--settle":
+                        settleMillis = Math.max(0, Long.parseLong(value));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + option);
+                }
+            }
+            if (inbox == null || !Files.isDirectory(inbox)) {
+                throw new IllegalArgumentException("No drop folder given, or it is not a folder");
+            }
+            if (outputDir == null) {
+                throw new IllegalArgumentException("No output folder given");
+            }
+            new FolderWatcher(inbox, outputDir, BatchTiler.Options.fromSettings(settings), workers, settleMillis).start();
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("[WATCH] " + e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    public void start() throws IOException {
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Cannot create output folder " + outputDir);
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        inbox.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        running = true;
+        watchThread = new Thread(this::watchLoop, "folder-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        System.out.println("[WATCH] Watching " + inbox.toAbsolutePath() + " -> " + outputDir.getAbsolutePath() + " (" + workers +
+                           " workers, " + settleMillis + " ms settle, scale " + options.scale + ", " + options.paper.name() + ")");
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException e) {
+            System.err.println("[WATCH] " + e.getMessage());
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+        pool.shutdownNow();
+    }
+
+    /**
+     * Per-job metrics so far, oldest first
+     */
+    public java.util.List<JobMetrics> getMetrics() {
+        synchronized (metrics) {
+            return new java.util.ArrayList<>(metrics);
+        }
+    }
+
+    private void watchLoop() {
+        long checkMillis = Math.max(50, Math.min(500, settleMillis / 2));
+        rescan();
+        try {
+            while (running) {
+                WatchKey key = watchService.poll(checkMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            rescan();
+                        } else {
+                            noticed(inbox.resolve((Path) event.context()), System.currentTimeMillis());
+                        }
+                    }
+                    key.reset();
+                }
+                for (Path file : settled(System.currentTimeMillis())) {
+                    submit(file);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        }
+    }
+
+    /**
+     * Notes every image already in the folder, e.g. dropped while the daemon was not running
+     */
+    private void rescan() {
+        File[] files = inbox.toFile().listFiles();
+        if (files != null) {
+            java.util.Arrays.sort(files); // name order, so same-named images get the same PDFs on every start
+            long now = System.currentTimeMillis();
+            for (File file : files) {
+                noticed(file.toPath(), now);
+            }
+        }
+    }
+
+    /**
+     * Records that a file was created or written to; it is tiled once it settles
+     */
+    void noticed(Path file, long nowMillis) {
+        if (!isImage(file)) {
+            return;
+        }
+        Snapshot seen = snapshot(file, nowMillis);
+        if (seen == null || seen.sameAs(handled.get(file))) {
+            return; // gone, or this exact content was already tiled
+        }
+        File output = outputFor(file);
+        if (output.isFile() && output.lastModified() >= seen.modified) {
+            handled.put(file, seen); // tiled before the daemon last stopped
+            return;
+        }
+        Snapshot previous = pending.get(file);
+        if (!seen.sameAs(previous)) {
+            pending.put(file, seen);
+        }
+    }
+
+    /**
+     * Files whose size and modification time have not changed for the settle time; each is
+     * returned once and moved from pending to handled
+     */
+    java.util.List<Path> settled(long nowMillis) {
+        java.util.List<Path> ready = new java.util.ArrayList<>();
+        for (java.util.Iterator<java.util.Map.Entry<Path, Snapshot>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            java.util.Map.Entry<Path, Snapshot> entry = it.next();
+            Snapshot now = snapshot(entry.getKey(), nowMillis);
+            if (now == null) {
+                it.remove(); // deleted or moved away before it settled
+            } else if (!now.sameAs(entry.getValue())) {
+                entry.setValue(now); // still being written
+            } else if (nowMillis - entry.getValue().stableSinceMillis >= settleMillis && now.size > 0) {
+                it.remove();
+                handled.put(entry.getKey(), now);
+                ready.add(entry.getKey());
+            }
+        }
+        return ready;
+    }
+
+    private void submit(Path file) throws InterruptedException {
+        long settledNanos = System.nanoTime();
+        slots.acquire(); // waits while the backlog is full
+        pool.execute(() -> {
+            try {
+                tile(file, (System.nanoTime() - settledNanos) / 1_000_000);
+            } finally {
+                slots.release();
+            }
+        });
+    }
+
+    /**
+     * The PDF an image is tiled into, named as in batch mode. The name is kept for the image
+     * once given, and an image whose PDF name another image already has (plan.png and
+     * plan.tif) gets a _2, _3... suffix, so no two images write the same file.
+     */
+    File outputFor(Path file) {
+        synchronized (outputs) {
+            File output = outputs.get(file);
+            if (output == null) {
+                java.util.Collection<File> taken = outputs.values();
+                output = BatchTiler.outputFor(file.toFile(), outputDir);
+                for (int n = 2; taken.contains(output); n++) {
+                    output = BatchTiler.outputFor(file.toFile(), outputDir, "_" + n);
+                }
+                outputs.put(file, output);
+            }
+            return output;
+        }
+    }
+
+    private void tile(Path file, long waitMillis) {
+        File image = file.toFile();
+        File output = outputFor(file);
+        long bytes = image.length();
+        long start = System.nanoTime();
+        File partial;
+        BatchTiler.FileResult result;
+        try {
+            // Unique per job, so a re-dropped image still being tiled never shares its partial file
+            partial = Files.createTempFile(outputDir.toPath(), output.getName() + ".", ".part").toFile();
+            result = BatchTiler.tileFile(image, partial, options, previewHeapShare, null);
+        } catch (IOException e) {
+            partial = null;
+            result = new BatchTiler.FileResult(image, output, 0, 0, 0, "Could not create a partial file: " + e.getMessage());
+        }
+        String error = result.error;
+        if (result.isOk()) {
+            // Appears in the output folder complete, never half written
+            try {
+                try {
+                    Files.move(partial.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(partial.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                error = "Could not move the PDF into place: " + e.getMessage();
+            }
+        }
+        if (error != null && partial != null) {
+            partial.delete();
+        }
+        JobMetrics job = new JobMetrics(image.getName(), bytes, waitMillis, (System.nanoTime() - start) / 1_000_000,
+                                        result.pages, result.tiles, error);
+        record(job);
+    }
+
+    private void record(JobMetrics job) {
+        metrics.add(job);
+        System.out.println("[WATCH] " + job.file + ": " + (job.isOk() ? job.pages + " of " + job.tiles + " pages" : "FAILED " + job.error) +
+                           " in " + job.runMillis + " ms after " + job.waitMillis + " ms waiting (" + metrics.size() + " files so far)");
+        File csv = new File(outputDir, METRICS_FILE);
+        synchronized (this) {
+            boolean header = !csv.exists();
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(csv.toPath(), StandardCharsets.UTF_8,
+                                                                           StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+                if (header) {
+                    out.println("finished,file,bytes,wait_ms,run_ms,pages,tiles,result");
+                }
+                out.println(job.toCsv());
+            } catch (IOException e) {
+                System.err.println("[WATCH] Could not write metrics: " + e.getMessage());
+            }
+        }
+    }
+
+    private static Snapshot snapshot(Path file, long nowMillis) {
+        try {
+            return new Snapshot(Files.size(file), Files.getLastModifiedTime(file).toMillis(), nowMillis);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Image files by extension, skipping hidden files and the temporary names copy tools use
+     */
+    static boolean isImage(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        int dot = name.lastIndexOf('.');
+        return !name.startsWith(".") && !name.startsWith("~") && dot > 0 && IMAGE_EXTENSIONS.contains(name.substring(dot + 1));
+    }
+}
@@ -0,0 +1,395 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the grid placement that prints the fewest non-blank pages at a given scale.
+ * The tiler anchors its grid at the image's top-left corner and picks the page orientation
+ * by total tile count alone; shifting the grid by part of a page, turning the pages, or
+ * turning the image a quarter often lets content that straddles a page boundary fit on fewer
+ * pages. Tiles are judged by sampling the preview exactly as the panel's blank-tile analysis
+ * does, so a recommended page count is the one the selection and the output will show. A
+ * ContentMap classifies every preview pixel once: tiles it shows to be empty are skipped in
+ * four lookups of its summed-area table, the rest are sampled from its bit per pixel rather
+ * than from the image, and it measures the content a layout would leave on blank pages.
+ */
+public class GridOptimizer {
+
+    /**
+     * Grid shifts tried per axis, as equal fractions of a page
+     */
+    static final int OFFSET_STEPS = 16;
+
+    /**
+     * Longest side of the content map in cells; the preview is binned down to this
+     */
+    static final int MAX_MAP_CELLS = 512;
+
+    /**
+     * Tiles narrower than this many preview pixels are blank, as in the blank-tile analysis
+     */
+    private static final int MIN_REGION_PIXELS = 5;
+
+    private GridOptimizer() {
+    }
+
+    /**
+     * Best placement found and what it saves
+     */
+    public static class Recommendation {
+        public final boolean rotate; // turn the image a quarter clockwise before applying the layout
+        public final TileCalculator.GridLayout layout;
+        public final int pages;
+        public final int currentPages;
+        public final int candidates;
+        public final long elapsedMillis;
+
+        Recommendation(boolean rotate, TileCalculator.GridLayout layout, int pages, int currentPages, int candidates, long elapsedMillis) {
+            this.rotate = rotate;
+            this.layout = layout;
+            this.pages = pages;
+            this.currentPages = currentPages;
+            this.candidates = candidates;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * True if the placement prints fewer pages than the current one
+         */
+        public boolean isImprovement() {
+            return pages < currentPages;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d -> %d pages: %s%s (%d candidates, %d ms)", currentPages, pages,
+                                 rotate ? "rotate 90°, " : "", layout, candidates, elapsedMillis);
+        }
+    }
+
+    /**
+     * Content pixel counts of an image binned into cells, as a summed-area table: the count in
+     * any block of cells is four lookups. The same parallel pass over the preview keeps one
+     * bit per pixel saying whether it is content, so tiles can be sampled without the image.
+     */
+    public static class ContentMap {
+        private final BufferedImage image;
+        private final ContentThresholds thresholds;
+        final int imageWidth;
+        final int imageHeight;
+        final int cellsWide;
+        final int cellsHigh;
+        private final int[] sums; // (cellsWide + 1) x (cellsHigh + 1), row-major
+        private final long[] contentBits; // one bit per pixel, each image row starting a new word
+        private final int wordsPerRow;
+
+        private ContentMap(BufferedImage image, ContentThresholds thresholds, int cellsWide, int cellsHigh, int[] sums,
+                           long[] contentBits, int wordsPerRow) {
+            this.image = image;
+            this.thresholds = thresholds;
+            this.imageWidth = image.getWidth();
+            this.imageHeight = image.getHeight();
+            this.cellsWide = cellsWide;
+            this.cellsHigh = cellsHigh;
+            this.sums = sums;
+            this.contentBits = contentBits;
+            this.wordsPerRow = wordsPerRow;
+        }
+
+        public static ContentMap of(BufferedImage image, ContentThresholds thresholds) {
+            int w = image.getWidth();
+            int h = image.getHeight();
+            double binning = Math.max(1.0, Math.max(w, h) / (double) MAX_MAP_CELLS);
+            int cellsWide = Math.max(1, (int) Math.ceil(w / binning));
+            int cellsHigh = Math.max(1, (int) Math.ceil(h / binning));
+            int[] cellOfColumn = new int[w];
+            for (int x = 0; x < w; x++) {
+                cellOfColumn[x] = Math.min(cellsWide - 1, (int) ((long) x * cellsWide / w));
+            }
+
+            // Each cell row is counted by one task, so no two tasks touch the same cells or words
+            int[] counts = new int[cellsWide * cellsHigh];
+            int wordsPerRow = (w + 63) >>> 6;
+            long[] contentBits = new long[wordsPerRow * h];
+            IntStream.range(0, cellsHigh).parallel().forEach(cellRow -> {
+                int[] row = new int[w];
+                int y0 = (int) ((long) cellRow * h / cellsHigh);
+                int y1 = (int) ((long) (cellRow + 1) * h / cellsHigh);
+                int base = cellRow * cellsWide;
+                for (int y = y0; y < y1; y++) {
+                    image.getRGB(0, y, w, 1, row, 0, w);
+                    int words = y * wordsPerRow;
+                    for (int x = 0; x < w; x++) {
+                        if (thresholds.isContentPixel(row[x])) {
+                            counts[base + cellOfColumn[x]]++;
+                            contentBits[words + (x >>> 6)] |= 1L << x;
+                        }
+                    }
+                }
+            });
+
+            int stride = cellsWide + 1;
+            int[] sums = new int[stride * (cellsHigh + 1)];
+            for (int cy = 0; cy < cellsHigh; cy++) {
+                int rowSum = 0;
+                for (int cx = 0; cx < cellsWide; cx++) {
+                    rowSum += counts[cy * cellsWide + cx];
+                    sums[(cy + 1) * stride + cx + 1] = sums[cy * stride + cx + 1] + rowSum;
+                }
+            }
+            return new ContentMap(image, thresholds, cellsWide, cellsHigh, sums, contentBits, wordsPerRow);
+        }
+
+        /**
+         * True if this map was built from the image with the same thresholds
+         */
+        public boolean matches(BufferedImage image, ContentThresholds thresholds) {
+            return this.image == image && this.thresholds.equals(thresholds);
+        }
+
+        /**
+         * Fraction (0..1) of the pixels in a region of the image that are content. The region is
+         * snapped to whole cells, which is exact when the map is not binned.
+         */
+        public double contentRatio(Rectangle region) {
+            int cx0 = cellX(region.x);
+            int cx1 = cellX(region.x + region.width);
+            int cy0 = cellY(region.y);
+            int cy1 = cellY(region.y + region.height);
+            if (cx1 <= cx0 || cy1 <= cy0) {
+                return 0;
+            }
+            double pixels = ((double) (cx1 - cx0) * imageWidth / cellsWide) * ((double) (cy1 - cy0) * imageHeight / cellsHigh);
+            return Math.min(1.0, contentPixels(cx0, cy0, cx1, cy1) / pixels);
+        }
+        
+        /**
+         * Number of content pixels in a region, snapped to whole cells
+         */
+        public long contentPixels(Rectangle region) {
+            int cx0 = cellX(region.x);
+            int cx1 = cellX(region.x + region.width);
+            int cy0 = cellY(region.y);
+            int cy1 = cellY(region.y + region.height);
+            return cx1 <= cx0 || cy1 <= cy0 ? 0 : contentPixels(cx0, cy0, cx1, cy1);
+        }
+        
+        /**
+         * True if any cell touching the region holds content; unlike contentPixels the region is
+         * snapped outward, so no content is missed
+         */
+        public boolean touchesContent(Rectangle region) {
+            int cx0 = Math.max(0, (int) Math.floor((double) region.x * cellsWide / imageWidth));
+            int cx1 = Math.min(cellsWide, (int) Math.ceil((double) (region.x + region.width) * cellsWide / imageWidth));
+            int cy0 = Math.max(0, (int) Math.floor((double) region.y * cellsHigh / imageHeight));
+            int cy1 = Math.min(cellsHigh, (int) Math.ceil((double) (region.y + region.height) * cellsHigh / imageHeight));
+            return cx1 > cx0 && cy1 > cy0 && contentPixels(cx0, cy0, cx1, cy1) > 0;
+        }
+
+        /**
+         * True if a region is non-blank by the thresholds this map was built with, sampled
+         * exactly as TileContentStats.record samples the image but read from the map's content
+         * bits: the sampled columns are a mask over a row's words, so a row of samples is a few
+         * popcounts. Sampling stops as soon as the remaining rows can no longer change the answer.
+         */
+        boolean sampledNonBlank(Rectangle region) {
+            int startX = Math.max(0, region.x);
+            int startY = Math.max(0, region.y);
+            int endX = Math.min(imageWidth, region.x + region.width);
+            int endY = Math.min(imageHeight, region.y + region.height);
+            int regionWidth = endX - startX;
+            int regionHeight = endY - startY;
+            if (regionWidth < MIN_REGION_PIXELS || regionHeight < MIN_REGION_PIXELS) {
+                return thresholds.isNonBlank(0);
+            }
+            int sampleStep = Math.max(1, Math.min(regionWidth, regionHeight) / 15);
+            int samplesWide = (regionWidth + sampleStep - 1) / sampleStep;
+            int samples = samplesWide * ((regionHeight + sampleStep - 1) / sampleStep);
+            int firstWord = startX >>> 6;
+            long[] sampledColumns = new long[((endX - 1) >>> 6) - firstWord + 1];
+            for (int x = startX; x < endX; x += sampleStep) {
+                sampledColumns[(x >>> 6) - firstWord] |= 1L << x;
+            }
+            int remaining = samples;
+            int content = 0;
+            for (int y = startY; y < endY; y += sampleStep) {
+                int words = y * wordsPerRow + firstWord;
+                for (int i = 0; i < sampledColumns.length; i++) {
+                    content += Long.bitCount(contentBits[words + i] & sampledColumns[i]);
+                }
+                remaining -= samplesWide;
+                if (thresholds.isNonBlank((double) content / samples)) {
+                    return true;
+                }
+                if (!thresholds.isNonBlank((double) (content + remaining) / samples)) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        private long contentPixels(int cx0, int cy0, int cx1, int cy1) {
+            int stride = cellsWide + 1;
+            return (long) sums[cy1 * stride + cx1] - sums[cy0 * stride + cx1] - sums[cy1 * stride + cx0] + sums[cy0 * stride + cx0];
+        }
+
+        private int cellX(int x) {
+            return Math.max(0, Math.min(cellsWide, (int) Math.round((double) x * cellsWide / imageWidth)));
+        }
+
+        private int cellY(int y) {
+            return Math.max(0, Math.min(cellsHigh, (int) Math.round((double) y * cellsHigh / imageHeight)));
+        }
+    }
+
+    /**
+     * How a grid fares: pages with content, and content pixels left on pages judged blank
+     * (which would not be printed). A layout may not drop more than the current one, so pages
+     * are never saved by cutting content into pieces that each fall under the blank threshold.
+     */
+    static class Score {
+        final int pages;
+        final long droppedPixels;
+
+        Score(int pages, long droppedPixels) {
+            this.pages = pages;
+            this.droppedPixels = droppedPixels;
+        }
+    }
+
+    /**
+     * Scores a grid over the mapped image seen in the given orientation, stopping early (with
+     * pages at the limit) once the page count reaches the limit
+     */
+    static Score score(ContentMap map, TileCalculator.TilingResult tiling, Orientation orientation,
+                       ContentThresholds thresholds, int limit) {
+        return score(map, tiling, orientation, thresholds, limit, Long.MAX_VALUE);
+    }
+
+    /**
+     * Scores a grid, also stopping early once more than maxDropped content pixels fall on blank
+     * pages; a score cut short either way only says the grid is out of the running
+     */
+    static Score score(ContentMap map, TileCalculator.TilingResult tiling, Orientation orientation,
+                       ContentThresholds thresholds, int limit, long maxDropped) {
+        int pages = 0;
+        long dropped = 0;
+        for (int row = 0; row < tiling.tilesHigh; row++) {
+            for (int col = 0; col < tiling.tilesWide; col++) {
+                Rectangle region = TileCalculator.tileSourceRegion(col, row, tiling, map.imageWidth, map.imageHeight, orientation);
+                if (region == null || region.isEmpty()) {
+                    continue;
+                }
+                if (isNonBlank(map, region, thresholds)) {
+                    if (++pages >= limit) {
+                        return new Score(pages, dropped);
+                    }
+                } else {
+                    dropped += map.contentPixels(region);
+                    if (dropped > maxDropped) {
+                        return new Score(pages, dropped);
+                    }
+                }
+            }
+        }
+        return new Score(pages, dropped);
+    }
+
+    /**
+     * True if a tile's region of the mapped image would be printed, judged by the same sampling
+     * as TileContentStats. With the map's own thresholds, regions it shows to hold no content
+     * are skipped unsampled and the rest are sampled from its content bits; other thresholds
+     * sample the image.
+     */
+    static boolean isNonBlank(ContentMap map, Rectangle region, ContentThresholds thresholds) {
+        if (region.width < MIN_REGION_PIXELS || region.height < MIN_REGION_PIXELS) {
+            return false;
+        }
+        if (map.thresholds.equals(thresholds)) {
+            return map.touchesContent(region) && map.sampledNonBlank(region);
+        }
+        return thresholds.isNonBlank(TileContentStats.regionContentRatio(map.image, region, thresholds));
+    }
+
+    /**
+     * The tiles of a grid that would be printed, row-major, judged the same way as score()
+     */
+    static java.util.List<TileCalculator.TileInfo> nonBlankTiles(ContentMap map, TileCalculator.TilingResult tiling,
+                                                                 Orientation orientation, ContentThresholds thresholds) {
+        java.util.List<TileCalculator.TileInfo> tiles = new java.util.ArrayList<>();
+        for (int row = 0; row < tiling.tilesHigh; row++) {
+            for (int col = 0; col < tiling.tilesWide; col++) {
+                Rectangle region = TileCalculator.tileSourceRegion(col, row, tiling, map.imageWidth, map.imageHeight, orientation);
+                if (region != null && isNonBlank(map, region, thresholds)) {
+                    tiles.add(new TileCalculator.TileInfo(col, row, row * tiling.tilesWide + col + 1));
+                }
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Tries every page orientation and grid shift, with the image as it is and turned a quarter,
+     * and returns the placement with the fewest non-blank pages. A placement that leaves more
+     * content on blank pages than the current grid is never chosen. Ties go to the least content
+     * left on blank pages, then the fewest total tiles, then the smallest shift; a quarter turn
+     * has to save pages outright.
+     *
+     * @param sourceWidth  width of the unrotated image at full resolution
+     * @param sourceHeight height of the unrotated image at full resolution
+     */
+    public static Recommendation optimize(ContentMap map, int sourceWidth, int sourceHeight, Orientation orientation, float scale,
+                                          double pageWidth, double pageHeight, ContentThresholds thresholds) {
+        long start = System.nanoTime();
+        TileCalculator.TilingResult current = TileCalculator.calculateTiling(orientation.rotatedWidth(sourceWidth, sourceHeight),
+                                                                          orientation.rotatedHeight(sourceWidth, sourceHeight),
+                                                                          pageWidth, pageHeight, scale);
+        Score currentScore = score(map, current, orientation, thresholds, Integer.MAX_VALUE);
+        int currentPages = currentScore.pages;
+
+        boolean bestRotate = false;
+        TileCalculator.GridLayout bestLayout = TileCalculator.GridLayout.DEFAULT;
+        int bestPages = currentPages;
+        long bestDropped = currentScore.droppedPixels;
+        int bestTiles = current.tilesWide * current.tilesHigh;
+        int candidates = 1;
+
+        for (int turn = 0; turn < 2; turn++) {
+            Orientation candidateOrientation = turn == 0 ? orientation : orientation.next();
+            TileCalculator.TilingResult base = TileCalculator.calculateTiling(candidateOrientation.rotatedWidth(sourceWidth, sourceHeight),
+                                                                           candidateOrientation.rotatedHeight(sourceWidth, sourceHeight),
+                                                                           pageWidth, pageHeight, scale);
+            for (TileCalculator.PageOrientation pages : new TileCalculator.PageOrientation[] {
+                     TileCalculator.PageOrientation.PORTRAIT, TileCalculator.PageOrientation.LANDSCAPE}) {
+                for (int stepY = 0; stepY < OFFSET_STEPS; stepY++) {
+                    for (int stepX = 0; stepX < OFFSET_STEPS; stepX++) {
+                        TileCalculator.GridLayout layout = new TileCalculator.GridLayout(
+                            pages, stepX / (double) OFFSET_STEPS, stepY / (double) OFFSET_STEPS);
+                        TileCalculator.TilingResult tiling = layout.apply(base);
+                        int tiles = tiling.tilesWide * tiling.tilesHigh;
+                        candidates++;
+                        // A rotation has to save pages outright; otherwise ties are broken as documented
+                        int limit = turn == 1 && !bestRotate ? bestPages : bestPages + 1;
+                        Score score = score(map, tiling, candidateOrientation, thresholds, limit, currentScore.droppedPixels);
+                        if (score.pages >= limit || score.droppedPixels > currentScore.droppedPixels) {
+                            continue;
+                        }
+                        if (score.pages < bestPages || score.droppedPixels < bestDropped ||
+                            (score.droppedPixels == bestDropped && tiles < bestTiles)) {
+                            bestRotate = turn == 1;
+                            bestLayout = layout;
+                            bestPages = score.pages;
+                            bestDropped = score.droppedPixels;
+                            bestTiles = tiles;
+                        }
+                    }
+                }
+            }
+        }
+
+        Recommendation recommendation = new Recommendation(bestRotate, bestLayout, bestPages, currentPages, candidates,
+                                                           (System.nanoTime() - start) / 1_000_000);
+        System.out.println("[OPTIMIZER] " + recommendation);
+        return recommendation;
+    }
+}
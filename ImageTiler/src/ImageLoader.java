@@ -0,0 +1,175 @@
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.swing.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntConsumer;
+
+/**
+ * Opens an image file off the EDT.
+ * Only the subsampled preview tier of the resulting source is decoded here, or read back
+ * from the AnalysisCache when the same file was opened before; full resolution is left to
+ * output time. TIFF files go to TiffImageSource (falling back to
+ * ImageIO for variants it doesn't decode), everything else to FileImageSource, whose
+ * progress comes from the reader's IIOReadProgressListener events.
+ */
+public class ImageLoader extends SwingWorker<ImageSource, Void> {
+
+    /**
+     * Callbacks for load events, always invoked on the EDT
+     */
+    public interface LoadListener {
+        void progress(String phase, int percent);
+        void loadComplete(ImageSource source);
+        void loadFailed(Exception e);
+    }
+
+    private final File file;
+    private final LoadListener listener;
+    private final long heapBytes;
+    private volatile int lastReportedPercent = -1;
+
+    public ImageLoader(File file, LoadListener listener) {
+        this(file, listener, Runtime.getRuntime().maxMemory());
+    }
+
+    /**
+     * @param heapBytes heap the preview tier is sized against; a share of the heap when several
+     *                  images are open together (see DecodeBudget.previewHeapShare)
+     */
+    public ImageLoader(File file, LoadListener listener, long heapBytes) {
+        this.file = file;
+        this.listener = listener;
+        this.heapBytes = heapBytes;
+    }
+
+    @Override
+    protected ImageSource doInBackground() throws Exception {
+        ImageSource source = openSource();
+        // One pass over the preview for background colour, colour class and content bounds;
+        // cached per image, so tile analysis doesn't repeat it on the EDT
+        if (!isCancelled()) {
+            ImageStatistics.of(source.getPreviewImage());
+        }
+        return source;
+    }
+
+    private ImageSource openSource() throws Exception {
+        return open(file, this::reportProgress, new ProgressForwarder(), heapBytes);
+    }
+
+    /**
+     * Opens an image file on the calling thread, without progress, for callers that run
+     * outside Swing such as the batch tiler
+     * @param heapBytes heap the preview tier is sized against
+     */
+    public static ImageSource open(File file, long heapBytes) throws IOException {
+        return open(file, heapBytes, true);
+    }
+
+    /**
+     * @param useCache false to bypass the AnalysisCache for files that will not be opened again
+     */
+    public static ImageSource open(File file, long heapBytes, boolean useCache) throws IOException {
+        return useCache ? open(file, null, null, heapBytes) : decode(file, null, null, heapBytes);
+    }
+
+    /**
+     * Opens from the AnalysisCache when it has this file, otherwise decodes the preview and
+     * hands it to the cache
+     */
+    private static ImageSource open(File file, IntConsumer tiffProgress, IIOReadProgressListener progress,
+                                    long heapBytes) throws IOException {
+        AnalysisCache cache = AnalysisCache.shared();
+        String key = cache.keyFor(file);
+        AnalysisCache.Preview cached = cache.lookup(key, heapBytes);
+        if (cached != null) {
+            try {
+                return openWithPreview(file, cached);
+            } catch (IOException e) {
+                System.out.println("[LOADER] Cached preview unusable (" + e.getMessage() + ") - decoding");
+            }
+        }
+        ImageSource source = decode(file, tiffProgress, progress, heapBytes);
+        cache.store(key, source.getPreviewImage(), source.getWidth(), source.getHeight(),
+                    FileImageSource.calculatePreviewSubsampling(source.getWidth(), source.getHeight(), heapBytes));
+        return source;
+    }
+
+    private static ImageSource openWithPreview(File file, AnalysisCache.Preview cached) throws IOException {
+        if (TiffImageSource.isTiff(file)) {
+            try {
+                return TiffImageSource.withPreview(file, cached.image);
+            } catch (TiffImageSource.UnsupportedTiffException e) {
+                // Decoded through ImageIO the first time, so read it that way again
+            }
+        }
+        return FileImageSource.withPreview(file, cached.width, cached.height, cached.image, cached.subsampling);
+    }
+
+    private static ImageSource decode(File file, IntConsumer tiffProgress, IIOReadProgressListener progress,
+                                      long heapBytes) throws IOException {
+        if (TiffImageSource.isTiff(file)) {
+            try {
+                return TiffImageSource.open(file, tiffProgress, heapBytes);
+            } catch (TiffImageSource.UnsupportedTiffException e) {
+                System.out.println("[LOADER] " + e.getMessage() + " - falling back to ImageIO");
+            }
+        }
+        return FileImageSource.open(file, progress, heapBytes);
+    }
+
+    /**
+     * Forwards decode progress to the listener on the EDT, dropping repeats
+     */
+    private void reportProgress(int percent) {
+        if (percent != lastReportedPercent && listener != null) {
+            lastReportedPercent = percent;
+            SwingUtilities.invokeLater(() -> {
+                if (!isCancelled()) {
+                    listener.progress("Decoding preview", percent);
+                }
+            });
+        }
+    }
+
+    @Override
+    protected void done() {
+        if (isCancelled() || listener == null) {
+            return;
+        }
+        try {
+            listener.loadComplete(get());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            System.err.println("[ERROR] Image load failed: " + cause);
+            listener.loadFailed(cause instanceof Exception ? (Exception) cause : e);
+        } catch (InterruptedException e) {
+            listener.loadFailed(e);
+        }
+    }
+
+    /**
+     * Forwards reader progress to the listener on the EDT and aborts the read once cancelled
+     */
+    private class ProgressForwarder implements IIOReadProgressListener {
+        @Override
+        public void imageProgress(ImageReader source, float percentageDone) {
+            if (isCancelled()) {
+                source.abort();
+                return;
+            }
+            reportProgress((int) percentageDone);
+        }
+
+        @Override public void sequenceStarted(ImageReader source, int minIndex) {}
+        @Override public void sequenceComplete(ImageReader source) {}
+        @Override public void imageStarted(ImageReader source, int imageIndex) {}
+        @Override public void imageComplete(ImageReader source) {}
+        @Override public void thumbnailStarted(ImageReader source, int imageIndex, int thumbnailIndex) {}
+        @Override public void thumbnailProgress(ImageReader source, float percentageDone) {}
+        @Override public void thumbnailComplete(ImageReader source) {}
+        @Override public void readAborted(ImageReader source) {}
+    }
+}
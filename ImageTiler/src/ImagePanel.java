@@ -1,4 +1,3 @@
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
@@ -8,22 +7,43 @@ import java.io.File;
 import java.io.IOException;
 
 public class ImagePanel extends JPanel {
-    private BufferedImage image;
-    private BufferedImage rotatedImage;
-    private float rotationAngle = 0;
+    private ImageSource loadedSource; // the image as loaded, margins included
+    private ImageSource imageSource; // what is tiled: loadedSource, or a CroppedImageSource of it when margins are trimmed
+    private BufferedImage image; // preview tier of imageSource
+    private Rectangle trimRegion; // content box in loadedSource pixels, null when untrimmed
+    private Orientation orientation = Orientation.NORMAL; // applied as a coordinate mapping, pixels are never rotated
+    private TileCalculator.GridLayout gridLayout = TileCalculator.GridLayout.DEFAULT; // page orientation and grid shift
     private float scale = 1.0f;
     private Settings settings;
     
+    // Background image loading
+    private ImageLoader imageLoader;
+    private int loadGeneration = 0;
+    
     // Cache for tile analysis to avoid recalculating every paint
     private java.util.List<TileCalculator.TileInfo> cachedNonBlankTiles;
     private TileCalculator.TilingResult cachedTilingResult;
     private float cachedScale = -1;
     private BufferedImage cachedAnalysisImage;
-    private float cachedRotationAngle = -1;
+    private Orientation cachedOrientation;
+    
+    // Background tile analysis - results are accepted only from the job whose generation is current
+    private SwingWorker<Void, Integer> analysisWorker;
+    private int analysisGeneration = 0;
+    private int analyzedTileCount = 0;
+    private boolean analysisComplete = false;
+    
+    // Per-tile sample histograms of the current grid, so thresholds can change without rescanning
+    private TileContentStats tileStats;
+    private ContentThresholds contentThresholds = Settings.getInstance().getContentThresholds();
+    private ImageStatistics imageStatistics; // of the preview, usually computed by the loader
+    private volatile GridOptimizer.ContentMap contentMap; // summed-area content counts of the preview, built on first optimization
+    private final Object contentMapLock = new Object();
+    private MixedLayoutSolver.SheetLayout sheetLayout; // mixed paper layout drawn over the preview, null when none
+    private RenderPlan renderPlan; // geometry and selection shared by preview, print and PDF, rebuilt when an input changes
     
     // Manual tile selection - three states: auto (default), manually excluded, manually included
-    private java.util.Set<String> manuallyExcludedTiles = new java.util.HashSet<>();
-    private java.util.Set<String> manuallyIncludedTiles = new java.util.HashSet<>();
+    private final TileSelectionGrid tileGrid = new TileSelectionGrid();
     private boolean manualSelectionMode = false;
     
     // For handling mouse clicks on tiles
@@ -37,6 +57,15 @@ public class ImagePanel extends JPanel {
     private double panY = 0;
     private Point lastPanPoint;
     private boolean isPanning = false;
+    
+    // Drag selection: left-drag selects a rectangle of tiles, Shift+left-drag a lasso
+    private Point dragStart;
+    private java.awt.geom.Path2D.Double dragPath; // in drawing coordinates, closed on release
+    private java.awt.geom.Point2D.Double dragCorner;
+    private boolean dragLasso = false;
+    private boolean dragMoved = false;
+    private boolean suppressNextClick = false;
+    private static final int DRAG_THRESHOLD = 4;
     private static final double MIN_ZOOM = 0.1;
     private static final double MAX_ZOOM = 10.0;
     private static final double ZOOM_INCREMENT = 0.1;
@@ -49,6 +78,11 @@ public class ImagePanel extends JPanel {
         addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
+                if (suppressNextClick) {
+                    // The release already finished a drag selection
+                    suppressNextClick = false;
+                    return;
+                }
                 if (!isPanning) {
 snapToGrid(e.getPoint());
                 }
@@ -61,6 +95,8 @@ snapToGrid(e.getPoint());
                     lastPanPoint = e.getPoint();
                     isPanning = true;
                     setCursor(Cursor.getPredefinedCursor(Cursor.MOVE_CURSOR));
+                } else if (SwingUtilities.isLeftMouseButton(e) && currentTilingResult != null) {
+                    startDragSelection(e);
                 }
             }
             
@@ -70,6 +106,8 @@ snapToGrid(e.getPoint());
                     isPanning = false;
                     setCursor(Cursor.getDefaultCursor());
                     lastPanPoint = null;
+                } else if (dragStart != null) {
+                    finishDragSelection();
                 }
             }
         });
@@ -84,6 +122,8 @@ snapToGrid(e.getPoint());
                     panY += dy / zoomFactor;
                     lastPanPoint = e.getPoint();
                     repaint();
+                } else if (dragStart != null) {
+                    updateDragSelection(e);
                 }
             }
         });
@@ -136,74 +176,361 @@ private void snapToGrid(Point clickPoint) {
 }
 
 public void setImage(String imagePath) {
-        try {
-            image = ImageIO.read(new File(imagePath));
-            rotatedImage = image;
-            rotationAngle = 0;
-            resetZoomAndPan(); // Reset zoom and pan when new image is loaded
-            invalidateCache(); // Clear cache when new image is loaded
-            repaint();
-        } catch (IOException e) {
-            e.printStackTrace();
+        loadImage(imagePath, null);
+    }
+    
+    /**
+     * Loads an image file in the background. Only the subsampled preview tier is decoded;
+     * full resolution is read later through getOutputSource() when printing or exporting.
+     */
+    public void loadImage(String imagePath, ImageLoader.LoadListener listener) {
+        cancelImageLoad();
+        final int generation = loadGeneration;
+        
+        imageLoader = new ImageLoader(new File(imagePath), new ImageLoader.LoadListener() {
+            @Override
+            public void progress(String phase, int percent) {
+                if (generation != loadGeneration) return;
+                if (listener != null) listener.progress(phase, percent);
+            }
+            
+            @Override
+            public void loadComplete(ImageSource source) {
+                if (generation != loadGeneration) return;
+                imageLoader = null;
+                setImageSource(source);
+                if (listener != null) listener.loadComplete(source);
+            }
+            
+            @Override
+            public void loadFailed(Exception e) {
+                if (generation != loadGeneration) return;
+                imageLoader = null;
+                e.printStackTrace();
+                if (listener != null) listener.loadFailed(e);
+            }
+        });
+        imageLoader.execute();
+    }
+    
+    /**
+     * Cancels any background load so its results can no longer replace the current image
+     */
+    private void cancelImageLoad() {
+        if (imageLoader != null) {
+            imageLoader.cancel(true);
+            imageLoader = null;
         }
+        loadGeneration++;
     }
     
-    public void setImage(BufferedImage bufferedImage) {
-        image = bufferedImage;
-        rotatedImage = image;
-        rotationAngle = 0;
+    /**
+     * Returns true while a background load is still decoding the image
+     */
+    public boolean isImageLoading() {
+        return imageLoader != null;
+    }
+    
+    private void setImageSource(ImageSource source) {
+        if (loadedSource != null && loadedSource != source) {
+            loadedSource.close();
+        }
+        loadedSource = source;
+        imageSource = source;
+        trimRegion = null;
+        image = source.getPreviewImage();
+        orientation = Orientation.NORMAL;
+        gridLayout = TileCalculator.GridLayout.DEFAULT;
+        sheetLayout = null;
+        // Blank tiles are judged against the paper colour of this image (calibration sheets keep every tile)
+        imageStatistics = isCalibrationImage() ? null : ImageStatistics.of(image);
+        contentThresholds = contentThresholds.withBackground(imageStatistics != null ? imageStatistics.getBackgroundRgb() : 0xFFFFFF);
+        applyMarginTrim();
         resetZoomAndPan(); // Reset zoom and pan when new image is loaded
         invalidateCache(); // Clear cache when new image is loaded
         repaint();
     }
+    
+    /**
+     * Tiles only the content box of the loaded image when margin trimming is on, through a
+     * CroppedImageSource so no pixels are copied. Calibration sheets are never trimmed.
+     * Returns true if the tiled region changed.
+     */
+    private boolean applyMarginTrim() {
+        Rectangle region = null;
+        Rectangle previewRegion = null;
+        if (settings.isAutoTrimMargins() && imageStatistics != null) {
+            BufferedImage preview = loadedSource.getPreviewImage();
+            Rectangle bounds = WhitespaceTrim.findContentBounds(preview, contentThresholds);
+            if (bounds != null) {
+                previewRegion = WhitespaceTrim.pad(bounds, preview.getWidth(), preview.getHeight());
+                region = WhitespaceTrim.toSourceRegion(previewRegion, preview.getWidth(), preview.getHeight(),
+                                                       loadedSource.getWidth(), loadedSource.getHeight());
+                if (region.width == loadedSource.getWidth() && region.height == loadedSource.getHeight()) {
+                    region = null; // Content reaches every edge, nothing to trim
+                }
+            }
+        }
+        if (java.util.Objects.equals(region, trimRegion)) {
+            return false;
+        }
+        trimRegion = region;
+        imageSource = region == null ? loadedSource : new CroppedImageSource(loadedSource, region, previewRegion);
+        image = imageSource.getPreviewImage();
+        gridLayout = TileCalculator.GridLayout.DEFAULT;
+        sheetLayout = null;
+        if (region != null) {
+            System.out.println("[DEBUG] Trimmed margins: tiling " + region.width + "x" + region.height + " at " + region.x + "," + region.y +
+                               " of " + loadedSource.getWidth() + "x" + loadedSource.getHeight());
+        }
+        return true;
+    }
+    
+    public void setImage(BufferedImage bufferedImage) {
+        cancelImageLoad();
+        setImageSource(new InMemoryImageSource(bufferedImage));
+    }
 
     public BufferedImage getImage() {
         return image;
     }
+    
+    public ImageSource getImageSource() {
+        return imageSource;
+    }
+    
+    /**
+     * Region of the loaded image that is tiled after margin trimming, in full-resolution
+     * unrotated pixels, or null if the whole image is tiled
+     */
+    public Rectangle getTrimRegion() {
+        return trimRegion == null ? null : new Rectangle(trimRegion);
+    }
+    
+    /**
+     * Statistics of the preview (background colour, colour class, content bounds), or null for calibration sheets
+     */
+    public ImageStatistics getImageStatistics() {
+        return imageStatistics;
+    }
+    
+    /**
+     * Width of the rotated image at full resolution
+     */
+    public int getOutputWidth() {
+        if (imageSource == null) return 0;
+        return orientation.rotatedWidth(imageSource.getWidth(), imageSource.getHeight());
+    }
+    
+    /**
+     * Height of the rotated image at full resolution
+     */
+    public int getOutputHeight() {
+        if (imageSource == null) return 0;
+        return orientation.rotatedHeight(imageSource.getWidth(), imageSource.getHeight());
+    }
+    
+    /**
+     * Image source for output in the current orientation. Rotated images are served through
+     * a RotatedImageSource, which rotates only the regions that output reads.
+     */
+    public ImageSource getOutputSource() {
+        if (imageSource == null) return null;
+        if (orientation == Orientation.NORMAL) {
+            return imageSource;
+        }
+        return new RotatedImageSource(imageSource, orientation);
+    }
+    
+    /**
+     * Unrotated preview-tier image used for blank-tile analysis; pair it with getOrientation()
+     */
+    public BufferedImage getAnalysisImage() {
+        return image;
+    }
+    
+    public Orientation getOrientation() {
+        return orientation;
+    }
+    
+    /**
+     * The tiling of the current image at the panel's scale, grid layout and paper, built once
+     * per change and shared by the preview and output
+     */
+    public RenderPlan getRenderPlan() {
+        double pageWidth = Settings.PaperSize.A4.getWidthPoints();
+        double pageHeight = Settings.PaperSize.A4.getHeightPoints();
+        RenderPlan plan = renderPlan;
+        if (plan == null || !plan.matches(getOutputWidth(), getOutputHeight(), orientation, scale, gridLayout, pageWidth, pageHeight)) {
+            plan = RenderPlan.of(getOutputWidth(), getOutputHeight(), orientation, scale, gridLayout, pageWidth, pageHeight);
+            renderPlan = plan;
+        }
+        return plan;
+    }
 
-    public BufferedImage getRotatedImage() {
-        // Log calibration detection when the image matches calibration dimensions
-        if (rotatedImage != null) {
-            int width = rotatedImage.getWidth();
-            int height = rotatedImage.getHeight();
-            
-            // Check if dimensions match known calibration image dimensions (3300×2550 or rotated)
-            boolean isCalibration = (width == 3300 && height == 2550) || (width == 2550 && height == 3300);
-            
-            if (isCalibration) {
-                System.out.println("[CALIBRATION] getRotatedImage() detected calibration image: " + width + "×" + height + " pixels");
-                System.out.println("[CALIBRATION] Image type: " + rotatedImage.getType());
-                System.out.println("[CALIBRATION] Color model: " + rotatedImage.getColorModel().getClass().getSimpleName());
-                System.out.println("[CALIBRATION] Has alpha: " + rotatedImage.getColorModel().hasAlpha());
-                System.out.println("[CALIBRATION] Rotation angle: " + rotationAngle + " degrees");
-            }
-            
-            // Validate that image is not empty/corrupted
-            if (width <= 0 || height <= 0) {
-                System.err.println("[ERROR] getRotatedImage() returning image with invalid dimensions: " + width + "×" + height);
-            } else {
-                System.out.println("[DEBUG] getRotatedImage() returning valid image: " + width + "×" + height + " pixels");
+    /**
+     * The render plan at the given scale with the tiles to print or save. At the panel's own
+     * scale the selection is kept on the panel's plan and reused until a tile's state or the
+     * thresholds change, so printing and saving do not rescan for blank tiles.
+     */
+    public RenderPlan getOutputPlan(float scale) {
+        RenderPlan plan = scale == this.scale ? getRenderPlan()
+            : RenderPlan.of(getOutputWidth(), getOutputHeight(), orientation, scale, gridLayout,
+                            Settings.PaperSize.A4.getWidthPoints(), Settings.PaperSize.A4.getHeightPoints());
+        int version = tileGrid.getVersion();
+        if (plan.hasSelection(version, contentThresholds)) {
+            System.out.println("[DEBUG] Reusing render plan selection: " + plan);
+            return plan;
+        }
+        plan = plan.withSelection(getSelectedTiles(plan.tiling, image), version, contentThresholds);
+        if (scale == this.scale) {
+            renderPlan = plan;
+        }
+        return plan;
+    }
+
+    /**
+     * Page orientation and grid shift applied on top of the tiler's grid
+     */
+    public TileCalculator.GridLayout getGridLayout() {
+        return gridLayout;
+    }
+    
+    /**
+     * Lays the grid out differently; manual picks are cleared since tiles move
+     */
+    public void setGridLayout(TileCalculator.GridLayout layout) {
+        gridLayout = layout != null ? layout : TileCalculator.GridLayout.DEFAULT;
+        clearManualSelections();
+        invalidateCache();
+        repaint();
+    }
+    
+    /**
+     * Searches grid shifts, page orientations and a quarter turn of the image for the fewest
+     * non-blank pages at the current scale. Safe to call off the EDT; the content map it
+     * needs is built once per image and thresholds and reused. Returns null for calibration
+     * sheets or when no image is loaded.
+     */
+    public GridOptimizer.Recommendation optimizeGridPlacement() {
+        BufferedImage preview = image;
+        ImageSource source = imageSource;
+        if (preview == null || source == null || isCalibrationImage()) {
+            return null;
+        }
+        ContentThresholds thresholds = contentThresholds;
+        RenderPlan plan = getRenderPlan();
+        return GridOptimizer.optimize(getContentMap(preview, thresholds), source.getWidth(), source.getHeight(), orientation, scale,
+                                      plan.pageWidth, plan.pageHeight, thresholds);
+    }
+
+    /**
+     * Non-blank page counts from minScale to maxScale at the current orientation and thresholds.
+     * Cheap once the content map exists, so it can follow typing. Safe to call off the EDT.
+     * Returns null for calibration sheets or when no image is loaded.
+     */
+    public java.util.List<ScaleSweep.Sample> sweepPageCounts(float minScale, float maxScale, int samples) {
+        BufferedImage preview = image;
+        ImageSource source = imageSource;
+        if (preview == null || source == null || isCalibrationImage()) {
+            return null;
+        }
+        ContentThresholds thresholds = contentThresholds;
+        RenderPlan plan = getRenderPlan();
+        return ScaleSweep.sweep(getContentMap(preview, thresholds), source.getWidth(), source.getHeight(), orientation, thresholds,
+                                minScale, maxScale, samples, plan.pageWidth, plan.pageHeight);
+    }
+
+    /**
+     * Largest scale whose non-blank pages at the current orientation and thresholds are at most
+     * maxPages; null for calibration sheets or when no image is loaded. Safe to call off the EDT.
+     */
+    public ScaleCalculator.PageFit fitToPages(int maxPages, boolean allowGridShift) {
+        BufferedImage preview = image;
+        ImageSource source = imageSource;
+        if (preview == null || source == null || isCalibrationImage()) {
+            return null;
+        }
+        ContentThresholds thresholds = contentThresholds;
+        RenderPlan plan = getRenderPlan();
+        return ScaleCalculator.calculateScaleForPageCount(getContentMap(preview, thresholds), source.getWidth(), source.getHeight(),
+                                                          orientation, thresholds, maxPages, allowGridShift, plan.pageWidth, plan.pageHeight);
+    }
+
+    /**
+     * Non-blank pages, printed size and page orientation at one scale; null as for sweepPageCounts
+     */
+    public ScaleSweep.Sample evaluateScale(float scale) {
+        BufferedImage preview = image;
+        ImageSource source = imageSource;
+        if (preview == null || source == null || isCalibrationImage()) {
+            return null;
+        }
+        ContentThresholds thresholds = contentThresholds;
+        RenderPlan plan = getRenderPlan();
+        return ScaleSweep.evaluate(getContentMap(preview, thresholds), source.getWidth(), source.getHeight(), orientation, thresholds,
+                                   scale, plan.pageWidth, plan.pageHeight);
+    }
+
+    /**
+     * Covers the content at the current scale and orientation with sheets of the given paper
+     * sizes, within the time budget. Safe to call off the EDT. Returns null for calibration
+     * sheets or when no image is loaded.
+     */
+    public MixedLayoutSolver.SheetLayout solveMixedPaperLayout(java.util.Collection<Settings.PaperSize> papers,
+                                                               MixedLayoutSolver.Objective objective, long budgetMillis) {
+        BufferedImage preview = image;
+        if (preview == null || imageSource == null || isCalibrationImage()) {
+            return null;
+        }
+        TileCalculator.TilingResult tiling = getRenderPlan().tiling;
+        return MixedLayoutSolver.solve(getContentMap(preview, contentThresholds), orientation, tiling.imageWidth, tiling.imageHeight,
+                                       papers, objective, budgetMillis);
+    }
+
+    /**
+     * Shows a mixed paper layout over the preview, or hides it when null. The layout is
+     * dropped when the image, scale or orientation changes.
+     */
+    public void setSheetLayoutOverlay(MixedLayoutSolver.SheetLayout layout) {
+        sheetLayout = layout;
+        repaint();
+    }
+
+    /**
+     * The content map of the preview for the given thresholds, built once and reused. Jobs that
+     * need it at the same time wait for one build rather than each making their own.
+     */
+    private GridOptimizer.ContentMap getContentMap(BufferedImage preview, ContentThresholds thresholds) {
+        synchronized (contentMapLock) {
+            GridOptimizer.ContentMap map = contentMap;
+            if (map == null || !map.matches(preview, thresholds)) {
+                map = GridOptimizer.ContentMap.of(preview, thresholds);
+                contentMap = map;
             }
-        } else {
-            System.err.println("[ERROR] getRotatedImage() returning null image!");
+            return map;
         }
-        
-        return rotatedImage;
     }
 
     public void setScale(float scale) {
+        if (scale != this.scale) {
+            gridLayout = TileCalculator.GridLayout.DEFAULT; // an optimized layout only holds for the scale it was found at
+            sheetLayout = null;
+        }
         this.scale = scale;
         resetZoomAndPan(); // Reset zoom and pan when scale changes
         invalidateCache(); // Clear cache when scale changes
         repaint();
     }
 
+    /**
+     * Turns the image a quarter clockwise. Only the orientation changes, so this is
+     * constant time and allocates nothing however large the image is.
+     */
     public void rotateImage() {
-        rotationAngle += 90;
-        if (rotationAngle == 360) {
-            rotationAngle = 0;
-        }
-        rotatedImage = rotateBufferedImage(image, rotationAngle);
+        orientation = orientation.next();
+        gridLayout = TileCalculator.GridLayout.DEFAULT;
+        sheetLayout = null;
         
         // Clear manual selections when rotating to avoid position mismatch
         clearManualSelections();
@@ -213,49 +540,19 @@ public void setImage(String imagePath) {
         repaint();
     }
 
-    private BufferedImage rotateBufferedImage(BufferedImage img, float angle) {
-        int w = img.getWidth();
-        int h = img.getHeight();
-        int newWidth = angle == 90 || angle == 270 ? h : w;
-        int newHeight = angle == 90 || angle == 270 ? w : h;
-        BufferedImage rotated = new BufferedImage(newWidth, newHeight, img.getType());
-        Graphics2D graphic = rotated.createGraphics();
-        graphic.rotate(Math.toRadians(angle), newWidth / 2.0, newHeight / 2.0);
-        graphic.translate((newWidth - w) / 2.0, (newHeight - h) / 2.0);
-        graphic.drawImage(img, 0, 0, null);
-        graphic.dispose();
-        return rotated;
-    }
-
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        if (rotatedImage != null) {
+        if (image != null) {
             Graphics2D g2d = (Graphics2D) g.create();
             int panelWidth = getWidth();
             int panelHeight = getHeight();
             
-            double pageWidth = 8.27 * 72; // A4 width in points (portrait)
-            double pageHeight = 11.69 * 72; // A4 height in points (portrait)
-            
-            // Calculate the effective image dimensions based on scale
-            // Always use single page baseline as reference
-            TileCalculator.TilingResult baselineResult = TileCalculator.calculateSinglePagePreview(rotatedImage.getWidth(), rotatedImage.getHeight(), pageWidth, pageHeight);
-            
-            int effectiveImageWidth, effectiveImageHeight;
-            TileCalculator.TilingResult tilingResult;
-            
-            if (scale == 1.0f) {
-                // At scale 1.0, use single page preview dimensions
-                tilingResult = baselineResult;
-                effectiveImageWidth = tilingResult.imageWidth;
-                effectiveImageHeight = tilingResult.imageHeight;
-            } else {
-                // When scaled, scale from the single page baseline
-                effectiveImageWidth = (int) (baselineResult.imageWidth * scale);
-                effectiveImageHeight = (int) (baselineResult.imageHeight * scale);
-                tilingResult = TileCalculator.calculateScaledTiling(rotatedImage.getWidth(), rotatedImage.getHeight(), pageWidth, pageHeight, scale);
-            }
+            // Tiling uses full-resolution dimensions so the grid matches print output exactly;
+            // only the pixels come from the preview tier
+            TileCalculator.TilingResult tilingResult = getRenderPlan().tiling;
+            int effectiveImageWidth = tilingResult.imageWidth;
+            int effectiveImageHeight = tilingResult.imageHeight;
 
             // Calculate display dimensions based on effective image size
             float aspectRatio = (float) effectiveImageWidth / effectiveImageHeight;
@@ -285,20 +582,28 @@ public void setImage(String imagePath) {
             int x = baseX;
             int y = baseY;
             
-            g2dTransformed.drawImage(rotatedImage, x, y, drawWidth, drawHeight, this);
+            // Draw the unrotated preview through the orientation mapping
+            Graphics2D g2dImage = (Graphics2D) g2dTransformed.create();
+            g2dImage.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2dImage.translate(x, y);
+            g2dImage.scale(drawWidth / (double) orientation.rotatedWidth(image.getWidth(), image.getHeight()),
+                           drawHeight / (double) orientation.rotatedHeight(image.getWidth(), image.getHeight()));
+            g2dImage.transform(orientation.getTransform(image.getWidth(), image.getHeight()));
+            g2dImage.drawImage(image, 0, 0, this);
+            g2dImage.dispose();
 
             double tileWidthScaled = drawWidth / (double) effectiveImageWidth * tilingResult.tileWidth;
             double tileHeightScaled = drawHeight / (double) effectiveImageHeight * tilingResult.tileHeight;
+            double originXScaled = drawWidth / (double) effectiveImageWidth * tilingResult.originX;
+            double originYScaled = drawHeight / (double) effectiveImageHeight * tilingResult.originY;
 
             // Get non-blank tiles using cached analysis or recalculate if needed
-            java.util.List<TileCalculator.TileInfo> nonBlankTiles = getCachedNonBlankTiles(tilingResult, rotatedImage);
-            java.util.Set<String> nonBlankPositions = new java.util.HashSet<>();
-            for (TileCalculator.TileInfo tile : nonBlankTiles) {
-                nonBlankPositions.add(tile.col + "," + tile.row);
-            }
+            // (analysis results are recorded in tileGrid as they arrive)
+            getCachedNonBlankTiles(tilingResult, image);
 
             // Draw tile grid only if enabled in settings
             if (!settings.isShowGrid()) {
+                drawSheetLayout(g2dTransformed, x, y, drawWidth, drawHeight, effectiveImageWidth, effectiveImageHeight);
                 // Store current drawing parameters for mouse handling even if grid is hidden
                 currentTilingResult = tilingResult;
                 lastDrawX = x;
@@ -313,74 +618,99 @@ public void setImage(String imagePath) {
             }
             
             g2dTransformed.setStroke(new BasicStroke(settings.getGridLineWidth()));
+            
+            // Colors, strokes and font are shared by every tile
+            Color excludedColor = settings.getExcludedColor();
+            Color gridColor = settings.getGridColor();
+            Color excludedFill = new Color(excludedColor.getRed(), excludedColor.getGreen(), excludedColor.getBlue(), 120);
+            Color includedFill = new Color(0, 100, 255, 100);
+            Color includedBorder = new Color(0, 100, 255);
+            Color nonBlankFill = new Color(gridColor.getRed(), gridColor.getGreen(), gridColor.getBlue(), 60);
+            Color pendingFill = new Color(200, 200, 200, 80);
+            BasicStroke manualStroke = new BasicStroke(settings.getGridLineWidth() + 1);
+            BasicStroke gridStroke = new BasicStroke(settings.getGridLineWidth());
+            BasicStroke pendingStroke = new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10, new float[] {4, 4}, 0);
+            BasicStroke blankStroke = new BasicStroke(1);
+            Font tileNumberFont = new Font("Arial", Font.BOLD, 12);
 
             for (int row = 0; row < tilingResult.tilesHigh; row++) {
                 for (int col = 0; col < tilingResult.tilesWide; col++) {
-                    int tileX = x + (int) (col * tileWidthScaled);
-                    int tileY = y + (int) (row * tileHeightScaled);
-                    int width = (int) Math.min(tileWidthScaled, drawWidth - col * tileWidthScaled);
-                    int height = (int) Math.min(tileHeightScaled, drawHeight - row * tileHeightScaled);
+                    // Tiles are clipped to the image; a shifted grid starts before its top-left corner
+                    double left = Math.max(0, col * tileWidthScaled - originXScaled);
+                    double top = Math.max(0, row * tileHeightScaled - originYScaled);
+                    int tileX = x + (int) left;
+                    int tileY = y + (int) top;
+                    int width = (int) (Math.min((col + 1) * tileWidthScaled - originXScaled, drawWidth) - left);
+                    int height = (int) (Math.min((row + 1) * tileHeightScaled - originYScaled, drawHeight) - top);
 
-                    String tileKey = col + "," + row;
-                    boolean isNonBlank = nonBlankPositions.contains(tileKey);
-                    boolean isExcluded = manuallyExcludedTiles.contains(tileKey);
-                    boolean isIncluded = manuallyIncludedTiles.contains(tileKey);
+                    boolean isNonBlank = tileGrid.isNonBlank(col, row);
+                    boolean isExcluded = tileGrid.isExcluded(col, row);
+                    boolean isIncluded = tileGrid.isIncluded(col, row);
+                    boolean isPending = !analysisComplete && row * tilingResult.tilesWide + col >= analyzedTileCount;
                     
                     // Draw semi-transparent overlay for different tile states
                     if (isExcluded) {
                         // Red overlay for excluded tiles
-                        Color excludedColor = settings.getExcludedColor();
-                        g2dTransformed.setColor(new Color(excludedColor.getRed(), excludedColor.getGreen(), excludedColor.getBlue(), 120));
+                        g2dTransformed.setColor(excludedFill);
                         g2dTransformed.fillRect(tileX, tileY, width, height);
                     } else if (isIncluded) {
                         // Blue overlay for manually included tiles
-                        g2dTransformed.setColor(new Color(0, 100, 255, 100));
+                        g2dTransformed.setColor(includedFill);
                         g2dTransformed.fillRect(tileX, tileY, width, height);
                     } else if (isNonBlank) {
                         // Green tint for auto-selected tiles
-                        Color gridColor = settings.getGridColor();
-                        g2dTransformed.setColor(new Color(gridColor.getRed(), gridColor.getGreen(), gridColor.getBlue(), 60));
+                        g2dTransformed.setColor(nonBlankFill);
+                        g2dTransformed.fillRect(tileX, tileY, width, height);
+                    } else if (isPending) {
+                        // Light wash for tiles still waiting on background analysis
+                        g2dTransformed.setColor(pendingFill);
                         g2dTransformed.fillRect(tileX, tileY, width, height);
                     }
 
                     // Draw border around tile
                     if (isExcluded) {
-                        g2dTransformed.setColor(settings.getExcludedColor()); // Red border for excluded
-                        g2dTransformed.setStroke(new BasicStroke(settings.getGridLineWidth() + 1));
+                        g2dTransformed.setColor(excludedColor); // Red border for excluded
+                        g2dTransformed.setStroke(manualStroke);
                     } else if (isIncluded) {
-                        g2dTransformed.setColor(new Color(0, 100, 255)); // Blue border for manually included
-                        g2dTransformed.setStroke(new BasicStroke(settings.getGridLineWidth() + 1));
+                        g2dTransformed.setColor(includedBorder); // Blue border for manually included
+                        g2dTransformed.setStroke(manualStroke);
                     } else if (isNonBlank) {
-                        g2dTransformed.setColor(settings.getGridColor()); // Green border for auto-selected
-                        g2dTransformed.setStroke(new BasicStroke(settings.getGridLineWidth()));
+                        g2dTransformed.setColor(gridColor); // Green border for auto-selected
+                        g2dTransformed.setStroke(gridStroke);
+                    } else if (isPending) {
+                        g2dTransformed.setColor(Color.GRAY); // Dashed gray border while analysis is pending
+                        g2dTransformed.setStroke(pendingStroke);
                     } else {
                         g2dTransformed.setColor(Color.GRAY); // Gray border for blank
-                        g2dTransformed.setStroke(new BasicStroke(1));
+                        g2dTransformed.setStroke(blankStroke);
                     }
                     g2dTransformed.drawRect(tileX, tileY, width, height);
                     
                     // Add tile numbers if enabled in settings
                     if (settings.isShowTileNumbers()) {
                         g2dTransformed.setColor(Color.BLACK);
-                        g2dTransformed.setFont(new Font("Arial", Font.BOLD, 12));
+                        g2dTransformed.setFont(tileNumberFont);
                         int tileNum = row * tilingResult.tilesWide + col + 1;
                         g2dTransformed.drawString(String.valueOf(tileNum), tileX + width / 2 - 6, tileY + height / 2 + 6);
                     }
                 }
             }
             
-            // Calculate selected tiles count
-            int selectedTiles = 0;
-            int excludedNonBlankTiles = 0;
-            for (TileCalculator.TileInfo tile : nonBlankTiles) {
-                String tileKey = tile.col + "," + tile.row;
-                if (!manuallyExcludedTiles.contains(tileKey)) {
-                    selectedTiles++;
-                } else {
-                    excludedNonBlankTiles++;
-                }
+            drawSheetLayout(g2dTransformed, x, y, drawWidth, drawHeight, effectiveImageWidth, effectiveImageHeight);
+
+            // Rectangle or lasso being dragged
+            if (dragPath != null && dragMoved) {
+                g2dTransformed.setColor(new Color(0, 100, 255, 40));
+                g2dTransformed.fill(dragPath);
+                g2dTransformed.setColor(new Color(0, 100, 255));
+                g2dTransformed.setStroke(pendingStroke);
+                g2dTransformed.draw(dragPath);
             }
             
+            // Calculate selected tiles count (cached in the grid, recounted once after a change)
+            int selectedTiles = tileGrid.countSelected();
+            int excludedNonBlankTiles = tileGrid.countExcludedNonBlank();
+            
             // Draw enhanced information overlay with modern styling
             drawModernInfoPanel(g2d, selectedTiles, tilingResult, excludedNonBlankTiles);
 
@@ -399,30 +729,38 @@ public void setImage(String imagePath) {
     }
     
     /**
-     * Invalidates the tile analysis cache
+     * Invalidates the tile analysis cache and cancels any analysis job still running for it
      */
     private void invalidateCache() {
+        cancelTileAnalysis();
+        renderPlan = null;
         cachedNonBlankTiles = null;
         cachedTilingResult = null;
         cachedScale = -1;
         cachedAnalysisImage = null;
-        cachedRotationAngle = -1;
+        cachedOrientation = null;
     }
     
     /**
-     * Gets non-blank tiles using cache or recalculates if needed
+     * Gets non-blank tiles using cache, starting a background analysis job if needed.
+     * While the job runs the returned list grows row by row; tiles at or beyond
+     * analyzedTileCount (row-major) are still pending.
      */
     private java.util.List<TileCalculator.TileInfo> getCachedNonBlankTiles(TileCalculator.TilingResult tilingResult, BufferedImage currentImage) {
         // Check if we need to recalculate
         boolean needsRecalculation = cachedNonBlankTiles == null ||
                                       cachedScale != scale ||
                                       cachedAnalysisImage != currentImage ||
-                                      cachedRotationAngle != rotationAngle ||
+                                      cachedOrientation != orientation ||
                                       !tilingResultsEqual(cachedTilingResult, tilingResult);
         
         if (needsRecalculation) {
+            cancelTileAnalysis();
+            tileGrid.setDimensions(tilingResult.tilesWide, tilingResult.tilesHigh);
+            tileGrid.clearAnalysis();
+            
             // Check if this is a calibration image
-            boolean isCalibration = isCalibrationImage(currentImage);
+            boolean isCalibration = isCalibrationImage();
             
             if (isCalibration) {
                 System.out.println("[CALIBRATION] getCachedNonBlankTiles detected calibration image: " + currentImage.getWidth() + "×" + currentImage.getHeight() + " pixels");
@@ -435,20 +773,163 @@ public void setImage(String imagePath) {
                         cachedNonBlankTiles.add(new TileCalculator.TileInfo(col, row, row * tilingResult.tilesWide + col + 1));
                     }
                 }
+                tileGrid.markAllNonBlank();
+                tileStats = null;
+                analyzedTileCount = tilingResult.tilesWide * tilingResult.tilesHigh;
+                analysisComplete = true;
             } else {
-                // For regular images, use normal blank tile detection
-                cachedNonBlankTiles = TileCalculator.getNonBlankTiles(tilingResult, currentImage);
+                // For regular images, run blank tile detection off the EDT and fill in results as they arrive
+                cachedNonBlankTiles = new java.util.ArrayList<>();
+                startTileAnalysis(tilingResult, currentImage);
             }
             
             cachedTilingResult = tilingResult;
             cachedScale = scale;
             cachedAnalysisImage = currentImage;
-            cachedRotationAngle = rotationAngle;
+            cachedOrientation = orientation;
         }
         
         return cachedNonBlankTiles;
     }
     
+    /**
+     * Starts a background job that samples the grid row by row into tileStats and publishes
+     * each finished row back to the EDT, where it is classified with the current thresholds.
+     * Results from a job whose generation is no longer current are dropped, so a stale job
+     * can never overwrite a newer grid. A grid analyzed before on the same file is read back
+     * from the AnalysisCache instead of sampled.
+     */
+    private void startTileAnalysis(TileCalculator.TilingResult tilingResult, BufferedImage analysisImage) {
+        final int generation = ++analysisGeneration;
+        final Orientation analysisOrientation = orientation;
+        final TileContentStats stats = new TileContentStats(tilingResult.tilesWide, tilingResult.tilesHigh, contentThresholds.backgroundRgb);
+        final BufferedImage loadedPreview = loadedSource != null ? loadedSource.getPreviewImage() : null;
+        final String grid = AnalysisCache.gridName(tilingResult, analysisOrientation, trimRegion,
+                                                   analysisImage.getWidth(), analysisImage.getHeight());
+        tileStats = stats;
+        analyzedTileCount = 0;
+        analysisComplete = false;
+        
+        analysisWorker = new SwingWorker<Void, Integer>() {
+            private boolean fromCache;
+            
+            @Override
+            protected Void doInBackground() {
+                if (loadedPreview != null && AnalysisCache.shared().loadTileStats(loadedPreview, grid, stats)) {
+                    fromCache = true;
+                    for (int row = 0; row < tilingResult.tilesHigh; row++) {
+                        publish(row);
+                    }
+                    return null;
+                }
+                Rectangle empty = new Rectangle();
+                for (int row = 0; row < tilingResult.tilesHigh; row++) {
+                    for (int col = 0; col < tilingResult.tilesWide; col++) {
+                        if (isCancelled()) {
+                            return null;
+                        }
+                        Rectangle region = TileCalculator.tileSourceRegion(col, row, tilingResult, analysisImage, analysisOrientation);
+                        stats.record(col, row, analysisImage, region != null ? region : empty);
+                    }
+                    publish(row);
+                }
+                return null;
+            }
+            
+            @Override
+            protected void process(java.util.List<Integer> rows) {
+                if (generation != analysisGeneration) {
+                    return;
+                }
+                for (int row : rows) {
+                    for (int col = 0; col < tilingResult.tilesWide; col++) {
+                        boolean nonBlank = stats.isNonBlank(col, row, contentThresholds);
+                        tileGrid.setAnalysis(col, row, nonBlank);
+                        if (nonBlank) {
+                            cachedNonBlankTiles.add(new TileCalculator.TileInfo(col, row, row * tilingResult.tilesWide + col + 1));
+                        }
+                    }
+                    analyzedTileCount = (row + 1) * tilingResult.tilesWide;
+                }
+                repaint();
+            }
+            
+            @Override
+            protected void done() {
+                if (generation != analysisGeneration || isCancelled()) {
+                    return;
+                }
+                boolean analyzed = true;
+                try {
+                    get();
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    System.err.println("[ERROR] Tile analysis failed: " + e.getMessage());
+                    analyzed = false;
+                }
+                if (analyzed && !fromCache && loadedPreview != null) {
+                    AnalysisCache.shared().storeTileStats(loadedPreview, grid, stats);
+                }
+                analyzedTileCount = tilingResult.tilesWide * tilingResult.tilesHigh;
+                analysisComplete = true;
+                repaint();
+            }
+        };
+        analysisWorker.execute();
+    }
+    
+    /**
+     * Thresholds deciding which tiles count as blank
+     */
+    public ContentThresholds getContentThresholds() {
+        return contentThresholds;
+    }
+    
+    /**
+     * Changes the blank-tile thresholds and reclassifies every analyzed tile from the stored
+     * sample histograms - no pixels are read, so this can follow a slider as it is dragged
+     */
+    public void setContentThresholds(ContentThresholds thresholds) {
+        if (thresholds == null || thresholds.equals(contentThresholds)) {
+            return;
+        }
+        contentThresholds = thresholds;
+        TileContentStats stats = tileStats;
+        if (stats != null && stats.getBackgroundRgb() != thresholds.backgroundRgb) {
+            // Histograms were measured against another background; sample the grid again
+            invalidateCache();
+        } else if (stats != null && cachedNonBlankTiles != null && cachedTilingResult != null &&
+            stats.getTilesWide() == tileGrid.getTilesWide() && stats.getTilesHigh() == tileGrid.getTilesHigh()) {
+            stats.classify(thresholds, tileGrid);
+            cachedNonBlankTiles.clear();
+            for (int row = 0; row < stats.getTilesHigh(); row++) {
+                for (int col = 0; col < stats.getTilesWide(); col++) {
+                    if (stats.isRecorded(col, row) && tileGrid.isNonBlank(col, row)) {
+                        cachedNonBlankTiles.add(new TileCalculator.TileInfo(col, row, row * stats.getTilesWide() + col + 1));
+                    }
+                }
+            }
+        }
+        repaint();
+    }
+    
+    /**
+     * Cancels the running analysis job (if any) and retires its generation
+     */
+    private void cancelTileAnalysis() {
+        if (analysisWorker != null) {
+            analysisWorker.cancel(true);
+            analysisWorker = null;
+        }
+        analysisGeneration++;
+    }
+    
+    /**
+     * Returns true while background tile analysis for the current grid is still running
+     */
+    public boolean isTileAnalysisPending() {
+        return image != null && !analysisComplete;
+    }
+    
     /**
      * Compares two tiling results for equality
      */
@@ -459,20 +940,20 @@ public void setImage(String imagePath) {
                Math.abs(a.tileWidth - b.tileWidth) < 0.01 &&
                Math.abs(a.tileHeight - b.tileHeight) < 0.01 &&
                a.imageWidth == b.imageWidth &&
-               a.imageHeight == b.imageHeight;
+               a.imageHeight == b.imageHeight &&
+               Math.abs(a.originX - b.originX) < 0.01 &&
+               Math.abs(a.originY - b.originY) < 0.01;
     }
     
     /**
      * Checks if the current loaded image is a calibration image
      */
     public boolean isCalibrationImage() {
-        BufferedImage image = getRotatedImage();
-        if (image == null) return false;
+        if (loadedSource == null) return false;
         
-        // Check if dimensions match known calibration image dimensions
-        // The calibration image is 3300 x 2550 pixels
-        return (image.getWidth() == 3300 && image.getHeight() == 2550) ||
-               (image.getWidth() == 2550 && image.getHeight() == 3300); // Account for rotation
+        // Check if full-resolution dimensions match known calibration image dimensions
+        // The calibration image is 3300 x 2550 pixels (either way round, and never trimmed)
+        return isCalibrationSize(loadedSource.getWidth(), loadedSource.getHeight());
     }
     
     /**
@@ -480,11 +961,32 @@ public void setImage(String imagePath) {
      */
     public static boolean isCalibrationImage(BufferedImage image) {
         if (image == null) return false;
-        
-        // Check if dimensions match known calibration image dimensions
+        return isCalibrationSize(image.getWidth(), image.getHeight());
+    }
+    
+    /**
+     * Checks if the given full-resolution dimensions match the calibration image
+     */
+    public static boolean isCalibrationSize(int width, int height) {
         // The calibration image is 3300 x 2550 pixels
-        return (image.getWidth() == 3300 && image.getHeight() == 2550) ||
-               (image.getWidth() == 2550 && image.getHeight() == 3300); // Account for rotation
+        return (width == 3300 && height == 2550) ||
+               (width == 2550 && height == 3300); // Account for rotation
+    }
+    
+    /**
+     * Grid column under an x coordinate in drawing space (may be outside the grid)
+     */
+    private int tileColumnAt(double drawX) {
+        double pointsPerPixel = lastImageWidth / (double) lastDrawWidth;
+        return (int) Math.floor(((drawX - lastDrawX) * pointsPerPixel + currentTilingResult.originX) / currentTilingResult.tileWidth);
+    }
+    
+    /**
+     * Grid row under a y coordinate in drawing space (may be outside the grid)
+     */
+    private int tileRowAt(double drawY) {
+        double pointsPerPixel = lastImageHeight / (double) lastDrawHeight;
+        return (int) Math.floor(((drawY - lastDrawY) * pointsPerPixel + currentTilingResult.originY) / currentTilingResult.tileHeight);
     }
     
     /**
@@ -497,31 +999,14 @@ public void setImage(String imagePath) {
         double transformedX = (point.x - getWidth() / 2.0) / zoomFactor + getWidth() / 2.0 - panX;
         double transformedY = (point.y - getHeight() / 2.0) / zoomFactor + getHeight() / 2.0 - panY;
         
-        double tileWidthScaled = (double) lastDrawWidth / currentTilingResult.tilesWide;
-        double tileHeightScaled = (double) lastDrawHeight / currentTilingResult.tilesHigh;
-
-        int col = (int) ((transformedX - lastDrawX) / tileWidthScaled);
-        int row = (int) ((transformedY - lastDrawY) / tileHeightScaled);
+        int col = tileColumnAt(transformedX);
+        int row = tileRowAt(transformedY);
 
         // Check if click is within bounds
         if (col >= 0 && col < currentTilingResult.tilesWide && row >= 0 && row < currentTilingResult.tilesHigh) {
-            String tileKey = col + "," + row;
-            
-            // Determine current state and cycle to next state
-            boolean isExcluded = manuallyExcludedTiles.contains(tileKey);
-            boolean isIncluded = manuallyIncludedTiles.contains(tileKey);
-            
-            if (!isExcluded && !isIncluded) {
-                // Auto → Excluded
-                manuallyExcludedTiles.add(tileKey);
-            } else if (isExcluded) {
-                // Excluded → Included
-                manuallyExcludedTiles.remove(tileKey);
-                manuallyIncludedTiles.add(tileKey);
-            } else if (isIncluded) {
-                // Included → Auto
-                manuallyIncludedTiles.remove(tileKey);
-            }
+            // Cycle auto → excluded → included → auto
+            tileGrid.setDimensions(currentTilingResult.tilesWide, currentTilingResult.tilesHigh);
+            tileGrid.cycle(col, row);
             
             repaint();
         }
@@ -538,31 +1023,14 @@ public void setImage(String imagePath) {
         double transformedX = (e.getX() - getWidth() / 2.0) / zoomFactor + getWidth() / 2.0 - panX;
         double transformedY = (e.getY() - getHeight() / 2.0) / zoomFactor + getHeight() / 2.0 - panY;
         
-        double tileWidthScaled = (double) lastDrawWidth / currentTilingResult.tilesWide;
-        double tileHeightScaled = (double) lastDrawHeight / currentTilingResult.tilesHigh;
-
-        int col = (int) ((transformedX - lastDrawX) / tileWidthScaled);
-        int row = (int) ((transformedY - lastDrawY) / tileHeightScaled);
+        int col = tileColumnAt(transformedX);
+        int row = tileRowAt(transformedY);
 
         // Check if click is within bounds
         if (col >= 0 && col < currentTilingResult.tilesWide && row >= 0 && row < currentTilingResult.tilesHigh) {
-            String tileKey = col + "," + row;
-            
-            // Determine current state and cycle to next state
-            boolean isExcluded = manuallyExcludedTiles.contains(tileKey);
-            boolean isIncluded = manuallyIncludedTiles.contains(tileKey);
-            
-            if (!isExcluded && !isIncluded) {
-                // Auto → Excluded
-                manuallyExcludedTiles.add(tileKey);
-            } else if (isExcluded) {
-                // Excluded → Included
-                manuallyExcludedTiles.remove(tileKey);
-                manuallyIncludedTiles.add(tileKey);
-            } else if (isIncluded) {
-                // Included → Auto
-                manuallyIncludedTiles.remove(tileKey);
-            }
+            // Cycle auto → excluded → included → auto
+            tileGrid.setDimensions(currentTilingResult.tilesWide, currentTilingResult.tilesHigh);
+            tileGrid.cycle(col, row);
             
             repaint();
         }
@@ -572,22 +1040,195 @@ public void setImage(String imagePath) {
      * Gets the set of manually excluded tiles
      */
     public java.util.Set<String> getManuallyExcludedTiles() {
-        return manuallyExcludedTiles;
+        // Live "col,row" view of the tile grid
+        return tileGrid.keysWithState(TileSelectionGrid.EXCLUDED);
+    }
+    
+    /**
+     * Per-tile selection and analysis state of the current grid
+     */
+    public TileSelectionGrid getTileGrid() {
+        return tileGrid;
     }
     
     /**
      * Clears all manual tile selections
      */
     public void clearManualSelections() {
-        manuallyExcludedTiles.clear();
-        manuallyIncludedTiles.clear();
+        tileGrid.clearManual();
+        repaint();
+    }
+    
+    /**
+     * Swaps selected and unselected tiles
+     */
+    public void invertTileSelection() {
+        if (!prepareBulkSelection()) return;
+        tileGrid.invertSelection();
         repaint();
     }
     
+    /**
+     * Selects or deselects every tile
+     */
+    public void setAllTilesSelected(boolean selected) {
+        if (!prepareBulkSelection()) return;
+        tileGrid.setSelected(0, 0, tileGrid.getTilesWide() - 1, tileGrid.getTilesHigh() - 1, selected);
+        repaint();
+    }
+    
+    /**
+     * Selects or deselects one row of tiles (0-based)
+     */
+    public void setTileRowSelected(int row, boolean selected) {
+        if (!prepareBulkSelection()) return;
+        tileGrid.setRowSelected(row, selected);
+        repaint();
+    }
+    
+    /**
+     * Selects or deselects one column of tiles (0-based)
+     */
+    public void setTileColumnSelected(int col, boolean selected) {
+        if (!prepareBulkSelection()) return;
+        tileGrid.setColumnSelected(col, selected);
+        repaint();
+    }
+    
+    /**
+     * Selects exactly the tiles whose sampled content ratio (0..1) is at least the threshold.
+     * Returns the number of tiles selected, or -1 if there is no grid to select from.
+     */
+    public int selectTilesByContent(double threshold) {
+        if (!prepareBulkSelection() || isCalibrationImage()) return -1;
+        TileCalculator.TilingResult tilingResult = currentTilingResult;
+        int selected = 0;
+        TileContentStats stats = tileStats;
+        boolean useStats = stats != null && analysisComplete &&
+                           stats.getTilesWide() == tilingResult.tilesWide && stats.getTilesHigh() == tilingResult.tilesHigh;
+        for (int row = 0; row < tilingResult.tilesHigh; row++) {
+            for (int col = 0; col < tilingResult.tilesWide; col++) {
+                double ratio = useStats ? stats.contentRatio(col, row, contentThresholds)
+                                        : TileCalculator.tileContentRatio(col, row, tilingResult, image, orientation, contentThresholds);
+                boolean hasContent = ratio >= threshold;
+                tileGrid.setSelected(col, row, hasContent);
+                if (hasContent) selected++;
+            }
+        }
+        repaint();
+        return selected;
+    }
+    
+    /**
+     * Current grid size in tiles (columns, rows), or null before the first paint
+     */
+    public Dimension getTileGridSize() {
+        return currentTilingResult == null ? null : new Dimension(currentTilingResult.tilesWide, currentTilingResult.tilesHigh);
+    }
+    
+    private boolean prepareBulkSelection() {
+        if (image == null || currentTilingResult == null) {
+            return false;
+        }
+        tileGrid.setDimensions(currentTilingResult.tilesWide, currentTilingResult.tilesHigh);
+        return true;
+    }
+    
+    /**
+     * Maps a panel point to the drawing coordinates the tile grid is laid out in (undoing zoom and pan)
+     */
+    private java.awt.geom.Point2D.Double toDrawingSpace(Point point) {
+        return new java.awt.geom.Point2D.Double(
+            (point.x - getWidth() / 2.0) / zoomFactor + getWidth() / 2.0 - panX,
+            (point.y - getHeight() / 2.0) / zoomFactor + getHeight() / 2.0 - panY);
+    }
+    
+    private void startDragSelection(MouseEvent e) {
+        suppressNextClick = false;
+        dragStart = e.getPoint();
+        dragLasso = e.isShiftDown();
+        dragMoved = false;
+        java.awt.geom.Point2D.Double start = toDrawingSpace(dragStart);
+        dragPath = new java.awt.geom.Path2D.Double();
+        dragPath.moveTo(start.x, start.y);
+        dragCorner = start;
+    }
+    
+    private void updateDragSelection(MouseEvent e) {
+        if (!dragMoved && dragStart.distance(e.getPoint()) < DRAG_THRESHOLD) {
+            return;
+        }
+        dragMoved = true;
+        java.awt.geom.Point2D.Double point = toDrawingSpace(e.getPoint());
+        if (dragLasso) {
+            dragPath.lineTo(point.x, point.y);
+        } else {
+            java.awt.geom.Point2D.Double start = toDrawingSpace(dragStart);
+            dragCorner = point;
+            dragPath = new java.awt.geom.Path2D.Double(new java.awt.geom.Rectangle2D.Double(
+                Math.min(start.x, point.x), Math.min(start.y, point.y), Math.abs(point.x - start.x), Math.abs(point.y - start.y)));
+        }
+        repaint();
+    }
+    
+    /**
+     * Applies a finished drag to the covered tiles: a rectangle takes every tile it touches, a lasso
+     * every tile whose centre it encloses. Tiles become excluded if the tile where the drag started
+     * was selected, included otherwise - so dragging works like painting with the opposite state.
+     */
+    private void finishDragSelection() {
+        try {
+            if (!dragMoved || !prepareBulkSelection()) {
+                return;
+            }
+            suppressNextClick = true;
+            java.awt.geom.Point2D.Double start = toDrawingSpace(dragStart);
+            int startCol = tileColumnAt(start.x);
+            int startRow = tileRowAt(start.y);
+            boolean select = tileGrid.contains(startCol, startRow) && !tileGrid.isSelected(startCol, startRow);
+            
+            if (dragLasso) {
+                dragPath.closePath();
+                java.awt.geom.Rectangle2D bounds = dragPath.getBounds2D();
+                int col0 = Math.max(0, tileColumnAt(bounds.getMinX()));
+                int col1 = Math.min(tileGrid.getTilesWide() - 1, tileColumnAt(bounds.getMaxX()));
+                int row0 = Math.max(0, tileRowAt(bounds.getMinY()));
+                int row1 = Math.min(tileGrid.getTilesHigh() - 1, tileRowAt(bounds.getMaxY()));
+                double tileWidthScaled = lastDrawWidth / (double) lastImageWidth * currentTilingResult.tileWidth;
+                double tileHeightScaled = lastDrawHeight / (double) lastImageHeight * currentTilingResult.tileHeight;
+                double gridX = lastDrawX - lastDrawWidth / (double) lastImageWidth * currentTilingResult.originX;
+                double gridY = lastDrawY - lastDrawHeight / (double) lastImageHeight * currentTilingResult.originY;
+                for (int row = row0; row <= row1; row++) {
+                    double centerY = gridY + (row + 0.5) * tileHeightScaled;
+                    for (int col = col0; col <= col1; col++) {
+                        if (dragPath.contains(gridX + (col + 0.5) * tileWidthScaled, centerY)) {
+                            tileGrid.setSelected(col, row, select);
+                        }
+                    }
+                }
+            } else {
+                int endCol = tileColumnAt(dragCorner.x);
+                int endRow = tileRowAt(dragCorner.y);
+                tileGrid.setSelected(startCol, startRow, endCol, endRow, select);
+            }
+        } finally {
+            dragStart = null;
+            dragPath = null;
+            dragCorner = null;
+            dragMoved = false;
+            repaint();
+        }
+    }
+    
     /**
      * Refreshes the display after settings changes
      */
     public void refreshDisplay() {
+        if (loadedSource != null && applyMarginTrim()) {
+            // The grid now covers a different region, so manual picks no longer line up
+            clearManualSelections();
+            resetZoomAndPan();
+        }
         invalidateCache();
         repaint();
     }
@@ -610,34 +1251,37 @@ public void setImage(String imagePath) {
             return calibrationTiles;
         }
         
-        java.util.List<TileCalculator.TileInfo> allNonBlankTiles = TileCalculator.getNonBlankTiles(tilingResult, image);
-        System.out.println("[DEBUG] Non-blank tiles found: " + allNonBlankTiles.size());
-        
-        java.util.List<TileCalculator.TileInfo> selectedTiles = new java.util.ArrayList<>();
-        java.util.Set<String> addedTiles = new java.util.HashSet<>();
-        
-        // Add auto-selected tiles (not manually excluded)
-        for (TileCalculator.TileInfo tile : allNonBlankTiles) {
-            String tileKey = tile.col + "," + tile.row;
-            System.out.println("[DEBUG] Processing tile: " + tileKey + " (excluded: " + manuallyExcludedTiles.contains(tileKey) + ")");
-            if (!manuallyExcludedTiles.contains(tileKey)) {
-                selectedTiles.add(tile);
-                addedTiles.add(tileKey);
-            }
+        // The panel's own preview is unrotated; anything else was passed in already oriented
+        Orientation analysisOrientation = image == this.image ? orientation : Orientation.NORMAL;
+        java.util.List<TileCalculator.TileInfo> allNonBlankTiles;
+        if (image == this.image && analysisComplete && cachedNonBlankTiles != null && cachedAnalysisImage == image &&
+            cachedOrientation == orientation && tilingResultsEqual(cachedTilingResult, tilingResult)) {
+            // The background analysis already classified this exact grid with the current thresholds
+            allNonBlankTiles = new java.util.ArrayList<>(cachedNonBlankTiles);
+        } else {
+            allNonBlankTiles = TileCalculator.getNonBlankTiles(tilingResult, image, analysisOrientation, contentThresholds);
         }
+        System.out.println("[DEBUG] Non-blank tiles found: " + allNonBlankTiles.size());
         
-        System.out.println("[DEBUG] Manual exclusions: " + manuallyExcludedTiles.size());
-        System.out.println("[DEBUG] Manual inclusions: " + manuallyIncludedTiles.size());
+        System.out.println("[DEBUG] Manual exclusions: " + tileGrid.countManual(TileSelectionGrid.EXCLUDED));
+        System.out.println("[DEBUG] Manual inclusions: " + tileGrid.countManual(TileSelectionGrid.INCLUDED));
         
-        // Add manually included tiles (even if they weren't auto-selected)
-        for (String tileKey : manuallyIncludedTiles) {
-            if (!addedTiles.contains(tileKey)) {
-                String[] parts = tileKey.split(",");
-                int col = Integer.parseInt(parts[0]);
-                int row = Integer.parseInt(parts[1]);
-                int tileNumber = row * tilingResult.tilesWide + col + 1;
-                selectedTiles.add(new TileCalculator.TileInfo(col, row, tileNumber));
-                System.out.println("[DEBUG] Added manually included tile: " + tileKey);
+        // Walk the grid in row-major order alongside the (row-major) non-blank list:
+        // auto-selected tiles unless excluded, plus manually included ones
+        java.util.List<TileCalculator.TileInfo> selectedTiles = new java.util.ArrayList<>();
+        int next = 0;
+        for (int row = 0; row < tilingResult.tilesHigh; row++) {
+            for (int col = 0; col < tilingResult.tilesWide; col++) {
+                TileCalculator.TileInfo nonBlank = null;
+                if (next < allNonBlankTiles.size() && allNonBlankTiles.get(next).col == col && allNonBlankTiles.get(next).row == row) {
+                    nonBlank = allNonBlankTiles.get(next++);
+                }
+                byte manual = tileGrid.getManualState(col, row);
+                if (manual == TileSelectionGrid.INCLUDED) {
+                    selectedTiles.add(nonBlank != null ? nonBlank : new TileCalculator.TileInfo(col, row, row * tilingResult.tilesWide + col + 1));
+                } else if (nonBlank != null && manual != TileSelectionGrid.EXCLUDED) {
+                    selectedTiles.add(nonBlank);
+                }
             }
         }
         
@@ -645,13 +1289,55 @@ public void setImage(String imagePath) {
         return selectedTiles;
     }
     
+    /**
+     * Grid size the whole loaded image would need when printed at the same size per pixel
+     * as the trimmed region, choosing the cheaper page orientation like the tiler does
+     */
+    private int untrimmedTileCount(TileCalculator.TilingResult tilingResult) {
+        double pointsPerPixel = tilingResult.imageWidth / (double) getOutputWidth();
+        double width = orientation.rotatedWidth(loadedSource.getWidth(), loadedSource.getHeight()) * pointsPerPixel;
+        double height = orientation.rotatedHeight(loadedSource.getWidth(), loadedSource.getHeight()) * pointsPerPixel;
+        double pageWidth = Math.min(tilingResult.tileWidth, tilingResult.tileHeight);
+        double pageHeight = Math.max(tilingResult.tileWidth, tilingResult.tileHeight);
+        int portrait = (int) (Math.ceil(width / pageWidth) * Math.ceil(height / pageHeight));
+        int landscape = (int) (Math.ceil(width / pageHeight) * Math.ceil(height / pageWidth));
+        return Math.min(portrait, landscape);
+    }
+    
+    /**
+     * Outlines each sheet of the mixed paper layout, labelled with its number and paper size
+     */
+    private void drawSheetLayout(Graphics2D g2d, int x, int y, int drawWidth, int drawHeight, int imageWidth, int imageHeight) {
+        MixedLayoutSolver.SheetLayout layout = sheetLayout;
+        if (layout == null || layout.renderWidth != imageWidth || layout.renderHeight != imageHeight) {
+            return;
+        }
+        double sx = drawWidth / (double) imageWidth;
+        double sy = drawHeight / (double) imageHeight;
+        Color sheetColor = new Color(0, 150, 80);
+        g2d.setFont(new Font("Arial", Font.BOLD, 12));
+        for (int i = 0; i < layout.sheets.size(); i++) {
+            MixedLayoutSolver.Sheet sheet = layout.sheets.get(i);
+            int left = x + (int) Math.round(sheet.cell.x * sx);
+            int top = y + (int) Math.round(sheet.cell.y * sy);
+            int width = (int) Math.round(sheet.cell.width * sx);
+            int height = (int) Math.round(sheet.cell.height * sy);
+            g2d.setColor(new Color(0, 150, 80, 50));
+            g2d.fillRect(left, top, width, height);
+            g2d.setColor(sheetColor);
+            g2d.setStroke(new BasicStroke(2));
+            g2d.drawRect(left, top, width, height);
+            g2d.drawString((i + 1) + " " + sheet.paper.name() + (sheet.landscape ? " ↔" : ""), left + 4, top + 14);
+        }
+    }
+
     /**
      * Draws a modern styled information panel
      */
     private void drawModernInfoPanel(Graphics2D g2d, int selectedTiles, TileCalculator.TilingResult tilingResult, int excludedNonBlankTiles) {
         // Create a rounded rectangle background
         int panelWidth = 350;
-        int panelHeight = 220;
+        int panelHeight = trimRegion != null ? 240 : 220;
         int panelX = 15;
         int panelY = 15;
         
@@ -686,8 +1372,26 @@ public void setImage(String imagePath) {
         g2d.setColor(new Color(34, 139, 34));
         g2d.setFont(new Font("SansSerif", Font.BOLD, 14));
         g2d.drawString("[#] Pages to print: " + selectedTiles, panelX + 15, contentY);
+        if (!analysisComplete) {
+            // Count is still growing while the background analysis fills in tiles
+            int totalTiles = tilingResult.tilesWide * tilingResult.tilesHigh;
+            g2d.setColor(new Color(120, 120, 120));
+            g2d.setFont(new Font("SansSerif", Font.ITALIC, 12));
+            g2d.drawString("(analyzing " + Math.min(analyzedTileCount, totalTiles) + "/" + totalTiles + "...)", panelX + 200, contentY);
+        }
         contentY += lineHeight + 3;
         
+        // Pages the same print would need without margin trimming
+        if (trimRegion != null) {
+            int untrimmedTiles = untrimmedTileCount(tilingResult);
+            int trimmedTiles = tilingResult.tilesWide * tilingResult.tilesHigh;
+            g2d.setColor(new Color(0, 137, 123));
+            g2d.setFont(new Font("SansSerif", Font.PLAIN, 13));
+            g2d.drawString("[T] Margins trimmed: " + untrimmedTiles + " -> " + trimmedTiles + " pages (" +
+                           Math.max(0, untrimmedTiles - trimmedTiles) + " saved)", panelX + 15, contentY);
+            contentY += lineHeight;
+        }
+        
         // Grid size
         g2d.setColor(new Color(60, 60, 60));
         g2d.setFont(new Font("SansSerif", Font.PLAIN, 13));
@@ -0,0 +1,47 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Two-tier access to an image.
+ * The preview tier is a subsampled copy that stays resident and serves the on-screen
+ * preview and blank-tile analysis; full-resolution pixels are only decoded when
+ * output (printing or PDF export) asks for them.
+ */
+public interface ImageSource extends Closeable {
+
+    /**
+     * Full-resolution width in pixels
+     */
+    int getWidth();
+
+    /**
+     * Full-resolution height in pixels
+     */
+    int getHeight();
+
+    /**
+     * Subsampled image used for display and tile analysis (may be the full image for small sources)
+     */
+    BufferedImage getPreviewImage();
+
+    /**
+     * Full-resolution pixels, decoded on demand
+     */
+    BufferedImage getFullImage() throws IOException;
+
+    /**
+     * Full-resolution pixels of one region, decoded without materialising the whole image
+     * where the source allows it. Output paths use this so memory stays bounded by tile size.
+     * @param region area in full-resolution pixel coordinates, already clipped to the image
+     */
+    BufferedImage readRegion(Rectangle region) throws IOException;
+
+    /**
+     * Releases scratch files or caches held by the source. The default holds nothing.
+     */
+    @Override
+    default void close() {
+    }
+}
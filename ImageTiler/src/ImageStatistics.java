@@ -0,0 +1,307 @@
+import java.awt.image.BufferedImage;
+import java.util.stream.IntStream;
+
+/**
+ * Whole-image statistics gathered in one parallel pass over the preview: luminance and
+ * alpha histograms, an estimate of the background colour and a bilevel/grayscale/colour
+ * classification. The content box for margin trimming is WhitespaceTrim's, which also
+ * tolerates specks of dust in a margin.
+ * Results are cached per image, so the loader can compute them in the background and
+ * tile analysis picks them up for free.
+ */
+public class ImageStatistics {
+
+    public enum ColorClass {
+        BILEVEL, GRAYSCALE, COLOR
+    }
+
+    /**
+     * Pixels below this alpha are treated as transparent and left out of colour statistics
+     */
+    private static final int OPAQUE_ALPHA = ContentThresholds.DEFAULT.minAlpha;
+
+    /**
+     * Width of the border band (fraction of each dimension) used to find the background
+     */
+    private static final double BORDER_FRACTION = 0.03;
+
+    /**
+     * A non-white background is only trusted if it covers this share of the border band
+     * and of the whole image; otherwise full-bleed photos would have their main colour
+     * treated as blank paper. An image that is almost entirely one flat colour is artwork,
+     * not paper, so that is rejected too.
+     */
+    private static final double MIN_BORDER_SHARE = 0.5;
+    private static final double MIN_IMAGE_SHARE = 0.2;
+    private static final double MAX_IMAGE_SHARE = 0.98;
+
+    /**
+     * Channel spread above which a pixel counts as coloured, and the share of coloured
+     * (or mid-gray) pixels above which an image stops being grayscale (or bilevel)
+     */
+    private static final int CHROMA_TOLERANCE = 24;
+    private static final double CLASS_SHARE = 0.01;
+
+    private static final int CHUNKS_PER_CORE = 4;
+
+    private static final java.util.Map<BufferedImage, ImageStatistics> CACHE =
+        java.util.Collections.synchronizedMap(new java.util.WeakHashMap<>());
+
+    private final int width;
+    private final int height;
+    private final long[] lumaHistogram;
+    private final long[] alphaHistogram;
+    private final int backgroundRgb;
+    private final double backgroundShare;
+    private final ColorClass colorClass;
+
+    private ImageStatistics(int width, int height, long[] lumaHistogram, long[] alphaHistogram, int backgroundRgb,
+                            double backgroundShare, ColorClass colorClass) {
+        this.width = width;
+        this.height = height;
+        this.lumaHistogram = lumaHistogram;
+        this.alphaHistogram = alphaHistogram;
+        this.backgroundRgb = backgroundRgb;
+        this.backgroundShare = backgroundShare;
+        this.colorClass = colorClass;
+    }
+
+    /**
+     * Statistics for an image, computed on first request and cached while the image is alive
+     */
+    public static ImageStatistics of(BufferedImage image) {
+        ImageStatistics statistics = CACHE.get(image);
+        if (statistics == null) {
+            statistics = compute(image);
+            CACHE.put(image, statistics);
+        }
+        return statistics;
+    }
+
+    /**
+     * Caches statistics computed earlier for an image, such as ones read back from the AnalysisCache
+     */
+    static void remember(BufferedImage image, ImageStatistics statistics) {
+        if (statistics.width == image.getWidth() && statistics.height == image.getHeight()) {
+            CACHE.put(image, statistics);
+        }
+    }
+
+    /**
+     * Writes everything but the cache link, for the AnalysisCache
+     */
+    void writeTo(java.io.DataOutputStream out) throws java.io.IOException {
+        out.writeInt(width);
+        out.writeInt(height);
+        for (int i = 0; i < 256; i++) {
+            out.writeLong(lumaHistogram[i]);
+            out.writeLong(alphaHistogram[i]);
+        }
+        out.writeInt(backgroundRgb);
+        out.writeDouble(backgroundShare);
+        out.writeUTF(colorClass.name());
+    }
+
+    static ImageStatistics readFrom(java.io.DataInputStream in) throws java.io.IOException {
+        int width = in.readInt();
+        int height = in.readInt();
+        long[] luma = new long[256];
+        long[] alpha = new long[256];
+        for (int i = 0; i < 256; i++) {
+            luma[i] = in.readLong();
+            alpha[i] = in.readLong();
+        }
+        int background = in.readInt();
+        double backgroundShare = in.readDouble();
+        ColorClass colorClass;
+        try {
+            colorClass = ColorClass.valueOf(in.readUTF());
+        } catch (IllegalArgumentException e) {
+            throw new java.io.IOException("Unknown colour class", e);
+        }
+        return new ImageStatistics(width, height, luma, alpha, background, backgroundShare, colorClass);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Pixel counts by Rec. 601 luminance (opaque pixels only)
+     */
+    public long[] getLumaHistogram() {
+        return lumaHistogram.clone();
+    }
+
+    /**
+     * Pixel counts by alpha
+     */
+    public long[] getAlphaHistogram() {
+        return alphaHistogram.clone();
+    }
+
+    /**
+     * Estimated background (paper) colour as 0xRRGGBB; white when no other colour clearly dominates
+     */
+    public int getBackgroundRgb() {
+        return backgroundRgb;
+    }
+
+    /**
+     * Share of opaque pixels in the background colour's bin
+     */
+    public double getBackgroundShare() {
+        return backgroundShare;
+    }
+
+    public ColorClass getColorClass() {
+        return colorClass;
+    }
+
+    /**
+     * One pass over the image in parallel row chunks. Besides the histograms, every opaque
+     * pixel lands in one of 4096 colour bins (4 bits per channel) that keeps its count,
+     * channel sums; the background is derived from the bins afterwards, so no second pass
+     * is needed.
+     */
+    static ImageStatistics compute(BufferedImage image) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int border = Math.max(1, (int) Math.round(Math.min(w, h) * BORDER_FRACTION));
+        // A few chunks per core: enough to balance load without one set of bins per handful of rows
+        int rowsPerChunk = Math.max(1, (h + CHUNKS_PER_CORE * Runtime.getRuntime().availableProcessors() - 1) /
+                                       (CHUNKS_PER_CORE * Runtime.getRuntime().availableProcessors()));
+        int chunks = (h + rowsPerChunk - 1) / rowsPerChunk;
+
+        Accumulator total = IntStream.range(0, chunks).parallel()
+            .mapToObj(chunk -> {
+                Accumulator accumulator = new Accumulator();
+                int[] row = new int[w];
+                int y1 = Math.min(h, (chunk + 1) * rowsPerChunk);
+                for (int y = chunk * rowsPerChunk; y < y1; y++) {
+                    image.getRGB(0, y, w, 1, row, 0, w);
+                    boolean borderRow = y < border || y >= h - border;
+                    for (int x = 0; x < w; x++) {
+                        accumulator.add(row[x], borderRow || x < border || x >= w - border);
+                    }
+                }
+                return accumulator;
+            })
+            .reduce(Accumulator::merge)
+            .orElseGet(Accumulator::new);
+
+        // Background: the dominant border bin, trusted only if it clearly dominates; white otherwise
+        int bestBorderBin = 0;
+        for (int bin = 1; bin < Accumulator.BINS; bin++) {
+            if (total.borderCounts[bin] > total.borderCounts[bestBorderBin]) {
+                bestBorderBin = bin;
+            }
+        }
+        long opaque = total.opaquePixels;
+        double borderShare = total.borderOpaquePixels == 0 ? 0 : (double) total.borderCounts[bestBorderBin] / total.borderOpaquePixels;
+        double imageShare = opaque == 0 ? 0 : (double) total.counts[bestBorderBin] / opaque;
+        int background = 0xFFFFFF;
+        int backgroundBin = Accumulator.bin(background);
+        if (total.counts[bestBorderBin] > 0 && borderShare >= MIN_BORDER_SHARE &&
+            imageShare >= MIN_IMAGE_SHARE && imageShare <= MAX_IMAGE_SHARE) {
+            long count = total.counts[bestBorderBin];
+            background = (int) (total.redSums[bestBorderBin] / count) << 16 |
+                         (int) (total.greenSums[bestBorderBin] / count) << 8 |
+                         (int) (total.blueSums[bestBorderBin] / count);
+            backgroundBin = bestBorderBin;
+            if (bestBorderBin == Accumulator.bin(0xFFFFFF)) {
+                // Near-white paper is treated as white, which keeps the classic near-white rule exact
+                background = 0xFFFFFF;
+            }
+        }
+        double backgroundShare = opaque == 0 ? 0 : (double) total.counts[backgroundBin] / opaque;
+
+        ColorClass colorClass;
+        if (opaque > 0 && total.colorfulPixels > opaque * CLASS_SHARE) {
+            colorClass = ColorClass.COLOR;
+        } else if (opaque > 0 && total.midtonePixels > opaque * CLASS_SHARE) {
+            colorClass = ColorClass.GRAYSCALE;
+        } else {
+            colorClass = ColorClass.BILEVEL;
+        }
+
+        System.out.println(String.format("[STATS] %dx%d: background #%06X (%.0f%% of pixels), %s",
+                                         w, h, background, backgroundShare * 100, colorClass));
+        return new ImageStatistics(w, h, total.luma, total.alpha, background, backgroundShare, colorClass);
+    }
+
+    /**
+     * Per-chunk running totals, merged pairwise after the parallel pass
+     */
+    private static class Accumulator {
+        static final int BINS = 4096;
+
+        final long[] luma = new long[256];
+        final long[] alpha = new long[256];
+        final long[] counts = new long[BINS];
+        final long[] borderCounts = new long[BINS];
+        final long[] redSums = new long[BINS];
+        final long[] greenSums = new long[BINS];
+        final long[] blueSums = new long[BINS];
+        long opaquePixels;
+        long borderOpaquePixels;
+        long colorfulPixels;
+        long midtonePixels;
+
+        static int bin(int rgb) {
+            return ((rgb >> 12) & 0xF00) | ((rgb >> 8) & 0xF0) | ((rgb >> 4) & 0xF);
+        }
+
+        void add(int argb, boolean onBorder) {
+            int a = argb >>> 24;
+            alpha[a]++;
+            if (a < OPAQUE_ALPHA) {
+                return;
+            }
+            int r = (argb >> 16) & 0xFF;
+            int g = (argb >> 8) & 0xFF;
+            int b = argb & 0xFF;
+            int l = (r * 299 + g * 587 + b * 114) / 1000;
+            luma[l]++;
+            opaquePixels++;
+            if (Math.max(r, Math.max(g, b)) - Math.min(r, Math.min(g, b)) > CHROMA_TOLERANCE) {
+                colorfulPixels++;
+            } else if (l >= 32 && l < 224) {
+                midtonePixels++;
+            }
+
+            int bin = bin(argb);
+            counts[bin]++;
+            redSums[bin] += r;
+            greenSums[bin] += g;
+            blueSums[bin] += b;
+            if (onBorder) {
+                borderCounts[bin]++;
+                borderOpaquePixels++;
+            }
+        }
+
+        Accumulator merge(Accumulator other) {
+            for (int i = 0; i < 256; i++) {
+                luma[i] += other.luma[i];
+                alpha[i] += other.alpha[i];
+            }
+            for (int bin = 0; bin < BINS; bin++) {
+                counts[bin] += other.counts[bin];
+                borderCounts[bin] += other.borderCounts[bin];
+                redSums[bin] += other.redSums[bin];
+                greenSums[bin] += other.greenSums[bin];
+                blueSums[bin] += other.blueSums[bin];
+            }
+            opaquePixels += other.opaquePixels;
+            borderOpaquePixels += other.borderOpaquePixels;
+            colorfulPixels += other.colorfulPixels;
+            midtonePixels += other.midtonePixels;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Image source for an image that is already decoded, such as the calibration sheet.
+ * Both tiers are the same image.
+ */
+public class InMemoryImageSource implements ImageSource {
+    private final BufferedImage image;
+
+    public InMemoryImageSource(BufferedImage image) {
+        this.image = image;
+    }
+
+    @Override
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return image.getHeight();
+    }
+
+    @Override
+    public BufferedImage getPreviewImage() {
+        return image;
+    }
+
+    @Override
+    public BufferedImage getFullImage() {
+        return image;
+    }
+
+    @Override
+    public BufferedImage readRegion(Rectangle region) {
+        // Shares the parent raster, no pixels are copied
+        return image.getSubimage(region.x, region.y, region.width, region.height);
+    }
+}
@@ -11,10 +11,30 @@ public class Main {
     private JTextField scaleField;
     private JTextField originalSizeField;
     private JTextField newSizeField;
+    private ScaleSweepChart scaleSweepChart;
+    private JLabel scaleSweepLabel;
+    private javax.swing.Timer scaleSweepTimer; // coalesces keystrokes before a sweep
+    private SwingWorker<java.util.List<ScaleSweep.Sample>, Void> scaleSweepWorker;
+    private int scaleSweepGeneration = 0;
     private boolean isRotated = false;
     private JLabel statusLabel;
+    private JDialog contentThresholdDialog;
 
     public static void main(String[] args) {
+        // Any arguments run headless instead of the window: the tiling server, its load
+        // generator, the watch-folder daemon, or the batch tiler
+        if (args.length > 0) {
+            System.setProperty("java.awt.headless", "true");
+            java.util.List<String> options = java.util.Arrays.asList(args);
+            if (options.contains("--serve")) {
+                System.exit(TilingServer.run(args));
+            } else if (options.contains("--load")) {
+                System.exit(TilingLoadGenerator.run(args));
+            } else if (options.contains("--watch")) {
+                System.exit(FolderWatcher.run(args));
+            }
+            System.exit(BatchTiler.run(args));
+        }
         try {
             UIManager.setLookAndFeel(new NimbusLookAndFeel());
         } catch (Exception e) {
@@ -69,12 +89,13 @@ public class Main {
                     return true;
                 }
                 String ext = getFileExtension(f);
-                return ext != null && (ext.equalsIgnoreCase("png") || ext.equalsIgnoreCase("jpg") || ext.equalsIgnoreCase("jpeg"));
+                return ext != null && (ext.equalsIgnoreCase("png") || ext.equalsIgnoreCase("jpg") || ext.equalsIgnoreCase("jpeg") ||
+                                       ext.equalsIgnoreCase("tif") || ext.equalsIgnoreCase("tiff"));
             }
 
             @Override
             public String getDescription() {
-                return "Image Files (*.png, *.jpg, *.jpeg)";
+                return "Image Files (*.png, *.jpg, *.jpeg, *.tif, *.tiff)";
             }
 
             private String getFileExtension(File f) {
@@ -90,32 +111,58 @@ public class Main {
         int result = fileChooser.showOpenDialog(frame);
         if (result == JFileChooser.APPROVE_OPTION) {
             File selectedFile = fileChooser.getSelectedFile();
-            try {
-                statusLabel.setText("Loading image: " + selectedFile.getName());
-                imagePanel.setImage(selectedFile.getPath());
-                
-                // Reset scale to 1.0 to show single page view
-                scaleField.setText("1.0");
-                imagePanel.setScale(1.0f);
+            statusLabel.setText("Loading image: " + selectedFile.getName());
+            imagePanel.loadImage(selectedFile.getPath(), new ImageLoader.LoadListener() {
+                @Override
+                public void progress(String phase, int percent) {
+                    statusLabel.setText(phase + ": " + percent + "% - " + selectedFile.getName());
+                }
                 
-                // Clear size fields
-                originalSizeField.setText("");
-                newSizeField.setText("");
+                @Override
+                public void loadComplete(ImageSource source) {
+                    statusLabel.setText("Image loaded - Showing single page view. Measure printed size, enter measurements, and calculate scale to tile.");
+                    scaleSweepTimer.restart();
+                }
                 
-                isRotated = false;
-                imagePanel.repaint();
-                frame.setTitle("ImageTiler - " + selectedFile.getName());
-                statusLabel.setText("Image loaded - Showing single page view. Measure printed size, enter measurements, and calculate scale to tile.");
-            } catch (Exception e) {
-                statusLabel.setText("Error loading image: " + e.getMessage());
-                JOptionPane.showMessageDialog(
-                    frame,
-                    "Error loading image: " + e.getMessage(),
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE
-                );
-            }
+                @Override
+                public void loadFailed(Exception e) {
+                    statusLabel.setText("Error loading image: " + e.getMessage());
+                    JOptionPane.showMessageDialog(
+                        frame,
+                        "Error loading image: " + e.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                }
+            });
+            
+            // Reset scale to 1.0 to show single page view
+            scaleField.setText("1.0");
+            imagePanel.setScale(1.0f);
+            
+            // Clear size fields
+            originalSizeField.setText("");
+            newSizeField.setText("");
+            
+            isRotated = false;
+            frame.setTitle("ImageTiler - " + selectedFile.getName());
+        }
+    }
+
+    /**
+     * Warns the user and returns true if the full-resolution image is still being decoded
+     */
+    private boolean warnIfImageLoading() {
+        if (imagePanel.isImageLoading()) {
+            JOptionPane.showMessageDialog(
+                frame,
+                "The image is still loading. Please wait for it to finish decoding.",
+                "Image Loading",
+                JOptionPane.INFORMATION_MESSAGE
+            );
+            return true;
         }
+        return false;
     }
 
     private void rotateImage() {
@@ -131,6 +178,7 @@ public class Main {
         
         imagePanel.rotateImage();
         isRotated = !isRotated;
+        scaleSweepTimer.restart();
         imagePanel.repaint();
         statusLabel.setText("Image rotated - Manual tile selections cleared to avoid position mismatch");
     }
@@ -215,6 +263,147 @@ public class Main {
         }
     }
 
+    /**
+     * Asks for a page budget and applies the largest scale whose non-blank pages fit in it,
+     * with the grid shift that achieves it if shifting is allowed
+     */
+    private void fitToPages() {
+        if (imagePanel.getImage() == null) {
+            JOptionPane.showMessageDialog(
+                frame,
+                "Please select an image first.",
+                "No Image",
+                JOptionPane.WARNING_MESSAGE
+            );
+            return;
+        }
+        if (warnIfImageLoading()) {
+            return;
+        }
+        
+        JSpinner pagesSpinner = new JSpinner(new SpinnerNumberModel(4, 1, 1000, 1));
+        JCheckBox shiftBox = new JCheckBox("Allow shifting the grid", true);
+        JPanel optionsPanel = new JPanel(new GridLayout(0, 1, 4, 4));
+        optionsPanel.add(new JLabel("Most pages to print:"));
+        optionsPanel.add(pagesSpinner);
+        optionsPanel.add(shiftBox);
+        int result = JOptionPane.showConfirmDialog(frame, optionsPanel, "Fit to N Pages",
+                                                   JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) {
+            return;
+        }
+        int maxPages = (Integer) pagesSpinner.getValue();
+        boolean allowGridShift = shiftBox.isSelected();
+        
+        statusLabel.setText("Finding the largest scale for " + maxPages + " pages...");
+        frame.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<ScaleCalculator.PageFit, Void>() {
+            @Override
+            protected ScaleCalculator.PageFit doInBackground() {
+                return imagePanel.fitToPages(maxPages, allowGridShift);
+            }
+            
+            @Override
+            protected void done() {
+                frame.setCursor(Cursor.getDefaultCursor());
+                ScaleCalculator.PageFit fit;
+                try {
+                    fit = get();
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    statusLabel.setText("Fit to pages failed");
+                    JOptionPane.showMessageDialog(frame, "Could not fit the image: " + e.getMessage(),
+                                                  "Fit Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                if (fit == null) {
+                    statusLabel.setText("Calibration sheets are always printed as they are");
+                    return;
+                }
+                scaleField.setText(String.format("%.3f", fit.scale));
+                imagePanel.setScale(fit.scale);
+                if (!fit.layout.isDefault()) {
+                    imagePanel.setGridLayout(fit.layout);
+                }
+                statusLabel.setText(String.format("Scale %.3fx prints %d pages (at most %d)%s", fit.scale, fit.pages, maxPages,
+                                                  fit.layout.isDefault() ? "" : " with a shifted grid"));
+            }
+        }.execute();
+    }
+    
+    /**
+     * Sweeps non-blank page counts from half to twice the scale being considered: the one the
+     * size fields would calculate when both are filled in, otherwise the scale field. The sweep,
+     * and the content map the first one builds, run in a background job; a newer edit cancels
+     * the running job and results from a superseded one are dropped.
+     */
+    private void updateScaleSweep() {
+        float scale;
+        try {
+            String originalSize = originalSizeField.getText().trim();
+            String newSize = newSizeField.getText().trim();
+            scale = !originalSize.isEmpty() && !newSize.isEmpty()
+                ? ScaleCalculator.calculateScale(Float.parseFloat(originalSize), Float.parseFloat(newSize))
+                : Float.parseFloat(scaleField.getText().trim());
+        } catch (NumberFormatException e) {
+            return; // Keep the last chart while a field is half typed
+        }
+        if (!(scale > 0) || Float.isInfinite(scale) || imagePanel.getImage() == null || imagePanel.isImageLoading()) {
+            return;
+        }
+        if (scaleSweepWorker != null) {
+            scaleSweepWorker.cancel(true);
+        }
+        final int generation = ++scaleSweepGeneration;
+        final float sweptScale = scale;
+        scaleSweepWorker = new SwingWorker<java.util.List<ScaleSweep.Sample>, Void>() {
+            private ScaleSweep.Sample current;
+
+            @Override
+            protected java.util.List<ScaleSweep.Sample> doInBackground() {
+                java.util.List<ScaleSweep.Sample> samples =
+                    imagePanel.sweepPageCounts(sweptScale / 2, sweptScale * 2, ScaleSweep.DEFAULT_SAMPLES);
+                if (samples != null && !isCancelled()) {
+                    current = imagePanel.evaluateScale(sweptScale);
+                }
+                return samples;
+            }
+
+            @Override
+            protected void done() {
+                if (generation != scaleSweepGeneration || isCancelled()) {
+                    return;
+                }
+                try {
+                    showScaleSweep(sweptScale, get(), current);
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    System.err.println("[ERROR] Scale sweep failed: " + e.getMessage());
+                }
+            }
+        };
+        scaleSweepWorker.execute();
+    }
+
+    /**
+     * Shows a finished sweep in the chart and the line below it
+     */
+    private void showScaleSweep(float scale, java.util.List<ScaleSweep.Sample> samples, ScaleSweep.Sample current) {
+        scaleSweepChart.setSamples(samples);
+        scaleSweepChart.setMarkedScale(scale);
+        if (current == null) {
+            scaleSweepLabel.setText(" ");
+            return;
+        }
+        String text = String.format("At %.2fx: %d pages, %.1f × %.1f in, %s", current.scale, current.pages,
+                                    current.widthInches, current.heightInches, current.landscape ? "landscape" : "portrait");
+        for (ScaleSweep.Sample jump : ScaleSweep.beforeJumps(samples)) {
+            if (jump.scale >= scale && jump.pages == current.pages) {
+                text += String.format(" (up to %.2fx)", jump.scale);
+                break;
+            }
+        }
+        scaleSweepLabel.setText(text);
+    }
+
     private void printImage() {
         if (imagePanel.getImage() == null) {
             JOptionPane.showMessageDialog(
@@ -225,14 +414,18 @@ public class Main {
             );
             return;
         }
+        if (warnIfImageLoading()) {
+            return;
+        }
         
         try {
             float scale = Float.parseFloat(scaleField.getText());
             if (scale <= 0) {
                 throw new NumberFormatException("Scale must be positive");
             }
+            ImageSource outputSource = imagePanel.getOutputSource();
             statusLabel.setText("Printing image with selected tiles...");
-            TilePrinter.printTiledImageWithSelection(imagePanel.getRotatedImage(), scale, isRotated, imagePanel);
+            TilePrinter.printTiledImageWithSelection(outputSource, scale, isRotated, imagePanel);
             statusLabel.setText("Print job sent successfully");
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(
@@ -254,15 +447,19 @@ public class Main {
             );
             return;
         }
+        if (warnIfImageLoading()) {
+            return;
+        }
         
         try {
             float scale = Float.parseFloat(scaleField.getText());
             if (scale <= 0) {
                 throw new NumberFormatException("Scale must be positive");
             }
+            ImageSource outputSource = imagePanel.getOutputSource();
             statusLabel.setText("Saving PDF with selected tiles...");
-            TilePrinter.saveTiledImageToPDFWithSelection(imagePanel.getRotatedImage(), scale, isRotated, imagePanel);
-            statusLabel.setText("PDF saved successfully");
+            TilePrinter.saveTiledImageToPDFWithSelection(outputSource, scale, isRotated, imagePanel);
+            statusLabel.setText("PDF export running in the background");
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(
                 frame,
@@ -295,6 +492,389 @@ public class Main {
         );
     }
     
+    /**
+     * Pops up the bulk tile selection operations under the given button
+     */
+    private void showTileSelectionMenu(JButton anchor) {
+        if (imagePanel.getImage() == null || imagePanel.getTileGridSize() == null) {
+            JOptionPane.showMessageDialog(
+                frame,
+                "Please select an image first.",
+                "No Image",
+                JOptionPane.WARNING_MESSAGE
+            );
+            return;
+        }
+        
+        JPopupMenu menu = new JPopupMenu();
+        JMenuItem invertItem = new JMenuItem("Invert Selection");
+        invertItem.addActionListener(e -> {
+            imagePanel.invertTileSelection();
+            statusLabel.setText("Tile selection inverted");
+        });
+        JMenuItem includeAllItem = new JMenuItem("Select All Tiles");
+        includeAllItem.addActionListener(e -> {
+            imagePanel.setAllTilesSelected(true);
+            statusLabel.setText("All tiles selected");
+        });
+        JMenuItem excludeAllItem = new JMenuItem("Exclude All Tiles");
+        excludeAllItem.addActionListener(e -> {
+            imagePanel.setAllTilesSelected(false);
+            statusLabel.setText("All tiles excluded");
+        });
+        JMenuItem excludeRowItem = new JMenuItem("Exclude Row...");
+        excludeRowItem.addActionListener(e -> excludeTileLine(true));
+        JMenuItem excludeColumnItem = new JMenuItem("Exclude Column...");
+        excludeColumnItem.addActionListener(e -> excludeTileLine(false));
+        JMenuItem thresholdItem = new JMenuItem("Select by Content Threshold...");
+        thresholdItem.addActionListener(e -> selectTilesByContentThreshold());
+        
+        menu.add(invertItem);
+        menu.add(includeAllItem);
+        menu.add(excludeAllItem);
+        menu.addSeparator();
+        menu.add(excludeRowItem);
+        menu.add(excludeColumnItem);
+        menu.addSeparator();
+        menu.add(thresholdItem);
+        JMenuItem blankThresholdsItem = new JMenuItem("Blank Tile Thresholds...");
+        blankThresholdsItem.addActionListener(e -> showContentThresholdDialog());
+        menu.add(blankThresholdsItem);
+        menu.addSeparator();
+        JMenuItem optimizeItem = new JMenuItem("Optimize Grid Placement...");
+        optimizeItem.addActionListener(e -> optimizeGridPlacement());
+        menu.add(optimizeItem);
+        menu.show(anchor, 0, anchor.getHeight());
+    }
+    
+    /**
+     * Asks for a row or column number (1-based, as shown in the grid) and excludes it
+     */
+    private void excludeTileLine(boolean row) {
+        Dimension gridSize = imagePanel.getTileGridSize();
+        int count = row ? gridSize.height : gridSize.width;
+        String kind = row ? "row" : "column";
+        String input = JOptionPane.showInputDialog(frame, "Exclude which " + kind + " (1-" + count + ")?",
+                                                   "Exclude " + (row ? "Row" : "Column"), JOptionPane.QUESTION_MESSAGE);
+        if (input == null) {
+            return;
+        }
+        try {
+            int index = Integer.parseInt(input.trim());
+            if (index < 1 || index > count) {
+                throw new NumberFormatException("out of range");
+            }
+            if (row) {
+                imagePanel.setTileRowSelected(index - 1, false);
+            } else {
+                imagePanel.setTileColumnSelected(index - 1, false);
+            }
+            statusLabel.setText("Excluded " + kind + " " + index);
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(
+                frame,
+                "Please enter a " + kind + " number from 1 to " + count + ".",
+                "Invalid " + (row ? "Row" : "Column"),
+                JOptionPane.ERROR_MESSAGE
+            );
+        }
+    }
+    
+    /**
+     * Asks for a minimum content percentage and selects exactly the tiles that reach it
+     */
+    private void selectTilesByContentThreshold() {
+        String input = JOptionPane.showInputDialog(frame, "Select tiles with at least this much content (% of the tile):", "3");
+        if (input == null) {
+            return;
+        }
+        try {
+            double percent = Double.parseDouble(input.trim());
+            if (percent < 0 || percent > 100) {
+                throw new NumberFormatException("out of range");
+            }
+            int selected = imagePanel.selectTilesByContent(percent / 100.0);
+            if (selected >= 0) {
+                statusLabel.setText(selected + " tiles with at least " + input.trim() + "% content selected");
+            }
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(
+                frame,
+                "Please enter a percentage from 0 to 100.",
+                "Invalid Threshold",
+                JOptionPane.ERROR_MESSAGE
+            );
+        }
+    }
+    
+    /**
+     * Searches grid shifts, page orientations and a quarter turn for the fewest non-blank pages
+     * at the current scale, then offers the best placement found
+     */
+    private void optimizeGridPlacement() {
+        statusLabel.setText("Searching grid placements...");
+        frame.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<GridOptimizer.Recommendation, Void>() {
+            @Override
+            protected GridOptimizer.Recommendation doInBackground() {
+                return imagePanel.optimizeGridPlacement();
+            }
+            
+            @Override
+            protected void done() {
+                frame.setCursor(Cursor.getDefaultCursor());
+                GridOptimizer.Recommendation recommendation;
+                try {
+                    recommendation = get();
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    statusLabel.setText("Grid optimization failed");
+                    JOptionPane.showMessageDialog(frame, "Could not optimize the grid: " + e.getMessage(),
+                                                  "Optimization Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                showGridRecommendation(recommendation);
+            }
+        }.execute();
+    }
+    
+    private void showGridRecommendation(GridOptimizer.Recommendation recommendation) {
+        if (recommendation == null) {
+            statusLabel.setText("Calibration sheets are always printed as they are");
+            return;
+        }
+        String searched = String.format("Searched %d placements in %d ms.", recommendation.candidates, recommendation.elapsedMillis);
+        if (!recommendation.isImprovement()) {
+            statusLabel.setText("Grid placement is already optimal");
+            JOptionPane.showMessageDialog(
+                frame,
+                "The current grid already prints the fewest pages: " + recommendation.currentPages + ".\n\n" + searched,
+                "Grid Placement",
+                JOptionPane.INFORMATION_MESSAGE
+            );
+            return;
+        }
+        
+        TileCalculator.GridLayout layout = recommendation.layout;
+        StringBuilder changes = new StringBuilder();
+        if (recommendation.rotate) {
+            changes.append("• Rotate the image 90° clockwise\n");
+        }
+        changes.append("• ").append(layout.pages == TileCalculator.PageOrientation.LANDSCAPE ? "Landscape" : "Portrait").append(" pages\n");
+        if (layout.offsetX != 0 || layout.offsetY != 0) {
+            changes.append(String.format("• Shift the grid %.0f%% of a page left and %.0f%% up\n", layout.offsetX * 100, layout.offsetY * 100));
+        }
+        int result = JOptionPane.showConfirmDialog(
+            frame,
+            "Current placement: " + recommendation.currentPages + " pages with content\n" +
+            "Recommended: " + recommendation.pages + " pages (" + (recommendation.currentPages - recommendation.pages) + " fewer)\n\n" +
+            changes + "\n" + searched + "\n\nApply this placement? Manual tile selections will be cleared.",
+            "Grid Placement",
+            JOptionPane.YES_NO_OPTION,
+            JOptionPane.QUESTION_MESSAGE
+        );
+        if (result != JOptionPane.YES_OPTION) {
+            statusLabel.setText("Grid placement unchanged");
+            return;
+        }
+        if (recommendation.rotate) {
+            rotateImage();
+        }
+        imagePanel.setGridLayout(layout);
+        statusLabel.setText("Grid placement optimized: " + recommendation.pages + " pages with content");
+    }
+    
+    /**
+     * Asks which paper sizes the printer holds, solves a layout mixing them at the current
+     * scale, shows it over the preview and offers to print it or save it as PDF
+     */
+    private void showMixedPaperLayoutDialog() {
+        if (imagePanel.getImage() == null) {
+            JOptionPane.showMessageDialog(
+                frame,
+                "Please select an image first.",
+                "No Image",
+                JOptionPane.WARNING_MESSAGE
+            );
+            return;
+        }
+        if (warnIfImageLoading()) {
+            return;
+        }
+        
+        Settings settings = Settings.getInstance();
+        java.util.List<Settings.PaperSize> traySizes = settings.getTrayPaperSizes();
+        JPanel optionsPanel = new JPanel(new GridLayout(0, 1, 4, 4));
+        optionsPanel.add(new JLabel("Paper sizes in the printer:"));
+        java.util.Map<Settings.PaperSize, JCheckBox> paperBoxes = new java.util.EnumMap<>(Settings.PaperSize.class);
+        for (Settings.PaperSize paper : Settings.PaperSize.values()) {
+            JCheckBox box = new JCheckBox(paper.displayName, traySizes.contains(paper));
+            paperBoxes.put(paper, box);
+            optionsPanel.add(box);
+        }
+        optionsPanel.add(new JLabel("Optimize for:"));
+        JComboBox<MixedLayoutSolver.Objective> objectiveCombo = new JComboBox<>(MixedLayoutSolver.Objective.values());
+        optionsPanel.add(objectiveCombo);
+        
+        int result = JOptionPane.showConfirmDialog(frame, optionsPanel, "Mixed Paper Layout",
+                                                   JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) {
+            return;
+        }
+        java.util.List<Settings.PaperSize> papers = new java.util.ArrayList<>();
+        for (java.util.Map.Entry<Settings.PaperSize, JCheckBox> entry : paperBoxes.entrySet()) {
+            if (entry.getValue().isSelected()) {
+                papers.add(entry.getKey());
+            }
+        }
+        if (papers.isEmpty()) {
+            JOptionPane.showMessageDialog(frame, "Please choose at least one paper size.", "No Paper Size", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        settings.setTrayPaperSizes(papers);
+        MixedLayoutSolver.Objective objective = (MixedLayoutSolver.Objective) objectiveCombo.getSelectedItem();
+        
+        statusLabel.setText("Solving mixed paper layout...");
+        frame.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<MixedLayoutSolver.SheetLayout, Void>() {
+            @Override
+            protected MixedLayoutSolver.SheetLayout doInBackground() {
+                return imagePanel.solveMixedPaperLayout(papers, objective, MixedLayoutSolver.DEFAULT_BUDGET_MILLIS);
+            }
+            
+            @Override
+            protected void done() {
+                frame.setCursor(Cursor.getDefaultCursor());
+                MixedLayoutSolver.SheetLayout layout;
+                try {
+                    layout = get();
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    statusLabel.setText("Mixed paper layout failed");
+                    JOptionPane.showMessageDialog(frame, "Could not solve the layout: " + e.getMessage(),
+                                                  "Layout Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                showMixedPaperLayout(layout);
+            }
+        }.execute();
+    }
+    
+    private void showMixedPaperLayout(MixedLayoutSolver.SheetLayout layout) {
+        if (layout == null) {
+            statusLabel.setText("Calibration sheets are always printed as they are");
+            return;
+        }
+        if (layout.sheets.isEmpty()) {
+            statusLabel.setText("Nothing to print");
+            JOptionPane.showMessageDialog(frame, "The image has no content to print.", "Mixed Paper Layout", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        imagePanel.setSheetLayoutOverlay(layout);
+        statusLabel.setText("Mixed paper layout: " + layout.sheets.size() + " sheets");
+        String[] options = {"Print", "Save PDF", "Close"};
+        int choice = JOptionPane.showOptionDialog(
+            frame,
+            String.format("Mixed layout: %d sheets (%s), %.0f sq in of paper\n" +
+                          "Single paper size: %d sheets (%s), %.0f sq in\n\n" +
+                          "Searched to a %.0f pt cut grid in %d ms.",
+                          layout.sheets.size(), layout.describeSheets(), layout.getAreaSquareInches(),
+                          layout.uniformSheets, layout.uniformDescription, layout.uniformAreaSquareInches,
+                          layout.stepPoints, layout.elapsedMillis),
+            "Mixed Paper Layout",
+            JOptionPane.DEFAULT_OPTION,
+            JOptionPane.INFORMATION_MESSAGE,
+            null,
+            options,
+            options[0]
+        );
+        if (choice == 0) {
+            TilePrinter.printSheetLayout(imagePanel.getOutputSource(), layout);
+        } else if (choice == 1) {
+            TilePrinter.saveSheetLayoutToPDF(imagePanel.getOutputSource(), layout);
+        }
+        imagePanel.setSheetLayoutOverlay(null);
+    }
+    
+    /**
+     * Non-modal dialog with sliders for the blank-tile thresholds. Every slider movement
+     * reclassifies the grid from stored tile statistics, so the page count follows the mouse.
+     */
+    private void showContentThresholdDialog() {
+        if (contentThresholdDialog != null) {
+            contentThresholdDialog.toFront();
+            return;
+        }
+        ContentThresholds current = imagePanel.getContentThresholds();
+        JSlider ratioSlider = new JSlider(0, 500, (int) Math.round(current.minContentRatio * 1000));
+        JSlider whiteSlider = new JSlider(128, 256, current.nearWhite);
+        JSlider alphaSlider = new JSlider(0, 256, current.minAlpha);
+        JLabel ratioLabel = new JLabel();
+        JLabel whiteLabel = new JLabel();
+        JLabel alphaLabel = new JLabel();
+        JLabel pagesLabel = new JLabel();
+        pagesLabel.setFont(new Font("SansSerif", Font.BOLD, 14));
+        pagesLabel.setForeground(new Color(34, 139, 34));
+        
+        Runnable updatePages = () -> pagesLabel.setText("Pages to print: " + imagePanel.getTileGrid().countSelected() +
+                                                        (imagePanel.isTileAnalysisPending() ? " (analyzing...)" : ""));
+        // Keeps the count current while background analysis is still filling in tiles
+        Timer pagesTimer = new Timer(250, e -> updatePages.run());
+        Runnable apply = () -> {
+            ContentThresholds thresholds = imagePanel.getContentThresholds()
+                .withLevels(ratioSlider.getValue() / 1000.0, whiteSlider.getValue(), alphaSlider.getValue());
+            ratioLabel.setText(String.format("Minimum content: %.1f%% of the tile", ratioSlider.getValue() / 10.0));
+            whiteLabel.setText(String.format("Background if every channel is within %d of #%06X",
+                                             255 - whiteSlider.getValue(), imagePanel.getContentThresholds().backgroundRgb));
+            alphaLabel.setText("Transparent if alpha < " + alphaSlider.getValue());
+            imagePanel.setContentThresholds(thresholds);
+            updatePages.run();
+        };
+        ratioSlider.addChangeListener(e -> apply.run());
+        whiteSlider.addChangeListener(e -> apply.run());
+        alphaSlider.addChangeListener(e -> apply.run());
+        
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            ratioSlider.setValue((int) Math.round(ContentThresholds.DEFAULT.minContentRatio * 1000));
+            whiteSlider.setValue(ContentThresholds.DEFAULT.nearWhite);
+            alphaSlider.setValue(ContentThresholds.DEFAULT.minAlpha);
+        });
+        JButton closeButton = new JButton("Close");
+        
+        JPanel content = new JPanel(new GridLayout(0, 1, 0, 4));
+        content.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
+        content.add(ratioLabel);
+        content.add(ratioSlider);
+        content.add(whiteLabel);
+        content.add(whiteSlider);
+        content.add(alphaLabel);
+        content.add(alphaSlider);
+        content.add(pagesLabel);
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(resetButton);
+        buttons.add(closeButton);
+        
+        JDialog dialog = new JDialog(frame, "Blank Tile Thresholds", false);
+        dialog.setLayout(new BorderLayout());
+        dialog.add(content, BorderLayout.CENTER);
+        dialog.add(buttons, BorderLayout.SOUTH);
+        closeButton.addActionListener(e -> dialog.dispose());
+        dialog.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                pagesTimer.stop();
+                contentThresholdDialog = null;
+                // Remembered for the next session and used by the watch-folder daemon
+                Settings.getInstance().setContentThresholds(imagePanel.getContentThresholds());
+            }
+        });
+        apply.run();
+        dialog.pack();
+        dialog.setLocationRelativeTo(frame);
+        contentThresholdDialog = dialog;
+        pagesTimer.start();
+        dialog.setVisible(true);
+    }
+    
     private JPanel createOrganizedControlPanel() {
         JPanel mainPanel = new JPanel(new BorderLayout());
         mainPanel.setBackground(new Color(250, 250, 250));
@@ -345,6 +925,9 @@ public class Main {
         JButton clearSelectionsButton = createStyledButton("❌ Clear Selections", new Color(158, 158, 158));
         clearSelectionsButton.addActionListener(e -> clearTileSelections());
         
+        JButton tileSelectionButton = createStyledButton("🔲 Select Tiles ▾", new Color(0, 137, 123));
+        tileSelectionButton.addActionListener(e -> showTileSelectionMenu(tileSelectionButton));
+        
         // Row 1: Select Image
         gbc.gridx = 0; gbc.gridy = 0; gbc.gridwidth = 2; gbc.fill = GridBagConstraints.HORIZONTAL;
         panel.add(selectImageButton, gbc);
@@ -355,9 +938,14 @@ public class Main {
         gbc.gridx = 1;
         panel.add(clearSelectionsButton, gbc);
         
+        // Row 3: Bulk tile selection
+        gbc.gridx = 0; gbc.gridy = 2; gbc.gridwidth = 2; gbc.fill = GridBagConstraints.HORIZONTAL;
+        panel.add(tileSelectionButton, gbc);
+        
         // Add description
-        gbc.gridx = 0; gbc.gridy = 2; gbc.gridwidth = 2;
-        JTextArea description = new JTextArea("Load an image to begin tiling. Rotate if needed and click tiles to exclude them from printing.");
+        gbc.gridx = 0; gbc.gridy = 3; gbc.gridwidth = 2; gbc.fill = GridBagConstraints.NONE;
+        JTextArea description = new JTextArea("Load an image to begin tiling. Rotate if needed and click tiles to exclude them from printing. " +
+                                              "Drag to select a rectangle of tiles, Shift+drag for a lasso.");
         description.setEditable(false);
         description.setOpaque(false);
         description.setFont(new Font("SansSerif", Font.ITALIC, 11));
@@ -420,6 +1008,41 @@ public class Main {
         gbc.gridx = 2; gbc.gridy = 2; gbc.gridheight = 2; gbc.fill = GridBagConstraints.NONE;
         panel.add(calculateScaleButton, gbc);
         
+        // Pages by scale, redrawn as the fields are edited
+        scaleSweepChart = new ScaleSweepChart(scale -> {
+            scaleField.setText(String.format("%.3f", scale));
+            applyScale();
+        });
+        scaleSweepLabel = new JLabel(" ");
+        scaleSweepLabel.setFont(new Font("SansSerif", Font.PLAIN, 11));
+        scaleSweepLabel.setForeground(Color.GRAY);
+        gbc.gridx = 0; gbc.gridy = 4; gbc.gridwidth = 3; gbc.gridheight = 1; gbc.fill = GridBagConstraints.BOTH;
+        panel.add(scaleSweepChart, gbc);
+        gbc.gridy = 5; gbc.fill = GridBagConstraints.HORIZONTAL;
+        panel.add(scaleSweepLabel, gbc);
+        
+        scaleSweepTimer = new javax.swing.Timer(150, e -> updateScaleSweep());
+        scaleSweepTimer.setRepeats(false);
+        javax.swing.event.DocumentListener sweepOnEdit = new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                scaleSweepTimer.restart();
+            }
+            
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                scaleSweepTimer.restart();
+            }
+            
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+                scaleSweepTimer.restart();
+            }
+        };
+        scaleField.getDocument().addDocumentListener(sweepOnEdit);
+        originalSizeField.getDocument().addDocumentListener(sweepOnEdit);
+        newSizeField.getDocument().addDocumentListener(sweepOnEdit);
+        
         return panel;
     }
     
@@ -442,6 +1065,9 @@ public class Main {
         JButton predictSizeButton = createStyledButton("📐 Predict Physical Size", new Color(121, 85, 72));
         predictSizeButton.addActionListener(e -> predictPhysicalSize());
         
+        JButton fitToPagesButton = createStyledButton("📄 Fit to N Pages...", new Color(0, 121, 107));
+        fitToPagesButton.addActionListener(e -> fitToPages());
+        
         JButton settingsButton = createStyledButton("⚙️ Settings", new Color(96, 125, 139));
         settingsButton.addActionListener(e -> {
             SettingsDialog dialog = new SettingsDialog(frame);
@@ -459,11 +1085,15 @@ public class Main {
         panel.add(predictSizeButton, gbc);
         
         gbc.gridy = 2;
+        panel.add(fitToPagesButton, gbc);
+        
+        gbc.gridy = 3;
         panel.add(settingsButton, gbc);
         
         // Add descriptions
-        gbc.gridy = 3;
-        JTextArea description = new JTextArea("Use Printer Calibration to ensure accurate scaling. Predict Physical Size shows expected output dimensions.");
+        gbc.gridy = 4;
+        JTextArea description = new JTextArea("Use Printer Calibration to ensure accurate scaling. Predict Physical Size shows expected output dimensions. " +
+                                              "Fit to N Pages finds the largest print that needs no more pages.");
         description.setEditable(false);
         description.setOpaque(false);
         description.setFont(new Font("SansSerif", Font.ITALIC, 11));
@@ -494,6 +1124,12 @@ public class Main {
         JButton savePdfButton = createStyledButton("💾 Save to PDF", new Color(255, 87, 34));
         savePdfButton.addActionListener(e -> saveToPDF());
         
+        JButton mixedLayoutButton = createStyledButton("🗂️ Mixed Paper Layout...", new Color(0, 150, 136));
+        mixedLayoutButton.addActionListener(e -> showMixedPaperLayoutDialog());
+        
+        JButton jobButton = createStyledButton("🧩 Multi-Image Job...", new Color(121, 85, 72));
+        jobButton.addActionListener(e -> new TileJobDialog(frame).setVisible(true));
+        
         // Layout output options
         gbc.gridx = 0; gbc.gridy = 0; gbc.gridwidth = 2;
         panel.add(printButton, gbc);
@@ -501,8 +1137,14 @@ public class Main {
         gbc.gridy = 1;
         panel.add(savePdfButton, gbc);
         
-        // Add description
         gbc.gridy = 2;
+        panel.add(mixedLayoutButton, gbc);
+        
+        gbc.gridy = 3;
+        panel.add(jobButton, gbc);
+        
+        // Add description
+        gbc.gridy = 4;
         JTextArea description = new JTextArea("Print directly to your printer or save as PDF. Only selected tiles will be included in the output.");
         description.setEditable(false);
         description.setOpaque(false);
@@ -594,6 +1236,9 @@ public class Main {
             );
             return;
         }
+        if (warnIfImageLoading()) {
+            return;
+        }
         
         try {
             float scale = Float.parseFloat(scaleField.getText());
@@ -602,8 +1247,8 @@ public class Main {
             }
             
             // Use the current image dimensions
-            int imageWidth = imagePanel.getRotatedImage().getWidth();
-            int imageHeight = imagePanel.getRotatedImage().getHeight();
+            int imageWidth = imagePanel.getOutputWidth();
+            int imageHeight = imagePanel.getOutputHeight();
             
             // Calculate expected size at different common print DPIs
             ScaleCalculator.PhysicalSize size150dpi = ScaleCalculator.calculateExpectedPhysicalSize(
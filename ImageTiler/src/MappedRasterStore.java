@@ -0,0 +1,331 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Off-heap image source for pictures too large for a BufferedImage or the heap.
+ * Pixels are stored as ARGB ints in a memory-mapped scratch file, laid out as fixed-size
+ * square tiles so any region reads only the tiles it overlaps. The file is mapped in
+ * segments, which lifts the int indexing limit of a single buffer or raster.
+ */
+public class MappedRasterStore implements ImageSource {
+
+    /**
+     * Edge length of one storage tile in pixels (1 MB per tile)
+     */
+    public static final int TILE_SIZE = 512;
+
+    /**
+     * Fraction of the maximum heap a full-resolution image may occupy before it is kept off-heap
+     */
+    private static final int HEAP_FRACTION = 4;
+
+    private static final int TILE_PIXELS = TILE_SIZE * TILE_SIZE;
+    private static final long TILE_BYTES = 4L * TILE_PIXELS;
+    private static final int TILES_PER_SEGMENT = 256;
+
+    private final int width;
+    private final int height;
+    private final int tilesWide;
+    private final int tilesHigh;
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final IntBuffer[] segments;
+    private BufferedImage previewImage;
+
+    private MappedRasterStore(int width, int height) throws IOException {
+        this.width = width;
+        this.height = height;
+        this.tilesWide = (width + TILE_SIZE - 1) / TILE_SIZE;
+        this.tilesHigh = (height + TILE_SIZE - 1) / TILE_SIZE;
+        long tileCount = (long) tilesWide * tilesHigh;
+        this.segments = new IntBuffer[(int) ((tileCount + TILES_PER_SEGMENT - 1) / TILES_PER_SEGMENT)];
+
+        file = File.createTempFile("imagetiler-raster", ".bin");
+        file.deleteOnExit();
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(tileCount * TILE_BYTES);
+        } catch (IOException e) {
+            randomAccessFile.close();
+            file.delete();
+            throw e;
+        }
+        System.out.println("[RASTER] Created off-heap store " + width + "×" + height + " (" +
+                           tileCount + " tiles, " + (tileCount * TILE_BYTES / (1024 * 1024)) + " MB) at " + file);
+    }
+
+    /**
+     * Creates an empty (transparent) store; fill it with writeRegion()
+     */
+    public static MappedRasterStore create(int width, int height) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid raster dimensions: " + width + "×" + height);
+        }
+        return new MappedRasterStore(width, height);
+    }
+
+    /**
+     * Copies a source into a new store, rotated clockwise by the given number of quarter turns.
+     * The copy runs one destination tile at a time, so only a tile's worth of pixels is on the heap.
+     */
+    public static MappedRasterStore rotatedCopyOf(ImageSource source, int quarterTurns) throws IOException {
+        int turns = ((quarterTurns % 4) + 4) % 4;
+        int srcW = source.getWidth();
+        int srcH = source.getHeight();
+        boolean swap = turns % 2 == 1;
+        MappedRasterStore store = create(swap ? srcH : srcW, swap ? srcW : srcH);
+        try {
+            int[] rotated = new int[TILE_PIXELS];
+            for (int ty = 0; ty < store.tilesHigh; ty++) {
+                for (int tx = 0; tx < store.tilesWide; tx++) {
+                    int dx = tx * TILE_SIZE;
+                    int dy = ty * TILE_SIZE;
+                    int dw = Math.min(TILE_SIZE, store.width - dx);
+                    int dh = Math.min(TILE_SIZE, store.height - dy);
+
+                    // Source rectangle that maps onto this destination tile
+                    Rectangle src;
+                    switch (turns) {
+                        case 1: src = new Rectangle(dy, srcH - dx - dw, dh, dw); break;
+                        case 2: src = new Rectangle(srcW - dx - dw, srcH - dy - dh, dw, dh); break;
+                        case 3: src = new Rectangle(srcW - dy - dh, dx, dh, dw); break;
+                        default: src = new Rectangle(dx, dy, dw, dh); break;
+                    }
+                    int[] pixels = source.readRegion(src).getRGB(0, 0, src.width, src.height, null, 0, src.width);
+
+                    for (int y = 0; y < dh; y++) {
+                        for (int x = 0; x < dw; x++) {
+                            int sx;
+                            int sy;
+                            switch (turns) {
+                                case 1: sx = y; sy = src.height - 1 - x; break;
+                                case 2: sx = src.width - 1 - x; sy = src.height - 1 - y; break;
+                                case 3: sx = src.width - 1 - y; sy = x; break;
+                                default: sx = x; sy = y; break;
+                            }
+                            rotated[y * dw + x] = pixels[sy * src.width + sx];
+                        }
+                    }
+                    store.writePixels(dx, dy, dw, dh, rotated, 0, dw);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    /**
+     * Returns true if a full-resolution image of this size can safely be held as a BufferedImage
+     */
+    public static boolean fitsInHeap(int width, int height) {
+        long pixels = (long) width * height;
+        return pixels <= Integer.MAX_VALUE - 8 &&
+               pixels * 4 <= Runtime.getRuntime().maxMemory() / HEAP_FRACTION;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Stride-sampled copy within FileImageSource's preview budget, built on first use
+     */
+    @Override
+    public synchronized BufferedImage getPreviewImage() {
+        if (previewImage == null) {
+            int step = FileImageSource.calculatePreviewSubsampling(width, height, Runtime.getRuntime().maxMemory());
+            try {
+                previewImage = downsample(step);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read raster store: " + e.getMessage(), e);
+            }
+        }
+        return previewImage;
+    }
+
+    /**
+     * Every step-th pixel in both directions, read one tile at a time
+     */
+    public BufferedImage downsample(int step) throws IOException {
+        int previewWidth = (width + step - 1) / step;
+        int previewHeight = (height + step - 1) / step;
+        BufferedImage preview = new BufferedImage(previewWidth, previewHeight, BufferedImage.TYPE_INT_ARGB);
+        int[] target = ((DataBufferInt) preview.getRaster().getDataBuffer()).getData();
+        int[] tile = new int[TILE_PIXELS];
+
+        for (int ty = 0; ty < tilesHigh; ty++) {
+            for (int tx = 0; tx < tilesWide; tx++) {
+                int x0 = tx * TILE_SIZE;
+                int y0 = ty * TILE_SIZE;
+                int tw = Math.min(TILE_SIZE, width - x0);
+                int th = Math.min(TILE_SIZE, height - y0);
+                readPixels(x0, y0, tw, th, tile, 0, tw);
+
+                // First sampled coordinate at or after the tile origin
+                int firstX = ((x0 + step - 1) / step) * step;
+                int firstY = ((y0 + step - 1) / step) * step;
+                for (int y = firstY; y < y0 + th; y += step) {
+                    int row = (y / step) * previewWidth;
+                    for (int x = firstX; x < x0 + tw; x += step) {
+                        target[row + x / step] = tile[(y - y0) * tw + (x - x0)];
+                    }
+                }
+            }
+        }
+        return preview;
+    }
+
+    /**
+     * Materialises the whole image; only possible when it fits in a single BufferedImage.
+     * Output paths use readRegion() instead.
+     */
+    @Override
+    public BufferedImage getFullImage() throws IOException {
+        if ((long) width * height > Integer.MAX_VALUE - 8) {
+            throw new IOException("Image is too large for a single BufferedImage: " + width + "×" + height);
+        }
+        return readRegion(new Rectangle(0, 0, width, height));
+    }
+
+    @Override
+    public BufferedImage readRegion(Rectangle region) throws IOException {
+        BufferedImage result = new BufferedImage(region.width, region.height, BufferedImage.TYPE_INT_ARGB);
+        int[] target = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+        readPixels(region.x, region.y, region.width, region.height, target, 0, region.width);
+        return result;
+    }
+
+    /**
+     * Stores an image at the given position, converting to ARGB row by row
+     */
+    public void writeRegion(int x, int y, BufferedImage image) throws IOException {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int rowsPerBatch = Math.max(1, TILE_PIXELS / Math.max(1, w));
+        int[] rows = new int[Math.min(h, rowsPerBatch) * w];
+        for (int top = 0; top < h; top += rowsPerBatch) {
+            int count = Math.min(rowsPerBatch, h - top);
+            image.getRGB(0, top, w, count, rows, 0, w);
+            writePixels(x, y + top, w, count, rows, 0, w);
+        }
+    }
+
+    /**
+     * Copies ARGB pixels of a rectangle out of the store into an array
+     */
+    public void readPixels(int x, int y, int w, int h, int[] target, int offset, int scanline) throws IOException {
+        checkBounds(x, y, w, h);
+        for (int ty = y / TILE_SIZE; ty <= (y + h - 1) / TILE_SIZE; ty++) {
+            for (int tx = x / TILE_SIZE; tx <= (x + w - 1) / TILE_SIZE; tx++) {
+                int tileX = tx * TILE_SIZE;
+                int tileY = ty * TILE_SIZE;
+                int left = Math.max(x, tileX);
+                int right = Math.min(x + w, tileX + TILE_SIZE);
+                int top = Math.max(y, tileY);
+                int bottom = Math.min(y + h, tileY + TILE_SIZE);
+                IntBuffer tile = tileBuffer(tx, ty);
+                for (int row = top; row < bottom; row++) {
+                    tile.position((row - tileY) * TILE_SIZE + (left - tileX));
+                    tile.get(target, offset + (row - y) * scanline + (left - x), right - left);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies ARGB pixels of a rectangle from an array into the store
+     */
+    public void writePixels(int x, int y, int w, int h, int[] source, int offset, int scanline) throws IOException {
+        checkBounds(x, y, w, h);
+        for (int ty = y / TILE_SIZE; ty <= (y + h - 1) / TILE_SIZE; ty++) {
+            for (int tx = x / TILE_SIZE; tx <= (x + w - 1) / TILE_SIZE; tx++) {
+                int tileX = tx * TILE_SIZE;
+                int tileY = ty * TILE_SIZE;
+                int left = Math.max(x, tileX);
+                int right = Math.min(x + w, tileX + TILE_SIZE);
+                int top = Math.max(y, tileY);
+                int bottom = Math.min(y + h, tileY + TILE_SIZE);
+                IntBuffer tile = tileBuffer(tx, ty);
+                for (int row = top; row < bottom; row++) {
+                    tile.position((row - tileY) * TILE_SIZE + (left - tileX));
+                    tile.put(source, offset + (row - y) * scanline + (left - x), right - left);
+                }
+            }
+        }
+        synchronized (this) {
+            previewImage = null;
+        }
+    }
+
+    /**
+     * Releases the mapping and deletes the scratch file. The OS frees the mapped pages once
+     * the buffers are collected.
+     */
+    public synchronized void close() {
+        java.util.Arrays.fill(segments, null);
+        previewImage = null;
+        try {
+            randomAccessFile.close();
+        } catch (IOException e) {
+            System.err.println("[RASTER] Could not close " + file + ": " + e.getMessage());
+        }
+        if (!file.delete()) {
+            System.out.println("[RASTER] Scratch file will be removed on exit: " + file);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    private void checkBounds(int x, int y, int w, int h) {
+        if (x < 0 || y < 0 || w <= 0 || h <= 0 || x + w > width || y + h > height) {
+            throw new IndexOutOfBoundsException("Region " + x + "," + y + " " + w + "×" + h +
+                                                " outside raster " + width + "×" + height);
+        }
+    }
+
+    /**
+     * Independent view of one tile's ints, so concurrent readers don't share buffer positions
+     */
+    private IntBuffer tileBuffer(int tx, int ty) throws IOException {
+        long tileIndex = (long) ty * tilesWide + tx;
+        IntBuffer segment = segment((int) (tileIndex / TILES_PER_SEGMENT));
+        int start = (int) (tileIndex % TILES_PER_SEGMENT) * TILE_PIXELS;
+        IntBuffer view = segment.duplicate();
+        view.position(start);
+        view.limit(start + TILE_PIXELS);
+        return view.slice();
+    }
+
+    private synchronized IntBuffer segment(int index) throws IOException {
+        IntBuffer segment = segments[index];
+        if (segment == null) {
+            if (!randomAccessFile.getChannel().isOpen()) {
+                throw new IOException("Raster store is closed");
+            }
+            long offset = index * TILES_PER_SEGMENT * TILE_BYTES;
+            long size = Math.min(TILES_PER_SEGMENT * TILE_BYTES, randomAccessFile.length() - offset);
+            MappedByteBuffer mapped = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, offset, size);
+            segment = mapped.order(ByteOrder.nativeOrder()).asIntBuffer();
+            segments[index] = segment;
+        }
+        return segment;
+    }
+}
@@ -227,9 +227,17 @@ public class MeasurementHelperDialog extends JDialog {
     
     private void printReference(ActionEvent e) {
         try {
-            // Print the image at scale 1.0 (single page baseline)
+            // Print the full-resolution output at scale 1.0 (single page baseline), as the Print button does
+            ImageSource outputSource = imagePanel.getOutputSource();
+            if (outputSource == null) {
+                JOptionPane.showMessageDialog(this,
+                    "Please load the calibration image first.",
+                    "No Image",
+                    JOptionPane.WARNING_MESSAGE);
+                return;
+            }
             TilePrinter.printTiledImageWithSelection(
-                imagePanel.getRotatedImage(), 1.0f, false, imagePanel);
+                outputSource, 1.0f, imagePanel.getOrientation() != Orientation.NORMAL, imagePanel);
             
             currentStep = 2;
             updateStepDisplay();
@@ -258,14 +266,13 @@ public class MeasurementHelperDialog extends JDialog {
                 throw new NumberFormatException("Measurements must be positive");
             }
             
-            BufferedImage image = imagePanel.getRotatedImage();
+            ImageSource outputSource = imagePanel.getOutputSource();
             
-            // Calculate the expected size based on single page preview
-            double pageWidthPoints = 8.27 * 72;
-            double pageHeightPoints = 11.69 * 72;
+            // Calculate the expected size of the reference page on the paper it was printed on
+            RenderPlan plan = imagePanel.getRenderPlan();
             
             TileCalculator.TilingResult singlePageResult = TileCalculator.calculateSinglePagePreview(
-                image.getWidth(), image.getHeight(), pageWidthPoints, pageHeightPoints);
+                outputSource.getWidth(), outputSource.getHeight(), plan.pageWidth, plan.pageHeight);
             
             // Calculate what DPI the printer actually used
             float actualWidthDPI = singlePageResult.imageWidth / measuredWidth;
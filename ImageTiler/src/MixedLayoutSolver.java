@@ -0,0 +1,505 @@
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Covers an image's content with sheets of several paper sizes, each portrait or landscape,
+ * for printers with more than one tray. The printed image is cut guillotine-style: into
+ * horizontal bands, each band into cells, and every cell holding content gets the cheapest
+ * sheet it fits on. Blank cells cost nothing. Both the band heights and the cell widths are
+ * chosen by dynamic programming over a grid of candidate cut positions, and the same is done
+ * with columns first; the better of the two wins.
+ *
+ * The search refines the cut grid step by step (a quarter of the smallest sheet side, then an
+ * eighth, ...) until the time budget runs out, keeping the best complete layout. The best
+ * single-size grid is the starting point, so the result is never worse than uniform tiling.
+ * Unlike the blank-tile threshold, any content pixel needs a sheet: a cell cannot be made
+ * larger to dilute content below the threshold and drop it.
+ */
+public class MixedLayoutSolver {
+
+    public enum Objective {
+        FEWEST_SHEETS("Fewest sheets"),
+        LEAST_PAPER("Least paper area");
+
+        private final String displayName;
+
+        Objective(String displayName) {
+            this.displayName = displayName;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    public static final long DEFAULT_BUDGET_MILLIS = 500;
+
+    /**
+     * Cut grid steps tried, as divisions of the smallest sheet side
+     */
+    private static final int[] REFINEMENTS = {4, 8, 16, 32};
+
+    /**
+     * Content edges are located on a grid this many times finer than the smallest sheet side
+     */
+    private static final int EDGE_DIVISION = 128;
+
+    /**
+     * Cut grids larger than this per axis are skipped
+     */
+    private static final int MAX_STEPS = 4000;
+
+    private static final double INFINITE = Double.MAX_VALUE / 4;
+
+    private MixedLayoutSolver() {
+    }
+
+    /**
+     * One sheet of the layout: the part of the printed image it carries, and the paper it is printed on
+     */
+    public static class Sheet {
+        public final Settings.PaperSize paper;
+        public final boolean landscape;
+        public final Rectangle2D.Double cell; // in points of the printed image
+
+        Sheet(Settings.PaperSize paper, boolean landscape, Rectangle2D.Double cell) {
+            this.paper = paper;
+            this.landscape = landscape;
+            this.cell = cell;
+        }
+
+        public double getPageWidth() {
+            return landscape ? paper.getHeightPoints() : paper.getWidthPoints();
+        }
+
+        public double getPageHeight() {
+            return landscape ? paper.getWidthPoints() : paper.getHeightPoints();
+        }
+    }
+
+    /**
+     * A solved layout, with the best single-size grid for comparison
+     */
+    public static class SheetLayout {
+        public final java.util.List<Sheet> sheets;
+        public final int renderWidth;
+        public final int renderHeight;
+        public final int uniformSheets;
+        public final double uniformAreaSquareInches;
+        public final String uniformDescription;
+        public final double stepPoints; // finest cut grid searched
+        public final long elapsedMillis;
+
+        SheetLayout(java.util.List<Sheet> sheets, int renderWidth, int renderHeight, int uniformSheets, double uniformAreaSquareInches,
+                    String uniformDescription, double stepPoints, long elapsedMillis) {
+            this.sheets = java.util.Collections.unmodifiableList(sheets);
+            this.renderWidth = renderWidth;
+            this.renderHeight = renderHeight;
+            this.uniformSheets = uniformSheets;
+            this.uniformAreaSquareInches = uniformAreaSquareInches;
+            this.uniformDescription = uniformDescription;
+            this.stepPoints = stepPoints;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public double getAreaSquareInches() {
+            double area = 0;
+            for (Sheet sheet : sheets) {
+                area += sheet.paper.widthInches * sheet.paper.heightInches;
+            }
+            return area;
+        }
+
+        /**
+         * Sheets per paper size, e.g. "3 × A3, 2 × A4"
+         */
+        public String describeSheets() {
+            java.util.Map<Settings.PaperSize, Integer> counts = new java.util.EnumMap<>(Settings.PaperSize.class);
+            for (Sheet sheet : sheets) {
+                counts.merge(sheet.paper, 1, Integer::sum);
+            }
+            StringBuilder description = new StringBuilder();
+            for (java.util.Map.Entry<Settings.PaperSize, Integer> entry : counts.entrySet()) {
+                if (description.length() > 0) {
+                    description.append(", ");
+                }
+                description.append(entry.getValue()).append(" × ").append(entry.getKey().name());
+            }
+            return description.length() == 0 ? "no sheets" : description.toString();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d sheets (%s), %.0f sq in; single size: %d sheets, %.0f sq in (%s); step %.0f pt, %d ms",
+                                 sheets.size(), describeSheets(), getAreaSquareInches(), uniformSheets, uniformAreaSquareInches,
+                                 uniformDescription, stepPoints, elapsedMillis);
+        }
+    }
+
+    /**
+     * A paper size in one orientation, with its cost under the objective
+     */
+    private static class SheetOption {
+        final Settings.PaperSize paper;
+        final boolean landscape;
+        final double width;
+        final double height;
+        final double cost;
+
+        SheetOption(Settings.PaperSize paper, boolean landscape, Objective objective) {
+            this.paper = paper;
+            this.landscape = landscape;
+            this.width = landscape ? paper.getHeightPoints() : paper.getWidthPoints();
+            this.height = landscape ? paper.getWidthPoints() : paper.getHeightPoints();
+            double area = width * height;
+            // Primary criterion first; the other only breaks ties
+            this.cost = objective == Objective.FEWEST_SHEETS ? 1e7 + area : area + 1;
+        }
+
+        boolean fits(double cellWidth, double cellHeight) {
+            return cellWidth <= width + 1e-6 && cellHeight <= height + 1e-6;
+        }
+    }
+
+    /**
+     * Content occupancy of the printed image on a cut grid, as a summed-area table over grid cells
+     */
+    private static class Occupancy {
+        final double[] xs; // cut positions in points, 0 .. renderWidth
+        final double[] ys;
+        final int nx;
+        final int ny;
+        final int[] sums; // (nx + 1) x (ny + 1)
+
+        Occupancy(double[] xs, double[] ys, int[] sums) {
+            this.xs = xs;
+            this.ys = ys;
+            this.nx = xs.length - 1;
+            this.ny = ys.length - 1;
+            this.sums = sums;
+        }
+
+        static Occupancy build(GridOptimizer.ContentMap map, Orientation orientation, int renderWidth, int renderHeight,
+                               double[] xs, double[] ys) {
+            int nx = xs.length - 1;
+            int ny = ys.length - 1;
+            int[] sums = new int[(nx + 1) * (ny + 1)];
+            for (int j = 0; j < ny; j++) {
+                int rowSum = 0;
+                for (int i = 0; i < nx; i++) {
+                    rowSum += hasContent(map, orientation, renderWidth, renderHeight, xs[i], ys[j], xs[i + 1], ys[j + 1]) ? 1 : 0;
+                    sums[(j + 1) * (nx + 1) + i + 1] = sums[j * (nx + 1) + i + 1] + rowSum;
+                }
+            }
+            return new Occupancy(xs, ys, sums);
+        }
+
+        /**
+         * True if any grid cell in [i0, i1) x [j0, j1) holds content
+         */
+        boolean occupied(int i0, int j0, int i1, int j1) {
+            int stride = nx + 1;
+            return sums[j1 * stride + i1] - sums[j0 * stride + i1] - sums[j1 * stride + i0] + sums[j0 * stride + i0] > 0;
+        }
+
+        /**
+         * The same occupancy with x and y swapped
+         */
+        Occupancy transposed() {
+            int[] swapped = new int[sums.length];
+            for (int j = 0; j <= ny; j++) {
+                for (int i = 0; i <= nx; i++) {
+                    swapped[i * (ny + 1) + j] = sums[j * (nx + 1) + i];
+                }
+            }
+            return new Occupancy(ys, xs, swapped);
+        }
+
+        /**
+         * Positions where content starts or stops along x in some row of this grid
+         */
+        java.util.SortedSet<Double> edgesX() {
+            java.util.SortedSet<Double> edges = new java.util.TreeSet<>();
+            for (int j = 0; j < ny; j++) {
+                for (int i = 1; i < nx; i++) {
+                    if (occupied(i - 1, j, i, j + 1) != occupied(i, j, i + 1, j + 1)) {
+                        edges.add(xs[i]);
+                    }
+                }
+            }
+            return edges;
+        }
+    }
+
+    /**
+     * Cut positions every step from 0 to length, plus the given content edges
+     */
+    private static double[] cutPositions(int length, double step, java.util.SortedSet<Double> edges) {
+        java.util.SortedSet<Double> positions = new java.util.TreeSet<>(edges);
+        for (double position = 0; position < length; position += step) {
+            positions.add(position);
+        }
+        positions.add((double) length);
+        double[] cuts = new double[positions.size()];
+        int i = 0;
+        for (double position : positions) {
+            cuts[i++] = position;
+        }
+        return cuts;
+    }
+
+    /**
+     * Solves the layout for the printed image (renderWidth x renderHeight points) whose content
+     * is described by the preview's content map, seen in the given orientation
+     */
+    public static SheetLayout solve(GridOptimizer.ContentMap map, Orientation orientation, int renderWidth, int renderHeight,
+                                    java.util.Collection<Settings.PaperSize> papers, Objective objective, long budgetMillis) {
+        if (papers.isEmpty()) {
+            throw new IllegalArgumentException("At least one paper size is needed");
+        }
+        long start = System.nanoTime();
+        long deadline = start + budgetMillis * 1_000_000L;
+        java.util.List<SheetOption> options = new java.util.ArrayList<>();
+        double minSide = Double.MAX_VALUE;
+        for (Settings.PaperSize paper : papers) {
+            options.add(new SheetOption(paper, false, objective));
+            options.add(new SheetOption(paper, true, objective));
+            minSide = Math.min(minSide, paper.getWidthPoints());
+        }
+
+        // Starting point: the cheapest single-size grid
+        java.util.List<Sheet> best = null;
+        double bestCost = INFINITE;
+        SheetOption uniformOption = null;
+        for (SheetOption option : options) {
+            java.util.List<Sheet> sheets = uniformGrid(map, orientation, renderWidth, renderHeight, option);
+            double cost = sheets.size() * option.cost;
+            if (cost < bestCost) {
+                best = sheets;
+                bestCost = cost;
+                uniformOption = option;
+            }
+        }
+        int uniformSheets = best.size();
+        double uniformArea = uniformSheets * uniformOption.paper.widthInches * uniformOption.paper.heightInches;
+        String uniformDescription = uniformOption.paper.name() + (uniformOption.landscape ? " landscape" : " portrait");
+
+        // Cuts along content edges let a sheet start exactly where content does; they are found
+        // on a grid as fine as the content map allows
+        double edgeStep = Math.max(minSide / EDGE_DIVISION, Math.max((double) renderWidth / map.cellsWide, (double) renderHeight / map.cellsHigh));
+        double[] fineXs = cutPositions(renderWidth, edgeStep, new java.util.TreeSet<>());
+        double[] fineYs = cutPositions(renderHeight, edgeStep, new java.util.TreeSet<>());
+        Occupancy fine = Occupancy.build(map, orientation, renderWidth, renderHeight, fineXs, fineYs);
+        java.util.SortedSet<Double> edgesX = fine.edgesX();
+        java.util.SortedSet<Double> edgesY = fine.transposed().edgesX();
+
+        double finestStep = 0;
+        for (int division : REFINEMENTS) {
+            double step = minSide / division;
+            if (renderWidth / step > MAX_STEPS || renderHeight / step > MAX_STEPS || System.nanoTime() > deadline) {
+                break;
+            }
+            // Too many content edges (a busy photo) would swamp the grid; plain steps do as well there
+            java.util.SortedSet<Double> none = new java.util.TreeSet<>();
+            double[] xs = cutPositions(renderWidth, step, edgesX.size() > renderWidth / step ? none : edgesX);
+            double[] ys = cutPositions(renderHeight, step, edgesY.size() > renderHeight / step ? none : edgesY);
+            Occupancy occupancy = Occupancy.build(map, orientation, renderWidth, renderHeight, xs, ys);
+            boolean complete = true;
+            for (int pass = 0; pass < 2 && complete; pass++) {
+                Occupancy grid = pass == 0 ? occupancy : occupancy.transposed();
+                java.util.List<Rectangle2D.Double> cells = solveGuillotine(grid, options, deadline);
+                if (cells == null) {
+                    complete = false;
+                    break;
+                }
+                java.util.List<Sheet> sheets = new java.util.ArrayList<>();
+                double cost = 0;
+                for (Rectangle2D.Double cell : cells) {
+                    Rectangle2D.Double actual = pass == 0 ? cell : new Rectangle2D.Double(cell.y, cell.x, cell.height, cell.width);
+                    SheetOption option = cheapest(options, actual.width, actual.height);
+                    sheets.add(new Sheet(option.paper, option.landscape, actual));
+                    cost += option.cost;
+                }
+                if (cost < bestCost - 1e-6) {
+                    best = sheets;
+                    bestCost = cost;
+                }
+            }
+            if (!complete) {
+                break;
+            }
+            finestStep = step;
+        }
+
+        best.sort((a, b) -> a.cell.y != b.cell.y ? Double.compare(a.cell.y, b.cell.y) : Double.compare(a.cell.x, b.cell.x));
+        SheetLayout layout = new SheetLayout(best, renderWidth, renderHeight, uniformSheets, uniformArea, uniformDescription,
+                                             finestStep, (System.nanoTime() - start) / 1_000_000);
+        System.out.println("[LAYOUT] " + layout);
+        return layout;
+    }
+
+    /**
+     * Sheets of one size laid as a grid from the top-left corner, skipping cells without content
+     */
+    private static java.util.List<Sheet> uniformGrid(GridOptimizer.ContentMap map, Orientation orientation, int renderWidth, int renderHeight,
+                                                     SheetOption option) {
+        java.util.List<Sheet> sheets = new java.util.ArrayList<>();
+        for (double y = 0; y < renderHeight; y += option.height) {
+            for (double x = 0; x < renderWidth; x += option.width) {
+                double w = Math.min(option.width, renderWidth - x);
+                double h = Math.min(option.height, renderHeight - y);
+                if (hasContent(map, orientation, renderWidth, renderHeight, x, y, x + w, y + h)) {
+                    sheets.add(new Sheet(option.paper, option.landscape, new Rectangle2D.Double(x, y, w, h)));
+                }
+            }
+        }
+        return sheets;
+    }
+
+    /**
+     * True if the part [x0, x1) x [y0, y1) of the printed image (in points) holds any content pixel
+     */
+    private static boolean hasContent(GridOptimizer.ContentMap map, Orientation orientation, int renderWidth, int renderHeight,
+                                      double x0, double y0, double x1, double y1) {
+        double toPreviewX = orientation.rotatedWidth(map.imageWidth, map.imageHeight) / (double) renderWidth;
+        double toPreviewY = orientation.rotatedHeight(map.imageWidth, map.imageHeight) / (double) renderHeight;
+        int px0 = (int) Math.floor(x0 * toPreviewX);
+        int py0 = (int) Math.floor(y0 * toPreviewY);
+        int px1 = (int) Math.ceil(x1 * toPreviewX);
+        int py1 = (int) Math.ceil(y1 * toPreviewY);
+        Rectangle region = orientation.toSource(new Rectangle(px0, py0, px1 - px0, py1 - py0), map.imageWidth, map.imageHeight);
+        return map.touchesContent(region);
+    }
+
+    private static SheetOption cheapest(java.util.List<SheetOption> options, double width, double height) {
+        SheetOption best = null;
+        for (SheetOption option : options) {
+            if (option.fits(width, height) && (best == null || option.cost < best.cost)) {
+                best = option;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Bands then cells, by dynamic programming over the cut grid. Returns the cells that need
+     * a sheet, or null if the deadline passed first.
+     */
+    private static java.util.List<Rectangle2D.Double> solveGuillotine(Occupancy grid, java.util.List<SheetOption> options, long deadline) {
+        double maxHeight = 0;
+        for (SheetOption option : options) {
+            maxHeight = Math.max(maxHeight, option.height);
+        }
+
+        int ny = grid.ny;
+        double[] total = new double[ny + 1];
+        int[] bandStart = new int[ny + 1];
+        java.util.Arrays.fill(total, INFINITE);
+        total[0] = 0;
+        double[] rowCost = new double[grid.nx + 1];
+        int[] cellStart = new int[grid.nx + 1];
+        for (int j1 = 1; j1 <= ny; j1++) {
+            if (System.nanoTime() > deadline) {
+                return null;
+            }
+            if (!grid.occupied(0, j1 - 1, grid.nx, j1)) {
+                total[j1] = total[j1 - 1];
+                bandStart[j1] = -j1; // blank row, no band
+            }
+            for (int j0 = j1 - 1; j0 >= 0 && grid.ys[j1] - grid.ys[j0] <= maxHeight + 1e-6; j0--) {
+                if (total[j0] >= INFINITE) {
+                    continue;
+                }
+                double cost = solveBand(grid, j0, j1, bandOptions(options, grid.ys[j1] - grid.ys[j0]), rowCost, cellStart);
+                if (total[j0] + cost < total[j1]) {
+                    total[j1] = total[j0] + cost;
+                    bandStart[j1] = j0;
+                }
+            }
+        }
+        if (total[ny] >= INFINITE) {
+            return null;
+        }
+
+        java.util.List<Rectangle2D.Double> cells = new java.util.ArrayList<>();
+        int j1 = ny;
+        while (j1 > 0) {
+            int j0 = bandStart[j1];
+            if (j0 < 0) {
+                j1--;
+                continue;
+            }
+            solveBand(grid, j0, j1, bandOptions(options, grid.ys[j1] - grid.ys[j0]), rowCost, cellStart);
+            int i1 = grid.nx;
+            while (i1 > 0) {
+                int i0 = cellStart[i1];
+                if (i0 < 0) {
+                    i1--;
+                    continue;
+                }
+                cells.add(new Rectangle2D.Double(grid.xs[i0], grid.ys[j0], grid.xs[i1] - grid.xs[i0], grid.ys[j1] - grid.ys[j0]));
+                i1 = i0;
+            }
+            j1 = j0;
+        }
+        return cells;
+    }
+
+    /**
+     * Sheets tall enough for a band, widest first, each with the cheapest cost of any sheet at
+     * least that wide: widths[k] and costs[k] in parallel
+     */
+    private static double[][] bandOptions(java.util.List<SheetOption> options, double bandHeight) {
+        java.util.List<SheetOption> tall = new java.util.ArrayList<>();
+        for (SheetOption option : options) {
+            if (option.height + 1e-6 >= bandHeight) {
+                tall.add(option);
+            }
+        }
+        tall.sort((a, b) -> Double.compare(b.width, a.width));
+        double[][] widthsAndCosts = new double[2][tall.size()];
+        double cheapest = INFINITE;
+        for (int k = 0; k < tall.size(); k++) {
+            cheapest = Math.min(cheapest, tall.get(k).cost);
+            widthsAndCosts[0][k] = tall.get(k).width;
+            widthsAndCosts[1][k] = cheapest;
+        }
+        return widthsAndCosts;
+    }
+
+    /**
+     * Cheapest way to cover one band with cells; cellStart records each cell's first column,
+     * or -1 for a blank column that needs no sheet
+     */
+    private static double solveBand(Occupancy grid, int j0, int j1, double[][] widthsAndCosts, double[] cost, int[] cellStart) {
+        double[] widths = widthsAndCosts[0];
+        double[] costs = widthsAndCosts[1];
+        double maxWidth = widths.length > 0 ? widths[0] : 0;
+        int nx = grid.nx;
+        cost[0] = 0;
+        for (int i1 = 1; i1 <= nx; i1++) {
+            cost[i1] = INFINITE;
+            if (!grid.occupied(i1 - 1, j0, i1, j1)) {
+                cost[i1] = cost[i1 - 1];
+                cellStart[i1] = -1;
+            }
+            // Cells grow leftwards, so the cheapest fitting sheet only gets dearer
+            int k = widths.length - 1;
+            for (int i0 = i1 - 1; i0 >= 0; i0--) {
+                double width = grid.xs[i1] - grid.xs[i0];
+                if (width > maxWidth + 1e-6) {
+                    break;
+                }
+                while (widths[k] + 1e-6 < width) {
+                    k--;
+                }
+                if (cost[i0] + costs[k] < cost[i1] && grid.occupied(i0, j0, i1, j1)) {
+                    cost[i1] = cost[i0] + costs[k];
+                    cellStart[i1] = i0;
+                }
+            }
+        }
+        return cost[nx];
+    }
+}
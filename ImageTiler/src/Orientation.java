@@ -0,0 +1,93 @@
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+/**
+ * Clockwise quarter-turn rotation of an image, applied as a coordinate mapping.
+ * Rotating never copies pixels: drawing uses getTransform(), analysis and output map
+ * rectangles in rotated space back to the unrotated source with toSource().
+ */
+public enum Orientation {
+    NORMAL(0),
+    CLOCKWISE_90(90),
+    CLOCKWISE_180(180),
+    CLOCKWISE_270(270);
+
+    private final int degrees;
+
+    Orientation(int degrees) {
+        this.degrees = degrees;
+    }
+
+    public int getDegrees() {
+        return degrees;
+    }
+
+    /**
+     * The orientation after one more clockwise quarter turn
+     */
+    public Orientation next() {
+        return values()[(ordinal() + 1) % 4];
+    }
+
+    /**
+     * True for quarter and three-quarter turns, which exchange width and height
+     */
+    public boolean swapsAxes() {
+        return this == CLOCKWISE_90 || this == CLOCKWISE_270;
+    }
+
+    public int rotatedWidth(int sourceWidth, int sourceHeight) {
+        return swapsAxes() ? sourceHeight : sourceWidth;
+    }
+
+    public int rotatedHeight(int sourceWidth, int sourceHeight) {
+        return swapsAxes() ? sourceWidth : sourceHeight;
+    }
+
+    /**
+     * Maps a rectangle in rotated coordinates to the matching rectangle of the unrotated source
+     */
+    public Rectangle toSource(Rectangle rotated, int sourceWidth, int sourceHeight) {
+        switch (this) {
+            case CLOCKWISE_90:
+                return new Rectangle(rotated.y, sourceHeight - rotated.x - rotated.width, rotated.height, rotated.width);
+            case CLOCKWISE_180:
+                return new Rectangle(sourceWidth - rotated.x - rotated.width, sourceHeight - rotated.y - rotated.height,
+                                     rotated.width, rotated.height);
+            case CLOCKWISE_270:
+                return new Rectangle(sourceWidth - rotated.y - rotated.height, rotated.x, rotated.height, rotated.width);
+            default:
+                return new Rectangle(rotated);
+        }
+    }
+
+    /**
+     * Transform from source pixel coordinates to rotated coordinates, for drawing the
+     * unrotated image in rotated position
+     */
+    public AffineTransform getTransform(int sourceWidth, int sourceHeight) {
+        switch (this) {
+            case CLOCKWISE_90:
+                return new AffineTransform(0, 1, -1, 0, sourceHeight, 0);
+            case CLOCKWISE_180:
+                return new AffineTransform(-1, 0, 0, -1, sourceWidth, sourceHeight);
+            case CLOCKWISE_270:
+                return new AffineTransform(0, -1, 1, 0, 0, sourceWidth);
+            default:
+                return new AffineTransform();
+        }
+    }
+
+    /**
+     * Rotated copy of an image, keeping its type (see RasterRotation). Only meant for
+     * tile-sized regions at output time or callers that need a rotated raster; returns
+     * the image itself for NORMAL.
+     */
+    public BufferedImage apply(BufferedImage image) {
+        if (this == NORMAL) {
+            return image;
+        }
+        return RasterRotation.rotate(image, this);
+    }
+}
@@ -0,0 +1,241 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Hashtable;
+import java.util.stream.IntStream;
+
+/**
+ * Quarter-turn rotation working directly on raster data.
+ * The result has the source's color model and a compatible raster, so every image type
+ * (TYPE_CUSTOM included) comes back unchanged. Pixel-interleaved and packed layouts are
+ * copied element by element from the data arrays: 90° and 270° in square blocks so reads
+ * and writes both stay within a few cache lines, 180° as reversed rows. Blocks are
+ * processed in parallel for larger images. Other layouts fall back to per-pixel
+ * getDataElements/setDataElements.
+ */
+public class RasterRotation {
+
+    /**
+     * Edge of the square blocks used for 90°/270° transposition
+     */
+    static final int BLOCK_SIZE = 64;
+
+    /**
+     * Images with fewer pixels than this are rotated on the calling thread
+     */
+    private static final int PARALLEL_THRESHOLD = 256 * 256;
+
+    private RasterRotation() {
+    }
+
+    /**
+     * Rotated copy of an image with the same color model and raster layout
+     */
+    public static BufferedImage rotate(BufferedImage image, Orientation orientation) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int newWidth = orientation.rotatedWidth(w, h);
+        int newHeight = orientation.rotatedHeight(w, h);
+
+        ColorModel colorModel = image.getColorModel();
+        Raster source = image.getRaster();
+        WritableRaster target = source.createCompatibleWritableRaster(newWidth, newHeight);
+
+        Layout from = Layout.of(source);
+        Layout to = Layout.of(target);
+        if (from != null && to != null && from.pixelStride == to.pixelStride && from.data.getClass() == to.data.getClass()) {
+            rotateElements(from, to, w, h, orientation);
+        } else {
+            rotatePixels(source, target, w, h, orientation);
+        }
+
+        Hashtable<String, Object> properties = null;
+        String[] names = image.getPropertyNames();
+        if (names != null) {
+            properties = new Hashtable<>();
+            for (String name : names) {
+                properties.put(name, image.getProperty(name));
+            }
+        }
+        return new BufferedImage(colorModel, target, colorModel.isAlphaPremultiplied(), properties);
+    }
+
+    /**
+     * Copies pixels between data arrays. Walking one source row, the destination index moves by a
+     * constant step: down a column for 90°, backwards along a row for 180°, up a column for 270°.
+     */
+    private static void rotateElements(Layout from, Layout to, int w, int h, Orientation orientation) {
+        int p = from.pixelStride;
+        int destStep;
+        switch (orientation) {
+            case CLOCKWISE_90: destStep = to.scanlineStride; break;
+            case CLOCKWISE_180: destStep = -p; break;
+            case CLOCKWISE_270: destStep = -to.scanlineStride; break;
+            default: destStep = p; break;
+        }
+        // 180° reverses whole rows, which are already sequential on both sides
+        int blockWidth = orientation.swapsAxes() ? BLOCK_SIZE : w;
+        int blockHeight = orientation.swapsAxes() ? BLOCK_SIZE : Math.max(1, BLOCK_SIZE * BLOCK_SIZE / Math.max(1, w));
+        int blocksAcross = (w + blockWidth - 1) / blockWidth;
+        int blocksDown = (h + blockHeight - 1) / blockHeight;
+
+        IntStream blocks = IntStream.range(0, blocksAcross * blocksDown);
+        if ((long) w * h >= PARALLEL_THRESHOLD) {
+            blocks = blocks.parallel();
+        }
+        blocks.forEach(block -> {
+            int x0 = (block % blocksAcross) * blockWidth;
+            int y0 = (block / blocksAcross) * blockHeight;
+            int x1 = Math.min(w, x0 + blockWidth);
+            int y1 = Math.min(h, y0 + blockHeight);
+            for (int y = y0; y < y1; y++) {
+                int si = from.offset(x0, y);
+                int di = destinationOffset(to, orientation, x0, y, w, h);
+                copyRun(from.data, si, to.data, di, x1 - x0, p, destStep);
+            }
+        });
+    }
+
+    private static int destinationOffset(Layout to, Orientation orientation, int x, int y, int w, int h) {
+        switch (orientation) {
+            case CLOCKWISE_90: return to.offset(h - 1 - y, x);
+            case CLOCKWISE_180: return to.offset(w - 1 - x, h - 1 - y);
+            case CLOCKWISE_270: return to.offset(y, w - 1 - x);
+            default: return to.offset(x, y);
+        }
+    }
+
+    /**
+     * Copies count consecutive source pixels of p elements each to destinations destStep apart
+     */
+    private static void copyRun(Object src, int si, Object dst, int di, int count, int p, int destStep) {
+        if (src instanceof int[]) {
+            int[] s = (int[]) src;
+            int[] d = (int[]) dst;
+            if (p == 1) {
+                for (int i = 0; i < count; i++, si++, di += destStep) {
+                    d[di] = s[si];
+                }
+            } else {
+                for (int i = 0; i < count; i++, si += p, di += destStep) {
+                    System.arraycopy(s, si, d, di, p);
+                }
+            }
+        } else if (src instanceof byte[]) {
+            byte[] s = (byte[]) src;
+            byte[] d = (byte[]) dst;
+            for (int i = 0; i < count; i++, si += p, di += destStep) {
+                for (int k = 0; k < p; k++) {
+                    d[di + k] = s[si + k];
+                }
+            }
+        } else {
+            short[] s = (short[]) src;
+            short[] d = (short[]) dst;
+            for (int i = 0; i < count; i++, si += p, di += destStep) {
+                for (int k = 0; k < p; k++) {
+                    d[di + k] = s[si + k];
+                }
+            }
+        }
+    }
+
+    /**
+     * Layout-independent fallback, one row of destination pixels at a time
+     */
+    private static void rotatePixels(Raster source, WritableRaster target, int w, int h, Orientation orientation) {
+        Object pixel = null;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                pixel = source.getDataElements(x, y, pixel);
+                switch (orientation) {
+                    case CLOCKWISE_90: target.setDataElements(h - 1 - y, x, pixel); break;
+                    case CLOCKWISE_180: target.setDataElements(w - 1 - x, h - 1 - y, pixel); break;
+                    case CLOCKWISE_270: target.setDataElements(y, w - 1 - x, pixel); break;
+                    default: target.setDataElements(x, y, pixel); break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Where pixel (x, y) of a single-bank raster starts in its data array, and how many elements
+     * it spans. Only layouts whose pixels are contiguous element runs qualify.
+     */
+    private static class Layout {
+        final Object data;
+        final int base;
+        final int scanlineStride;
+        final int pixelStride;
+
+        private Layout(Object data, int base, int scanlineStride, int pixelStride) {
+            this.data = data;
+            this.base = base;
+            this.scanlineStride = scanlineStride;
+            this.pixelStride = pixelStride;
+        }
+
+        int offset(int x, int y) {
+            return base + y * scanlineStride + x * pixelStride;
+        }
+
+        static Layout of(Raster raster) {
+            DataBuffer buffer = raster.getDataBuffer();
+            if (buffer.getNumBanks() != 1) {
+                return null;
+            }
+            Object data;
+            if (buffer instanceof DataBufferInt) {
+                data = ((DataBufferInt) buffer).getData();
+            } else if (buffer instanceof DataBufferByte) {
+                data = ((DataBufferByte) buffer).getData();
+            } else if (buffer instanceof DataBufferUShort) {
+                data = ((DataBufferUShort) buffer).getData();
+            } else if (buffer instanceof DataBufferShort) {
+                data = ((DataBufferShort) buffer).getData();
+            } else {
+                return null;
+            }
+
+            // Raster pixel (x, y) is sample model pixel (x - translateX, y - translateY)
+            int originX = raster.getMinX() - raster.getSampleModelTranslateX();
+            int originY = raster.getMinY() - raster.getSampleModelTranslateY();
+            SampleModel model = raster.getSampleModel();
+            if (model instanceof SinglePixelPackedSampleModel) {
+                int stride = ((SinglePixelPackedSampleModel) model).getScanlineStride();
+                return new Layout(data, buffer.getOffset() + originY * stride + originX, stride, 1);
+            }
+            if (model instanceof ComponentSampleModel) {
+                ComponentSampleModel component = (ComponentSampleModel) model;
+                int pixelStride = component.getPixelStride();
+                int min = Integer.MAX_VALUE;
+                int max = Integer.MIN_VALUE;
+                for (int offset : component.getBandOffsets()) {
+                    min = Math.min(min, offset);
+                    max = Math.max(max, offset);
+                }
+                for (int bank : component.getBankIndices()) {
+                    if (bank != 0) {
+                        return null;
+                    }
+                }
+                // Bands must sit inside their own pixel's run of elements
+                if (min < 0 || max >= pixelStride) {
+                    return null;
+                }
+                int stride = component.getScanlineStride();
+                return new Layout(data, buffer.getOffset() + originY * stride + originX * pixelStride, stride, pixelStride);
+            }
+            return null;
+        }
+    }
+}
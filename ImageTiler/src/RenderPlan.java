@@ -0,0 +1,97 @@
+/**
+ * The geometry of one output of the current image: the tiling at the chosen scale, grid layout
+ * and paper, and once known the tiles selected for output. A plan never changes; the panel
+ * builds a new one when the image, rotation, scale, layout, paper or selection changes, and the
+ * preview, printing and PDF export all read the same one instead of each recomputing the grid
+ * and rescanning for blank tiles.
+ */
+public final class RenderPlan {
+    public final int outputWidth; // full-resolution pixels, rotated
+    public final int outputHeight;
+    public final Orientation orientation;
+    public final float scale;
+    public final TileCalculator.GridLayout layout;
+    public final double pageWidth;
+    public final double pageHeight;
+    public final TileCalculator.TilingResult tiling;
+
+    private final java.util.List<TileCalculator.TileInfo> selection; // null until the selection is taken
+    private final int selectionVersion; // TileSelectionGrid version the selection was taken at
+    private final ContentThresholds selectionThresholds;
+
+    private RenderPlan(int outputWidth, int outputHeight, Orientation orientation, float scale, TileCalculator.GridLayout layout,
+                       double pageWidth, double pageHeight, TileCalculator.TilingResult tiling,
+                       java.util.List<TileCalculator.TileInfo> selection, int selectionVersion, ContentThresholds selectionThresholds) {
+        this.outputWidth = outputWidth;
+        this.outputHeight = outputHeight;
+        this.orientation = orientation;
+        this.scale = scale;
+        this.layout = layout;
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.tiling = tiling;
+        this.selection = selection;
+        this.selectionVersion = selectionVersion;
+        this.selectionThresholds = selectionThresholds;
+    }
+
+    /**
+     * Plan for the rotated image size, without a selection
+     */
+    public static RenderPlan of(int outputWidth, int outputHeight, Orientation orientation, float scale,
+                                TileCalculator.GridLayout layout, double pageWidth, double pageHeight) {
+        TileCalculator.GridLayout gridLayout = layout != null ? layout : TileCalculator.GridLayout.DEFAULT;
+        TileCalculator.TilingResult tiling = gridLayout.apply(TileCalculator.calculateTiling(outputWidth, outputHeight,
+                                                                                          pageWidth, pageHeight, scale));
+        return new RenderPlan(outputWidth, outputHeight, orientation, scale, gridLayout, pageWidth, pageHeight, tiling,
+                              null, -1, null);
+    }
+
+    /**
+     * True if this plan was built for exactly these inputs
+     */
+    public boolean matches(int outputWidth, int outputHeight, Orientation orientation, float scale,
+                           TileCalculator.GridLayout layout, double pageWidth, double pageHeight) {
+        return this.outputWidth == outputWidth && this.outputHeight == outputHeight && this.orientation == orientation &&
+               this.scale == scale && this.layout == layout && this.pageWidth == pageWidth && this.pageHeight == pageHeight;
+    }
+
+    /**
+     * The same geometry with the tiles selected at the given grid version and thresholds
+     */
+    public RenderPlan withSelection(java.util.List<TileCalculator.TileInfo> tiles, int version, ContentThresholds thresholds) {
+        return new RenderPlan(outputWidth, outputHeight, orientation, scale, layout, pageWidth, pageHeight, tiling,
+                              java.util.Collections.unmodifiableList(new java.util.ArrayList<>(tiles)), version, thresholds);
+    }
+
+    /**
+     * True if the plan carries a selection taken at this grid version and these thresholds
+     */
+    public boolean hasSelection(int version, ContentThresholds thresholds) {
+        return selection != null && selectionVersion == version && java.util.Objects.equals(selectionThresholds, thresholds);
+    }
+
+    /**
+     * Selected tiles in row-major order, or null if the plan has no selection
+     */
+    public java.util.List<TileCalculator.TileInfo> getSelection() {
+        return selection;
+    }
+
+    public int getTileCount() {
+        return tiling.tilesWide * tiling.tilesHigh;
+    }
+
+    /**
+     * Export spec for this plan; the exporter lays it out again against the real page size
+     */
+    public TileExportService.Spec toSpec(boolean packEdgeTiles) {
+        return new TileExportService.Spec(outputWidth, outputHeight, scale, layout, packEdgeTiles);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d×%d px at %.2fx, %d×%d tiles%s", outputWidth, outputHeight, scale, tiling.tilesWide,
+                             tiling.tilesHigh, selection != null ? ", " + selection.size() + " selected" : "");
+    }
+}
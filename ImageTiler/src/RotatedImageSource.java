@@ -0,0 +1,60 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * View of another image source in a different orientation.
+ * Region reads are mapped back to the source and only the returned region is rotated,
+ * so output of a rotated image costs no more memory than output of an unrotated one.
+ */
+public class RotatedImageSource implements ImageSource {
+    private final ImageSource source;
+    private final Orientation orientation;
+    private BufferedImage rotatedPreview;
+
+    public RotatedImageSource(ImageSource source, Orientation orientation) {
+        this.source = source;
+        this.orientation = orientation;
+    }
+
+    public ImageSource getSource() {
+        return source;
+    }
+
+    public Orientation getOrientation() {
+        return orientation;
+    }
+
+    @Override
+    public int getWidth() {
+        return orientation.rotatedWidth(source.getWidth(), source.getHeight());
+    }
+
+    @Override
+    public int getHeight() {
+        return orientation.rotatedHeight(source.getWidth(), source.getHeight());
+    }
+
+    /**
+     * Rotated copy of the source preview, made on first use. Preview drawing and tile
+     * analysis work on the source preview with the orientation instead.
+     */
+    @Override
+    public synchronized BufferedImage getPreviewImage() {
+        if (rotatedPreview == null) {
+            rotatedPreview = orientation.apply(source.getPreviewImage());
+        }
+        return rotatedPreview;
+    }
+
+    @Override
+    public BufferedImage getFullImage() throws IOException {
+        return orientation.apply(source.getFullImage());
+    }
+
+    @Override
+    public BufferedImage readRegion(Rectangle region) throws IOException {
+        Rectangle sourceRegion = orientation.toSource(region, source.getWidth(), source.getHeight());
+        return orientation.apply(source.readRegion(sourceRegion));
+    }
+}
@@ -7,6 +7,22 @@ public class ScaleCalculator {
     public static final int PRINT_DPI = 300;  // Standard print DPI
     public static final int OFFICE_PRINT_DPI = 150; // Typical office printer DPI
     
+    /**
+     * Search limits for calculateScaleForPageCount: largest scale tried, bisection tolerance
+     * relative to the scale, and the scan past each boundary (rounds, probes, and its reach)
+     */
+    private static final float MAX_FIT_SCALE = 64f;
+    private static final float FIT_TOLERANCE = 1e-4f;
+    private static final int FIT_SCAN_ROUNDS = 3;
+    private static final int FIT_SCAN_STEPS = 32;
+    private static final float FIT_SCAN_RANGE = 0.25f;
+
+    /**
+     * Content a fitted layout may leave on pages judged blank, as a share of all content; it
+     * only absorbs the content map's rounding at cell edges
+     */
+    private static final double MAX_DROPPED_SHARE = 0.01;
+    
     /**
      * Calculate scale based on measured physical dimensions
      * This is the primary method for users who print and measure
@@ -86,6 +102,218 @@ public class ScaleCalculator {
         return Math.max(scaleX, scaleY);
     }
     
+    /**
+     * Calculate the largest scale that prints at most maxPages non-blank pages, after blank-tile
+     * elimination and, if allowed, the best grid shift. Page counts mostly rise with scale, so the
+     * boundary is found by bisection. Each probe counts pages with the sampling the panel's
+     * selection and the output use, and is rejected if it leaves content on pages judged blank,
+     * so a fit is never found by cutting content into pieces too small to print. Counts can dip
+     * again just past a jump when content happens to land clear of page edges, so a short scan
+     * beyond each boundary looks for a larger scale that fits. When no scale fits, scale 1.0,
+     * where the image takes a single page, is returned.
+     *
+     * @param sourceWidth  width of the unrotated image at full resolution
+     * @param sourceHeight height of the unrotated image at full resolution
+     */
+    public static PageFit calculateScaleForPageCount(GridOptimizer.ContentMap map, int sourceWidth, int sourceHeight,
+                                                     Orientation orientation, ContentThresholds thresholds, int maxPages,
+                                                     boolean allowGridShift, double pageWidthPoints, double pageHeightPoints) {
+        if (maxPages < 1) {
+            throw new IllegalArgumentException("At least one page is needed, got " + maxPages);
+        }
+        long start = System.nanoTime();
+        PageProbe probe = new PageProbe(map, sourceWidth, sourceHeight, orientation, thresholds, maxPages, allowGridShift,
+                                        pageWidthPoints, pageHeightPoints);
+
+        // Up to scale 1.0 the image fits on a single page, so that is always a lower bound. Scales
+        // are bounded above only by the page budget: a probe that fits the budget but leaves
+        // content on blank pages is passed over, not taken as a limit
+        float low = 1.0f;
+        PageFit best = probe.fit(low);
+        if (map.contentPixels(new java.awt.Rectangle(0, 0, map.imageWidth, map.imageHeight)) == 0) {
+            return best.finish(probe.probes, start); // A blank image prints nothing at any scale
+        }
+        float high = 2.0f;
+        while (high <= MAX_FIT_SCALE) {
+            PageFit highFit = probe.fit(high);
+            if (probe.overBudget) {
+                break;
+            }
+            best = highFit != null ? highFit : best;
+            low = high;
+            high *= 2;
+        }
+        if (high > MAX_FIT_SCALE) {
+            return finish(probe, best, start); // Within the budget even at the largest scale tried
+        }
+
+        for (int round = 0; round < FIT_SCAN_ROUNDS; round++) {
+            while (high - low > low * FIT_TOLERANCE) {
+                float middle = (low + high) / 2;
+                PageFit middleFit = probe.fit(middle);
+                if (probe.overBudget) {
+                    high = middle;
+                } else {
+                    best = middleFit != null ? middleFit : best;
+                    low = middle;
+                }
+            }
+            // Look past the boundary for a dip back under the limit
+            float lastFit = Float.NaN;
+            float afterLastFit = Float.NaN;
+            for (int step = 1; step <= FIT_SCAN_STEPS; step++) {
+                float scale = high * (1 + FIT_SCAN_RANGE * step / FIT_SCAN_STEPS);
+                PageFit fit = probe.fit(scale);
+                if (fit != null) {
+                    best = fit;
+                    lastFit = scale;
+                    afterLastFit = Float.NaN;
+                } else if (!Float.isNaN(lastFit) && Float.isNaN(afterLastFit)) {
+                    afterLastFit = scale;
+                }
+            }
+            if (Float.isNaN(lastFit)) {
+                break;
+            }
+            low = lastFit;
+            high = Float.isNaN(afterLastFit) ? lastFit * (1 + FIT_SCAN_RANGE / FIT_SCAN_STEPS) : afterLastFit;
+            PageFit fit;
+            while (high < MAX_FIT_SCALE && (fit = probe.fit(high)) != null) {
+                best = fit;
+                low = high;
+                high *= 1 + FIT_SCAN_RANGE / FIT_SCAN_STEPS;
+            }
+        }
+        return finish(probe, best, start);
+    }
+
+    /**
+     * The search's result, or scale 1.0 with whatever it prints when no scale fitted
+     */
+    private static PageFit finish(PageProbe probe, PageFit best, long startNanos) {
+        return (best != null ? best : probe.singlePage(1.0f)).finish(probe.probes, startNanos);
+    }
+
+    /**
+     * Page counts at single scales for calculateScaleForPageCount
+     */
+    private static class PageProbe {
+        final GridOptimizer.ContentMap map;
+        final int sourceWidth;
+        final int sourceHeight;
+        final Orientation orientation;
+        final ContentThresholds thresholds;
+        final int maxPages;
+        final boolean allowGridShift;
+        final double pageWidth;
+        final double pageHeight;
+        final long allowedDropped;
+        int probes = 0;
+        boolean overBudget; // the last probe printed more than maxPages pages in every layout tried
+
+        PageProbe(GridOptimizer.ContentMap map, int sourceWidth, int sourceHeight, Orientation orientation, ContentThresholds thresholds,
+                  int maxPages, boolean allowGridShift, double pageWidth, double pageHeight) {
+            this.map = map;
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+            this.orientation = orientation;
+            this.thresholds = thresholds;
+            this.maxPages = maxPages;
+            this.allowGridShift = allowGridShift;
+            this.pageWidth = pageWidth;
+            this.pageHeight = pageHeight;
+            long content = map.contentPixels(new java.awt.Rectangle(0, 0, map.imageWidth, map.imageHeight));
+            this.allowedDropped = (long) (content * MAX_DROPPED_SHARE);
+        }
+
+        /**
+         * The first layout at this scale that prints all the content on at most maxPages pages,
+         * or null if none does
+         */
+        PageFit fit(float scale) {
+            probes++;
+            TileCalculator.TilingResult base = baseTiling(scale);
+            GridOptimizer.Score score = GridOptimizer.score(map, base, orientation, thresholds, maxPages + 1);
+            overBudget = score.pages > maxPages;
+            if (fits(score)) {
+                return new PageFit(scale, score.pages, TileCalculator.GridLayout.DEFAULT, 0, 0);
+            }
+            if (!allowGridShift) {
+                return null;
+            }
+            for (TileCalculator.PageOrientation pageOrientation : new TileCalculator.PageOrientation[] {
+                     TileCalculator.PageOrientation.PORTRAIT, TileCalculator.PageOrientation.LANDSCAPE}) {
+                for (int stepY = 0; stepY < GridOptimizer.OFFSET_STEPS; stepY++) {
+                    for (int stepX = 0; stepX < GridOptimizer.OFFSET_STEPS; stepX++) {
+                        TileCalculator.GridLayout layout = new TileCalculator.GridLayout(
+                            pageOrientation, stepX / (double) GridOptimizer.OFFSET_STEPS, stepY / (double) GridOptimizer.OFFSET_STEPS);
+                        // Until a layout comes in under the budget its page count is needed in full;
+                        // after that a layout is abandoned once it leaves too much content on blank pages
+                        score = GridOptimizer.score(map, layout.apply(base), orientation, thresholds, maxPages + 1,
+                                                    overBudget ? Long.MAX_VALUE : allowedDropped);
+                        overBudget &= score.pages > maxPages;
+                        if (fits(score)) {
+                            return new PageFit(scale, score.pages, layout, 0, 0);
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * The default grid at this scale whatever it prints, for when no scale fits
+         */
+        PageFit singlePage(float scale) {
+            GridOptimizer.Score score = GridOptimizer.score(map, baseTiling(scale), orientation, thresholds, Integer.MAX_VALUE);
+            return new PageFit(scale, score.pages, TileCalculator.GridLayout.DEFAULT, 0, 0);
+        }
+
+        private boolean fits(GridOptimizer.Score score) {
+            return score.pages <= maxPages && score.droppedPixels <= allowedDropped;
+        }
+
+        private TileCalculator.TilingResult baseTiling(float scale) {
+            return TileCalculator.calculateTiling(orientation.rotatedWidth(sourceWidth, sourceHeight),
+                                               orientation.rotatedHeight(sourceWidth, sourceHeight),
+                                               pageWidth, pageHeight, scale);
+        }
+    }
+
+    /**
+     * The largest scale found for a page budget, with the grid layout that achieves it
+     */
+    public static class PageFit {
+        public final float scale;
+        public final int pages;
+        public final TileCalculator.GridLayout layout;
+        public final int probes;
+        public final long elapsedMillis;
+
+        PageFit(float scale, int pages, TileCalculator.GridLayout layout, int probes, long elapsedMillis) {
+            this.scale = scale;
+            this.pages = pages;
+            this.layout = layout;
+            this.probes = probes;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * This fit with the search's cost filled in
+         */
+        private PageFit finish(int probes, long startNanos) {
+            PageFit result = new PageFit(scale, pages, layout, probes, (System.nanoTime() - startNanos) / 1_000_000);
+            System.out.println("[STATS] Fit to pages: " + result);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.4fx prints %d pages%s (%d probes, %d ms)", scale, pages,
+                                 layout.isDefault() ? "" : " with " + layout, probes, elapsedMillis);
+        }
+    }
+
     /**
      * Represents a physical size in inches
      */
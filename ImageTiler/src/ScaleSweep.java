@@ -0,0 +1,94 @@
+/**
+ * Pages actually printed across a range of scales. ScaleCalculator.calculateScaleForTileCount
+ * reasons about the whole grid; this counts only the pages left after blank-tile elimination,
+ * judging tiles as GridOptimizer.score does, with the sampling the panel's selection and the
+ * output use, so a point on the curve prints the pages it shows. Page counts jump at particular
+ * scales, and the scale just below a jump prints the most image for those pages.
+ */
+public class ScaleSweep {
+
+    /**
+     * Scales evaluated by default across a sweep
+     */
+    public static final int DEFAULT_SAMPLES = 240;
+
+    private ScaleSweep() {
+    }
+
+    /**
+     * The output at one scale
+     */
+    public static class Sample {
+        public final float scale;
+        public final int pages; // non-blank pages
+        public final int totalTiles;
+        public final float widthInches;
+        public final float heightInches;
+        public final boolean landscape; // page orientation the tiler chose
+
+        Sample(float scale, int pages, int totalTiles, float widthInches, float heightInches, boolean landscape) {
+            this.scale = scale;
+            this.pages = pages;
+            this.totalTiles = totalTiles;
+            this.widthInches = widthInches;
+            this.heightInches = heightInches;
+            this.landscape = landscape;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.3fx: %d pages of %d, %.1f × %.1f in, %s", scale, pages, totalTiles,
+                                 widthInches, heightInches, landscape ? "landscape" : "portrait");
+        }
+    }
+
+    /**
+     * Evaluates one scale the way the tiler lays it out
+     *
+     * @param sourceWidth  width of the unrotated image at full resolution
+     * @param sourceHeight height of the unrotated image at full resolution
+     */
+    public static Sample evaluate(GridOptimizer.ContentMap map, int sourceWidth, int sourceHeight, Orientation orientation,
+                                  ContentThresholds thresholds, float scale, double pageWidth, double pageHeight) {
+        TileCalculator.TilingResult tiling = TileCalculator.calculateTiling(orientation.rotatedWidth(sourceWidth, sourceHeight),
+                                                                         orientation.rotatedHeight(sourceWidth, sourceHeight),
+                                                                         pageWidth, pageHeight, scale);
+        int pages = GridOptimizer.score(map, tiling, orientation, thresholds, Integer.MAX_VALUE).pages;
+        return new Sample(scale, pages, tiling.tilesWide * tiling.tilesHigh,
+                          ScaleCalculator.pointsToInches(tiling.imageWidth), ScaleCalculator.pointsToInches(tiling.imageHeight),
+                          tiling.tileWidth > tiling.tileHeight);
+    }
+
+    /**
+     * Evaluates evenly spaced scales from minScale to maxScale inclusive
+     */
+    public static java.util.List<Sample> sweep(GridOptimizer.ContentMap map, int sourceWidth, int sourceHeight, Orientation orientation,
+                                               ContentThresholds thresholds, float minScale, float maxScale, int samples,
+                                               double pageWidth, double pageHeight) {
+        if (minScale <= 0 || maxScale < minScale || samples < 2) {
+            throw new IllegalArgumentException("Invalid sweep range " + minScale + ".." + maxScale + " in " + samples + " samples");
+        }
+        long start = System.nanoTime();
+        java.util.List<Sample> results = new java.util.ArrayList<>(samples);
+        for (int i = 0; i < samples; i++) {
+            float scale = minScale + (maxScale - minScale) * i / (samples - 1);
+            results.add(evaluate(map, sourceWidth, sourceHeight, orientation, thresholds, scale, pageWidth, pageHeight));
+        }
+        System.out.println("[STATS] Swept " + samples + " scales " + minScale + ".." + maxScale + " in " +
+                           (System.nanoTime() - start) / 1_000_000 + " ms");
+        return results;
+    }
+
+    /**
+     * Samples whose next larger scale prints more pages: the largest scale swept for each page count
+     */
+    public static java.util.List<Sample> beforeJumps(java.util.List<Sample> samples) {
+        java.util.List<Sample> jumps = new java.util.ArrayList<>();
+        for (int i = 0; i + 1 < samples.size(); i++) {
+            if (samples.get(i + 1).pages > samples.get(i).pages) {
+                jumps.add(samples.get(i));
+            }
+        }
+        return jumps;
+    }
+}
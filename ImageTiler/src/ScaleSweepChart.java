@@ -0,0 +1,145 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+/**
+ * Step chart of non-blank pages against scale, with the scale being considered marked and
+ * the largest scale for each page count picked out. Hovering shows the pages, printed size
+ * and page orientation at a scale; clicking picks that scale.
+ */
+public class ScaleSweepChart extends JPanel {
+
+    /**
+     * Told when the user clicks a scale on the chart
+     */
+    public interface ScaleListener {
+        void scalePicked(float scale);
+    }
+
+    private static final int LEFT = 34;
+    private static final int RIGHT = 8;
+    private static final int TOP = 8;
+    private static final int BOTTOM = 20;
+
+    private java.util.List<ScaleSweep.Sample> samples;
+    private java.util.List<ScaleSweep.Sample> jumps = java.util.Collections.emptyList();
+    private float markedScale = Float.NaN;
+    private int maxPages = 1;
+
+    public ScaleSweepChart(ScaleListener listener) {
+        setBackground(Color.WHITE);
+        setPreferredSize(new Dimension(260, 110));
+        setToolTipText("");
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                ScaleSweep.Sample sample = sampleAt(e.getX());
+                if (sample != null) {
+                    listener.scalePicked(sample.scale);
+                }
+            }
+        });
+    }
+
+    /**
+     * Shows a new sweep, or an empty chart when null
+     */
+    public void setSamples(java.util.List<ScaleSweep.Sample> samples) {
+        this.samples = samples;
+        this.jumps = samples != null ? ScaleSweep.beforeJumps(samples) : java.util.Collections.emptyList();
+        maxPages = 1;
+        if (samples != null) {
+            for (ScaleSweep.Sample sample : samples) {
+                maxPages = Math.max(maxPages, sample.pages);
+            }
+        }
+        repaint();
+    }
+
+    public void setMarkedScale(float scale) {
+        markedScale = scale;
+        repaint();
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        ScaleSweep.Sample sample = sampleAt(e.getX());
+        if (sample == null) {
+            return null;
+        }
+        return String.format("%.3fx: %d pages, %.1f × %.1f in, %s%s", sample.scale, sample.pages, sample.widthInches,
+                             sample.heightInches, sample.landscape ? "landscape" : "portrait",
+                             jumps.contains(sample) ? " (largest for this page count)" : "");
+    }
+
+    private ScaleSweep.Sample sampleAt(int x) {
+        if (samples == null || samples.isEmpty()) {
+            return null;
+        }
+        int plotWidth = getWidth() - LEFT - RIGHT;
+        int index = (int) Math.round((x - LEFT) / (double) plotWidth * (samples.size() - 1));
+        return index < 0 || index >= samples.size() ? null : samples.get(index);
+    }
+
+    private double xOf(int index) {
+        return LEFT + index * (getWidth() - LEFT - RIGHT) / (double) (samples.size() - 1);
+    }
+
+    private double yOf(int pages) {
+        return TOP + (getHeight() - TOP - BOTTOM) * (1 - pages / (double) maxPages);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2d = (Graphics2D) g.create();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setFont(new Font("SansSerif", Font.PLAIN, 10));
+        int bottom = getHeight() - BOTTOM;
+
+        g2d.setColor(Color.LIGHT_GRAY);
+        g2d.drawLine(LEFT, TOP, LEFT, bottom);
+        g2d.drawLine(LEFT, bottom, getWidth() - RIGHT, bottom);
+        if (samples == null || samples.size() < 2) {
+            g2d.setColor(Color.GRAY);
+            g2d.drawString("Load an image to see pages by scale", LEFT + 6, TOP + 20);
+            g2d.dispose();
+            return;
+        }
+
+        g2d.setColor(Color.GRAY);
+        g2d.drawString(String.valueOf(maxPages), 4, TOP + 8);
+        g2d.drawString("0", 4, bottom);
+        g2d.drawString(String.format("%.2fx", samples.get(0).scale), LEFT, bottom + 14);
+        String last = String.format("%.2fx", samples.get(samples.size() - 1).scale);
+        g2d.drawString(last, getWidth() - RIGHT - g2d.getFontMetrics().stringWidth(last), bottom + 14);
+
+        // Pages only change between samples, so draw steps
+        java.awt.geom.Path2D.Double path = new java.awt.geom.Path2D.Double();
+        path.moveTo(xOf(0), yOf(samples.get(0).pages));
+        for (int i = 1; i < samples.size(); i++) {
+            path.lineTo(xOf(i), yOf(samples.get(i - 1).pages));
+            path.lineTo(xOf(i), yOf(samples.get(i).pages));
+        }
+        g2d.setColor(new Color(33, 150, 243));
+        g2d.setStroke(new BasicStroke(1.5f));
+        g2d.draw(path);
+
+        g2d.setColor(new Color(76, 175, 80));
+        for (ScaleSweep.Sample jump : jumps) {
+            int index = samples.indexOf(jump);
+            g2d.fillOval((int) xOf(index) - 3, (int) yOf(jump.pages) - 3, 6, 6);
+        }
+
+        float first = samples.get(0).scale;
+        float span = samples.get(samples.size() - 1).scale - first;
+        if (!Float.isNaN(markedScale) && span > 0 && markedScale >= first && markedScale <= first + span) {
+            int x = Math.round(LEFT + (markedScale - first) / span * (getWidth() - LEFT - RIGHT));
+            g2d.setColor(new Color(255, 87, 34));
+            g2d.setStroke(new BasicStroke(1));
+            g2d.drawLine(x, TOP, x, bottom);
+        }
+        g2d.dispose();
+    }
+}
@@ -22,6 +22,13 @@ public class Settings {
     public static final boolean DEFAULT_AUTO_SAVE_SETTINGS = true;
     public static final boolean DEFAULT_CONFIRM_OVERWRITES = true;
     public static final int DEFAULT_GRID_LINE_WIDTH = 2;
+    public static final boolean DEFAULT_AUTO_TRIM_MARGINS = true;
+    public static final String DEFAULT_TRAY_PAPER_SIZES = "A4,A3";
+    public static final boolean DEFAULT_PACK_EDGE_TILES = false;
+    public static final int DEFAULT_WATCH_WORKERS = 2;
+    public static final long DEFAULT_WATCH_SETTLE_MILLIS = 2000;
+    public static final String DEFAULT_ANALYSIS_CACHE_DIR = System.getProperty("user.home") + File.separator + ".imagetiler" + File.separator + "analysis-cache";
+    public static final int DEFAULT_ANALYSIS_CACHE_MB = 1024;
     
     // Paper size enumeration
     public enum PaperSize {
@@ -95,6 +102,36 @@ public class Settings {
         if (!properties.containsKey("showTileNumbers")) {
             properties.setProperty("showTileNumbers", String.valueOf(DEFAULT_SHOW_TILE_NUMBERS));
         }
+        if (!properties.containsKey("autoTrimMargins")) {
+            properties.setProperty("autoTrimMargins", String.valueOf(DEFAULT_AUTO_TRIM_MARGINS));
+        }
+        if (!properties.containsKey("packEdgeTiles")) {
+            properties.setProperty("packEdgeTiles", String.valueOf(DEFAULT_PACK_EDGE_TILES));
+        }
+        if (!properties.containsKey("minContentRatio")) {
+            properties.setProperty("minContentRatio", String.valueOf(ContentThresholds.DEFAULT.minContentRatio));
+        }
+        if (!properties.containsKey("nearWhite")) {
+            properties.setProperty("nearWhite", String.valueOf(ContentThresholds.DEFAULT.nearWhite));
+        }
+        if (!properties.containsKey("minAlpha")) {
+            properties.setProperty("minAlpha", String.valueOf(ContentThresholds.DEFAULT.minAlpha));
+        }
+        if (!properties.containsKey("watchWorkers")) {
+            properties.setProperty("watchWorkers", String.valueOf(DEFAULT_WATCH_WORKERS));
+        }
+        if (!properties.containsKey("watchSettleMillis")) {
+            properties.setProperty("watchSettleMillis", String.valueOf(DEFAULT_WATCH_SETTLE_MILLIS));
+        }
+        if (!properties.containsKey("analysisCacheDir")) {
+            properties.setProperty("analysisCacheDir", DEFAULT_ANALYSIS_CACHE_DIR);
+        }
+        if (!properties.containsKey("analysisCacheMB")) {
+            properties.setProperty("analysisCacheMB", String.valueOf(DEFAULT_ANALYSIS_CACHE_MB));
+        }
+        if (!properties.containsKey("trayPaperSizes")) {
+            properties.setProperty("trayPaperSizes", DEFAULT_TRAY_PAPER_SIZES);
+        }
         if (!properties.containsKey("gridColor")) {
             properties.setProperty("gridColor", colorToString(DEFAULT_GRID_COLOR));
         }
@@ -140,6 +177,88 @@ public class Settings {
         }
     }
     
+    /**
+     * Whether partial edge tiles are packed onto shared sheets when printing and saving
+     */
+    public boolean isPackEdgeTiles() {
+        return Boolean.parseBoolean(properties.getProperty("packEdgeTiles", String.valueOf(DEFAULT_PACK_EDGE_TILES)));
+    }
+    
+    /**
+     * Blank-tile threshold levels, against a white background; callers set the background per image
+     */
+    public ContentThresholds getContentThresholds() {
+        try {
+            return ContentThresholds.DEFAULT.withLevels(
+                Double.parseDouble(properties.getProperty("minContentRatio", String.valueOf(ContentThresholds.DEFAULT.minContentRatio))),
+                Integer.parseInt(properties.getProperty("nearWhite", String.valueOf(ContentThresholds.DEFAULT.nearWhite))),
+                Integer.parseInt(properties.getProperty("minAlpha", String.valueOf(ContentThresholds.DEFAULT.minAlpha))));
+        } catch (NumberFormatException e) {
+            return ContentThresholds.DEFAULT;
+        }
+    }
+    
+    /**
+     * Images the watch-folder daemon tiles at once
+     */
+    public int getWatchWorkers() {
+        try {
+            return Math.max(1, Integer.parseInt(properties.getProperty("watchWorkers", String.valueOf(DEFAULT_WATCH_WORKERS))));
+        } catch (NumberFormatException e) {
+            return DEFAULT_WATCH_WORKERS;
+        }
+    }
+    
+    /**
+     * How long a dropped file's size and modification time must stay unchanged before it is tiled
+     */
+    public long getWatchSettleMillis() {
+        try {
+            return Math.max(0, Long.parseLong(properties.getProperty("watchSettleMillis", String.valueOf(DEFAULT_WATCH_SETTLE_MILLIS))));
+        } catch (NumberFormatException e) {
+            return DEFAULT_WATCH_SETTLE_MILLIS;
+        }
+    }
+    
+    /**
+     * Folder holding cached previews and analysis of opened images
+     */
+    public File getAnalysisCacheDir() {
+        return new File(properties.getProperty("analysisCacheDir", DEFAULT_ANALYSIS_CACHE_DIR));
+    }
+    
+    /**
+     * Size the analysis cache is trimmed to, least recently used first; 0 turns it off
+     */
+    public int getAnalysisCacheMegabytes() {
+        try {
+            return Math.max(0, Integer.parseInt(properties.getProperty("analysisCacheMB", String.valueOf(DEFAULT_ANALYSIS_CACHE_MB))));
+        } catch (NumberFormatException e) {
+            return DEFAULT_ANALYSIS_CACHE_MB;
+        }
+    }
+    
+    /**
+     * Paper sizes loaded in the printer's trays, for mixed paper layouts
+     */
+    public java.util.List<PaperSize> getTrayPaperSizes() {
+        java.util.List<PaperSize> sizes = new java.util.ArrayList<>();
+        for (String name : properties.getProperty("trayPaperSizes", DEFAULT_TRAY_PAPER_SIZES).split(",")) {
+            try {
+                PaperSize size = PaperSize.valueOf(name.trim());
+                if (!sizes.contains(size)) {
+                    sizes.add(size);
+                }
+            } catch (IllegalArgumentException e) {
+                // Skip unknown names
+            }
+        }
+        if (sizes.isEmpty()) {
+            sizes.add(DEFAULT_PAPER_SIZE);
+        }
+        return sizes;
+    }
+    
     public boolean isShowGrid() {
         return Boolean.parseBoolean(properties.getProperty("showGrid", String.valueOf(DEFAULT_SHOW_GRID)));
     }
@@ -148,6 +267,13 @@ public class Settings {
         return Boolean.parseBoolean(properties.getProperty("showTileNumbers", String.valueOf(DEFAULT_SHOW_TILE_NUMBERS)));
     }
     
+    /**
+     * Whether empty margins around the content are cut off before tiling
+     */
+    public boolean isAutoTrimMargins() {
+        return Boolean.parseBoolean(properties.getProperty("autoTrimMargins", String.valueOf(DEFAULT_AUTO_TRIM_MARGINS)));
+    }
+    
     public Color getGridColor() {
         return stringToColor(properties.getProperty("gridColor", colorToString(DEFAULT_GRID_COLOR)));
     }
@@ -206,6 +332,35 @@ public class Settings {
         autoSave();
     }
     
+    public void setPackEdgeTiles(boolean packEdgeTiles) {
+        properties.setProperty("packEdgeTiles", String.valueOf(packEdgeTiles));
+        autoSave();
+    }
+    
+    public void setContentThresholds(ContentThresholds thresholds) {
+        properties.setProperty("minContentRatio", String.valueOf(thresholds.minContentRatio));
+        properties.setProperty("nearWhite", String.valueOf(thresholds.nearWhite));
+        properties.setProperty("minAlpha", String.valueOf(thresholds.minAlpha));
+        autoSave();
+    }
+    
+    public void setTrayPaperSizes(java.util.Collection<PaperSize> sizes) {
+        StringBuilder names = new StringBuilder();
+        for (PaperSize size : sizes) {
+            if (names.length() > 0) {
+                names.append(",");
+            }
+            names.append(size.name());
+        }
+        properties.setProperty("trayPaperSizes", names.toString());
+        autoSave();
+    }
+    
+    public void setAutoTrimMargins(boolean autoTrimMargins) {
+        properties.setProperty("autoTrimMargins", String.valueOf(autoTrimMargins));
+        autoSave();
+    }
+    
     public void setGridColor(Color gridColor) {
         properties.setProperty("gridColor", colorToString(gridColor));
         autoSave();
@@ -18,6 +18,8 @@ public class SettingsDialog extends JDialog {
     private JComboBox<Settings.PaperSize> paperSizeCombo;
     private JCheckBox showGridCheckbox;
     private JCheckBox showTileNumbersCheckbox;
+    private JCheckBox autoTrimMarginsCheckbox;
+    private JCheckBox packEdgeTilesCheckbox;
     private JButton gridColorButton;
     private JButton excludedColorButton;
     private JSpinner scaleSpinner;
@@ -78,6 +80,14 @@ public class SettingsDialog extends JDialog {
         showTileNumbersCheckbox.setFont(new Font("SansSerif", Font.PLAIN, 12));
         showTileNumbersCheckbox.setBackground(new Color(245, 245, 245));
         
+        autoTrimMarginsCheckbox = new JCheckBox("Trim empty margins before tiling");
+        autoTrimMarginsCheckbox.setFont(new Font("SansSerif", Font.PLAIN, 12));
+        autoTrimMarginsCheckbox.setBackground(new Color(245, 245, 245));
+        
+        packEdgeTilesCheckbox = new JCheckBox("Pack partial edge tiles onto shared sheets");
+        packEdgeTilesCheckbox.setFont(new Font("SansSerif", Font.PLAIN, 12));
+        packEdgeTilesCheckbox.setBackground(new Color(245, 245, 245));
+        
         autoSaveCheckbox = new JCheckBox("Auto-save settings");
         autoSaveCheckbox.setFont(new Font("SansSerif", Font.PLAIN, 12));
         autoSaveCheckbox.setBackground(new Color(245, 245, 245));
@@ -156,6 +166,9 @@ public class SettingsDialog extends JDialog {
         dispGbc.gridy = 3;
         displayPanel.add(showTileNumbersCheckbox, dispGbc);
         
+        dispGbc.gridy = 4;
+        displayPanel.add(autoTrimMarginsCheckbox, dispGbc);
+        
         gbc.gridy = 1;
         mainPanel.add(displayPanel, gbc);
         
@@ -190,6 +203,8 @@ public class SettingsDialog extends JDialog {
         generalPanel.add(autoSaveCheckbox, genGbc);
         genGbc.gridy = 1;
         generalPanel.add(confirmOverwritesCheckbox, genGbc);
+        genGbc.gridy = 2;
+        generalPanel.add(packEdgeTilesCheckbox, genGbc);
         
         gbc.gridy = 3;
         mainPanel.add(generalPanel, gbc);
@@ -288,6 +303,8 @@ public class SettingsDialog extends JDialog {
         paperSizeCombo.setSelectedItem(settings.getPaperSize());
         showGridCheckbox.setSelected(settings.isShowGrid());
         showTileNumbersCheckbox.setSelected(settings.isShowTileNumbers());
+        autoTrimMarginsCheckbox.setSelected(settings.isAutoTrimMargins());
+        packEdgeTilesCheckbox.setSelected(settings.isPackEdgeTiles());
         scaleSpinner.setValue(settings.getDefaultScale());
         gridLineWidthSpinner.setValue(settings.getGridLineWidth());
         autoSaveCheckbox.setSelected(settings.isAutoSaveSettings());
@@ -341,6 +358,8 @@ public class SettingsDialog extends JDialog {
         settings.setPaperSize((Settings.PaperSize) paperSizeCombo.getSelectedItem());
         settings.setShowGrid(showGridCheckbox.isSelected());
         settings.setShowTileNumbers(showTileNumbersCheckbox.isSelected());
+        settings.setAutoTrimMargins(autoTrimMarginsCheckbox.isSelected());
+        settings.setPackEdgeTiles(packEdgeTilesCheckbox.isSelected());
         settings.setGridColor(selectedGridColor);
         settings.setExcludedColor(selectedExcludedColor);
         settings.setDefaultScale(((Number) scaleSpinner.getValue()).floatValue());
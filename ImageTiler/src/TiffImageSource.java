@@ -0,0 +1,879 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Image source for TIFF and BigTIFF files, decoded without ImageIO.
+ * Tiles (or strips, treated as full-width tiles) are read with positional channel reads
+ * and decoded independently on a shared pool, so region reads touch only the tiles they
+ * overlap. The preview comes from a reduced-resolution directory when the file has one,
+ * otherwise every tile is decoded once and subsampled as it arrives.
+ * Supports uncompressed, LZW, Deflate and PackBits data with optional horizontal
+ * differencing, in bilevel, grayscale, palette and RGB(A) at 1 to 16 bits per sample.
+ */
+public class TiffImageSource implements ImageSource {
+
+    private static final ExecutorService DECODE_POOL = Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "tiff-decode");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    private final File file;
+    private final FileChannel channel;
+    private final Directory directory;
+    private final BufferedImage previewImage;
+
+    private TiffImageSource(File file, FileChannel channel, Directory directory, BufferedImage previewImage) {
+        this.file = file;
+        this.channel = channel;
+        this.directory = directory;
+        this.previewImage = previewImage;
+    }
+
+    /**
+     * Returns true if the file starts with a TIFF or BigTIFF header
+     */
+    public static boolean isTiff(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            if (channel.read(header, 0) < 4) {
+                return false;
+            }
+            int b0 = header.get(0), b1 = header.get(1);
+            if (b0 == 'I' && b1 == 'I') {
+                header.order(ByteOrder.LITTLE_ENDIAN);
+            } else if (!(b0 == 'M' && b1 == 'M')) {
+                return false;
+            }
+            int magic = header.getShort(2);
+            return magic == 42 || magic == 43;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parses the file's directories and decodes the preview tier
+     * @param progress optional callback receiving preview decode progress in percent
+     * @throws UnsupportedTiffException if the image uses features this decoder lacks
+     */
+    public static TiffImageSource open(File file, IntConsumer progress) throws IOException {
+        return open(file, progress, Runtime.getRuntime().maxMemory());
+    }
+
+    /**
+     * Opens the file with its preview sized against a share of the heap, as FileImageSource does
+     */
+    public static TiffImageSource open(File file, IntConsumer progress, long heapBytes) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            List<Directory> directories = readDirectories(channel);
+            Directory full = directories.get(0);
+            full.checkSupported();
+
+            int step = FileImageSource.calculatePreviewSubsampling(full.width, full.height, heapBytes);
+            Directory previewSource = full;
+            for (Directory candidate : directories) {
+                // Smallest reduced-resolution image that still has the preview's detail
+                if (candidate.isReducedResolution() && candidate.isSupported() &&
+                    (long) candidate.width * step >= full.width && (long) candidate.height * step >= full.height &&
+                    candidate.width < previewSource.width) {
+                    previewSource = candidate;
+                }
+            }
+            int previewStep = previewSource == full ? step :
+                FileImageSource.calculatePreviewSubsampling(previewSource.width, previewSource.height, heapBytes);
+            BufferedImage preview = decodeSubsampled(channel, previewSource, previewStep, progress);
+
+            System.out.println("[LOADER] " + file.getName() + ": " + (full.bigTiff ? "BigTIFF " : "TIFF ") +
+                               full.width + "×" + full.height + ", " + full.tilesAcross * full.tilesDown +
+                               (full.tiled ? " tiles" : " strips") + ", compression " + full.compression +
+                               ", preview " + preview.getWidth() + "×" + preview.getHeight() +
+                               (previewSource == full ? " at 1/" + step : " from reduced-resolution image"));
+            return new TiffImageSource(file, channel, full, preview);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Parses the file's directories and takes a preview decoded earlier, such as one from the AnalysisCache
+     */
+    static TiffImageSource withPreview(File file, BufferedImage preview) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            Directory full = readDirectories(channel).get(0);
+            full.checkSupported();
+            return new TiffImageSource(file, channel, full, preview);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return directory.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return directory.height;
+    }
+
+    @Override
+    public BufferedImage getPreviewImage() {
+        return previewImage;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public BufferedImage getFullImage() throws IOException {
+        if (!MappedRasterStore.fitsInHeap(directory.width, directory.height)) {
+            throw new IOException("Image is too large to decode in memory (" + directory.width + "×" + directory.height + "); use region reads");
+        }
+        return readRegion(new Rectangle(0, 0, directory.width, directory.height));
+    }
+
+    /**
+     * Decodes the tiles overlapping the region in parallel (reusing cached ones) and copies
+     * their pixels into a new ARGB image
+     */
+    @Override
+    public BufferedImage readRegion(Rectangle region) throws IOException {
+        Directory dir = directory;
+        int firstTx = region.x / dir.tileWidth;
+        int lastTx = (region.x + region.width - 1) / dir.tileWidth;
+        int firstTy = region.y / dir.tileHeight;
+        int lastTy = (region.y + region.height - 1) / dir.tileHeight;
+
+        Map<Integer, int[]> tiles = new LinkedHashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (int ty = firstTy; ty <= lastTy; ty++) {
+            for (int tx = firstTx; tx <= lastTx; tx++) {
+                int index = ty * dir.tilesAcross + tx;
+                int[] cached = (int[]) DecodeBudget.shared().get(this, index);
+                if (cached != null) {
+                    tiles.put(index, cached);
+                } else {
+                    missing.add(index);
+                }
+            }
+        }
+
+        List<Callable<int[]>> tasks = new ArrayList<>();
+        for (int index : missing) {
+            tasks.add(() -> decodeTile(channel, dir, index));
+        }
+        List<int[]> decoded = runAll(tasks, null);
+        for (int i = 0; i < missing.size(); i++) {
+            tiles.put(missing.get(i), decoded.get(i));
+            DecodeBudget.shared().put(this, missing.get(i), decoded.get(i), 4L * decoded.get(i).length);
+        }
+
+        BufferedImage result = new BufferedImage(region.width, region.height, BufferedImage.TYPE_INT_ARGB);
+        int[] target = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+        for (Map.Entry<Integer, int[]> entry : tiles.entrySet()) {
+            int tx = entry.getKey() % dir.tilesAcross;
+            int ty = entry.getKey() / dir.tilesAcross;
+            int tileX = tx * dir.tileWidth;
+            int tileY = ty * dir.tileHeight;
+            int left = Math.max(region.x, tileX);
+            int right = Math.min(region.x + region.width, tileX + dir.tileWidth);
+            int top = Math.max(region.y, tileY);
+            int bottom = Math.min(Math.min(region.y + region.height, tileY + dir.tileHeight), dir.height);
+            int[] pixels = entry.getValue();
+            for (int y = top; y < bottom; y++) {
+                System.arraycopy(pixels, (y - tileY) * dir.tileWidth + (left - tileX),
+                                 target, (y - region.y) * region.width + (left - region.x), right - left);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        DecodeBudget.shared().release(this);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("[LOADER] Could not close " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Decodes every tile of a directory on the pool and keeps each step-th pixel
+     */
+    static BufferedImage decodeSubsampled(FileChannel channel, Directory dir, int step, IntConsumer progress) throws IOException {
+        int previewWidth = (dir.width + step - 1) / step;
+        int previewHeight = (dir.height + step - 1) / step;
+        BufferedImage preview = new BufferedImage(previewWidth, previewHeight, BufferedImage.TYPE_INT_ARGB);
+        int[] target = ((DataBufferInt) preview.getRaster().getDataBuffer()).getData();
+
+        List<Callable<int[]>> tasks = new ArrayList<>();
+        for (int i = 0; i < dir.tilesAcross * dir.tilesDown; i++) {
+            final int index = i;
+            tasks.add(() -> {
+                int[] tile = decodeTile(channel, dir, index);
+                int x0 = (index % dir.tilesAcross) * dir.tileWidth;
+                int y0 = (index / dir.tilesAcross) * dir.tileHeight;
+                int x1 = Math.min(dir.width, x0 + dir.tileWidth);
+                int y1 = Math.min(dir.height, y0 + dir.tileHeight);
+                // Tiles cover disjoint preview pixels, so workers write without locking
+                for (int y = ((y0 + step - 1) / step) * step; y < y1; y += step) {
+                    int row = (y / step) * previewWidth;
+                    for (int x = ((x0 + step - 1) / step) * step; x < x1; x += step) {
+                        target[row + x / step] = tile[(y - y0) * dir.tileWidth + (x - x0)];
+                    }
+                }
+                return null;
+            });
+        }
+        runAll(tasks, progress);
+        return preview;
+    }
+
+    /**
+     * Runs decode tasks on the pool and waits for all of them. Interrupting the caller
+     * cancels the remaining tasks.
+     */
+    private static List<int[]> runAll(List<Callable<int[]>> tasks, IntConsumer progress) throws IOException {
+        List<int[]> results = new ArrayList<>();
+        if (tasks.isEmpty()) {
+            return results;
+        }
+        AtomicInteger completed = new AtomicInteger();
+        List<Future<int[]>> futures = new ArrayList<>();
+        for (Callable<int[]> task : tasks) {
+            futures.add(DECODE_POOL.submit(() -> {
+                int[] result = task.call();
+                if (progress != null) {
+                    progress.accept(completed.incrementAndGet() * 100 / tasks.size());
+                }
+                return result;
+            }));
+        }
+        try {
+            for (Future<int[]> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("TIFF decode cancelled");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("TIFF decode failed: " + cause, cause);
+        } finally {
+            for (Future<int[]> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Reads, decompresses and converts one tile to ARGB. The result is tileWidth wide and
+     * holds the tile's rows (fewer for the last strip).
+     */
+    static int[] decodeTile(FileChannel channel, Directory dir, int index) throws IOException {
+        int rows = dir.tiled ? dir.tileHeight : Math.min(dir.tileHeight, dir.height - (index / dir.tilesAcross) * dir.tileHeight);
+        int rowBytes = (dir.tileWidth * dir.samplesPerPixel * dir.bitsPerSample + 7) / 8;
+        int expected = rowBytes * rows;
+
+        byte[] compressed = readBytes(channel, dir.offsets[index], (int) dir.byteCounts[index]);
+        byte[] data;
+        switch (dir.compression) {
+            case 1:
+                data = compressed.length >= expected ? compressed : java.util.Arrays.copyOf(compressed, expected);
+                break;
+            case 5:
+                data = decodeLzw(compressed, expected);
+                break;
+            case 8:
+            case 32946:
+                data = inflate(compressed, expected);
+                break;
+            case 32773:
+                data = decodePackBits(compressed, expected);
+                break;
+            default:
+                throw new UnsupportedTiffException("Unsupported TIFF compression: " + dir.compression);
+        }
+        if (dir.predictor == 2) {
+            undoHorizontalDifferencing(data, dir, rowBytes, rows);
+        }
+        return toArgb(data, dir, rowBytes, rows);
+    }
+
+    private static byte[] readBytes(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of TIFF file at " + (position + buffer.position()));
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * TIFF LZW: MSB-first codes of 9 to 12 bits, with the code width growing one code early
+     */
+    static byte[] decodeLzw(byte[] input, int expected) throws IOException {
+        if (input.length >= 2 && input[0] == 0 && (input[1] & 0x01) != 0) {
+            throw new UnsupportedTiffException("Old-style (pre-6.0) TIFF LZW is not supported");
+        }
+        byte[] out = new byte[expected];
+        int[] prefix = new int[4096];
+        byte[] suffix = new byte[4096];
+        byte[] first = new byte[4096];
+        int[] length = new int[4096];
+        for (int i = 0; i < 256; i++) {
+            suffix[i] = (byte) i;
+            first[i] = (byte) i;
+            length[i] = 1;
+        }
+
+        int outPos = 0;
+        int next = 258;
+        int width = 9;
+        int old = -1;
+        long bitBuffer = 0;
+        int bitCount = 0;
+        int inPos = 0;
+        while (outPos < expected) {
+            while (bitCount < width && inPos < input.length) {
+                bitBuffer = (bitBuffer << 8) | (input[inPos++] & 0xFF);
+                bitCount += 8;
+            }
+            if (bitCount < width) {
+                break;
+            }
+            int code = (int) ((bitBuffer >>> (bitCount - width)) & ((1 << width) - 1));
+            bitCount -= width;
+
+            if (code == 257) {
+                break;
+            }
+            if (code == 256) {
+                next = 258;
+                width = 9;
+                old = -1;
+                continue;
+            }
+            if (old == -1) {
+                if (code > 255) {
+                    throw new IOException("Corrupt LZW data: code " + code + " after clear");
+                }
+                out[outPos++] = (byte) code;
+                old = code;
+                continue;
+            }
+            if (code > next) {
+                throw new IOException("Corrupt LZW data: code " + code + " beyond table size " + next);
+            }
+            if (next < 4096) {
+                prefix[next] = old;
+                suffix[next] = code < next ? first[code] : first[old];
+                first[next] = first[old];
+                length[next] = length[old] + 1;
+                next++;
+                if (next >= (1 << width) - 1 && width < 12) {
+                    width++;
+                }
+            }
+            // Write the string for code back to front, clipping at the expected size
+            int len = length[code];
+            int c = code;
+            for (int i = len - 1; i >= 0; i--) {
+                if (outPos + i < expected) {
+                    out[outPos + i] = suffix[c];
+                }
+                c = prefix[c];
+            }
+            outPos = Math.min(expected, outPos + len);
+            old = code;
+        }
+        return out;
+    }
+
+    private static byte[] inflate(byte[] input, int expected) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            byte[] out = new byte[expected];
+            int pos = 0;
+            while (pos < expected && !inflater.finished()) {
+                int count = inflater.inflate(out, pos, expected - pos);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                pos += count;
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt Deflate data: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] decodePackBits(byte[] input, int expected) {
+        byte[] out = new byte[expected];
+        int inPos = 0;
+        int outPos = 0;
+        while (inPos < input.length && outPos < expected) {
+            int n = input[inPos++];
+            if (n >= 0) {
+                int count = Math.min(n + 1, Math.min(expected - outPos, input.length - inPos));
+                System.arraycopy(input, inPos, out, outPos, count);
+                inPos += n + 1;
+                outPos += count;
+            } else if (n != -128 && inPos < input.length) {
+                byte value = input[inPos++];
+                int count = Math.min(1 - n, expected - outPos);
+                java.util.Arrays.fill(out, outPos, outPos + count, value);
+                outPos += count;
+            }
+        }
+        return out;
+    }
+
+    private static void undoHorizontalDifferencing(byte[] data, Directory dir, int rowBytes, int rows) throws IOException {
+        int spp = dir.samplesPerPixel;
+        if (dir.bitsPerSample == 8) {
+            for (int row = 0; row < rows; row++) {
+                int start = row * rowBytes;
+                for (int i = start + spp; i < start + rowBytes; i++) {
+                    data[i] += data[i - spp];
+                }
+            }
+        } else if (dir.bitsPerSample == 16) {
+            boolean bigEndian = dir.byteOrder == ByteOrder.BIG_ENDIAN;
+            for (int row = 0; row < rows; row++) {
+                int start = row * rowBytes;
+                for (int i = start + 2 * spp; i + 1 < start + rowBytes; i += 2) {
+                    int hi = bigEndian ? i : i + 1;
+                    int lo = bigEndian ? i + 1 : i;
+                    int prevHi = hi - 2 * spp;
+                    int prevLo = lo - 2 * spp;
+                    int value = (((data[hi] & 0xFF) << 8) | (data[lo] & 0xFF)) +
+                                (((data[prevHi] & 0xFF) << 8) | (data[prevLo] & 0xFF));
+                    data[hi] = (byte) (value >> 8);
+                    data[lo] = (byte) value;
+                }
+            }
+        } else {
+            throw new UnsupportedTiffException("Horizontal differencing is not supported at " + dir.bitsPerSample + " bits per sample");
+        }
+    }
+
+    /**
+     * Converts decompressed samples to ARGB, keeping the top 8 bits of wider samples
+     */
+    private static int[] toArgb(byte[] data, Directory dir, int rowBytes, int rows) {
+        int tileWidth = dir.tileWidth;
+        int spp = dir.samplesPerPixel;
+        int bits = dir.bitsPerSample;
+        int bytesPerSample = Math.max(1, bits / 8);
+        int highByte = bits == 16 && dir.byteOrder == ByteOrder.LITTLE_ENDIAN ? 1 : 0;
+        int maxValue = (1 << Math.min(bits, 8)) - 1;
+        int[] pixels = new int[tileWidth * rows];
+
+        for (int y = 0; y < rows; y++) {
+            int rowStart = y * rowBytes;
+            for (int x = 0; x < tileWidth; x++) {
+                int argb;
+                if (bits < 8) {
+                    int bitOffset = x * bits;
+                    int value = (data[rowStart + bitOffset / 8] >> (8 - bits - bitOffset % 8)) & maxValue;
+                    argb = dir.photometric == 3 ? dir.palette[value] : gray(value * 255 / maxValue, dir.photometric, 255);
+                } else {
+                    int base = rowStart + x * spp * bytesPerSample + highByte;
+                    int s0 = data[base] & 0xFF;
+                    if (dir.photometric == 2) {
+                        int r = s0;
+                        int g = data[base + bytesPerSample] & 0xFF;
+                        int b = data[base + 2 * bytesPerSample] & 0xFF;
+                        int a = dir.hasAlpha ? data[base + 3 * bytesPerSample] & 0xFF : 255;
+                        if (dir.premultipliedAlpha && a > 0 && a < 255) {
+                            r = Math.min(255, r * 255 / a);
+                            g = Math.min(255, g * 255 / a);
+                            b = Math.min(255, b * 255 / a);
+                        }
+                        argb = (a << 24) | (r << 16) | (g << 8) | b;
+                    } else if (dir.photometric == 3) {
+                        argb = dir.palette[s0];
+                    } else {
+                        int a = dir.hasAlpha ? data[base + bytesPerSample] & 0xFF : 255;
+                        argb = gray(s0, dir.photometric, a);
+                    }
+                }
+                pixels[y * tileWidth + x] = argb;
+            }
+        }
+        return pixels;
+    }
+
+    private static int gray(int value, int photometric, int alpha) {
+        int v = photometric == 0 ? 255 - value : value;
+        return (alpha << 24) | (v << 16) | (v << 8) | v;
+    }
+
+    /**
+     * Reads the chain of image file directories
+     */
+    static List<Directory> readDirectories(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(readBytes(channel, 0, 16 <= channel.size() ? 16 : 8));
+        int b0 = header.get(0), b1 = header.get(1);
+        if (b0 == 'I' && b1 == 'I') {
+            header.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (!(b0 == 'M' && b1 == 'M')) {
+            throw new IOException("Not a TIFF file");
+        }
+        ByteOrder order = header.order();
+        int magic = header.getShort(2) & 0xFFFF;
+        boolean bigTiff = magic == 43;
+        if (magic != 42 && !bigTiff) {
+            throw new IOException("Not a TIFF file (magic " + magic + ")");
+        }
+        long offset = bigTiff ? header.getLong(8) : header.getInt(4) & 0xFFFFFFFFL;
+
+        List<Directory> directories = new ArrayList<>();
+        java.util.Set<Long> visited = new java.util.HashSet<>();
+        while (offset != 0 && visited.add(offset) && directories.size() < 64) {
+            int countSize = bigTiff ? 8 : 2;
+            int entrySize = bigTiff ? 20 : 12;
+            ByteBuffer countBuffer = ByteBuffer.wrap(readBytes(channel, offset, countSize)).order(order);
+            long count = bigTiff ? countBuffer.getLong(0) : countBuffer.getShort(0) & 0xFFFF;
+            if (count <= 0 || count > 4096) {
+                throw new IOException("Corrupt TIFF directory at " + offset);
+            }
+            ByteBuffer entries = ByteBuffer.wrap(readBytes(channel, offset + countSize, (int) count * entrySize + (bigTiff ? 8 : 4))).order(order);
+
+            Map<Integer, long[]> tags = new java.util.HashMap<>();
+            for (int i = 0; i < count; i++) {
+                int pos = i * entrySize;
+                int tag = entries.getShort(pos) & 0xFFFF;
+                int type = entries.getShort(pos + 2) & 0xFFFF;
+                long valueCount = bigTiff ? entries.getLong(pos + 4) : entries.getInt(pos + 4) & 0xFFFFFFFFL;
+                int valuePos = pos + (bigTiff ? 12 : 8);
+                if (Directory.isNeeded(tag)) {
+                    tags.put(tag, readValues(channel, entries, valuePos, type, valueCount, bigTiff, order));
+                }
+            }
+            directories.add(new Directory(tags, order, bigTiff));
+
+            int nextPos = (int) count * entrySize;
+            offset = bigTiff ? entries.getLong(nextPos) : entries.getInt(nextPos) & 0xFFFFFFFFL;
+        }
+        if (directories.isEmpty()) {
+            throw new IOException("TIFF file has no images");
+        }
+        return directories;
+    }
+
+    private static long[] readValues(FileChannel channel, ByteBuffer entries, int valuePos, int type, long count,
+                                     boolean bigTiff, ByteOrder order) throws IOException {
+        int size;
+        switch (type) {
+            case 1: case 2: case 6: case 7: size = 1; break;
+            case 3: case 8: size = 2; break;
+            case 4: case 9: case 13: size = 4; break;
+            case 16: case 17: case 18: size = 8; break;
+            default: return new long[0];
+        }
+        if (count > Integer.MAX_VALUE / size) {
+            throw new IOException("TIFF tag too large: " + count + " values");
+        }
+        int inlineSize = bigTiff ? 8 : 4;
+        ByteBuffer values;
+        int start;
+        if (count * size <= inlineSize) {
+            values = entries;
+            start = valuePos;
+        } else {
+            long valueOffset = bigTiff ? entries.getLong(valuePos) : entries.getInt(valuePos) & 0xFFFFFFFFL;
+            values = ByteBuffer.wrap(readBytes(channel, valueOffset, (int) count * size)).order(order);
+            start = 0;
+        }
+        long[] result = new long[(int) count];
+        for (int i = 0; i < count; i++) {
+            int pos = start + i * size;
+            switch (size) {
+                case 1: result[i] = values.get(pos) & 0xFF; break;
+                case 2: result[i] = values.getShort(pos) & 0xFFFF; break;
+                case 4: result[i] = values.getInt(pos) & 0xFFFFFFFFL; break;
+                default: result[i] = values.getLong(pos); break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Signals a valid TIFF that uses a feature this decoder does not implement
+     */
+    public static class UnsupportedTiffException extends IOException {
+        public UnsupportedTiffException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Layout and sample format of one image in the file. Stripped images are described
+     * as a single column of full-width tiles.
+     */
+    static class Directory {
+        private static final int NEW_SUBFILE_TYPE = 254;
+        private static final int IMAGE_WIDTH = 256;
+        private static final int IMAGE_LENGTH = 257;
+        private static final int BITS_PER_SAMPLE = 258;
+        private static final int COMPRESSION = 259;
+        private static final int PHOTOMETRIC = 262;
+        private static final int STRIP_OFFSETS = 273;
+        private static final int SAMPLES_PER_PIXEL = 277;
+        private static final int ROWS_PER_STRIP = 278;
+        private static final int STRIP_BYTE_COUNTS = 279;
+        private static final int PLANAR_CONFIGURATION = 284;
+        private static final int PREDICTOR = 317;
+        private static final int COLOR_MAP = 320;
+        private static final int TILE_WIDTH = 322;
+        private static final int TILE_LENGTH = 323;
+        private static final int TILE_OFFSETS = 324;
+        private static final int TILE_BYTE_COUNTS = 325;
+        private static final int EXTRA_SAMPLES = 338;
+        private static final int SAMPLE_FORMAT = 339;
+
+        /**
+         * Largest strip or tile decoded at once, as ARGB. Larger uncompressed strips are read
+         * in row bands; larger compressed ones are left to ImageIO, which can subsample them.
+         */
+        static final long MAX_TILE_BYTES = 32L * 1024 * 1024;
+
+        final ByteOrder byteOrder;
+        final boolean bigTiff;
+        final int subfileType;
+        final int width;
+        final int height;
+        final int bitsPerSample;
+        final int samplesPerPixel;
+        final int compression;
+        final int photometric;
+        final int planarConfiguration;
+        final int predictor;
+        final int sampleFormat;
+        final boolean tiled;
+        final int tileWidth;
+        final int tileHeight;
+        final int tilesAcross;
+        final int tilesDown;
+        final long[] offsets;
+        final long[] byteCounts;
+        final boolean hasAlpha;
+        final boolean premultipliedAlpha;
+        final int[] palette;
+
+        Directory(Map<Integer, long[]> tags, ByteOrder byteOrder, boolean bigTiff) throws IOException {
+            this.byteOrder = byteOrder;
+            this.bigTiff = bigTiff;
+            subfileType = (int) first(tags, NEW_SUBFILE_TYPE, 0);
+            width = (int) first(tags, IMAGE_WIDTH, 0);
+            height = (int) first(tags, IMAGE_LENGTH, 0);
+            bitsPerSample = (int) first(tags, BITS_PER_SAMPLE, 1);
+            samplesPerPixel = (int) first(tags, SAMPLES_PER_PIXEL, 1);
+            compression = (int) first(tags, COMPRESSION, 1);
+            photometric = (int) first(tags, PHOTOMETRIC, samplesPerPixel >= 3 ? 2 : 1);
+            planarConfiguration = (int) first(tags, PLANAR_CONFIGURATION, 1);
+            predictor = (int) first(tags, PREDICTOR, 1);
+            sampleFormat = (int) first(tags, SAMPLE_FORMAT, 1);
+            if (width <= 0 || height <= 0) {
+                throw new IOException("TIFF image has invalid dimensions: " + width + "×" + height);
+            }
+
+            tiled = tags.containsKey(TILE_OFFSETS);
+            if (tiled) {
+                tileWidth = (int) first(tags, TILE_WIDTH, 0);
+                tileHeight = (int) first(tags, TILE_LENGTH, 0);
+                offsets = tags.get(TILE_OFFSETS);
+                byteCounts = tags.getOrDefault(TILE_BYTE_COUNTS, new long[0]);
+            } else {
+                int rowsPerStrip = (int) Math.min(height, first(tags, ROWS_PER_STRIP, height));
+                long[] stripOffsets = tags.getOrDefault(STRIP_OFFSETS, new long[0]);
+                long[] stripByteCounts = tags.getOrDefault(STRIP_BYTE_COUNTS, new long[0]);
+                int bandRows = compression == 1 ? bandRows(rowsPerStrip) : rowsPerStrip;
+                if (bandRows < rowsPerStrip && stripOffsets.length >= (height + rowsPerStrip - 1) / rowsPerStrip &&
+                    stripByteCounts.length >= stripOffsets.length) {
+                    // Uncompressed rows sit at fixed offsets, so a big strip becomes several smaller ones
+                    long rowBytes = ((long) width * samplesPerPixel * bitsPerSample + 7) / 8;
+                    int bands = (height + bandRows - 1) / bandRows;
+                    offsets = new long[bands];
+                    byteCounts = new long[bands];
+                    for (int band = 0; band < bands; band++) {
+                        int y = band * bandRows;
+                        int strip = y / rowsPerStrip;
+                        long skip = (y - (long) strip * rowsPerStrip) * rowBytes;
+                        offsets[band] = stripOffsets[strip] + skip;
+                        byteCounts[band] = Math.max(0, Math.min(Math.min(bandRows, height - y) * rowBytes,
+                                                                stripByteCounts[strip] - skip));
+                    }
+                    tileHeight = bandRows;
+                } else {
+                    tileHeight = rowsPerStrip;
+                    offsets = stripOffsets;
+                    byteCounts = stripByteCounts;
+                }
+                tileWidth = width;
+            }
+            if (tileWidth <= 0 || tileHeight <= 0) {
+                throw new IOException("TIFF image has invalid tile size: " + tileWidth + "×" + tileHeight);
+            }
+            tilesAcross = (width + tileWidth - 1) / tileWidth;
+            tilesDown = (height + tileHeight - 1) / tileHeight;
+            if (offsets.length < (long) tilesAcross * tilesDown || byteCounts.length < offsets.length) {
+                throw new IOException("TIFF image is missing tile offsets or byte counts");
+            }
+
+            long[] extra = tags.getOrDefault(EXTRA_SAMPLES, new long[0]);
+            int colorSamples = photometric == 2 ? 3 : 1;
+            hasAlpha = samplesPerPixel > colorSamples && (extra.length == 0 || extra[0] == 1 || extra[0] == 2);
+            premultipliedAlpha = hasAlpha && extra.length > 0 && extra[0] == 1;
+
+            long[] colorMap = tags.get(COLOR_MAP);
+            if (photometric == 3 && colorMap != null && colorMap.length >= 3 << bitsPerSample) {
+                int entries = 1 << bitsPerSample;
+                palette = new int[entries];
+                for (int i = 0; i < entries; i++) {
+                    int r = (int) (colorMap[i] >> 8) & 0xFF;
+                    int g = (int) (colorMap[entries + i] >> 8) & 0xFF;
+                    int b = (int) (colorMap[2 * entries + i] >> 8) & 0xFF;
+                    palette[i] = 0xFF000000 | (r << 16) | (g << 8) | b;
+                }
+            } else {
+                palette = null;
+            }
+        }
+
+        /**
+         * Rows per band for uncompressed strips: the strip's rows, or the largest divisor of
+         * them whose band fits MAX_TILE_BYTES, so bands never straddle two strips
+         */
+        private int bandRows(int rowsPerStrip) {
+            long maxRows = Math.max(1, MAX_TILE_BYTES / (4L * width));
+            if (rowsPerStrip <= maxRows) {
+                return rowsPerStrip;
+            }
+            for (int bands = (int) ((rowsPerStrip + maxRows - 1) / maxRows); bands < rowsPerStrip; bands++) {
+                if (rowsPerStrip % bands == 0) {
+                    return rowsPerStrip / bands;
+                }
+            }
+            return 1;
+        }
+
+        static boolean isNeeded(int tag) {
+            switch (tag) {
+                case NEW_SUBFILE_TYPE: case IMAGE_WIDTH: case IMAGE_LENGTH: case BITS_PER_SAMPLE:
+                case COMPRESSION: case PHOTOMETRIC: case STRIP_OFFSETS: case SAMPLES_PER_PIXEL:
+                case ROWS_PER_STRIP: case STRIP_BYTE_COUNTS: case PLANAR_CONFIGURATION: case PREDICTOR:
+                case COLOR_MAP: case TILE_WIDTH: case TILE_LENGTH: case TILE_OFFSETS: case TILE_BYTE_COUNTS:
+                case EXTRA_SAMPLES: case SAMPLE_FORMAT:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        boolean isReducedResolution() {
+            return (subfileType & 1) != 0;
+        }
+
+        boolean isSupported() {
+            try {
+                checkSupported();
+                return true;
+            } catch (UnsupportedTiffException e) {
+                return false;
+            }
+        }
+
+        /**
+         * @throws UnsupportedTiffException naming the first feature the decoder can't handle
+         */
+        void checkSupported() throws UnsupportedTiffException {
+            if (compression != 1 && compression != 5 && compression != 8 && compression != 32946 && compression != 32773) {
+                throw new UnsupportedTiffException("Unsupported TIFF compression: " + compression);
+            }
+            if (sampleFormat != 1) {
+                throw new UnsupportedTiffException("Only unsigned integer TIFF samples are supported");
+            }
+            if (planarConfiguration != 1 && samplesPerPixel > 1) {
+                throw new UnsupportedTiffException("Separate-plane TIFF images are not supported");
+            }
+            if (predictor != 1 && predictor != 2) {
+                throw new UnsupportedTiffException("Unsupported TIFF predictor: " + predictor);
+            }
+            if ((long) tileWidth * tileHeight * 4 > MAX_TILE_BYTES) {
+                throw new UnsupportedTiffException("TIFF " + (tiled ? "tiles" : "strips") + " of " + tileWidth + "×" +
+                                                   tileHeight + " pixels are too large to decode at once");
+            }
+            for (long count : byteCounts) {
+                if (count > Integer.MAX_VALUE) {
+                    throw new UnsupportedTiffException("TIFF " + (tiled ? "tile" : "strip") + " of " + count + " bytes is too large");
+                }
+            }
+            boolean formatOk;
+            switch (photometric) {
+                case 0:
+                case 1:
+                    formatOk = (bitsPerSample <= 8 && 8 % bitsPerSample == 0 && samplesPerPixel == 1) ||
+                               ((bitsPerSample == 8 || bitsPerSample == 16) && samplesPerPixel <= 2);
+                    break;
+                case 2:
+                    formatOk = (bitsPerSample == 8 || bitsPerSample == 16) && samplesPerPixel >= 3;
+                    break;
+                case 3:
+                    formatOk = palette != null && samplesPerPixel == 1 && bitsPerSample <= 8 && 8 % bitsPerSample == 0;
+                    break;
+                default:
+                    formatOk = false;
+            }
+            if (!formatOk) {
+                throw new UnsupportedTiffException("Unsupported TIFF pixel format: photometric " + photometric + ", " +
+                                                   samplesPerPixel + " × " + bitsPerSample + "-bit samples");
+            }
+        }
+
+        private static long first(Map<Integer, long[]> tags, int tag, long defaultValue) {
+            long[] values = tags.get(tag);
+            return values == null || values.length == 0 ? defaultValue : values[0];
+        }
+    }
+}
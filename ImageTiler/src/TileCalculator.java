@@ -123,6 +123,18 @@ public class TileCalculator {
         }
     }
     
+    /**
+     * Tiling used for output: the single page baseline at scale 1.0, otherwise scaled from it
+     */
+    public static TilingResult calculateTiling(int imageWidth, int imageHeight, double pageWidth, double pageHeight, float scale) {
+        if (scale == 1.0f) {
+            // At scale 1.0, use single page preview (auto-fit to one page)
+            return calculateSinglePagePreview(imageWidth, imageHeight, pageWidth, pageHeight);
+        }
+        // When scaled, calculate actual tiling for the scaled dimensions
+        return calculateScaledTiling(imageWidth, imageHeight, pageWidth, pageHeight, scale);
+    }
+    
     /**
      * Determines if a tile at the given position contains meaningful image content
      */
@@ -134,13 +146,30 @@ public class TileCalculator {
      * Determines if a tile contains meaningful image content by analyzing actual pixels
      */
     public static boolean tileContainsMeaningfulContent(int col, int row, TilingResult tilingResult, java.awt.image.BufferedImage image) {
+        return tileContainsMeaningfulContent(col, row, tilingResult, image, Orientation.NORMAL);
+    }
+    
+    /**
+     * Checks a tile of the grid laid over the image as seen in the given orientation.
+     * The image itself is unrotated; the tile is mapped back to its pixels.
+     */
+    public static boolean tileContainsMeaningfulContent(int col, int row, TilingResult tilingResult, java.awt.image.BufferedImage image,
+                                                        Orientation orientation) {
+        return tileContainsMeaningfulContent(col, row, tilingResult, image, orientation, ContentThresholds.forImage(image));
+    }
+    
+    /**
+     * Checks a tile in the given orientation against the given content thresholds
+     */
+    public static boolean tileContainsMeaningfulContent(int col, int row, TilingResult tilingResult, java.awt.image.BufferedImage image,
+                                                        Orientation orientation, ContentThresholds thresholds) {
         System.out.println("[DEBUG] tileContainsMeaningfulContent for tile (" + col + "," + row + ")");
         
-        // Calculate tile boundaries in the scaled image space
-        double tileStartX = col * tilingResult.tileWidth;
-        double tileStartY = row * tilingResult.tileHeight;
-        double tileEndX = Math.min((col + 1) * tilingResult.tileWidth, tilingResult.imageWidth);
-        double tileEndY = Math.min((row + 1) * tilingResult.tileHeight, tilingResult.imageHeight);
+        // Calculate tile boundaries in the scaled image space (the grid may start before the image)
+        double tileStartX = Math.max(0, col * tilingResult.tileWidth - tilingResult.originX);
+        double tileStartY = Math.max(0, row * tilingResult.tileHeight - tilingResult.originY);
+        double tileEndX = Math.min((col + 1) * tilingResult.tileWidth - tilingResult.originX, tilingResult.imageWidth);
+        double tileEndY = Math.min((row + 1) * tilingResult.tileHeight - tilingResult.originY, tilingResult.imageHeight);
         
         System.out.println("[DEBUG] Tile bounds in scaled space: (" + tileStartX + "," + tileStartY + ") to (" + tileEndX + "," + tileEndY + ")");
         
@@ -173,28 +202,86 @@ public class TileCalculator {
         // Convert scaled image coordinates back to original image coordinates for pixel analysis
         // The tilingResult.imageWidth/Height represent the scaled dimensions
         // We need to map back to the original image dimensions
-        double scaleFactorX = (double) image.getWidth() / tilingResult.imageWidth;
-        double scaleFactorY = (double) image.getHeight() / tilingResult.imageHeight;
+        int rotatedWidth = orientation.rotatedWidth(image.getWidth(), image.getHeight());
+        int rotatedHeight = orientation.rotatedHeight(image.getWidth(), image.getHeight());
+        double scaleFactorX = (double) rotatedWidth / tilingResult.imageWidth;
+        double scaleFactorY = (double) rotatedHeight / tilingResult.imageHeight;
         
         System.out.println("[DEBUG] Scale factors: X=" + scaleFactorX + ", Y=" + scaleFactorY);
         
         int originalStartX = (int) (tileStartX * scaleFactorX);
         int originalStartY = (int) (tileStartY * scaleFactorY);
-        int originalEndX = (int) Math.min(tileEndX * scaleFactorX, image.getWidth());
-        int originalEndY = (int) Math.min(tileEndY * scaleFactorY, image.getHeight());
+        int originalEndX = (int) Math.min(tileEndX * scaleFactorX, rotatedWidth);
+        int originalEndY = (int) Math.min(tileEndY * scaleFactorY, rotatedHeight);
+        
+        // Map the tile from rotated space back to the unrotated pixels
+        java.awt.Rectangle region = orientation.toSource(
+            new java.awt.Rectangle(originalStartX, originalStartY, originalEndX - originalStartX, originalEndY - originalStartY),
+            image.getWidth(), image.getHeight());
         
-        System.out.println("[DEBUG] Original image bounds: (" + originalStartX + "," + originalStartY + ") to (" + originalEndX + "," + originalEndY + ")");
+        System.out.println("[DEBUG] Original image bounds: (" + region.x + "," + region.y + ") to (" + (region.x + region.width) + "," + (region.y + region.height) + ")");
         
         // Pixel-based analysis using original image coordinates
-        boolean result = analyzePixelContent(image, originalStartX, originalStartY, originalEndX, originalEndY);
+        boolean result = analyzePixelContent(image, region.x, region.y, region.x + region.width, region.y + region.height, thresholds);
         System.out.println("[DEBUG] Pixel analysis result: " + result);
         return result;
     }
     
+    /**
+     * The region of the unrotated image covered by a tile of the grid laid over it in the
+     * given orientation, or null if the tile lies outside the image
+     */
+    public static java.awt.Rectangle tileSourceRegion(int col, int row, TilingResult tilingResult, java.awt.image.BufferedImage image,
+                                                      Orientation orientation) {
+        return tileSourceRegion(col, row, tilingResult, image.getWidth(), image.getHeight(), orientation);
+    }
+    
+    /**
+     * The region of an unrotated image of the given size covered by a tile, or null if the
+     * tile lies outside the image
+     */
+    public static java.awt.Rectangle tileSourceRegion(int col, int row, TilingResult tilingResult, int imageWidth, int imageHeight,
+                                                      Orientation orientation) {
+        double tileStartX = Math.max(0, col * tilingResult.tileWidth - tilingResult.originX);
+        double tileStartY = Math.max(0, row * tilingResult.tileHeight - tilingResult.originY);
+        double tileEndX = Math.min((col + 1) * tilingResult.tileWidth - tilingResult.originX, tilingResult.imageWidth);
+        double tileEndY = Math.min((row + 1) * tilingResult.tileHeight - tilingResult.originY, tilingResult.imageHeight);
+        if (tileEndX <= tileStartX || tileEndY <= tileStartY) {
+            return null;
+        }
+        
+        int rotatedWidth = orientation.rotatedWidth(imageWidth, imageHeight);
+        int rotatedHeight = orientation.rotatedHeight(imageWidth, imageHeight);
+        double scaleFactorX = (double) rotatedWidth / tilingResult.imageWidth;
+        double scaleFactorY = (double) rotatedHeight / tilingResult.imageHeight;
+        int originalStartX = (int) (tileStartX * scaleFactorX);
+        int originalStartY = (int) (tileStartY * scaleFactorY);
+        int originalEndX = (int) Math.min(tileEndX * scaleFactorX, rotatedWidth);
+        int originalEndY = (int) Math.min(tileEndY * scaleFactorY, rotatedHeight);
+        return orientation.toSource(
+            new java.awt.Rectangle(originalStartX, originalStartY, originalEndX - originalStartX, originalEndY - originalStartY),
+            imageWidth, imageHeight);
+    }
+    
+    /**
+     * Fraction (0..1) of sampled pixels in a tile that count as content under the thresholds.
+     * Uses the same mapping and sampling as tileContainsMeaningfulContent, without logging,
+     * so it can be run over every tile of a large grid.
+     */
+    public static double tileContentRatio(int col, int row, TilingResult tilingResult, java.awt.image.BufferedImage image,
+                                          Orientation orientation, ContentThresholds thresholds) {
+        java.awt.Rectangle region = image == null ? null : tileSourceRegion(col, row, tilingResult, image, orientation);
+        if (region == null) {
+            return 0;
+        }
+        return TileContentStats.regionContentRatio(image, region, thresholds);
+    }
+    
     /**
      * Analyzes the actual pixel content within a tile region
      */
-    private static boolean analyzePixelContent(java.awt.image.BufferedImage image, int startX, int startY, int endX, int endY) {
+    private static boolean analyzePixelContent(java.awt.image.BufferedImage image, int startX, int startY, int endX, int endY,
+                                               ContentThresholds thresholds) {
         System.out.println("[DEBUG] analyzePixelContent called");
         System.out.println("[DEBUG] Region bounds: (" + startX + "," + startY + ") to (" + endX + "," + endY + ")");
         
@@ -239,23 +326,11 @@ public class TileCalculator {
             for (int x = startX; x < endX; x += sampleStep) {
                 if (x >= 0 && x < image.getWidth() && y >= 0 && y < image.getHeight()) {
                     totalPixels++;
-                    int rgb = image.getRGB(x, y);
-                    int alpha = (rgb >> 24) & 0xFF;
-                    
-                    // Extract RGB components
-                    int red = (rgb >> 16) & 0xFF;
-                    int green = (rgb >> 8) & 0xFF;
-                    int blue = rgb & 0xFF;
-                    
                     // Consider a pixel meaningful if:
-                    // 1. It's not completely transparent (alpha > 30)
-                    // 2. It's not pure white or very light (common backgrounds)
-                    // 3. It has sufficient color variation from white
-                    boolean isTransparent = alpha < 30;
-                    boolean isPureWhite = (red >= 250 && green >= 250 && blue >= 250);
-                    boolean isNearWhite = (red >= 240 && green >= 240 && blue >= 240);
-                    
-                    if (!isTransparent && !isPureWhite && !isNearWhite) {
+                    // 1. It's not (nearly) transparent (alpha >= minAlpha, 30 by default)
+                    // 2. It's not background: not within 255 - nearWhite (15 by default) of the estimated
+                    //    background colour in every channel - on white paper, some channel below 240
+                    if (thresholds.isContentPixel(image.getRGB(x, y))) {
                         meaningfulPixels++;
                     }
                 }
@@ -269,11 +344,10 @@ public class TileCalculator {
             return false;
         }
         
-        // Use a more balanced threshold for meaningful content
-        // Require at least 3% of pixels to have meaningful content (less aggressive)
+        // Require more than minContentRatio of pixels (3% by default) to have meaningful content
         double contentRatio = (double) meaningfulPixels / totalPixels;
-        System.out.println("[DEBUG] Content ratio: " + contentRatio + " (threshold: 0.03)");
-        boolean result = contentRatio > 0.03;
+        System.out.println("[DEBUG] Content ratio: " + contentRatio + " (threshold: " + thresholds.minContentRatio + ")");
+        boolean result = thresholds.isNonBlank(contentRatio);
         System.out.println("[DEBUG] Final pixel analysis result: " + result);
         return result;
     }
@@ -290,6 +364,21 @@ public class TileCalculator {
      * Uses pixel analysis if image is provided
      */
     public static java.util.List<TileInfo> getNonBlankTiles(TilingResult tilingResult, java.awt.image.BufferedImage image) {
+        return getNonBlankTiles(tilingResult, image, Orientation.NORMAL);
+    }
+    
+    /**
+     * Gets the non-blank tiles of the grid laid over the image as seen in the given orientation
+     */
+    public static java.util.List<TileInfo> getNonBlankTiles(TilingResult tilingResult, java.awt.image.BufferedImage image, Orientation orientation) {
+        return getNonBlankTiles(tilingResult, image, orientation, ContentThresholds.forImage(image));
+    }
+    
+    /**
+     * Gets the non-blank tiles in the given orientation under the given content thresholds
+     */
+    public static java.util.List<TileInfo> getNonBlankTiles(TilingResult tilingResult, java.awt.image.BufferedImage image, Orientation orientation,
+                                                            ContentThresholds thresholds) {
         System.out.println("[DEBUG] getNonBlankTiles called");
         System.out.println("[DEBUG] Tiling result: " + tilingResult.tilesWide + "x" + tilingResult.tilesHigh);
         System.out.println("[DEBUG] Image: " + (image != null ? image.getWidth() + "x" + image.getHeight() : "NULL"));
@@ -300,7 +389,7 @@ public class TileCalculator {
         
         for (int row = 0; row < tilingResult.tilesHigh; row++) {
             for (int col = 0; col < tilingResult.tilesWide; col++) {
-                boolean hasContent = tileContainsMeaningfulContent(col, row, tilingResult, image);
+                boolean hasContent = tileContainsMeaningfulContent(col, row, tilingResult, image, orientation, thresholds);
                 System.out.println("[DEBUG] Tile (" + col + "," + row + ") has content: " + hasContent);
                 if (hasContent) {
                     nonBlankTiles.add(new TileInfo(col, row, row * tilingResult.tilesWide + col + 1));
@@ -319,14 +408,81 @@ public class TileCalculator {
         public final double tileHeight;
         public final int imageWidth;
         public final int imageHeight;
+        // Where the image's top-left corner sits inside the first tile; tile (col,row) covers
+        // image points from (col * tileWidth - originX, row * tileHeight - originY)
+        public final double originX;
+        public final double originY;
 
         public TilingResult(int tilesWide, int tilesHigh, double tileWidth, double tileHeight, int imageWidth, int imageHeight) {
+            this(tilesWide, tilesHigh, tileWidth, tileHeight, imageWidth, imageHeight, 0, 0);
+        }
+
+        public TilingResult(int tilesWide, int tilesHigh, double tileWidth, double tileHeight, int imageWidth, int imageHeight,
+                            double originX, double originY) {
             this.tilesWide = tilesWide;
             this.tilesHigh = tilesHigh;
             this.tileWidth = tileWidth;
             this.tileHeight = tileHeight;
             this.imageWidth = imageWidth;
             this.imageHeight = imageHeight;
+            this.originX = originX;
+            this.originY = originY;
+        }
+    }
+
+    /**
+     * Page orientation forced on a grid; AUTO keeps whichever the tiler picked
+     */
+    public enum PageOrientation {
+        AUTO, PORTRAIT, LANDSCAPE
+    }
+
+    /**
+     * How a grid is laid over the image: the page orientation and how far the grid is shifted,
+     * as a fraction (0..1) of a tile in each direction. Fractions rather than points, so the
+     * same layout carries over to the printer's own page size.
+     */
+    public static class GridLayout {
+        public static final GridLayout DEFAULT = new GridLayout(PageOrientation.AUTO, 0, 0);
+
+        public final PageOrientation pages;
+        public final double offsetX;
+        public final double offsetY;
+
+        public GridLayout(PageOrientation pages, double offsetX, double offsetY) {
+            this.pages = pages;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+        }
+
+        public boolean isDefault() {
+            return pages == PageOrientation.AUTO && offsetX == 0 && offsetY == 0;
+        }
+
+        /**
+         * The tiling with this layout's page orientation and grid shift; the image size is unchanged
+         */
+        public TilingResult apply(TilingResult tilingResult) {
+            if (isDefault()) {
+                return tilingResult;
+            }
+            double tileWidth = tilingResult.tileWidth;
+            double tileHeight = tilingResult.tileHeight;
+            if ((pages == PageOrientation.PORTRAIT && tileWidth > tileHeight) ||
+                (pages == PageOrientation.LANDSCAPE && tileWidth < tileHeight)) {
+                tileWidth = tilingResult.tileHeight;
+                tileHeight = tilingResult.tileWidth;
+            }
+            double originX = offsetX * tileWidth;
+            double originY = offsetY * tileHeight;
+            return new TilingResult((int) Math.ceil((tilingResult.imageWidth + originX) / tileWidth),
+                                    (int) Math.ceil((tilingResult.imageHeight + originY) / tileHeight),
+                                    tileWidth, tileHeight, tilingResult.imageWidth, tilingResult.imageHeight, originX, originY);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s pages, grid shifted %.0f%% x %.0f%% of a page", pages, offsetX * 100, offsetY * 100);
         }
     }
 
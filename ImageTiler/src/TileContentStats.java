@@ -0,0 +1,238 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Sampled pixel statistics for every tile of a grid, so content thresholds can change
+ * without rescanning pixels. Each tile keeps a sparse joint histogram of (closeness to the
+ * background colour, alpha) over its samples, sorted by closeness: a tile's content ratio
+ * for any ContentThresholds with the same background is a short scan of that histogram. Tiles are recorded once by the
+ * analysis job; reclassifying a grid of a few thousand tiles then takes about a millisecond.
+ */
+public class TileContentStats {
+
+    private final int tilesWide;
+    private final int tilesHigh;
+    private final int backgroundRgb;
+    // Per tile: entries (closeness << 8 | alpha) << 32 | count, sorted; null until recorded
+    private final long[][] histograms;
+    private final int[] sampleCounts;
+
+    public TileContentStats(int tilesWide, int tilesHigh) {
+        this(tilesWide, tilesHigh, 0xFFFFFF);
+    }
+
+    /**
+     * Statistics measured against a background colour; only thresholds with that background can be applied
+     */
+    public TileContentStats(int tilesWide, int tilesHigh, int backgroundRgb) {
+        this.tilesWide = tilesWide;
+        this.tilesHigh = tilesHigh;
+        this.backgroundRgb = backgroundRgb & 0xFFFFFF;
+        this.histograms = new long[tilesWide * tilesHigh][];
+        this.sampleCounts = new int[tilesWide * tilesHigh];
+    }
+
+    public int getTilesWide() {
+        return tilesWide;
+    }
+
+    public int getTilesHigh() {
+        return tilesHigh;
+    }
+
+    public int getBackgroundRgb() {
+        return backgroundRgb;
+    }
+
+    public boolean isRecorded(int col, int row) {
+        return histograms[row * tilesWide + col] != null;
+    }
+
+    /**
+     * Samples a tile's region of the image, with the same adaptive step as the blank-tile
+     * analysis. Regions smaller than 5x5 pixels record no samples (always blank).
+     */
+    public void record(int col, int row, BufferedImage image, Rectangle region) {
+        int index = row * tilesWide + col;
+        int startX = Math.max(0, region.x);
+        int startY = Math.max(0, region.y);
+        int endX = Math.min(image.getWidth(), region.x + region.width);
+        int endY = Math.min(image.getHeight(), region.y + region.height);
+        int regionWidth = endX - startX;
+        int regionHeight = endY - startY;
+        if (regionWidth < 5 || regionHeight < 5) {
+            histograms[index] = new long[0];
+            sampleCounts[index] = 0;
+            return;
+        }
+
+        int sampleStep = Math.max(1, Math.min(regionWidth, regionHeight) / 15);
+        int samplesX = (regionWidth + sampleStep - 1) / sampleStep;
+        int samplesY = (regionHeight + sampleStep - 1) / sampleStep;
+        int[] keys = new int[samplesX * samplesY];
+        int n = 0;
+        for (int y = startY; y < endY; y += sampleStep) {
+            for (int x = startX; x < endX; x += sampleStep) {
+                int argb = image.getRGB(x, y);
+                keys[n++] = (ContentThresholds.closeness(argb, backgroundRgb) << 8) | ((argb >>> 24) & 0xFF);
+            }
+        }
+
+        // Collapse equal keys into counted entries
+        Arrays.sort(keys, 0, n);
+        long[] entries = new long[n];
+        int entryCount = 0;
+        for (int i = 0; i < n; ) {
+            int j = i;
+            while (j < n && keys[j] == keys[i]) {
+                j++;
+            }
+            entries[entryCount++] = ((long) keys[i] << 32) | (j - i);
+            i = j;
+        }
+        histograms[index] = Arrays.copyOf(entries, entryCount);
+        sampleCounts[index] = n;
+    }
+
+    /**
+     * Fraction of a recorded tile's samples that are content under the thresholds (whose
+     * background is taken to be this one's); 0 if not recorded
+     */
+    public double contentRatio(int col, int row, ContentThresholds thresholds) {
+        int index = row * tilesWide + col;
+        long[] entries = histograms[index];
+        if (entries == null || sampleCounts[index] == 0) {
+            return 0;
+        }
+        int content = 0;
+        for (long entry : entries) {
+            int key = (int) (entry >>> 32);
+            if ((key >> 8) >= thresholds.nearWhite) {
+                break;
+            }
+            if ((key & 0xFF) >= thresholds.minAlpha) {
+                content += (int) entry;
+            }
+        }
+        return (double) content / sampleCounts[index];
+    }
+
+    public boolean isNonBlank(int col, int row, ContentThresholds thresholds) {
+        return thresholds.isNonBlank(contentRatio(col, row, thresholds));
+    }
+
+    /**
+     * Content ratio of a single region, sampled exactly as record() samples a tile, for callers
+     * that classify candidate grids without keeping their statistics
+     */
+    public static double regionContentRatio(BufferedImage image, Rectangle region, ContentThresholds thresholds) {
+        TileContentStats stats = new TileContentStats(1, 1, thresholds.backgroundRgb);
+        stats.record(0, 0, image, region);
+        return stats.contentRatio(0, 0, thresholds);
+    }
+
+    /**
+     * Writes the classification of every recorded tile into the selection grid
+     */
+    public void classify(ContentThresholds thresholds, TileSelectionGrid grid) {
+        for (int row = 0; row < tilesHigh; row++) {
+            for (int col = 0; col < tilesWide; col++) {
+                if (isRecorded(col, row)) {
+                    grid.setAnalysis(col, row, isNonBlank(col, row, thresholds));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the grid size, background and every recorded histogram, for the AnalysisCache
+     */
+    void writeTo(java.io.DataOutputStream out) throws java.io.IOException {
+        out.writeInt(tilesWide);
+        out.writeInt(tilesHigh);
+        out.writeInt(backgroundRgb);
+        for (int index = 0; index < histograms.length; index++) {
+            long[] entries = histograms[index];
+            out.writeInt(entries == null ? -1 : entries.length);
+            if (entries != null) {
+                out.writeInt(sampleCounts[index]);
+                for (long entry : entries) {
+                    out.writeLong(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills this grid from statistics written by writeTo
+     * @return false, leaving this unchanged, if they were for another grid size or background
+     */
+    boolean readFrom(java.io.DataInputStream in) throws java.io.IOException {
+        if (in.readInt() != tilesWide || in.readInt() != tilesHigh || in.readInt() != backgroundRgb) {
+            return false;
+        }
+        long[][] read = new long[histograms.length][];
+        int[] counts = new int[histograms.length];
+        for (int index = 0; index < read.length; index++) {
+            int length = in.readInt();
+            if (length >= 0) {
+                counts[index] = in.readInt();
+                read[index] = new long[length];
+                for (int i = 0; i < length; i++) {
+                    read[index][i] = in.readLong();
+                }
+            }
+        }
+        System.arraycopy(read, 0, histograms, 0, read.length);
+        System.arraycopy(counts, 0, sampleCounts, 0, counts.length);
+        return true;
+    }
+
+    /**
+     * Records every tile of a grid over the image seen in the given orientation, as the panel's
+     * blank-tile analysis does
+     */
+    public static TileContentStats of(TileCalculator.TilingResult tiling, BufferedImage image, Orientation orientation,
+                                      int backgroundRgb) {
+        TileContentStats stats = new TileContentStats(tiling.tilesWide, tiling.tilesHigh, backgroundRgb);
+        Rectangle empty = new Rectangle();
+        for (int row = 0; row < tiling.tilesHigh; row++) {
+            for (int col = 0; col < tiling.tilesWide; col++) {
+                Rectangle region = TileCalculator.tileSourceRegion(col, row, tiling, image, orientation);
+                stats.record(col, row, image, region != null ? region : empty);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * The recorded tiles that are non-blank under the thresholds, row-major
+     */
+    public java.util.List<TileCalculator.TileInfo> nonBlankTiles(ContentThresholds thresholds) {
+        java.util.List<TileCalculator.TileInfo> tiles = new java.util.ArrayList<>();
+        for (int row = 0; row < tilesHigh; row++) {
+            for (int col = 0; col < tilesWide; col++) {
+                if (isRecorded(col, row) && isNonBlank(col, row, thresholds)) {
+                    tiles.add(new TileCalculator.TileInfo(col, row, row * tilesWide + col + 1));
+                }
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Number of recorded tiles that are non-blank under the thresholds
+     */
+    public int countNonBlank(ContentThresholds thresholds) {
+        int count = 0;
+        for (int row = 0; row < tilesHigh; row++) {
+            for (int col = 0; col < tilesWide; col++) {
+                if (isRecorded(col, row) && isNonBlank(col, row, thresholds)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
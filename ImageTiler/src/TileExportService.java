@@ -0,0 +1,685 @@
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.util.Matrix;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Tiling and export engine with no user interface. An export takes an image source, a tiling
+ * spec and the tiles to output, lays out the pages (full tiles, then shared sheets of packed
+ * edge tiles when asked for) and draws them into a PageSink: a PDF file, or the Graphics2D of
+ * a printer page. Progress and cancellation go through a callback and the outcome comes back
+ * as a Result with page counts and timings. Mixed paper layouts and multi-image jobs are
+ * exported the same way, as Pages whose sheets each have their own size. TilePrinter's dialogs
+ * and the batch tiler are clients of this class.
+ */
+public class TileExportService {
+
+    /**
+     * Size of the tile labels on shared sheets, in points
+     */
+    static final float LABEL_SIZE = 8;
+
+    private TileExportService() {
+    }
+
+    /**
+     * Told after each page; an export stops before the next page once cancelled
+     */
+    public interface Progress {
+        void pageDone(int pagesDone, int pageCount);
+
+        default boolean isCancelled() {
+            return false;
+        }
+    }
+
+    /**
+     * Receives the drawing of each page. Coordinates are points from the page's top-left.
+     */
+    public interface PageSink {
+        void beginPage(double width, double height) throws IOException;
+
+        void drawImage(BufferedImage pixels, double x, double y, double width, double height) throws IOException;
+
+        /**
+         * Light cut outline
+         */
+        void drawOutline(double x, double y, double width, double height) throws IOException;
+
+        /**
+         * Text on a white tab at the start of a band beside a piece: along the band from its
+         * left end, or from its bottom end reading upward. Nothing is drawn outside the band.
+         */
+        void drawLabel(String text, double x, double y, double width, double height, boolean upward) throws IOException;
+
+        void endPage() throws IOException;
+    }
+
+    /**
+     * Pages ready to draw in any order, each beginning at its own size. The tile counts are
+     * those of the grid the pages come from, or the page count when they are not tiles of one grid.
+     */
+    public interface Pages {
+        int getPageCount();
+
+        void renderPage(int index, PageSink sink) throws IOException;
+
+        default int getGridTiles() {
+            return getPageCount();
+        }
+
+        default int getSelectedTiles() {
+            return getPageCount();
+        }
+
+        default TileImposition.Imposition getImposition() {
+            return null;
+        }
+
+        /**
+         * Time spent so far reading source pixels
+         */
+        default long getReadNanos() {
+            return 0;
+        }
+    }
+
+    /**
+     * How the image is tiled: the source size, the scale, the grid layout and whether partial
+     * edge tiles are packed onto shared sheets. The tiling itself depends on the page size it
+     * is laid out for.
+     */
+    public static class Spec {
+        public final int width;
+        public final int height;
+        public final float scale;
+        public final TileCalculator.GridLayout layout;
+        public final boolean packEdgeTiles;
+
+        public Spec(int width, int height, float scale, TileCalculator.GridLayout layout, boolean packEdgeTiles) {
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("Invalid image dimensions: " + width + "×" + height);
+            }
+            if (!(scale > 0)) {
+                throw new IllegalArgumentException("Scale must be positive: " + scale);
+            }
+            this.width = width;
+            this.height = height;
+            this.scale = scale;
+            this.layout = layout != null ? layout : TileCalculator.GridLayout.DEFAULT;
+            this.packEdgeTiles = packEdgeTiles;
+        }
+
+        public TileCalculator.TilingResult tilingFor(double pageWidth, double pageHeight) {
+            return layout.apply(TileCalculator.calculateTiling(width, height, pageWidth, pageHeight, scale));
+        }
+    }
+
+    /**
+     * The pages of one export, ready to draw in any order
+     */
+    public static class Plan implements Pages {
+        public final TileCalculator.TilingResult tiling;
+        public final java.util.List<TileCalculator.TileInfo> selection;
+        public final TileImposition.Imposition imposition; // null when edge tiles are not packed
+        private final ImageSource source;
+        private final java.util.List<TileCalculator.TileInfo> pageTiles;
+        private long readNanos;
+
+        Plan(ImageSource source, TileCalculator.TilingResult tiling, java.util.List<TileCalculator.TileInfo> selection,
+             TileImposition.Imposition imposition) {
+            this.source = source;
+            this.tiling = tiling;
+            this.selection = selection;
+            this.imposition = imposition;
+            this.pageTiles = imposition != null ? imposition.fullTiles : selection;
+        }
+
+        @Override
+        public int getPageCount() {
+            return imposition != null ? imposition.getSheetCount() : selection.size();
+        }
+
+        @Override
+        public int getGridTiles() {
+            return tiling.tilesWide * tiling.tilesHigh;
+        }
+
+        @Override
+        public int getSelectedTiles() {
+            return selection.size();
+        }
+
+        @Override
+        public TileImposition.Imposition getImposition() {
+            return imposition;
+        }
+
+        @Override
+        public long getReadNanos() {
+            return readNanos;
+        }
+
+        /**
+         * Draws one page, reading only the source pixels it needs
+         */
+        @Override
+        public void renderPage(int index, PageSink sink) throws IOException {
+            sink.beginPage(tiling.tileWidth, tiling.tileHeight);
+            if (index < pageTiles.size()) {
+                TileCalculator.TileInfo tile = pageTiles.get(index);
+                // A shifted grid starts before the image
+                double tileX = tile.col * tiling.tileWidth - tiling.originX;
+                double tileY = tile.row * tiling.tileHeight - tiling.originY;
+                TileRegion region = TileRegion.forTile(source, tiling.imageWidth, tiling.imageHeight,
+                                                                               tileX, tileY, tiling.tileWidth, tiling.tileHeight);
+                if (region != null) {
+                    sink.drawImage(read(region.sourceRegion), region.drawX, region.drawY, region.drawWidth, region.drawHeight);
+                }
+            } else {
+                for (TileImposition.Piece piece : imposition.sharedSheets.get(index - pageTiles.size())) {
+                    long start = System.nanoTime();
+                    PiecePixels pixels = PiecePixels.forPiece(source, tiling.imageWidth, tiling.imageHeight, piece);
+                    readNanos += System.nanoTime() - start;
+                    if (pixels != null) {
+                        sink.drawImage(pixels.image, pixels.x, pixels.y, pixels.width, pixels.height);
+                    }
+                    sink.drawOutline(piece.x, piece.y, piece.getPlacedWidth(), piece.getPlacedHeight());
+                    Rectangle2D.Double band = piece.labelBand;
+                    sink.drawLabel(pieceLabel(piece), band.x, band.y, band.width, band.height, piece.isLabelUpward());
+                }
+            }
+            sink.endPage();
+        }
+
+        private BufferedImage read(Rectangle region) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return source.readRegion(region);
+            } finally {
+                readNanos += System.nanoTime() - start;
+            }
+        }
+    }
+
+    /**
+     * Outcome of an export
+     */
+    public static class Result {
+        public final int pages; // pages drawn
+        public final int pageCount; // pages the export would have drawn in full
+        public final int gridTiles;
+        public final int selectedTiles;
+        public final TileImposition.Imposition imposition;
+        public final boolean cancelled;
+        public final long readMillis; // reading source pixels
+        public final long elapsedMillis;
+
+        Result(int pages, int pageCount, int gridTiles, int selectedTiles, TileImposition.Imposition imposition,
+               boolean cancelled, long readMillis, long elapsedMillis) {
+            this.pages = pages;
+            this.pageCount = pageCount;
+            this.gridTiles = gridTiles;
+            this.selectedTiles = selectedTiles;
+            this.imposition = imposition;
+            this.cancelled = cancelled;
+            this.readMillis = readMillis;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * Pages not printed because their tiles were blank or deselected
+         */
+        public int getBlankPagesAvoided() {
+            return gridTiles - selectedTiles;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d of %d pages (%d of %d tiles)%s in %d ms, %d ms reading pixels", pages, pageCount,
+                                 selectedTiles, gridTiles, cancelled ? ", cancelled" : "", elapsedMillis, readMillis);
+        }
+    }
+
+    /**
+     * Lays out the pages of an export at the given page size
+     */
+    public static Plan plan(ImageSource source, Spec spec, java.util.List<TileCalculator.TileInfo> selection,
+                            double pageWidth, double pageHeight) {
+        TileCalculator.TilingResult tiling = spec.tilingFor(pageWidth, pageHeight);
+        TileImposition.Imposition imposition = spec.packEdgeTiles ? TileImposition.impose(selection, tiling) : null;
+        return new Plan(source, tiling, selection, imposition);
+    }
+
+    /**
+     * The sheets of a mixed paper layout, one page each at its paper size and orientation,
+     * carrying its cell of the image 1:1 from the page's top-left with a light cut outline
+     */
+    public static Pages pages(ImageSource source, MixedLayoutSolver.SheetLayout layout) {
+        return new SheetLayoutPages(source, layout);
+    }
+
+    /**
+     * The non-blank pages of a packed multi-image job, each image drawn 1:1 from its own
+     * source with a light cut outline and its number on the page holding its top-left corner
+     */
+    public static Pages pages(TileJob.Layout layout) {
+        return new JobPages(layout);
+    }
+
+    private static class SheetLayoutPages implements Pages {
+        private final ImageSource source;
+        private final MixedLayoutSolver.SheetLayout layout;
+        private long readNanos;
+
+        SheetLayoutPages(ImageSource source, MixedLayoutSolver.SheetLayout layout) {
+            this.source = source;
+            this.layout = layout;
+        }
+
+        @Override
+        public int getPageCount() {
+            return layout.sheets.size();
+        }
+
+        @Override
+        public void renderPage(int index, PageSink sink) throws IOException {
+            MixedLayoutSolver.Sheet sheet = layout.sheets.get(index);
+            sink.beginPage(sheet.getPageWidth(), sheet.getPageHeight());
+            TileRegion region = TileRegion.forTile(source, layout.renderWidth, layout.renderHeight,
+                                                                           sheet.cell.x, sheet.cell.y, sheet.cell.width, sheet.cell.height);
+            if (region != null) {
+                long start = System.nanoTime();
+                BufferedImage pixels = source.readRegion(region.sourceRegion);
+                readNanos += System.nanoTime() - start;
+                sink.drawImage(pixels, region.drawX, region.drawY, region.drawWidth, region.drawHeight);
+            }
+            sink.drawOutline(0, 0, sheet.cell.width, sheet.cell.height);
+            sink.endPage();
+        }
+
+        @Override
+        public long getReadNanos() {
+            return readNanos;
+        }
+    }
+
+    private static class JobPages implements Pages {
+        private final TileJob.Layout layout;
+        private final java.util.Map<TileJob.Item, ImageSource> sources = new java.util.IdentityHashMap<>();
+        private long readNanos;
+
+        JobPages(TileJob.Layout layout) {
+            this.layout = layout;
+        }
+
+        @Override
+        public int getPageCount() {
+            return layout.pages.size();
+        }
+
+        @Override
+        public void renderPage(int index, PageSink sink) throws IOException {
+            TileCalculator.TileInfo page = layout.pages.get(index);
+            Rectangle2D.Double bounds = layout.pageBounds(page);
+            sink.beginPage(layout.pageWidth, layout.pageHeight);
+            for (TileJob.Placement placement : layout.placementsOn(page)) {
+                ImageSource source = sources.computeIfAbsent(placement.item, TileJob.Item::getOutputSource);
+                double tileX = bounds.x - placement.x;
+                double tileY = bounds.y - placement.y;
+                TileRegion region = TileRegion.forTile(source, placement.renderWidth, placement.renderHeight,
+                                                                               tileX, tileY, layout.pageWidth, layout.pageHeight);
+                if (region != null) {
+                    long start = System.nanoTime();
+                    BufferedImage pixels = source.readRegion(region.sourceRegion);
+                    readNanos += System.nanoTime() - start;
+                    sink.drawImage(pixels, region.drawX, region.drawY, region.drawWidth, region.drawHeight);
+                }
+                sink.drawOutline(-tileX, -tileY, placement.renderWidth, placement.renderHeight);
+                if (tileX <= 0 && tileY <= 0) {
+                    sink.drawLabel("Image " + (layout.placements.indexOf(placement) + 1), -tileX, -tileY,
+                                   placement.renderWidth, TileImposition.LABEL_BAND, false);
+                }
+            }
+            sink.endPage();
+        }
+
+        @Override
+        public long getReadNanos() {
+            return readNanos;
+        }
+    }
+
+    /**
+     * Draws every page into the sink, stopping early if the progress callback reports cancellation
+     */
+    public static Result export(Pages plan, PageSink sink, Progress progress) throws IOException {
+        long start = System.nanoTime();
+        int pageCount = plan.getPageCount();
+        int pages = 0;
+        boolean cancelled = false;
+        for (int index = 0; index < pageCount; index++) {
+            if (progress != null && progress.isCancelled()) {
+                cancelled = true;
+                break;
+            }
+            plan.renderPage(index, sink);
+            pages++;
+            if (progress != null) {
+                progress.pageDone(pages, pageCount);
+            }
+        }
+        Result result = new Result(pages, pageCount, plan.getGridTiles(), plan.getSelectedTiles(), plan.getImposition(),
+                                   cancelled, plan.getReadNanos() / 1_000_000, (System.nanoTime() - start) / 1_000_000);
+        System.out.println("[STATS] Export: " + result);
+        return result;
+    }
+
+    /**
+     * Writes the selected tiles to a PDF file on pages of the given size. Nothing is written
+     * if the export is cancelled.
+     */
+    public static Result exportPdf(ImageSource source, Spec spec, java.util.List<TileCalculator.TileInfo> selection,
+                                   double pageWidth, double pageHeight, File outputFile, Progress progress) throws IOException {
+        return exportPdf(plan(source, spec, selection, pageWidth, pageHeight), outputFile, progress);
+    }
+
+    /**
+     * Writes the pages to a PDF file. Nothing is written if the export is cancelled.
+     */
+    public static Result exportPdf(Pages pages, File outputFile, Progress progress) throws IOException {
+        try (PdfSink sink = new PdfSink()) {
+            Result result = export(pages, sink, progress);
+            if (!result.cancelled) {
+                sink.save(outputFile);
+            }
+            return result;
+        }
+    }
+
+    static String pieceLabel(TileImposition.Piece piece) {
+        return "Tile " + piece.tile.tileNumber + (piece.rotated ? ", turned" : "");
+    }
+
+    /**
+     * Pages as a PDF document, each framed with a light grey trim line. Streams are buffered
+     * in a temp file so memory stays fixed however many pages are written.
+     */
+    public static class PdfSink implements PageSink, Closeable {
+        private final PDDocument document = new PDDocument(IOUtils.createTempFileOnlyStreamCache());
+        private PDType1Font labelFont;
+        private PDPageContentStream contentStream;
+        private double pageWidth;
+        private double pageHeight;
+
+        @Override
+        public void beginPage(double width, double height) throws IOException {
+            pageWidth = width;
+            pageHeight = height;
+            PDPage page = new PDPage(new PDRectangle((float) width, (float) height));
+            document.addPage(page);
+            contentStream = new PDPageContentStream(document, page);
+        }
+
+        @Override
+        public void drawImage(BufferedImage pixels, double x, double y, double width, double height) throws IOException {
+            PDImageXObject pdImage = LosslessFactory.createFromImage(document, pixels);
+            // In PDF coordinate system, origin is at bottom-left
+            contentStream.drawImage(pdImage, (float) x, (float) (pageHeight - y - height), (float) width, (float) height);
+        }
+
+        @Override
+        public void drawOutline(double x, double y, double width, double height) throws IOException {
+            contentStream.setStrokingColor(Color.LIGHT_GRAY);
+            contentStream.setLineWidth(0.5f);
+            contentStream.addRect((float) x, (float) (pageHeight - y - height), (float) width, (float) height);
+            contentStream.stroke();
+        }
+
+        @Override
+        public void drawLabel(String text, double x, double y, double width, double height, boolean upward) throws IOException {
+            if (labelFont == null) {
+                labelFont = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
+            }
+            float labelLength = labelFont.getStringWidth(text) / 1000 * LABEL_SIZE + 4;
+            float left = (float) x;
+            float bottom = (float) (pageHeight - y - height);
+            float top = (float) (pageHeight - y);
+            contentStream.saveGraphicsState();
+            contentStream.addRect(left, bottom, (float) width, (float) height);
+            contentStream.clip();
+            contentStream.setNonStrokingColor(Color.WHITE);
+            if (upward) {
+                contentStream.addRect(left, bottom, (float) width, Math.min(labelLength, (float) height));
+            } else {
+                contentStream.addRect(left, bottom, Math.min(labelLength, (float) width), (float) height);
+            }
+            contentStream.fill();
+            contentStream.beginText();
+            contentStream.setNonStrokingColor(Color.BLACK);
+            contentStream.setFont(labelFont, LABEL_SIZE);
+            if (upward) {
+                contentStream.setTextMatrix(Matrix.getRotateInstance(Math.PI / 2, left + LABEL_SIZE, bottom + 2));
+            } else {
+                contentStream.newLineAtOffset(left + 2, top - LABEL_SIZE);
+            }
+            contentStream.showText(text);
+            contentStream.endText();
+            contentStream.restoreGraphicsState();
+        }
+
+        @Override
+        public void endPage() throws IOException {
+            contentStream.setStrokingColor(Color.LIGHT_GRAY);
+            contentStream.setLineWidth(1);
+            contentStream.addRect(0, 0, (float) pageWidth, (float) pageHeight);
+            contentStream.stroke();
+            contentStream.close();
+            contentStream = null;
+        }
+
+        public int getPageCount() {
+            return document.getNumberOfPages();
+        }
+
+        public void save(File outputFile) throws IOException {
+            document.save(outputFile);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (contentStream != null) {
+                contentStream.close();
+            }
+            document.close();
+        }
+    }
+
+    /**
+     * Pages drawn onto a Graphics2D already translated to the page origin, as a Printable gets
+     * them. No trim frame is drawn; the printed page is its own edge.
+     */
+    public static class GraphicsSink implements PageSink {
+        private final Graphics2D g2d;
+        private final double areaWidth; // 0 to draw pages 1:1
+        private final double areaHeight;
+        private java.awt.geom.AffineTransform pageTransform;
+        private double pageScale = 1;
+
+        public GraphicsSink(Graphics2D g2d) {
+            this(g2d, 0, 0);
+        }
+
+        /**
+         * Sink that fits each page into an area, such as a printer's imageable area. A page
+         * that doesn't fit is turned a quarter if that lets it be drawn larger, then shrunk to
+         * fit; pages are never enlarged.
+         */
+        public GraphicsSink(Graphics2D g2d, double areaWidth, double areaHeight) {
+            this.g2d = g2d;
+            this.areaWidth = areaWidth;
+            this.areaHeight = areaHeight;
+        }
+
+        /**
+         * How much the last page was shrunk to fit the area, 1 when it was drawn 1:1
+         */
+        public double getPageScale() {
+            return pageScale;
+        }
+
+        @Override
+        public void beginPage(double width, double height) {
+            pageTransform = g2d.getTransform();
+            double upright = Math.min(areaWidth / width, areaHeight / height);
+            double turned = Math.min(areaWidth / height, areaHeight / width);
+            if (areaWidth <= 0 || areaHeight <= 0 || upright >= 1) {
+                pageScale = 1;
+            } else if (turned > upright) {
+                // A quarter turn clockwise puts the page's top edge down the area's right side
+                pageScale = Math.min(1, turned);
+                g2d.translate(height * pageScale, 0);
+                g2d.scale(pageScale, pageScale);
+                g2d.rotate(Math.PI / 2);
+            } else {
+                pageScale = upright;
+                g2d.scale(pageScale, pageScale);
+            }
+        }
+
+        @Override
+        public void drawImage(BufferedImage pixels, double x, double y, double width, double height) {
+            g2d.drawImage(pixels, (int) Math.round(x), (int) Math.round(y), (int) Math.round(width), (int) Math.round(height), null);
+        }
+
+        @Override
+        public void drawOutline(double x, double y, double width, double height) {
+            g2d.setColor(Color.LIGHT_GRAY);
+            g2d.setStroke(new BasicStroke(0.5f));
+            g2d.draw(new Rectangle2D.Double(x, y, width, height));
+        }
+
+        @Override
+        public void drawLabel(String text, double x, double y, double width, double height, boolean upward) {
+            Shape clip = g2d.getClip();
+            java.awt.geom.AffineTransform transform = g2d.getTransform();
+            g2d.clip(new Rectangle2D.Double(x, y, width, height));
+            g2d.setFont(new Font("SansSerif", Font.BOLD, (int) LABEL_SIZE));
+            int labelLength = g2d.getFontMetrics().stringWidth(text) + 4;
+            g2d.setColor(Color.WHITE);
+            if (upward) {
+                g2d.fill(new Rectangle2D.Double(x, y + height - Math.min(labelLength, height), width, Math.min(labelLength, height)));
+                g2d.setColor(Color.BLACK);
+                g2d.rotate(-Math.PI / 2, x + LABEL_SIZE, y + height - 2);
+                g2d.drawString(text, (float) x + LABEL_SIZE, (float) (y + height - 2));
+            } else {
+                g2d.fill(new Rectangle2D.Double(x, y, Math.min(labelLength, width), height));
+                g2d.setColor(Color.BLACK);
+                g2d.drawString(text, (float) x + 2, (float) y + LABEL_SIZE);
+            }
+            g2d.setTransform(transform);
+            g2d.setClip(clip);
+        }
+
+        @Override
+        public void endPage() {
+            if (pageTransform != null) {
+                g2d.setTransform(pageTransform);
+            }
+        }
+    }
+
+    /**
+     * The source pixels of a packed piece, turned a quarter when the piece is, and where they
+     * land on its sheet in points
+     */
+    static class PiecePixels {
+        final BufferedImage image;
+        final double x;
+        final double y;
+        final double width;
+        final double height;
+
+        private PiecePixels(BufferedImage image, double x, double y, double width, double height) {
+            this.image = image;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * @return the pixels for the piece, or null if it lies outside the image
+         */
+        static PiecePixels forPiece(ImageSource source, int renderWidth, int renderHeight, TileImposition.Piece piece) throws IOException {
+            Rectangle2D.Double cell = piece.region;
+            TileRegion region = TileRegion.forTile(source, renderWidth, renderHeight, cell.x, cell.y, cell.width, cell.height);
+            if (region == null) {
+                return null;
+            }
+            BufferedImage pixels = source.readRegion(region.sourceRegion);
+            if (!piece.rotated) {
+                return new PiecePixels(pixels, piece.x + region.drawX, piece.y + region.drawY, region.drawWidth, region.drawHeight);
+            }
+            // A quarter turn clockwise takes (u, v) in the piece to (height - v, u) on the sheet
+            return new PiecePixels(Orientation.CLOCKWISE_90.apply(pixels),
+                                   piece.x + cell.height - region.drawY - region.drawHeight, piece.y + region.drawX,
+                                   region.drawHeight, region.drawWidth);
+        }
+    }
+
+    /**
+     * The source pixels one tile needs and where they land on the tile's page.
+     * Render space is the scaled image in points; draw coordinates are relative to the tile origin.
+     */
+    static class TileRegion {
+        final Rectangle sourceRegion;
+        final double drawX;
+        final double drawY;
+        final double drawWidth;
+        final double drawHeight;
+        
+        private TileRegion(Rectangle sourceRegion, double drawX, double drawY, double drawWidth, double drawHeight) {
+            this.sourceRegion = sourceRegion;
+            this.drawX = drawX;
+            this.drawY = drawY;
+            this.drawWidth = drawWidth;
+            this.drawHeight = drawHeight;
+        }
+        
+        /**
+         * @return the region for the tile, or null if the tile lies outside the image
+         */
+        static TileRegion forTile(ImageSource source, int renderWidth, int renderHeight,
+                                  double tileX, double tileY, double tileWidth, double tileHeight) {
+            double pixelsPerPointX = (double) source.getWidth() / renderWidth;
+            double pixelsPerPointY = (double) source.getHeight() / renderHeight;
+            
+            // Expand outward to whole source pixels so neighbouring tiles meet without gaps
+            int x0 = Math.max(0, (int) Math.floor(tileX * pixelsPerPointX));
+            int y0 = Math.max(0, (int) Math.floor(tileY * pixelsPerPointY));
+            int x1 = Math.min(source.getWidth(), (int) Math.ceil(Math.min(tileX + tileWidth, renderWidth) * pixelsPerPointX));
+            int y1 = Math.min(source.getHeight(), (int) Math.ceil(Math.min(tileY + tileHeight, renderHeight) * pixelsPerPointY));
+            if (x1 <= x0 || y1 <= y0) {
+                return null;
+            }
+            
+            return new TileRegion(new Rectangle(x0, y0, x1 - x0, y1 - y0),
+                                  x0 / pixelsPerPointX - tileX, y0 / pixelsPerPointY - tileY,
+                                  (x1 - x0) / pixelsPerPointX, (y1 - y0) / pixelsPerPointY);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Packs the partial tiles at the right and bottom edges of a grid onto shared sheets. An edge
+ * tile is often a sliver of image on an otherwise empty page; here each one is cut down to the
+ * part of the image it carries and packed, turned a quarter where that fits better, onto as few
+ * sheets as possible. Full tiles keep a sheet each. Every piece is packed with a band for its
+ * label along its top, or along its left side where the top leaves no room, so the label never
+ * covers the image; a piece with room for neither keeps a sheet of its own like a full tile.
+ *
+ * Packing uses maximal rectangles with the best short side fit: every free area of a sheet is
+ * kept as a possibly overlapping rectangle, each piece goes where it leaves the smallest gap,
+ * and larger pieces go first. Hundreds of pieces pack in milliseconds.
+ */
+public class TileImposition {
+
+    /**
+     * Space left between pieces for cutting and labels, in points (1/8 inch)
+     */
+    public static final double GAP = 9;
+
+    /**
+     * Depth of the band beside each piece that holds its label, in points
+     */
+    public static final double LABEL_BAND = TileExportService.LABEL_SIZE + 3;
+
+    private TileImposition() {
+    }
+
+    /**
+     * One partial tile placed on a shared sheet
+     */
+    public static class Piece {
+        public final TileCalculator.TileInfo tile;
+        public final Rectangle2D.Double region; // the part of the image it carries, in points of the printed image
+        public final double x; // top-left of the image on the sheet, in points
+        public final double y;
+        public final boolean rotated; // turned a quarter clockwise on the sheet
+        public final Rectangle2D.Double labelBand; // on the sheet, above or left of the image
+
+        Piece(TileCalculator.TileInfo tile, Rectangle2D.Double region, double x, double y, boolean rotated,
+              Rectangle2D.Double labelBand) {
+            this.tile = tile;
+            this.region = region;
+            this.x = x;
+            this.y = y;
+            this.rotated = rotated;
+            this.labelBand = labelBand;
+        }
+
+        public double getPlacedWidth() {
+            return rotated ? region.height : region.width;
+        }
+
+        public double getPlacedHeight() {
+            return rotated ? region.width : region.height;
+        }
+
+        /**
+         * True if the label band runs up the left side of the image rather than along its top
+         */
+        public boolean isLabelUpward() {
+            return labelBand.x < x;
+        }
+    }
+
+    /**
+     * Pages to print: full tiles on their own sheets, then the shared sheets
+     */
+    public static class Imposition {
+        public final java.util.List<TileCalculator.TileInfo> fullTiles;
+        public final java.util.List<java.util.List<Piece>> sharedSheets;
+        public final double sheetWidth;
+        public final double sheetHeight;
+        public final int partialTiles;
+
+        Imposition(java.util.List<TileCalculator.TileInfo> fullTiles, java.util.List<java.util.List<Piece>> sharedSheets,
+                   double sheetWidth, double sheetHeight, int partialTiles) {
+            this.fullTiles = fullTiles;
+            this.sharedSheets = sharedSheets;
+            this.sheetWidth = sheetWidth;
+            this.sheetHeight = sheetHeight;
+            this.partialTiles = partialTiles;
+        }
+
+        public int getSheetCount() {
+            return fullTiles.size() + sharedSheets.size();
+        }
+
+        /**
+         * Sheets saved against printing every partial tile on its own page
+         */
+        public int getSheetsSaved() {
+            return partialTiles - sharedSheets.size();
+        }
+    }
+
+    /**
+     * The part of a tile that lies on the image, in points of the printed image
+     */
+    static Rectangle2D.Double tileRegion(TileCalculator.TileInfo tile, TileCalculator.TilingResult tiling) {
+        double x0 = Math.max(0, tile.col * tiling.tileWidth - tiling.originX);
+        double y0 = Math.max(0, tile.row * tiling.tileHeight - tiling.originY);
+        double x1 = Math.min(tiling.imageWidth, (tile.col + 1) * tiling.tileWidth - tiling.originX);
+        double y1 = Math.min(tiling.imageHeight, (tile.row + 1) * tiling.tileHeight - tiling.originY);
+        return new Rectangle2D.Double(x0, y0, Math.max(0, x1 - x0), Math.max(0, y1 - y0));
+    }
+
+    /**
+     * Splits the selected tiles into full tiles and partial tiles, and packs the partial ones
+     * onto sheets the size of a tile
+     */
+    public static Imposition impose(java.util.List<TileCalculator.TileInfo> tiles, TileCalculator.TilingResult tiling) {
+        long start = System.nanoTime();
+        java.util.List<TileCalculator.TileInfo> fullTiles = new java.util.ArrayList<>();
+        java.util.List<TileCalculator.TileInfo> partial = new java.util.ArrayList<>();
+        for (TileCalculator.TileInfo tile : tiles) {
+            Rectangle2D.Double region = tileRegion(tile, tiling);
+            if (region.isEmpty()) {
+                continue;
+            }
+            boolean full = region.width >= tiling.tileWidth - 1e-6 && region.height >= tiling.tileHeight - 1e-6;
+            (full ? fullTiles : partial).add(tile);
+        }
+
+        // Larger pieces first: by longer side, then area
+        partial.sort((a, b) -> {
+            Rectangle2D.Double ra = tileRegion(a, tiling);
+            Rectangle2D.Double rb = tileRegion(b, tiling);
+            int bySide = Double.compare(Math.max(rb.width, rb.height), Math.max(ra.width, ra.height));
+            return bySide != 0 ? bySide : Double.compare(rb.width * rb.height, ra.width * ra.height);
+        });
+
+        java.util.List<MaxRectsSheet> sheets = new java.util.ArrayList<>();
+        java.util.List<TileCalculator.TileInfo> packed = new java.util.ArrayList<>();
+        for (TileCalculator.TileInfo tile : partial) {
+            Rectangle2D.Double region = tileRegion(tile, tiling);
+            MaxRectsSheet bestSheet = null;
+            Slot best = null;
+            for (MaxRectsSheet sheet : sheets) {
+                Slot slot = Slot.find(sheet, region);
+                if (slot != null && (best == null || slot.fit.compareTo(best.fit) < 0)) {
+                    bestSheet = sheet;
+                    best = slot;
+                }
+            }
+            if (best == null) {
+                MaxRectsSheet sheet = new MaxRectsSheet(tiling.tileWidth + GAP, tiling.tileHeight + GAP);
+                best = Slot.find(sheet, region);
+                if (best == null) {
+                    fullTiles.add(tile); // No room for a label even on a sheet of its own
+                    continue;
+                }
+                bestSheet = sheet;
+                sheets.add(sheet);
+            }
+            bestSheet.place(best.fit);
+            bestSheet.pieces.add(best.piece(tile, region));
+            packed.add(tile);
+        }
+        fullTiles.sort(java.util.Comparator.comparingInt(tile -> tile.tileNumber));
+
+        java.util.List<java.util.List<Piece>> sharedSheets = new java.util.ArrayList<>();
+        for (MaxRectsSheet sheet : sheets) {
+            sharedSheets.add(sheet.pieces);
+        }
+        System.out.println("[DEBUG] Packed " + packed.size() + " partial tiles onto " + sharedSheets.size() + " sheets in " +
+                           (System.nanoTime() - start) / 1_000_000 + " ms");
+        return new Imposition(fullTiles, sharedSheets, tiling.tileWidth, tiling.tileHeight, packed.size());
+    }
+
+    /**
+     * A piece's place on a sheet together with its label band
+     */
+    private static class Slot {
+        final MaxRectsSheet.Fit fit;
+        final boolean rotated;
+        final boolean labelLeft;
+
+        Slot(MaxRectsSheet.Fit fit, boolean rotated, boolean labelLeft) {
+            this.fit = fit;
+            this.rotated = rotated;
+            this.labelLeft = labelLeft;
+        }
+
+        /**
+         * The tightest slot for a region on the sheet, either way round, with the label band
+         * along the top if that fits anywhere and along the left side otherwise; null if neither does
+         */
+        static Slot find(MaxRectsSheet sheet, Rectangle2D.Double region) {
+            for (int side = 0; side < 2; side++) {
+                Slot best = null;
+                for (int turn = 0; turn < 2; turn++) {
+                    double width = (turn == 0 ? region.width : region.height) + (side == 1 ? LABEL_BAND : 0);
+                    double height = (turn == 0 ? region.height : region.width) + (side == 0 ? LABEL_BAND : 0);
+                    MaxRectsSheet.Fit fit = sheet.find(width + GAP, height + GAP, false);
+                    if (fit != null && (best == null || fit.compareTo(best.fit) < 0)) {
+                        best = new Slot(fit, turn == 1, side == 1);
+                    }
+                }
+                if (best != null) {
+                    return best;
+                }
+            }
+            return null;
+        }
+
+        Piece piece(TileCalculator.TileInfo tile, Rectangle2D.Double region) {
+            double placedWidth = rotated ? region.height : region.width;
+            double placedHeight = rotated ? region.width : region.height;
+            if (labelLeft) {
+                return new Piece(tile, region, fit.x + LABEL_BAND, fit.y, rotated,
+                                 new Rectangle2D.Double(fit.x, fit.y, LABEL_BAND, placedHeight));
+            }
+            return new Piece(tile, region, fit.x, fit.y + LABEL_BAND, rotated,
+                             new Rectangle2D.Double(fit.x, fit.y, placedWidth, LABEL_BAND));
+        }
+    }
+
+    /**
+     * One sheet's free space as maximal rectangles
+     */
+    static class MaxRectsSheet {
+        final java.util.List<Rectangle2D.Double> free = new java.util.ArrayList<>();
+        final java.util.List<Piece> pieces = new java.util.ArrayList<>();
+
+        MaxRectsSheet(double width, double height) {
+            free.add(new Rectangle2D.Double(0, 0, width, height));
+        }
+
+        /**
+         * Where a piece would go and how tightly, shorter leftover side first
+         */
+        static class Fit implements Comparable<Fit> {
+            final double x;
+            final double y;
+            final double width;
+            final double height;
+            final boolean rotated;
+            final double shortSide;
+            final double longSide;
+
+            Fit(double x, double y, double width, double height, boolean rotated, double shortSide, double longSide) {
+                this.x = x;
+                this.y = y;
+                this.width = width;
+                this.height = height;
+                this.rotated = rotated;
+                this.shortSide = shortSide;
+                this.longSide = longSide;
+            }
+
+            @Override
+            public int compareTo(Fit other) {
+                int byShort = Double.compare(shortSide, other.shortSide);
+                return byShort != 0 ? byShort : Double.compare(longSide, other.longSide);
+            }
+        }
+
+        /**
+         * The tightest place for a width x height piece, either way round, or null if it fits nowhere
+         */
+        Fit find(double width, double height) {
+            return find(width, height, true);
+        }
+
+        /**
+         * The tightest place for a width x height piece, turned too if allowed, or null if it fits nowhere
+         */
+        Fit find(double width, double height, boolean allowTurn) {
+            Fit best = null;
+            for (Rectangle2D.Double area : free) {
+                for (int turn = 0; turn < (allowTurn ? 2 : 1); turn++) {
+                    double w = turn == 0 ? width : height;
+                    double h = turn == 0 ? height : width;
+                    if (w <= area.width + 1e-6 && h <= area.height + 1e-6) {
+                        double leftoverX = area.width - w;
+                        double leftoverY = area.height - h;
+                        Fit fit = new Fit(area.x, area.y, w, h, turn == 1,
+                                          Math.min(leftoverX, leftoverY), Math.max(leftoverX, leftoverY));
+                        if (best == null || fit.compareTo(best) < 0) {
+                            best = fit;
+                        }
+                    }
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Takes the fit's rectangle out of every free rectangle it overlaps, then drops free
+         * rectangles that lie inside others
+         */
+        void place(Fit fit) {
+            Rectangle2D.Double used = new Rectangle2D.Double(fit.x, fit.y, fit.width, fit.height);
+            java.util.List<Rectangle2D.Double> next = new java.util.ArrayList<>();
+            for (Rectangle2D.Double area : free) {
+                if (!overlaps(area, used)) {
+                    next.add(area);
+                    continue;
+                }
+                if (used.x > area.x) {
+                    next.add(new Rectangle2D.Double(area.x, area.y, used.x - area.x, area.height));
+                }
+                if (used.getMaxX() < area.getMaxX()) {
+                    next.add(new Rectangle2D.Double(used.getMaxX(), area.y, area.getMaxX() - used.getMaxX(), area.height));
+                }
+                if (used.y > area.y) {
+                    next.add(new Rectangle2D.Double(area.x, area.y, area.width, used.y - area.y));
+                }
+                if (used.getMaxY() < area.getMaxY()) {
+                    next.add(new Rectangle2D.Double(area.x, used.getMaxY(), area.width, area.getMaxY() - used.getMaxY()));
+                }
+            }
+            free.clear();
+            for (int i = 0; i < next.size(); i++) {
+                Rectangle2D.Double area = next.get(i);
+                boolean contained = false;
+                for (int j = 0; j < next.size() && !contained; j++) {
+                    Rectangle2D.Double other = next.get(j);
+                    // Of two equal rectangles keep the first
+                    contained = i != j && contains(other, area) && (!contains(area, other) || j < i);
+                }
+                if (!contained) {
+                    free.add(area);
+                }
+            }
+        }
+
+        private static boolean overlaps(Rectangle2D.Double a, Rectangle2D.Double b) {
+            return a.x < b.getMaxX() - 1e-9 && b.x < a.getMaxX() - 1e-9 && a.y < b.getMaxY() - 1e-9 && b.y < a.getMaxY() - 1e-9;
+        }
+
+        private static boolean contains(Rectangle2D.Double outer, Rectangle2D.Double inner) {
+            return inner.x >= outer.x - 1e-9 && inner.y >= outer.y - 1e-9 &&
+                   inner.getMaxX() <= outer.getMaxX() + 1e-9 && inner.getMaxY() <= outer.getMaxY() + 1e-9;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Several images printed together, each at its own scale and rotation. Small images are packed
+ * side by side onto shared pages before the packed sheet is tiled, so a set of pattern pieces
+ * prints on a handful of pages rather than a page run each.
+ *
+ * Packing is nested: the canvas is a grid of pages, and images that fit on one page are kept
+ * inside a page where they can be, so they need no taping; larger images take page-aligned
+ * blocks. Placement uses maximal rectangles with the best short side fit (see TileImposition),
+ * ranked first by how many pages an image would span. Several grid shapes and both page
+ * orientations are packed and the one with the fewest non-blank pages is kept.
+ */
+public class TileJob {
+
+    /**
+     * Space left between images for cutting, in points (1/8 inch)
+     */
+    public static final double GAP = TileImposition.GAP;
+
+    /**
+     * Grid widths tried beyond the narrowest that holds the widest image
+     */
+    private static final int EXTRA_COLUMNS = 6;
+
+    private static final double A4_WIDTH = 8.27 * 72;
+    private static final double A4_HEIGHT = 11.69 * 72;
+
+    private TileJob() {
+    }
+
+    /**
+     * One image of a job. Scale and rotation mean what they do for a single image: scale 1.0
+     * fits the rotated image to one A4 page.
+     */
+    public static class Item {
+        private final ImageSource source;
+        private final String name;
+        private float scale = 1.0f;
+        private Orientation orientation = Orientation.NORMAL;
+        private ContentThresholds thresholds;
+        private GridOptimizer.ContentMap contentMap;
+
+        public Item(ImageSource source, String name) {
+            this.source = source;
+            this.name = name;
+        }
+
+        public ImageSource getSource() {
+            return source;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public float getScale() {
+            return scale;
+        }
+
+        public void setScale(float scale) {
+            if (scale <= 0) {
+                throw new IllegalArgumentException("Scale must be positive: " + scale);
+            }
+            this.scale = scale;
+        }
+
+        public Orientation getOrientation() {
+            return orientation;
+        }
+
+        public void setOrientation(Orientation orientation) {
+            this.orientation = orientation;
+        }
+
+        /**
+         * Printed size in points at the item's scale and rotation
+         */
+        public TileCalculator.TilingResult getTiling() {
+            return TileCalculator.calculateTiling(orientation.rotatedWidth(source.getWidth(), source.getHeight()),
+                                               orientation.rotatedHeight(source.getWidth(), source.getHeight()),
+                                               A4_WIDTH, A4_HEIGHT, scale);
+        }
+
+        /**
+         * Source for output in the item's rotation
+         */
+        public ImageSource getOutputSource() {
+            return orientation == Orientation.NORMAL ? source : new RotatedImageSource(source, orientation);
+        }
+
+        /**
+         * Default thresholds against the image's own background, estimated once
+         */
+        public synchronized ContentThresholds getThresholds() {
+            if (thresholds == null) {
+                thresholds = ContentThresholds.forImage(source.getPreviewImage());
+            }
+            return thresholds;
+        }
+
+        /**
+         * Content map of the unrotated preview, built once
+         */
+        synchronized GridOptimizer.ContentMap getContentMap() {
+            if (contentMap == null) {
+                contentMap = GridOptimizer.ContentMap.of(source.getPreviewImage(), getThresholds());
+            }
+            return contentMap;
+        }
+
+        /**
+         * True if the part of the printed image inside the rectangle (points of the printed
+         * image) would be printed under the item's thresholds
+         */
+        boolean hasContent(Rectangle2D.Double printed, TileCalculator.TilingResult tiling) {
+            BufferedImage preview = source.getPreviewImage();
+            int previewWidth = orientation.rotatedWidth(preview.getWidth(), preview.getHeight());
+            int previewHeight = orientation.rotatedHeight(preview.getWidth(), preview.getHeight());
+            int x0 = (int) Math.floor(printed.x * previewWidth / tiling.imageWidth);
+            int y0 = (int) Math.floor(printed.y * previewHeight / tiling.imageHeight);
+            int x1 = (int) Math.min(previewWidth, Math.ceil(printed.getMaxX() * previewWidth / tiling.imageWidth));
+            int y1 = (int) Math.min(previewHeight, Math.ceil(printed.getMaxY() * previewHeight / tiling.imageHeight));
+            if (x1 <= x0 || y1 <= y0) {
+                return false;
+            }
+            Rectangle region = orientation.toSource(new Rectangle(x0, y0, x1 - x0, y1 - y0), preview.getWidth(), preview.getHeight());
+            return getThresholds().isNonBlank(getContentMap().contentRatio(region));
+        }
+    }
+
+    /**
+     * Where one image sits on the packed canvas, in points
+     */
+    public static class Placement {
+        public final Item item;
+        public final double x;
+        public final double y;
+        public final int renderWidth; // printed size in points
+        public final int renderHeight;
+
+        Placement(Item item, double x, double y, int renderWidth, int renderHeight) {
+            this.item = item;
+            this.x = x;
+            this.y = y;
+            this.renderWidth = renderWidth;
+            this.renderHeight = renderHeight;
+        }
+
+        public Rectangle2D.Double getBounds() {
+            return new Rectangle2D.Double(x, y, renderWidth, renderHeight);
+        }
+    }
+
+    /**
+     * A packed job: the canvas is cols x rows pages, of which only the non-blank ones print
+     */
+    public static class Layout {
+        public final java.util.List<Placement> placements;
+        public final double pageWidth;
+        public final double pageHeight;
+        public final int cols;
+        public final int rows;
+        public final java.util.List<TileCalculator.TileInfo> pages; // non-blank pages, row-major
+        public final int crossings; // images touching more pages than their size needs
+        public final int shapesTried;
+        public final long elapsedMillis;
+
+        Layout(java.util.List<Placement> placements, double pageWidth, double pageHeight, int cols, int rows,
+               java.util.List<TileCalculator.TileInfo> pages, int crossings, int shapesTried, long elapsedMillis) {
+            this.placements = placements;
+            this.pageWidth = pageWidth;
+            this.pageHeight = pageHeight;
+            this.cols = cols;
+            this.rows = rows;
+            this.pages = pages;
+            this.crossings = crossings;
+            this.shapesTried = shapesTried;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public Rectangle2D.Double pageBounds(TileCalculator.TileInfo page) {
+            return new Rectangle2D.Double(page.col * pageWidth, page.row * pageHeight, pageWidth, pageHeight);
+        }
+
+        /**
+         * Images with some part on the page
+         */
+        public java.util.List<Placement> placementsOn(TileCalculator.TileInfo page) {
+            Rectangle2D.Double bounds = pageBounds(page);
+            java.util.List<Placement> result = new java.util.ArrayList<>();
+            for (Placement placement : placements) {
+                Rectangle2D overlap = bounds.createIntersection(placement.getBounds());
+                if (overlap.getWidth() > 0 && overlap.getHeight() > 0) {
+                    result.add(placement);
+                }
+            }
+            return result;
+        }
+
+        public boolean isLandscape() {
+            return pageWidth > pageHeight;
+        }
+
+        /**
+         * Pages the images would take printed one after another with blank pages dropped
+         */
+        public int getSeparatePages() {
+            int total = 0;
+            for (Placement placement : placements) {
+                TileCalculator.TilingResult tiling = placement.item.getTiling();
+                total += GridOptimizer.score(placement.item.getContentMap(), tiling, placement.item.getOrientation(),
+                                             placement.item.getThresholds(), Integer.MAX_VALUE).pages;
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Packs the items onto A4 pages
+     */
+    public static Layout pack(java.util.List<Item> items) {
+        return pack(items, A4_WIDTH, A4_HEIGHT);
+    }
+
+    /**
+     * Packs the items onto pages of the given size, trying them both ways round, and returns
+     * the layout with the fewest non-blank pages; null if there are no items
+     */
+    public static Layout pack(java.util.List<Item> items, double pageWidth, double pageHeight) {
+        if (items.isEmpty()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        java.util.List<Item> order = new java.util.ArrayList<>(items);
+        java.util.Map<Item, TileCalculator.TilingResult> tilings = new java.util.IdentityHashMap<>();
+        for (Item item : order) {
+            tilings.put(item, item.getTiling());
+        }
+
+        Layout best = null;
+        int shapes = 0;
+        for (int turn = 0; turn < 2; turn++) {
+            double pw = turn == 0 ? Math.min(pageWidth, pageHeight) : Math.max(pageWidth, pageHeight);
+            double ph = turn == 0 ? Math.max(pageWidth, pageHeight) : Math.min(pageWidth, pageHeight);
+
+            // Biggest first: by pages spanned on their own, then area
+            order.sort((a, b) -> {
+                TileCalculator.TilingResult ta = tilings.get(a);
+                TileCalculator.TilingResult tb = tilings.get(b);
+                int bySpan = Integer.compare(span(tb.imageWidth, pw) * span(tb.imageHeight, ph),
+                                             span(ta.imageWidth, pw) * span(ta.imageHeight, ph));
+                return bySpan != 0 ? bySpan : Long.compare((long) tb.imageWidth * tb.imageHeight, (long) ta.imageWidth * ta.imageHeight);
+            });
+
+            int minCols = 1;
+            int minRows = 1;
+            int stackedRows = 0;
+            double area = 0;
+            for (Item item : order) {
+                TileCalculator.TilingResult tiling = tilings.get(item);
+                minCols = Math.max(minCols, span(tiling.imageWidth, pw));
+                minRows = Math.max(minRows, span(tiling.imageHeight, ph));
+                stackedRows += span(tiling.imageHeight + GAP, ph);
+                area += (tiling.imageWidth + GAP) * (tiling.imageHeight + GAP);
+            }
+            double areaPages = area / (pw * ph);
+
+            for (int cols = minCols; cols <= minCols + EXTRA_COLUMNS; cols++) {
+                for (int rows = Math.max(minRows, (int) Math.ceil(areaPages / cols)); rows <= stackedRows + 1; rows++) {
+                    shapes++;
+                    Layout layout = packGrid(order, tilings, pw, ph, cols, rows);
+                    if (layout != null) {
+                        if (best == null || isBetter(layout, best)) {
+                            best = layout;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (best == null) {
+            throw new IllegalStateException("Could not pack " + items.size() + " images");
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        best = new Layout(best.placements, best.pageWidth, best.pageHeight, best.cols, best.rows, best.pages, best.crossings, shapes, elapsed);
+        System.out.println("[LAYOUT] Packed " + items.size() + " images onto " + best.pages.size() + " pages (" + best.cols + "×" +
+                           best.rows + " " + (best.isLandscape() ? "landscape" : "portrait") + " grid, " + best.crossings +
+                           " split) from " + shapes + " shapes in " + elapsed + " ms");
+        return best;
+    }
+
+    private static boolean isBetter(Layout candidate, Layout best) {
+        if (candidate.pages.size() != best.pages.size()) {
+            return candidate.pages.size() < best.pages.size();
+        }
+        if (candidate.crossings != best.crossings) {
+            return candidate.crossings < best.crossings;
+        }
+        return candidate.cols * candidate.rows < best.cols * best.rows;
+    }
+
+    /**
+     * Packs onto a canvas of cols x rows pages, or returns null if the items don't all fit
+     */
+    static Layout packGrid(java.util.List<Item> order, java.util.Map<Item, TileCalculator.TilingResult> tilings,
+                           double pageWidth, double pageHeight, int cols, int rows) {
+        // The canvas carries one extra gap so an image may end flush with the last page
+        TileImposition.MaxRectsSheet canvas = new TileImposition.MaxRectsSheet(cols * pageWidth + GAP, rows * pageHeight + GAP);
+        java.util.List<Placement> placements = new java.util.ArrayList<>();
+        int crossings = 0;
+        for (Item item : order) {
+            TileCalculator.TilingResult tiling = tilings.get(item);
+            Candidate candidate = findPlace(canvas, tiling.imageWidth, tiling.imageHeight, pageWidth, pageHeight);
+            if (candidate == null) {
+                return null;
+            }
+            canvas.place(candidate.fit);
+            placements.add(new Placement(item, candidate.fit.x, candidate.fit.y, tiling.imageWidth, tiling.imageHeight));
+            if (candidate.span > span(tiling.imageWidth, pageWidth) * span(tiling.imageHeight, pageHeight)) {
+                crossings++;
+            }
+        }
+
+        java.util.List<TileCalculator.TileInfo> pages = new java.util.ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                Rectangle2D.Double bounds = new Rectangle2D.Double(col * pageWidth, row * pageHeight, pageWidth, pageHeight);
+                for (Placement placement : placements) {
+                    Rectangle2D overlap = bounds.createIntersection(placement.getBounds());
+                    if (overlap.getWidth() > 0 && overlap.getHeight() > 0 &&
+                        placement.item.hasContent(new Rectangle2D.Double(overlap.getX() - placement.x, overlap.getY() - placement.y,
+                                                                         overlap.getWidth(), overlap.getHeight()),
+                                                  tilings.get(placement.item))) {
+                        pages.add(new TileCalculator.TileInfo(col, row, row * cols + col + 1));
+                        break;
+                    }
+                }
+            }
+        }
+        return new Layout(placements, pageWidth, pageHeight, cols, rows, pages, crossings, 1, 0);
+    }
+
+    /**
+     * A position for an image and how many pages it would touch there
+     */
+    private static class Candidate {
+        final TileImposition.MaxRectsSheet.Fit fit;
+        final int span;
+
+        Candidate(TileImposition.MaxRectsSheet.Fit fit, int span) {
+            this.fit = fit;
+            this.span = span;
+        }
+
+        boolean isBetterThan(Candidate other) {
+            if (span != other.span) {
+                return span < other.span;
+            }
+            int byFit = fit.compareTo(other.fit);
+            if (byFit != 0) {
+                return byFit < 0;
+            }
+            return fit.y != other.fit.y ? fit.y < other.fit.y : fit.x < other.fit.x;
+        }
+    }
+
+    /**
+     * The best place for a width x height image: the fewest pages touched, then the tightest
+     * fit. Besides each free rectangle's corner, the next page line inside it is tried, which
+     * is what keeps page-sized images off page boundaries.
+     */
+    private static Candidate findPlace(TileImposition.MaxRectsSheet canvas, double width, double height,
+                                       double pageWidth, double pageHeight) {
+        double paddedWidth = width + GAP;
+        double paddedHeight = height + GAP;
+        Candidate best = null;
+        for (Rectangle2D.Double area : canvas.free) {
+            double[] xs = {area.x, Math.ceil(area.x / pageWidth - 1e-9) * pageWidth};
+            double[] ys = {area.y, Math.ceil(area.y / pageHeight - 1e-9) * pageHeight};
+            for (double x : xs) {
+                for (double y : ys) {
+                    if (x + paddedWidth > area.getMaxX() + 1e-6 || y + paddedHeight > area.getMaxY() + 1e-6) {
+                        continue;
+                    }
+                    double leftoverX = area.getMaxX() - x - paddedWidth;
+                    double leftoverY = area.getMaxY() - y - paddedHeight;
+                    TileImposition.MaxRectsSheet.Fit fit = new TileImposition.MaxRectsSheet.Fit(
+                        x, y, paddedWidth, paddedHeight, false, Math.min(leftoverX, leftoverY), Math.max(leftoverX, leftoverY));
+                    Candidate candidate = new Candidate(fit, pagesTouched(x, width, pageWidth) * pagesTouched(y, height, pageHeight));
+                    if (best == null || candidate.isBetterThan(best)) {
+                        best = candidate;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Pages needed to cover a length on its own
+     */
+    private static int span(double length, double page) {
+        return Math.max(1, (int) Math.ceil(length / page - 1e-9));
+    }
+
+    /**
+     * Pages a length starting at position touches along one axis
+     */
+    static int pagesTouched(double position, double length, double page) {
+        int first = (int) Math.floor(position / page + 1e-9);
+        int last = (int) Math.floor((position + length) / page - 1e-9);
+        return last - first + 1;
+    }
+}
@@ -0,0 +1,243 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.io.File;
+
+/**
+ * Builds a multi-image job: images are added from files, each given its own scale and
+ * rotation, then packed onto shared pages and saved as one PDF (see TileJob).
+ * Previews of the job's images are sized against a share of the heap and their decoded
+ * pixels go through the shared DecodeBudget, so a long list of images stays within memory.
+ */
+public class TileJobDialog extends JDialog {
+    private final java.util.List<TileJob.Item> items = new java.util.ArrayList<>();
+    private final ItemTableModel tableModel = new ItemTableModel();
+    private final JTable table = new JTable(tableModel);
+    private final JLabel summaryLabel = new JLabel(" ");
+    private JButton packButton;
+    private int loading;
+
+    public TileJobDialog(JFrame parent) {
+        super(parent, "Multi-Image Job", true);
+        setupLayout();
+        setSize(640, 420);
+        setLocationRelativeTo(parent);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+    }
+
+    private void setupLayout() {
+        table.setFillsViewportHeight(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(30);
+        table.getColumnModel().getColumn(1).setPreferredWidth(240);
+
+        JButton addButton = new JButton("Add Images...");
+        addButton.addActionListener(e -> addImages());
+        JButton removeButton = new JButton("Remove");
+        removeButton.addActionListener(e -> removeSelected());
+        JButton rotateButton = new JButton("Rotate 90°");
+        rotateButton.addActionListener(e -> rotateSelected());
+        packButton = new JButton("Pack & Save PDF...");
+        packButton.setFont(new Font("SansSerif", Font.BOLD, 12));
+        packButton.addActionListener(e -> packAndSave());
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttons.add(addButton);
+        buttons.add(removeButton);
+        buttons.add(rotateButton);
+        buttons.add(packButton);
+        buttons.add(closeButton);
+
+        summaryLabel.setFont(new Font("SansSerif", Font.ITALIC, 11));
+        summaryLabel.setForeground(Color.GRAY);
+        summaryLabel.setBorder(BorderFactory.createEmptyBorder(0, 8, 6, 8));
+
+        JPanel south = new JPanel(new BorderLayout());
+        south.add(buttons, BorderLayout.CENTER);
+        south.add(summaryLabel, BorderLayout.SOUTH);
+
+        setLayout(new BorderLayout());
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        add(south, BorderLayout.SOUTH);
+        updateSummary();
+    }
+
+    private void addImages() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setMultiSelectionEnabled(true);
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileFilter() {
+            @Override
+            public boolean accept(File f) {
+                String name = f.getName().toLowerCase();
+                return f.isDirectory() || name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg") ||
+                       name.endsWith(".tif") || name.endsWith(".tiff");
+            }
+
+            @Override
+            public String getDescription() {
+                return "Image Files (*.png, *.jpg, *.jpeg, *.tif, *.tiff)";
+            }
+        });
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File[] files = fileChooser.getSelectedFiles();
+        long heapShare = DecodeBudget.previewHeapShare(items.size() + loading + files.length);
+        for (File file : files) {
+            loading++;
+            updateSummary();
+            new ImageLoader(file, new ImageLoader.LoadListener() {
+                @Override
+                public void progress(String phase, int percent) {
+                }
+
+                @Override
+                public void loadComplete(ImageSource source) {
+                    loading--;
+                    items.add(new TileJob.Item(source, file.getName()));
+                    tableModel.fireTableDataChanged();
+                    updateSummary();
+                }
+
+                @Override
+                public void loadFailed(Exception e) {
+                    loading--;
+                    updateSummary();
+                    JOptionPane.showMessageDialog(TileJobDialog.this, "Could not load " + file.getName() + ": " + e.getMessage(),
+                                                  "Image Load Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }, heapShare).execute();
+        }
+    }
+
+    private void removeSelected() {
+        int[] rows = table.getSelectedRows();
+        for (int i = rows.length - 1; i >= 0; i--) {
+            items.remove(rows[i]).getSource().close();
+        }
+        tableModel.fireTableDataChanged();
+        updateSummary();
+    }
+
+    private void rotateSelected() {
+        int[] rows = table.getSelectedRows();
+        for (int row : rows) {
+            TileJob.Item item = items.get(row);
+            item.setOrientation(item.getOrientation().next());
+        }
+        tableModel.fireTableDataChanged();
+        for (int row : rows) {
+            table.addRowSelectionInterval(row, row);
+        }
+    }
+
+    private void updateSummary() {
+        summaryLabel.setText(items.size() + " images" + (loading > 0 ? ", " + loading + " loading" : "") +
+                             ". Decoded pixels are shared within " + DecodeBudget.shared().getCapacityBytes() / (1024 * 1024) + " MB.");
+        packButton.setEnabled(!items.isEmpty() && loading == 0);
+    }
+
+    private void packAndSave() {
+        if (table.isEditing()) {
+            table.getCellEditor().stopCellEditing();
+        }
+        java.util.List<TileJob.Item> job = new java.util.ArrayList<>(items);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        packButton.setEnabled(false);
+        new SwingWorker<TileJob.Layout, Void>() {
+            @Override
+            protected TileJob.Layout doInBackground() {
+                return TileJob.pack(job);
+            }
+
+            @Override
+            protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                updateSummary();
+                TileJob.Layout layout;
+                try {
+                    layout = get();
+                } catch (Exception e) {
+                    JOptionPane.showMessageDialog(TileJobDialog.this, "Could not pack the job: " + e.getMessage(),
+                                                  "Multi-Image Job", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                summaryLabel.setText(String.format("Packed %d images onto %d %s pages (%d × %d grid) in %d ms",
+                                                   layout.placements.size(), layout.pages.size(),
+                                                   layout.isLandscape() ? "landscape" : "portrait", layout.cols, layout.rows,
+                                                   layout.elapsedMillis));
+                TilePrinter.saveJobToPDF(layout);
+            }
+        }.execute();
+    }
+
+    /**
+     * Closes the job's images, releasing their share of the decode budget
+     */
+    @Override
+    public void dispose() {
+        for (TileJob.Item item : items) {
+            item.getSource().close();
+        }
+        items.clear();
+        super.dispose();
+    }
+
+    private class ItemTableModel extends AbstractTableModel {
+        private final String[] columns = {"#", "Image", "Scale", "Rotation", "Printed size"};
+
+        @Override
+        public int getRowCount() {
+            return items.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 2 ? Float.class : column == 0 ? Integer.class : String.class;
+        }
+
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return column == 2;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            TileJob.Item item = items.get(row);
+            switch (column) {
+                case 0:
+                    return row + 1;
+                case 1:
+                    return item.getName();
+                case 2:
+                    return item.getScale();
+                case 3:
+                    return item.getOrientation().getDegrees() + "°";
+                default:
+                    TileCalculator.TilingResult tiling = item.getTiling();
+                    return String.format("%.1f × %.1f in", ScaleCalculator.pointsToInches(tiling.imageWidth),
+                                         ScaleCalculator.pointsToInches(tiling.imageHeight));
+            }
+        }
+
+        @Override
+        public void setValueAt(Object value, int row, int column) {
+            if (value instanceof Float && (Float) value > 0) {
+                items.get(row).setScale((Float) value);
+                fireTableRowsUpdated(row, row);
+            }
+        }
+    }
+}
@@ -206,12 +206,6 @@ public class TilePrinter {
      * Print image with manual tile selection considerations
      */
     public static void printTiledImageWithSelection(BufferedImage image, float scale, boolean isRotated, ImagePanel imagePanel) {
-        // Debug logging for issue isolation
-        System.out.println("[DEBUG] printTiledImageWithSelection called");
-        System.out.println("[DEBUG] Image: " + (image != null ? image.getWidth() + "x" + image.getHeight() : "NULL"));
-        System.out.println("[DEBUG] Scale: " + scale);
-        System.out.println("[DEBUG] IsRotated: " + isRotated);
-        
         // Comprehensive image validation
         if (image == null) {
             System.err.println("[ERROR] Image is null in printTiledImageWithSelection!");
@@ -219,19 +213,38 @@ public class TilePrinter {
             return;
         }
         
-        // Check for calibration image using ImagePanel.isCalibrationImage()
-        boolean isCalibration = ImagePanel.isCalibrationImage(image);
-        
-        if (isCalibration) {
+        if (ImagePanel.isCalibrationImage(image)) {
             System.out.println("[CALIBRATION] printTiledImageWithSelection received calibration image: " + image.getWidth() + "×" + image.getHeight() + " pixels");
             System.out.println("[CALIBRATION] Image type: " + image.getType());
             System.out.println("[CALIBRATION] Color model: " + image.getColorModel().getClass().getSimpleName());
             System.out.println("[CALIBRATION] Has alpha: " + image.getColorModel().hasAlpha());
         }
         
+        printTiledImageWithSelection(new InMemoryImageSource(image), scale, isRotated, imagePanel);
+    }
+    
+    /**
+     * Print with manual tile selection, reading only the source region each page needs
+     */
+    public static void printTiledImageWithSelection(ImageSource source, float scale, boolean isRotated, ImagePanel imagePanel) {
+        // Debug logging for issue isolation
+        System.out.println("[DEBUG] printTiledImageWithSelection called");
+        System.out.println("[DEBUG] Image: " + (source != null ? source.getWidth() + "x" + source.getHeight() : "NULL"));
+        System.out.println("[DEBUG] Scale: " + scale);
+        System.out.println("[DEBUG] IsRotated: " + isRotated);
+        
+        if (source == null) {
+            System.err.println("[ERROR] Image is null in printTiledImageWithSelection!");
+            javax.swing.JOptionPane.showMessageDialog(null, "Error: No image to print. Image is null.", "Print Error", javax.swing.JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        // Check for calibration image by its full-resolution dimensions
+        boolean isCalibration = ImagePanel.isCalibrationSize(source.getWidth(), source.getHeight());
+        
         // Validate image dimensions
-        int width = image.getWidth();
-        int height = image.getHeight();
+        int width = source.getWidth();
+        int height = source.getHeight();
         if (width <= 0 || height <= 0) {
             System.err.println("[ERROR] Invalid image dimensions in printTiledImageWithSelection: " + width + "×" + height);
             javax.swing.JOptionPane.showMessageDialog(null, "Error: Invalid image dimensions: " + width + "×" + height, "Print Error", javax.swing.JOptionPane.ERROR_MESSAGE);
@@ -242,128 +255,89 @@ public class TilePrinter {
         
         PrinterJob job = PrinterJob.getPrinterJob();
 
-        // Pre-calculate non-blank tiles using the same logic as the display
-        double pageWidth = 8.27 * 72; // A4 width in points (portrait)
-        double pageHeight = 11.69 * 72; // A4 height in points (portrait)
-        
-        System.out.println("[DEBUG] Page size: " + pageWidth + "x" + pageHeight + " points");
-        
-        TileCalculator.TilingResult tilingResult;
-        java.util.List<TileCalculator.TileInfo> selectedTiles;
-        
-        // Handle calibration images specially
-        if (isCalibration) {
-            System.out.println("[CALIBRATION] Bypassing non-blank tile filtering and user selection for calibration image");
-            
-            if (scale == 1.0f) {
-                // For scale=1.0, use single page preview and print that single page unconditionally
-                tilingResult = TileCalculator.calculateSinglePagePreview(image.getWidth(), image.getHeight(), pageWidth, pageHeight);
-                System.out.println("[CALIBRATION] Using single page preview for scale=1.0");
-                
-                // Create a single tile covering the entire image
-                selectedTiles = new java.util.ArrayList<>();
-                selectedTiles.add(new TileCalculator.TileInfo(0, 0, 1));
-            } else {
-                // For other scales, generate all tiles
-                tilingResult = TileCalculator.calculateScaledTiling(image.getWidth(), image.getHeight(), pageWidth, pageHeight, scale);
-                System.out.println("[CALIBRATION] Generating all tiles for scaled calibration image");
-                
-                // Generate all tiles
-                selectedTiles = new java.util.ArrayList<>();
-                for (int row = 0; row < tilingResult.tilesHigh; row++) {
-                    for (int col = 0; col < tilingResult.tilesWide; col++) {
-                        selectedTiles.add(new TileCalculator.TileInfo(col, row, row * tilingResult.tilesWide + col + 1));
-                    }
-                }
-            }
-        } else {
-            // Normal processing for non-calibration images
-            if (scale == 1.0f) {
-                // At scale 1.0, use single page preview (auto-fit to one page)
-                tilingResult = TileCalculator.calculateSinglePagePreview(image.getWidth(), image.getHeight(), pageWidth, pageHeight);
-                System.out.println("[DEBUG] Using single page preview");
-            } else {
-                // When scaled, calculate actual tiling for the scaled dimensions
-                tilingResult = TileCalculator.calculateScaledTiling(image.getWidth(), image.getHeight(), pageWidth, pageHeight, scale);
-                System.out.println("[DEBUG] Using scaled tiling");
-            }
-            
-            selectedTiles = imagePanel.getSelectedTiles(tilingResult, image);
-        }
-        
+        // The same plan the display shows, with its selection taken once
+        RenderPlan renderPlan = outputPlan(source, scale, imagePanel, isCalibration);
+        TileCalculator.TilingResult tilingResult = renderPlan.tiling;
+        java.util.List<TileCalculator.TileInfo> selectedTiles = renderPlan.getSelection();
+        TileExportService.Spec spec = renderPlan.toSpec(!isCalibration && Settings.getInstance().isPackEdgeTiles());
+
+        System.out.println("[DEBUG] Page size: " + renderPlan.pageWidth + "x" + renderPlan.pageHeight + " points");
         System.out.println("[DEBUG] Tiling result: " + tilingResult.tilesWide + "x" + tilingResult.tilesHigh + " tiles");
         System.out.println("[DEBUG] Tile size: " + tilingResult.tileWidth + "x" + tilingResult.tileHeight + " points");
         System.out.println("[DEBUG] Image size in result: " + tilingResult.imageWidth + "x" + tilingResult.imageHeight + " pixels");
         System.out.println("[DEBUG] Selected tiles count: " + selectedTiles.size());
 
-        job.setPrintable(new Printable() {
-            @Override
-            public int print(Graphics g, PageFormat pageFormat, int pageIndex) throws PrinterException {
-                if (pageIndex >= selectedTiles.size()) {
-                    return NO_SUCH_PAGE;
-                }
-
-                Graphics2D g2d = (Graphics2D) g;
-                g2d.translate(pageFormat.getImageableX(), pageFormat.getImageableY());
-                double pageWidth = pageFormat.getImageableWidth();
-                double pageHeight = pageFormat.getImageableHeight();
-
-                // Recalculate tiling with actual printer page dimensions
-                TileCalculator.TilingResult actualTilingResult;
-                if (scale == 1.0f) {
-                    actualTilingResult = TileCalculator.calculateSinglePagePreview(image.getWidth(), image.getHeight(), pageWidth, pageHeight);
-                } else {
-                    actualTilingResult = TileCalculator.calculateScaledTiling(image.getWidth(), image.getHeight(), pageWidth, pageHeight, scale);
-                }
-
-                // Get the tile info for this page
-                TileCalculator.TileInfo tileInfo = selectedTiles.get(pageIndex);
-
-                // Calculate the actual scaled dimensions for rendering
-                // Always use single page baseline approach
-                TileCalculator.TilingResult baselineResult = TileCalculator.calculateSinglePagePreview(image.getWidth(), image.getHeight(), pageWidth, pageHeight);
-                int renderWidth, renderHeight;
-                if (scale == 1.0f) {
-                    // For scale 1.0, use the scaled dimensions from single page preview
-                    renderWidth = baselineResult.imageWidth;
-                    renderHeight = baselineResult.imageHeight;
-                } else {
-                    // For other scales, scale from the single page baseline
-                    renderWidth = (int) (baselineResult.imageWidth * scale);
-                    renderHeight = (int) (baselineResult.imageHeight * scale);
-                }
-
-                // Calculate position based on actual tile dimensions
-                int x = -(int) (tileInfo.col * actualTilingResult.tileWidth);
-                int y = -(int) (tileInfo.row * actualTilingResult.tileHeight);
+        // Pages are the plan's own, so the selection's (col, row) indices are the ones printed;
+        // each is fitted into the printer's imageable area rather than tiled against it
+        TileExportService.Plan plan = TileExportService.plan(source, spec, selectedTiles, renderPlan.pageWidth, renderPlan.pageHeight);
+        PagesPrintable printable = new PagesPrintable(plan, true);
+        job.setPrintable(printable);
+
+        printAndReport(job, () ->
+            "Pages printed: " + plan.getPageCount() + " out of " + (tilingResult.tilesWide * tilingResult.tilesHigh) + " total tiles\n" +
+            "Paper saved: " + (tilingResult.tilesWide * tilingResult.tilesHigh - selectedTiles.size()) + " blank pages avoided!" +
+            describePacking(plan.imposition) +
+            (printable.smallestPageScale < 1
+                ? String.format("%nPages were shrunk to %.0f%% to fit the printer's margins", printable.smallestPageScale * 100) : ""));
+    }
 
-                g2d.drawImage(image, x, y, renderWidth, renderHeight, null);
+    /**
+     * Draws export pages from each page's imageable origin, 1:1 or fitted into the imageable area
+     */
+    private static class PagesPrintable implements Printable {
+        private final TileExportService.Pages pages;
+        private final boolean fitToImageable;
+        volatile double smallestPageScale = 1;
+
+        PagesPrintable(TileExportService.Pages pages, boolean fitToImageable) {
+            this.pages = pages;
+            this.fitToImageable = fitToImageable;
+        }
 
-                return PAGE_EXISTS;
+        @Override
+        public int print(Graphics g, PageFormat pageFormat, int pageIndex) throws PrinterException {
+            if (pageIndex >= pages.getPageCount()) {
+                return NO_SUCH_PAGE;
             }
-        });
 
-        boolean doPrint = job.printDialog();
-        if (doPrint) {
+            Graphics2D g2d = (Graphics2D) g;
+            g2d.translate(pageFormat.getImageableX(), pageFormat.getImageableY());
+            TileExportService.GraphicsSink sink = fitToImageable
+                ? new TileExportService.GraphicsSink(g2d, pageFormat.getImageableWidth(), pageFormat.getImageableHeight())
+                : new TileExportService.GraphicsSink(g2d);
             try {
-                job.print();
-                JOptionPane.showMessageDialog(
-                    null,
-                    "Printing completed!\n" +
-                    "Pages printed: " + selectedTiles.size() + " out of " + (tilingResult.tilesWide * tilingResult.tilesHigh) + " total tiles\n" +
-                    "Paper saved: " + (tilingResult.tilesWide * tilingResult.tilesHigh - selectedTiles.size()) + " blank pages avoided!",
-                    "Print Complete",
-                    JOptionPane.INFORMATION_MESSAGE
-                );
-            } catch (PrinterException e) {
-                JOptionPane.showMessageDialog(
-                    null,
-                    "Error during printing: " + e.getMessage(),
-                    "Print Error",
-                    JOptionPane.ERROR_MESSAGE
-                );
-                e.printStackTrace();
+                pages.renderPage(pageIndex, sink);
+                smallestPageScale = Math.min(smallestPageScale, sink.getPageScale());
+            } catch (IOException e) {
+                throw new PrinterException("Could not read image region for page " + (pageIndex + 1) + ": " + e.getMessage());
             }
+            return PAGE_EXISTS;
+        }
+    }
+
+    /**
+     * Shows the print dialog, prints, and reports the result with the given summary lines
+     */
+    private static void printAndReport(PrinterJob job, java.util.function.Supplier<String> summary) {
+        if (!job.printDialog()) {
+            return;
+        }
+        try {
+            job.print();
+            JOptionPane.showMessageDialog(
+                null,
+                "Printing completed!\n" + summary.get(),
+                "Print Complete",
+                JOptionPane.INFORMATION_MESSAGE
+            );
+        } catch (PrinterException e) {
+            JOptionPane.showMessageDialog(
+                null,
+                "Error during printing: " + e.getMessage(),
+                "Print Error",
+                JOptionPane.ERROR_MESSAGE
+            );
+            e.printStackTrace();
         }
     }
 
@@ -371,12 +345,6 @@ public class TilePrinter {
      * Save image to PDF with manual tile selection considerations
      */
     public static void saveTiledImageToPDFWithSelection(BufferedImage image, float scale, boolean isRotated, ImagePanel imagePanel) {
-        // Debug logging for issue isolation
-        System.out.println("[DEBUG] saveTiledImageToPDFWithSelection called");
-        System.out.println("[DEBUG] Image: " + (image != null ? image.getWidth() + "x" + image.getHeight() : "NULL"));
-        System.out.println("[DEBUG] Scale: " + scale);
-        System.out.println("[DEBUG] IsRotated: " + isRotated);
-        
         // Comprehensive image validation
         if (image == null) {
             System.err.println("[ERROR] Image is null in saveTiledImageToPDFWithSelection!");
@@ -384,19 +352,39 @@ public class TilePrinter {
             return;
         }
         
-        // Check for calibration image using ImagePanel.isCalibrationImage()
-        boolean isCalibration = ImagePanel.isCalibrationImage(image);
-        
-        if (isCalibration) {
+        if (ImagePanel.isCalibrationImage(image)) {
             System.out.println("[CALIBRATION] saveTiledImageToPDFWithSelection received calibration image: " + image.getWidth() + "×" + image.getHeight() + " pixels");
             System.out.println("[CALIBRATION] Image type: " + image.getType());
             System.out.println("[CALIBRATION] Color model: " + image.getColorModel().getClass().getSimpleName());
             System.out.println("[CALIBRATION] Has alpha: " + image.getColorModel().hasAlpha());
         }
         
+        saveTiledImageToPDFWithSelection(new InMemoryImageSource(image), scale, isRotated, imagePanel);
+    }
+    
+    /**
+     * Save to PDF with manual tile selection. Each page embeds only its own source region,
+     * and the document buffers its streams in a temp file, so memory use stays fixed.
+     */
+    public static void saveTiledImageToPDFWithSelection(ImageSource source, float scale, boolean isRotated, ImagePanel imagePanel) {
+        // Debug logging for issue isolation
+        System.out.println("[DEBUG] saveTiledImageToPDFWithSelection called");
+        System.out.println("[DEBUG] Image: " + (source != null ? source.getWidth() + "x" + source.getHeight() : "NULL"));
+        System.out.println("[DEBUG] Scale: " + scale);
+        System.out.println("[DEBUG] IsRotated: " + isRotated);
+        
+        if (source == null) {
+            System.err.println("[ERROR] Image is null in saveTiledImageToPDFWithSelection!");
+            javax.swing.JOptionPane.showMessageDialog(null, "Error: No image to save. Image is null.", "PDF Save Error", javax.swing.JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        // Check for calibration image by its full-resolution dimensions
+        boolean isCalibration = ImagePanel.isCalibrationSize(source.getWidth(), source.getHeight());
+        
         // Validate image dimensions
-        int width = image.getWidth();
-        int height = image.getHeight();
+        int width = source.getWidth();
+        int height = source.getHeight();
         if (width <= 0 || height <= 0) {
             System.err.println("[ERROR] Invalid image dimensions in saveTiledImageToPDFWithSelection: " + width + "×" + height);
             javax.swing.JOptionPane.showMessageDialog(null, "Error: Invalid image dimensions: " + width + "×" + height, "PDF Save Error", javax.swing.JOptionPane.ERROR_MESSAGE);
@@ -405,10 +393,177 @@ public class TilePrinter {
         
         System.out.println("[VALIDATION] saveTiledImageToPDFWithSelection received valid non-null image: " + width + "×" + height + " pixels");
         
-        // Let user choose where to save the PDF
+        File outputFile = chooseOutputPdf("tiled_image.pdf");
+        if (outputFile == null) {
+            return;
+        }
+
+        // Pages are the plan's paper, so the tiles are the ones the display selected
+        RenderPlan renderPlan = outputPlan(source, scale, imagePanel, isCalibration);
+        TileExportService.Spec spec = renderPlan.toSpec(!isCalibration && Settings.getInstance().isPackEdgeTiles());
+        TileExportService.Plan plan = TileExportService.plan(source, spec, renderPlan.getSelection(),
+                                                             renderPlan.pageWidth, renderPlan.pageHeight);
+        exportPdfInBackground(plan, outputFile, result ->
+            "Pages with content: " + result.selectedTiles + " out of " + result.gridTiles + " total tiles\n" +
+            "Paper saved: " + result.getBlankPagesAvoided() + " blank pages avoided!" +
+            describePacking(result.imposition));
+    }
+
+    /**
+     * The panel's render plan at this scale with its selection; calibration sheets print every
+     * tile, and without a panel the preview is scanned with the default thresholds
+     */
+    private static RenderPlan outputPlan(ImageSource source, float scale, ImagePanel imagePanel, boolean isCalibration) {
+        if (imagePanel != null && !isCalibration) {
+            return imagePanel.getOutputPlan(scale);
+        }
+        TileCalculator.GridLayout gridLayout = imagePanel != null ? imagePanel.getGridLayout() : TileCalculator.GridLayout.DEFAULT;
+        RenderPlan plan = RenderPlan.of(source.getWidth(), source.getHeight(), Orientation.NORMAL, scale, gridLayout,
+                                        Settings.PaperSize.A4.getWidthPoints(), Settings.PaperSize.A4.getHeightPoints());
+        if (isCalibration) {
+            System.out.println("[CALIBRATION] Bypassing non-blank tile filtering and user selection for calibration image");
+            return plan.withSelection(allTiles(plan.tiling, scale), -1, null);
+        }
+        return plan.withSelection(TileCalculator.getNonBlankTiles(plan.tiling, source.getPreviewImage(), Orientation.NORMAL,
+                                                                  ContentThresholds.DEFAULT), -1, null);
+    }
+
+    /**
+     * Runs a PDF export off the event thread behind a cancellable progress monitor, then
+     * reports the result with the given summary lines
+     */
+    private static void exportPdfInBackground(TileExportService.Pages pages, File outputFile,
+                                              java.util.function.Function<TileExportService.Result, String> summary) {
+        ProgressMonitor monitor = new ProgressMonitor(null, "Saving " + outputFile.getName(), "", 0, 100);
+        monitor.setMillisToDecideToPopup(250);
+        SwingWorker<TileExportService.Result, Void> worker = new SwingWorker<TileExportService.Result, Void>() {
+            @Override
+            protected TileExportService.Result doInBackground() throws IOException {
+                return TileExportService.exportPdf(pages, outputFile, new TileExportService.Progress() {
+                    @Override
+                    public void pageDone(int pagesDone, int pageCount) {
+                        setProgress(pagesDone * 100 / pageCount);
+                        SwingUtilities.invokeLater(() -> monitor.setNote("Page " + pagesDone + " of " + pageCount));
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return monitor.isCanceled();
+                    }
+                });
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                TileExportService.Result result;
+                try {
+                    result = get();
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(
+                        null,
+                        "Error saving PDF: " + cause.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE
+                    );
+                    cause.printStackTrace();
+                    return;
+                }
+                if (result.cancelled) {
+                    JOptionPane.showMessageDialog(null, "PDF export cancelled after " + result.pages + " of " + result.pageCount +
+                                                  " pages; nothing was saved.", "PDF Export", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                JOptionPane.showMessageDialog(
+                    null,
+                    "PDF saved successfully to: " + outputFile.getAbsolutePath() + "\n" + summary.apply(result),
+                    "PDF Saved",
+                    JOptionPane.INFORMATION_MESSAGE
+                );
+            }
+        };
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                monitor.setProgress((Integer) e.getNewValue());
+            }
+        });
+        worker.execute();
+    }
+    
+    /**
+     * Print a mixed paper layout: one page per sheet, each on its own paper size and
+     * orientation, carrying its part of the image 1:1 from the imageable origin
+     */
+    public static void printSheetLayout(ImageSource source, MixedLayoutSolver.SheetLayout layout) {
+        if (source == null || layout == null || layout.sheets.isEmpty()) {
+            JOptionPane.showMessageDialog(null, "Error: No sheet layout to print.", "Print Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        PrinterJob job = PrinterJob.getPrinterJob();
+        Book book = new Book();
+        TileExportService.Pages pages = TileExportService.pages(source, layout);
+        PagesPrintable printable = new PagesPrintable(pages, false);
+        for (MixedLayoutSolver.Sheet sheet : layout.sheets) {
+            PageFormat pageFormat = job.defaultPage();
+            Paper paper = new Paper();
+            paper.setSize(sheet.paper.getWidthPoints(), sheet.paper.getHeightPoints());
+            paper.setImageableArea(0, 0, sheet.paper.getWidthPoints(), sheet.paper.getHeightPoints());
+            pageFormat.setPaper(paper);
+            pageFormat.setOrientation(sheet.landscape ? PageFormat.LANDSCAPE : PageFormat.PORTRAIT);
+            book.append(printable, job.validatePage(pageFormat));
+        }
+        job.setPageable(book);
+
+        printAndReport(job, () ->
+            "Sheets printed: " + layout.sheets.size() + " (" + layout.describeSheets() + ")\n" +
+            "Single paper size would need: " + layout.uniformSheets + " sheets");
+    }
+
+    /**
+     * Save a mixed paper layout to PDF, one page per sheet at its own paper size and orientation
+     */
+    public static void saveSheetLayoutToPDF(ImageSource source, MixedLayoutSolver.SheetLayout layout) {
+        if (source == null || layout == null || layout.sheets.isEmpty()) {
+            JOptionPane.showMessageDialog(null, "Error: No sheet layout to save.", "PDF Save Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        File outputFile = chooseOutputPdf("mixed_layout.pdf");
+        if (outputFile == null) {
+            return;
+        }
+        exportPdfInBackground(TileExportService.pages(source, layout), outputFile, result ->
+            "Sheets: " + layout.sheets.size() + " (" + layout.describeSheets() + ")\n" +
+            "Single paper size would need: " + layout.uniformSheets + " sheets");
+    }
+    
+    /**
+     * Save a packed multi-image job as one PDF: a page for each non-blank page of the packed
+     * canvas, each image drawn 1:1 from its own source with a light cut outline and its number
+     */
+    public static void saveJobToPDF(TileJob.Layout layout) {
+        if (layout == null || layout.pages.isEmpty()) {
+            JOptionPane.showMessageDialog(null, "Error: No job pages to save.", "PDF Save Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        File outputFile = chooseOutputPdf("tile_job.pdf");
+        if (outputFile == null) {
+            return;
+        }
+        exportPdfInBackground(TileExportService.pages(layout), outputFile, result ->
+            "Images: " + layout.placements.size() + " on " + layout.pages.size() + " pages (" +
+            (layout.isLandscape() ? "landscape" : "portrait") + ")\n" +
+            "Printed separately they would need: " + layout.getSeparatePages() + " pages");
+    }
+    
+    /**
+     * Asks where to save a PDF, confirming before an existing file is overwritten.
+     * Returns null if the user cancels.
+     */
+    private static File chooseOutputPdf(String defaultName) {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Save PDF As...");
-        fileChooser.setSelectedFile(new File("tiled_image.pdf"));
+        fileChooser.setSelectedFile(new File(defaultName));
         fileChooser.setFileFilter(new javax.swing.filechooser.FileFilter() {
             @Override
             public boolean accept(File f) {
@@ -423,7 +578,7 @@ public class TilePrinter {
 
         int userSelection = fileChooser.showSaveDialog(null);
         if (userSelection != JFileChooser.APPROVE_OPTION) {
-            return; // User cancelled
+            return null; // User cancelled
         }
 
         File outputFile = fileChooser.getSelectedFile();
@@ -440,135 +595,38 @@ public class TilePrinter {
                 JOptionPane.YES_NO_OPTION
             );
             if (response != JOptionPane.YES_OPTION) {
-                return;
-            }
-        }
-
-        PDDocument document = new PDDocument();
-        double pageWidth = PDRectangle.A4.getWidth();
-        double pageHeight = PDRectangle.A4.getHeight();
-        
-        TileCalculator.TilingResult tilingResult;
-        java.util.List<TileCalculator.TileInfo> selectedTiles;
-        
-        // Handle calibration images specially
-        if (isCalibration) {
-            System.out.println("[CALIBRATION] Bypassing non-blank tile filtering and user selection for calibration image in PDF save");
-            
-            if (scale == 1.0f) {
-                // For scale=1.0, use single page preview and save that single page unconditionally
-                tilingResult = TileCalculator.calculateSinglePagePreview(image.getWidth(), image.getHeight(), pageWidth, pageHeight);
-                System.out.println("[CALIBRATION] Using single page preview for scale=1.0 in PDF save");
-                
-                // Create a single tile covering the entire image
-                selectedTiles = new java.util.ArrayList<>();
-                selectedTiles.add(new TileCalculator.TileInfo(0, 0, 1));
-            } else {
-                // For other scales, generate all tiles
-                tilingResult = TileCalculator.calculateScaledTiling(image.getWidth(), image.getHeight(), pageWidth, pageHeight, scale);
-                System.out.println("[CALIBRATION] Generating all tiles for scaled calibration image in PDF save");
-                
-                // Generate all tiles
-                selectedTiles = new java.util.ArrayList<>();
-                for (int row = 0; row < tilingResult.tilesHigh; row++) {
-                    for (int col = 0; col < tilingResult.tilesWide; col++) {
-                        selectedTiles.add(new TileCalculator.TileInfo(col, row, row * tilingResult.tilesWide + col + 1));
-                    }
-                }
+                return null;
             }
-        } else {
-            // Normal processing for non-calibration images
-            if (scale == 1.0f) {
-                // At scale 1.0, use single page preview (auto-fit to one page)
-                tilingResult = TileCalculator.calculateSinglePagePreview(image.getWidth(), image.getHeight(), pageWidth, pageHeight);
-            } else {
-                // When scaled, calculate actual tiling for the scaled dimensions
-                tilingResult = TileCalculator.calculateScaledTiling(image.getWidth(), image.getHeight(), pageWidth, pageHeight, scale);
-            }
-            selectedTiles = imagePanel.getSelectedTiles(tilingResult, image);
         }
-        
-        // Calculate the actual scaled dimensions for rendering using baseline approach
-        TileCalculator.TilingResult baselineResult = TileCalculator.calculateSinglePagePreview(image.getWidth(), image.getHeight(), pageWidth, pageHeight);
-        int scaledWidth, scaledHeight;
+        return outputFile;
+    }
+    
+    /**
+     * Every tile of the grid, or the single full sheet at scale 1.0 (used for calibration images)
+     */
+    private static java.util.List<TileCalculator.TileInfo> allTiles(TileCalculator.TilingResult tilingResult, float scale) {
+        java.util.List<TileCalculator.TileInfo> tiles = new java.util.ArrayList<>();
         if (scale == 1.0f) {
-            // For scale 1.0, use the scaled dimensions from single page preview
-            scaledWidth = baselineResult.imageWidth;
-            scaledHeight = baselineResult.imageHeight;
-        } else {
-            // For other scales, scale from the single page baseline
-            scaledWidth = (int) (baselineResult.imageWidth * scale);
-            scaledHeight = (int) (baselineResult.imageHeight * scale);
+            // Create a single tile covering the entire image
+            tiles.add(new TileCalculator.TileInfo(0, 0, 1));
+            return tiles;
         }
-
-        File tempFile = null;
-        try {
-            // Create temporary image file
-            tempFile = File.createTempFile("tempImage", ".png");
-            ImageIO.write(image, "png", tempFile);
-            PDImageXObject pdImage = PDImageXObject.createFromFile(tempFile.getAbsolutePath(), document);
-
-            // Calculate the actual tile dimensions based on the optimal orientation
-            double actualTileWidth = tilingResult.tileWidth;
-            double actualTileHeight = tilingResult.tileHeight;
-
-            // Only draw tiles that are selected by user
-            for (TileCalculator.TileInfo tileInfo : selectedTiles) {
-                PDPage page = new PDPage(new PDRectangle((float) actualTileWidth, (float) actualTileHeight));
-                document.addPage(page);
-                
-                try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-                    // Calculate the position of this tile within the overall image
-                    float sourceX = tileInfo.col * (float) actualTileWidth;
-                    float sourceY = tileInfo.row * (float) actualTileHeight;
-
-                    // In PDF coordinate system, origin is at bottom-left
-                    // We need to position the image so that the correct portion is visible
-                    float imageX = -sourceX;
-                    float imageY = (float) actualTileHeight - scaledHeight + sourceY;
-                    
-                    // Draw the scaled image at the calculated position
-                    contentStream.drawImage(
-                            pdImage,
-                            imageX,
-                            imageY,
-                            scaledWidth,
-                            scaledHeight
-                    );
-
-                    // Optionally add border to see the tile area clearly
-                    contentStream.setStrokingColor(Color.LIGHT_GRAY);
-                    contentStream.setLineWidth(1);
-                    contentStream.addRect(0, 0, (float) actualTileWidth, (float) actualTileHeight);
-                    contentStream.stroke();
-                }
-            }
-
-            document.save(outputFile);
-            document.close();
-
-            JOptionPane.showMessageDialog(
-                null,
-                "PDF saved successfully to: " + outputFile.getAbsolutePath() + "\n" +
-                "Pages with content: " + selectedTiles.size() + " out of " + (tilingResult.tilesWide * tilingResult.tilesHigh) + " total tiles\n" +
-                "Paper saved: " + (tilingResult.tilesWide * tilingResult.tilesHigh - selectedTiles.size()) + " blank pages avoided!",
-                "PDF Saved",
-                JOptionPane.INFORMATION_MESSAGE
-            );
-
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(
-                null,
-                "Error saving PDF: " + e.getMessage(),
-                "Error",
-                JOptionPane.ERROR_MESSAGE
-            );
-            e.printStackTrace();
-        } finally {
-            // Clean up temporary file
-            if (tempFile != null && tempFile.exists()) {
-                tempFile.delete();
+        for (int row = 0; row < tilingResult.tilesHigh; row++) {
+            for (int col = 0; col < tilingResult.tilesWide; col++) {
+                tiles.add(new TileCalculator.TileInfo(col, row, row * tilingResult.tilesWide + col + 1));
             }
         }
+        return tiles;
+    }
+    
+    /**
+     * Summary line for the completion message, empty when edge tiles were not packed
+     */
+    private static String describePacking(TileImposition.Imposition imposition) {
+        if (imposition == null || imposition.partialTiles == 0) {
+            return "";
+        }
+        return "\nEdge tiles: " + imposition.partialTiles + " packed onto " + imposition.sharedSheets.size() +
+               " shared sheets (" + imposition.getSheetsSaved() + " more sheets saved)";
     }
 }
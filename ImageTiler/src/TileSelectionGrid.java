@@ -0,0 +1,426 @@
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Per-tile selection state for the current grid, one byte per tile indexed by
+ * row * tilesWide + col. The low bits hold the manual choice (auto, excluded, included);
+ * separate flags record what blank-tile analysis found. Lookups, counts and bulk edits
+ * work on the array directly, so painting and selection never build keys or sets.
+ */
+public class TileSelectionGrid {
+
+    /**
+     * Manual choice for a tile
+     */
+    public static final byte AUTO = 0;
+    public static final byte EXCLUDED = 1;
+    public static final byte INCLUDED = 2;
+
+    private static final byte MANUAL_MASK = 0x03;
+    private static final byte NON_BLANK = 0x04;
+    private static final byte ANALYZED = 0x08;
+
+    private int tilesWide;
+    private int tilesHigh;
+    private byte[] states = new byte[0];
+
+    // Counts are recomputed once, in a single pass, after any change
+    private boolean countsValid;
+    private int selectedCount;
+    private int excludedNonBlankCount;
+    private int version; // bumped on every change to a tile's state
+
+    /**
+     * Changes whenever any tile's state changes, so a selection taken from the grid can be reused until then
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public int getTilesWide() {
+        return tilesWide;
+    }
+
+    public int getTilesHigh() {
+        return tilesHigh;
+    }
+
+    /**
+     * Resizes the grid, keeping manual choices of tiles that still exist (by column and row).
+     * Analysis flags are kept only if the dimensions are unchanged.
+     */
+    public void setDimensions(int wide, int high) {
+        if (wide == tilesWide && high == tilesHigh) {
+            return;
+        }
+        byte[] resized = new byte[Math.max(0, wide) * Math.max(0, high)];
+        for (int row = 0; row < Math.min(high, tilesHigh); row++) {
+            for (int col = 0; col < Math.min(wide, tilesWide); col++) {
+                resized[row * wide + col] = (byte) (states[row * tilesWide + col] & MANUAL_MASK);
+            }
+        }
+        tilesWide = wide;
+        tilesHigh = high;
+        states = resized;
+        countsValid = false;
+        version++;
+    }
+
+    public boolean contains(int col, int row) {
+        return col >= 0 && row >= 0 && col < tilesWide && row < tilesHigh;
+    }
+
+    /**
+     * Manual choice for a tile; AUTO outside the grid
+     */
+    public byte getManualState(int col, int row) {
+        return contains(col, row) ? (byte) (states[row * tilesWide + col] & MANUAL_MASK) : AUTO;
+    }
+
+    public void setManualState(int col, int row, byte manual) {
+        if (contains(col, row)) {
+            int index = row * tilesWide + col;
+            states[index] = (byte) ((states[index] & ~MANUAL_MASK) | manual);
+            countsValid = false;
+            version++;
+        }
+    }
+
+    /**
+     * Advances a tile through auto → excluded → included → auto
+     */
+    public void cycle(int col, int row) {
+        byte manual = getManualState(col, row);
+        setManualState(col, row, manual == AUTO ? EXCLUDED : manual == EXCLUDED ? INCLUDED : AUTO);
+    }
+
+    public boolean isExcluded(int col, int row) {
+        return getManualState(col, row) == EXCLUDED;
+    }
+
+    public boolean isIncluded(int col, int row) {
+        return getManualState(col, row) == INCLUDED;
+    }
+
+    public boolean isNonBlank(int col, int row) {
+        return contains(col, row) && (states[row * tilesWide + col] & NON_BLANK) != 0;
+    }
+
+    public boolean isAnalyzed(int col, int row) {
+        return contains(col, row) && (states[row * tilesWide + col] & ANALYZED) != 0;
+    }
+
+    /**
+     * True if the tile will be output: manually included, or non-blank and not excluded
+     */
+    public boolean isSelected(int col, int row) {
+        if (!contains(col, row)) {
+            return false;
+        }
+        int state = states[row * tilesWide + col];
+        int manual = state & MANUAL_MASK;
+        return manual == INCLUDED || (manual == AUTO && (state & NON_BLANK) != 0);
+    }
+
+    /**
+     * Records the analysis result for one tile
+     */
+    public void setAnalysis(int col, int row, boolean nonBlank) {
+        if (contains(col, row)) {
+            int index = row * tilesWide + col;
+            byte state = (byte) ((states[index] & MANUAL_MASK) | ANALYZED | (nonBlank ? NON_BLANK : 0));
+            if (state != states[index]) {
+                states[index] = state;
+                countsValid = false;
+                version++;
+            }
+        }
+    }
+
+    /**
+     * Marks every tile analyzed and non-blank (used for calibration sheets)
+     */
+    public void markAllNonBlank() {
+        for (int i = 0; i < states.length; i++) {
+            states[i] = (byte) ((states[i] & MANUAL_MASK) | ANALYZED | NON_BLANK);
+        }
+        countsValid = false;
+        version++;
+    }
+
+    /**
+     * Forgets analysis results, keeping manual choices
+     */
+    public void clearAnalysis() {
+        for (int i = 0; i < states.length; i++) {
+            states[i] &= MANUAL_MASK;
+        }
+        countsValid = false;
+        version++;
+    }
+
+    /**
+     * Resets every tile to AUTO, keeping analysis results
+     */
+    public void clearManual() {
+        for (int i = 0; i < states.length; i++) {
+            states[i] &= ~MANUAL_MASK;
+        }
+        countsValid = false;
+        version++;
+    }
+
+    /**
+     * Sets the manual choice for every tile in the inclusive column and row range (clipped to the grid)
+     */
+    public void setManualState(int firstCol, int firstRow, int lastCol, int lastRow, byte manual) {
+        int col0 = Math.max(0, Math.min(firstCol, lastCol));
+        int col1 = Math.min(tilesWide - 1, Math.max(firstCol, lastCol));
+        int row0 = Math.max(0, Math.min(firstRow, lastRow));
+        int row1 = Math.min(tilesHigh - 1, Math.max(firstRow, lastRow));
+        for (int row = row0; row <= row1; row++) {
+            int base = row * tilesWide;
+            for (int col = col0; col <= col1; col++) {
+                states[base + col] = (byte) ((states[base + col] & ~MANUAL_MASK) | manual);
+            }
+        }
+        countsValid = false;
+        version++;
+    }
+
+    /**
+     * Makes a tile selected or not as an explicit INCLUDED or EXCLUDED choice, so a later
+     * analysis result or threshold change cannot undo it
+     */
+    public void setSelected(int col, int row, boolean selected) {
+        if (contains(col, row)) {
+            int index = row * tilesWide + col;
+            states[index] = withSelection(states[index], selected);
+            countsValid = false;
+            version++;
+        }
+    }
+
+    private static byte withSelection(byte state, boolean selected) {
+        return (byte) ((state & ~MANUAL_MASK) | (selected ? INCLUDED : EXCLUDED));
+    }
+
+    /**
+     * Selects or deselects every tile in the inclusive column and row range (clipped to the grid)
+     */
+    public void setSelected(int firstCol, int firstRow, int lastCol, int lastRow, boolean selected) {
+        int col0 = Math.max(0, Math.min(firstCol, lastCol));
+        int col1 = Math.min(tilesWide - 1, Math.max(firstCol, lastCol));
+        int row0 = Math.max(0, Math.min(firstRow, lastRow));
+        int row1 = Math.min(tilesHigh - 1, Math.max(firstRow, lastRow));
+        for (int row = row0; row <= row1; row++) {
+            int base = row * tilesWide;
+            for (int col = col0; col <= col1; col++) {
+                states[base + col] = withSelection(states[base + col], selected);
+            }
+        }
+        countsValid = false;
+        version++;
+    }
+
+    public void setRowSelected(int row, boolean selected) {
+        setSelected(0, row, tilesWide - 1, row, selected);
+    }
+
+    public void setColumnSelected(int col, boolean selected) {
+        setSelected(col, 0, col, tilesHigh - 1, selected);
+    }
+
+    /**
+     * Swaps selected and unselected tiles across the whole grid
+     */
+    public void invertSelection() {
+        for (int i = 0; i < states.length; i++) {
+            int manual = states[i] & MANUAL_MASK;
+            boolean selected = manual == INCLUDED || (manual == AUTO && (states[i] & NON_BLANK) != 0);
+            states[i] = withSelection(states[i], !selected);
+        }
+        countsValid = false;
+        version++;
+    }
+
+    /**
+     * Number of tiles with the given manual choice
+     */
+    public int countManual(byte manual) {
+        int count = 0;
+        for (byte state : states) {
+            if ((state & MANUAL_MASK) == manual) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Number of tiles that will be output
+     */
+    public int countSelected() {
+        updateCounts();
+        return selectedCount;
+    }
+
+    /**
+     * Number of non-blank tiles the user excluded
+     */
+    public int countExcludedNonBlank() {
+        updateCounts();
+        return excludedNonBlankCount;
+    }
+
+    private void updateCounts() {
+        if (countsValid) {
+            return;
+        }
+        int selected = 0;
+        int excludedNonBlank = 0;
+        for (byte state : states) {
+            int manual = state & MANUAL_MASK;
+            boolean nonBlank = (state & NON_BLANK) != 0;
+            if (manual == INCLUDED || (manual == AUTO && nonBlank)) {
+                selected++;
+            } else if (manual == EXCLUDED && nonBlank) {
+                excludedNonBlank++;
+            }
+        }
+        selectedCount = selected;
+        excludedNonBlankCount = excludedNonBlank;
+        countsValid = true;
+    }
+
+    /**
+     * Live view of the tiles with one manual choice as "col,row" keys, for callers
+     * that still work with string keys. Adding a key outside the grid grows it.
+     */
+    public java.util.Set<String> keysWithState(byte manual) {
+        return new KeyView(manual);
+    }
+
+    private class KeyView extends AbstractSet<String> {
+        private final byte manual;
+
+        KeyView(byte manual) {
+            this.manual = manual;
+        }
+
+        @Override
+        public int size() {
+            return countManual(manual);
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            int[] position = parse(key);
+            return position != null && TileSelectionGrid.this.contains(position[0], position[1]) &&
+                   getManualState(position[0], position[1]) == manual;
+        }
+
+        @Override
+        public boolean add(String key) {
+            int[] position = parse(key);
+            if (position == null) {
+                throw new IllegalArgumentException("Tile key must be \"col,row\": " + key);
+            }
+            if (!TileSelectionGrid.this.contains(position[0], position[1])) {
+                setDimensions(Math.max(tilesWide, position[0] + 1), Math.max(tilesHigh, position[1] + 1));
+            }
+            boolean changed = getManualState(position[0], position[1]) != manual;
+            setManualState(position[0], position[1], manual);
+            return changed;
+        }
+
+        @Override
+        public boolean remove(Object key) {
+            if (!contains(key)) {
+                return false;
+            }
+            int[] position = parse(key);
+            setManualState(position[0], position[1], AUTO);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            for (int i = 0; i < states.length; i++) {
+                if ((states[i] & MANUAL_MASK) == manual) {
+                    states[i] &= ~MANUAL_MASK;
+                }
+            }
+            countsValid = false;
+            version++;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private int next = find(0);
+                private int last = -1;
+
+                private int find(int from) {
+                    for (int i = from; i < states.length; i++) {
+                        if ((states[i] & MANUAL_MASK) == manual) {
+                            return i;
+                        }
+                    }
+                    return -1;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public String next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next;
+                    next = find(next + 1);
+                    return (last % tilesWide) + "," + (last / tilesWide);
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    states[last] &= ~MANUAL_MASK;
+                    countsValid = false;
+                    version++;
+                    last = -1;
+                }
+            };
+        }
+
+        private int[] parse(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            String text = (String) key;
+            int comma = text.indexOf(',');
+            if (comma < 0) {
+                return null;
+            }
+            try {
+                int col = Integer.parseInt(text.substring(0, comma).trim());
+                int row = Integer.parseInt(text.substring(comma + 1).trim());
+                return col >= 0 && row >= 0 ? new int[] {col, row} : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TileSelectionGrid[" + tilesWide + "×" + tilesHigh + ", excluded=" + countManual(EXCLUDED) +
+               ", included=" + countManual(INCLUDED) + "]";
+    }
+}
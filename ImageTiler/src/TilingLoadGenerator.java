@@ -0,0 +1,246 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local load generator for the tiling server: a number of clients each submit an image, poll
+ * the job until it finishes and download the PDF, over and over until the requested number of
+ * jobs is done. Reports throughput and the latency from submission to downloaded PDF.
+ * Submissions refused with 503 are retried after the server's Retry-After and counted.
+ */
+public class TilingLoadGenerator {
+
+    static final String USAGE =
+        "Usage: java -jar ImageTiler.jar --load [options] <image>\n" +
+        "  --url <url>          server (default http://127.0.0.1:" + TilingServer.DEFAULT_PORT + ")\n" +
+        "  --jobs <n>           jobs to run in total (default 20)\n" +
+        "  --concurrency <n>    clients submitting at once (default 4)\n" +
+        "  --query <params>     tiling parameters, e.g. scale=2&paper=A3 (default scale=2)";
+
+    private static final Pattern STATUS = Pattern.compile("\"status\":\"([A-Z]+)\"");
+    private static final long POLL_MILLIS = 50;
+
+    private TilingLoadGenerator() {
+    }
+
+    /**
+     * What a load run measured
+     */
+    static class Report {
+        final int completed;
+        final int failed;
+        final int rejected;
+        final long wallMillis;
+        final long[] latenciesMillis; // sorted
+
+        Report(int completed, int failed, int rejected, long wallMillis, long[] latenciesMillis) {
+            this.completed = completed;
+            this.failed = failed;
+            this.rejected = rejected;
+            this.wallMillis = wallMillis;
+            this.latenciesMillis = latenciesMillis;
+        }
+
+        double getJobsPerSecond() {
+            return wallMillis == 0 ? 0 : completed * 1000.0 / wallMillis;
+        }
+
+        long percentile(double fraction) {
+            if (latenciesMillis.length == 0) {
+                return 0;
+            }
+            return latenciesMillis[(int) Math.min(latenciesMillis.length - 1, Math.floor(fraction * latenciesMillis.length))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d jobs done, %d failed, %d submissions refused in %d ms: %.2f jobs/s, " +
+                                 "latency p50 %d ms, p95 %d ms, p99 %d ms, max %d ms",
+                                 completed, failed, rejected, wallMillis, getJobsPerSecond(), percentile(0.5),
+                                 percentile(0.95), percentile(0.99),
+                                 latenciesMillis.length == 0 ? 0 : latenciesMillis[latenciesMillis.length - 1]);
+        }
+    }
+
+    /**
+     * Runs from the command line and returns the exit code
+     */
+    public static int run(String[] args) {
+        String url = "http://127.0.0.1:" + TilingServer.DEFAULT_PORT;
+        int jobs = 20;
+        int concurrency = 4;
+        String query = "scale=2";
+        File image = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (option.equals("--load")) {
+                    continue;
+                }
+                if (!option.startsWith("--")) {
+                    image = new File(option);
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--url":
+                        url = value;
+                        break;
+                    case "--jobs":
+                        jobs = Math.max(1, Integer.parseInt(value));
+                        break;
+                    case "--concurrency":
+                        concurrency = Math.max(1, Integer.parseInt(value));
+                        break;
+                    case "--query":
+                        query = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + option);
+                }
+            }
+            if (image == null || !image.isFile()) {
+                throw new IllegalArgumentException("No image given");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("[LOAD] " + e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        try {
+            Report report = run(url, image, jobs, concurrency, query);
+            System.out.println("[LOAD] " + report);
+            return report.failed == 0 ? 0 : 1;
+        } catch (IOException | InterruptedException e) {
+            System.err.println("[LOAD] " + e.getMessage());
+            return 1;
+        }
+    }
+
+    static Report run(String url, File image, int jobs, int concurrency, String query) throws IOException, InterruptedException {
+        byte[] body = Files.readAllBytes(image.toPath());
+        String submitUrl = url + "/jobs?" + query + "&name=" + java.net.URLEncoder.encode(image.getName(), "UTF-8");
+        java.util.concurrent.atomic.AtomicInteger remaining = new java.util.concurrent.atomic.AtomicInteger(jobs);
+        java.util.concurrent.atomic.AtomicInteger failed = new java.util.concurrent.atomic.AtomicInteger();
+        java.util.concurrent.atomic.AtomicInteger rejected = new java.util.concurrent.atomic.AtomicInteger();
+        java.util.List<Long> latencies = java.util.Collections.synchronizedList(new java.util.ArrayList<>());
+
+        System.out.println("[LOAD] " + jobs + " jobs of " + image.getName() + " on " + concurrency + " clients against " + url);
+        ExecutorService clients = TilingServer.newThreadPerTaskExecutor("tiling-load");
+        long start = System.nanoTime();
+        try {
+            java.util.List<Future<?>> futures = new java.util.ArrayList<>();
+            for (int c = 0; c < concurrency; c++) {
+                futures.add(clients.submit(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        long jobStart = System.nanoTime();
+                        try {
+                            if (runJob(url, submitUrl, body, rejected)) {
+                                latencies.add((System.nanoTime() - jobStart) / 1_000_000);
+                            } else {
+                                failed.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            System.err.println("[LOAD] " + e.getMessage());
+                            failed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (java.util.concurrent.ExecutionException e) {
+                    throw new IOException(e.getCause());
+                }
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        long[] sorted;
+        synchronized (latencies) {
+            sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+        return new Report(sorted.length, failed.get(), rejected.get(), (System.nanoTime() - start) / 1_000_000, sorted);
+    }
+
+    /**
+     * Submits one job, waits for it and downloads its PDF
+     * @return true if a PDF came back
+     */
+    private static boolean runJob(String url, String submitUrl, byte[] image, java.util.concurrent.atomic.AtomicInteger rejected)
+            throws IOException, InterruptedException {
+        String location;
+        while (true) {
+            HttpURLConnection post = (HttpURLConnection) new URL(submitUrl).openConnection();
+            post.setRequestMethod("POST");
+            post.setDoOutput(true);
+            // Not streamed, so a POST that lands on a closed keep-alive connection is resent
+            try (OutputStream out = post.getOutputStream()) {
+                out.write(image);
+            }
+            int code = post.getResponseCode();
+            if (code == 503) {
+                rejected.incrementAndGet();
+                readAll(post.getErrorStream());
+                Thread.sleep(1000L * Math.max(1, post.getHeaderFieldInt("Retry-After", 1)));
+                continue;
+            }
+            readAll(code < 400 ? post.getInputStream() : post.getErrorStream());
+            if (code != 202) {
+                return false;
+            }
+            location = post.getHeaderField("Location");
+            break;
+        }
+
+        while (true) {
+            HttpURLConnection get = (HttpURLConnection) new URL(url + location).openConnection();
+            Matcher status = STATUS.matcher(new String(readAll(get.getInputStream()), StandardCharsets.UTF_8));
+            String state = status.find() ? status.group(1) : "";
+            if (state.equals("DONE")) {
+                break;
+            }
+            if (!state.equals("QUEUED") && !state.equals("RUNNING")) {
+                return false;
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+
+        HttpURLConnection pdf = (HttpURLConnection) new URL(url + location + "/pdf").openConnection();
+        boolean ok = pdf.getResponseCode() == 200 && readAll(pdf.getInputStream()).length > 0;
+        HttpURLConnection delete = (HttpURLConnection) new URL(url + location).openConnection();
+        delete.setRequestMethod("DELETE");
+        delete.getResponseCode();
+        return ok;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        if (in == null) {
+            return new byte[0];
+        }
+        try (InputStream stream = in) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = stream.read(buffer)) > 0) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        }
+    }
+}
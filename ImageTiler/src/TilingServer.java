@@ -0,0 +1,737 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Local HTTP tiling service on the JDK's built-in server, listening on the loopback address
+ * only. Other tools on the host post an image with tiling parameters, poll the job and
+ * download the PDF:
+ * <pre>
+ *   POST   /jobs?scale=2&amp;paper=A4&amp;pack-edges=true&amp;name=plan.png   (body: the image) -> 202
+ *   GET    /jobs/{id}        status as JSON
+ *   GET    /jobs/{id}/pdf    the tiled PDF once the job is done
+ *   DELETE /jobs/{id}        cancel the job and delete its files
+ *   GET    /stats            counters, memory in use and recent job latency
+ * </pre>
+ * Each job runs on its own thread, a virtual thread when the runtime has them. A job only
+ * starts once its estimated decode memory fits the budget, and a submission is refused with
+ * 503 when the jobs already waiting would need more than a few budgets' worth. Finished jobs
+ * are forgotten, and their files deleted, once they have been kept for the job TTL.
+ */
+public class TilingServer {
+
+    static final String USAGE =
+        "Usage: java -jar ImageTiler.jar --serve [options]\n" +
+        "  --port <n>        port on 127.0.0.1 (default 8765, 0 picks a free one)\n" +
+        "  --memory <MB>     decode memory running jobs may use (default: 3/4 of the heap)\n" +
+        "  --work-dir <dir>  where uploads and PDFs are kept (default: a temp directory)\n" +
+        "  --max-upload <MB> largest accepted image (default 1024)\n" +
+        "  --job-ttl <min>   how long finished jobs and their PDFs are kept (default 60)";
+
+    static final int DEFAULT_PORT = 8765;
+
+    static final long DEFAULT_JOB_TTL_MILLIS = 60L * 60 * 1000;
+
+    /**
+     * Latency percentiles are taken over this many of the most recently completed jobs
+     */
+    static final int LATENCY_WINDOW = 1000;
+
+    /**
+     * Waiting jobs may reserve this many budgets' worth of memory before submissions are refused
+     */
+    static final int QUEUE_BUDGETS = 4;
+
+    /**
+     * Heap kept for one page of pixels and its encoded copy on top of the preview tier
+     */
+    static final long PAGE_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * Query parameters passed through to the batch tiler's options
+     */
+    private static final java.util.Set<String> JOB_PARAMETERS = new java.util.HashSet<>(java.util.Arrays.asList(
+        "scale", "paper", "min-content", "near-white", "min-alpha"));
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED, CANCELLED
+    }
+
+    /**
+     * One submitted image and what became of it
+     */
+    static class Job {
+        final String id;
+        final String name;
+        final File input;
+        final File output;
+        final BatchTiler.Options options;
+        final long estimatedBytes;
+        final MemoryAdmission.Reservation reservation;
+        final long submittedNanos = System.nanoTime();
+        volatile Status status = Status.QUEUED;
+        volatile int pagesDone;
+        volatile int pageCount;
+        volatile long startedNanos;
+        volatile long finishedNanos;
+        volatile BatchTiler.FileResult result;
+        volatile boolean cancelled;
+
+        Job(String id, String name, File input, File output, BatchTiler.Options options, long estimatedBytes,
+            MemoryAdmission.Reservation reservation) {
+            this.id = id;
+            this.name = name;
+            this.input = input;
+            this.output = output;
+            this.options = options;
+            this.estimatedBytes = estimatedBytes;
+            this.reservation = reservation;
+        }
+
+        boolean isFinished() {
+            return status == Status.DONE || status == Status.FAILED || status == Status.CANCELLED;
+        }
+
+        String toJson() {
+            StringBuilder json = new StringBuilder("{");
+            json.append("\"id\":").append(quote(id));
+            json.append(",\"name\":").append(quote(name));
+            json.append(",\"status\":").append(quote(status.name()));
+            json.append(",\"pagesDone\":").append(pagesDone);
+            json.append(",\"pageCount\":").append(pageCount);
+            json.append(",\"estimatedMB\":").append(estimatedBytes / (1024 * 1024));
+            if (startedNanos != 0) {
+                json.append(",\"queuedMillis\":").append((startedNanos - submittedNanos) / 1_000_000);
+            }
+            if (startedNanos != 0 && finishedNanos != 0) {
+                json.append(",\"runMillis\":").append((finishedNanos - startedNanos) / 1_000_000);
+            }
+            BatchTiler.FileResult done = result;
+            if (done != null) {
+                json.append(",\"pages\":").append(done.pages);
+                json.append(",\"tiles\":").append(done.tiles);
+                if (done.error != null) {
+                    json.append(",\"error\":").append(quote(done.error));
+                }
+            }
+            return json.append('}').toString();
+        }
+    }
+
+    /**
+     * Decode memory shared by running jobs. A job waits until its estimate fits; an estimate
+     * larger than the whole budget is cut to the budget so the job can still run, alone.
+     * Waiting uses a lock rather than a monitor so virtual threads do not pin their carrier.
+     */
+    static class MemoryAdmission {
+        private final long capacityBytes;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition freed = lock.newCondition();
+        private long usedBytes;
+        private long waitingBytes;
+
+        /**
+         * An offered job's share of the budget: counted as waiting until it is acquired or withdrawn
+         */
+        static class Reservation {
+            final long bytes;
+            private boolean waiting = true;
+            private boolean held;
+
+            private Reservation(long bytes) {
+                this.bytes = bytes;
+            }
+        }
+
+        MemoryAdmission(long capacityBytes) {
+            this.capacityBytes = capacityBytes;
+        }
+
+        /**
+         * Counts a job as waiting unless the waiting jobs already need too much
+         * @return the job's reservation, or null if the job should be refused
+         */
+        Reservation offer(long bytes) {
+            long need = Math.min(bytes, capacityBytes);
+            lock.lock();
+            try {
+                if (waitingBytes > 0 && waitingBytes + need > capacityBytes * QUEUE_BUDGETS) {
+                    return null;
+                }
+                waitingBytes += need;
+                return new Reservation(need);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Blocks until the reservation's memory is free, then holds it
+         * @return false if the reservation was withdrawn while waiting
+         */
+        boolean acquire(Reservation reservation) throws InterruptedException {
+            lock.lock();
+            try {
+                try {
+                    while (reservation.waiting && usedBytes + reservation.bytes > capacityBytes) {
+                        freed.await();
+                    }
+                } catch (InterruptedException e) {
+                    withdraw(reservation);
+                    throw e;
+                }
+                if (!reservation.waiting) {
+                    return false;
+                }
+                reservation.waiting = false;
+                reservation.held = true;
+                waitingBytes -= reservation.bytes;
+                usedBytes += reservation.bytes;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Gives back a waiting reservation, for a job cancelled before it started. A waiting
+         * acquire returns false; a reservation already acquired is left to release.
+         */
+        void withdraw(Reservation reservation) {
+            lock.lock();
+            try {
+                if (reservation.waiting) {
+                    reservation.waiting = false;
+                    waitingBytes -= reservation.bytes;
+                    freed.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release(Reservation reservation) {
+            lock.lock();
+            try {
+                if (reservation.held) {
+                    reservation.held = false;
+                    usedBytes -= reservation.bytes;
+                    freed.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long getUsedBytes() {
+            lock.lock();
+            try {
+                return usedBytes;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long getWaitingBytes() {
+            lock.lock();
+            try {
+                return waitingBytes;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long getCapacityBytes() {
+            return capacityBytes;
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService jobExecutor;
+    private final ExecutorService requestExecutor;
+    private final ScheduledExecutorService evictor;
+    private final MemoryAdmission admission;
+    private final File workDir;
+    private final long maxUploadBytes;
+    private final long previewHeapShare;
+    private final long jobTtlNanos;
+    private final java.util.Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicInteger running = new AtomicInteger();
+    private final java.util.ArrayDeque<Long> latenciesMillis = new java.util.ArrayDeque<>(); // oldest first, guarded by itself
+
+    TilingServer(int port, long memoryBytes, File workDir, long maxUploadBytes) throws IOException {
+        this(port, memoryBytes, workDir, maxUploadBytes, DEFAULT_JOB_TTL_MILLIS);
+    }
+
+    TilingServer(int port, long memoryBytes, File workDir, long maxUploadBytes, long jobTtlMillis) throws IOException {
+        this.admission = new MemoryAdmission(memoryBytes);
+        this.workDir = workDir;
+        this.maxUploadBytes = maxUploadBytes;
+        this.jobTtlNanos = TimeUnit.MILLISECONDS.toNanos(jobTtlMillis);
+        this.previewHeapShare = DecodeBudget.previewHeapShare((int) Math.max(1, memoryBytes / BatchTiler.WORKER_BYTES));
+        this.jobExecutor = newThreadPerTaskExecutor("tiling-job");
+        this.requestExecutor = newThreadPerTaskExecutor("tiling-http");
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tiling-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/jobs", this::handleJobs);
+        server.createContext("/stats", this::handleStats);
+        server.setExecutor(requestExecutor);
+    }
+
+    /**
+     * A virtual thread per task on runtimes that have them (looked up reflectively, so the
+     * class still runs on older JDKs), otherwise a growing pool of daemon threads
+     */
+    static ExecutorService newThreadPerTaskExecutor(String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+        long periodMillis = Math.max(1000, Math.min(60_000, TimeUnit.NANOSECONDS.toMillis(jobTtlNanos) / 2));
+        evictor.scheduleWithFixedDelay(() -> evictExpiredJobs(System.nanoTime()), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        System.out.println("[SERVER] Listening on http://" + server.getAddress().getHostString() + ":" + getPort() +
+                           " (" + admission.getCapacityBytes() / (1024 * 1024) + " MB decode budget, work dir " + workDir + ")");
+    }
+
+    public void stop() {
+        server.stop(0);
+        for (Job job : jobs.values()) {
+            job.cancelled = true;
+        }
+        jobExecutor.shutdownNow();
+        requestExecutor.shutdownNow();
+        evictor.shutdownNow();
+    }
+
+    /**
+     * Forgets the jobs that finished at least the job TTL before the given time and deletes their files
+     * @return how many jobs were evicted
+     */
+    int evictExpiredJobs(long nowNanos) {
+        int evicted = 0;
+        for (Job job : jobs.values()) {
+            long finished = job.finishedNanos;
+            if (!job.isFinished() || finished == 0 || nowNanos - finished < jobTtlNanos || !jobs.remove(job.id, job)) {
+                continue;
+            }
+            evicted++;
+            try {
+                deleteFiles(job);
+            } catch (IOException e) {
+                System.err.println("[SERVER] Could not delete files of job " + job.id + ": " + e.getMessage());
+            }
+        }
+        if (evicted > 0) {
+            System.out.println("[SERVER] Evicted " + evicted + " finished jobs older than " +
+                               TimeUnit.NANOSECONDS.toMinutes(jobTtlNanos) + " min");
+        }
+        return evicted;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Runs the server until the process is stopped; returns the exit code on a bad command line
+     */
+    public static int run(String[] args) {
+        int port = DEFAULT_PORT;
+        long memoryBytes = Runtime.getRuntime().maxMemory() / 4 * 3;
+        File workDir = null;
+        long maxUploadBytes = 1024L * 1024 * 1024;
+        long jobTtlMillis = DEFAULT_JOB_TTL_MILLIS;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (option.equals("--serve")) {
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--port":
+                        port = Integer.parseInt(value);
+                        break;
+                    case "--memory":
+                        memoryBytes = Long.parseLong(value) * 1024 * 1024;
+                        break;
+                    case "--work-dir":
+                        workDir = new File(value);
+                        break;
+                    case "--max-upload":
+                        maxUploadBytes = Long.parseLong(value) * 1024 * 1024;
+                        break;
+                    case "--job-ttl":
+                        jobTtlMillis = TimeUnit.MINUTES.toMillis(Long.parseLong(value));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + option);
+                }
+            }
+            if (workDir == null) {
+                workDir = Files.createTempDirectory("imagetiler-server").toFile();
+            } else if (!workDir.isDirectory() && !workDir.mkdirs()) {
+                throw new IllegalArgumentException("Cannot create work directory " + workDir);
+            }
+            new TilingServer(port, memoryBytes, workDir, maxUploadBytes, jobTtlMillis).start();
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("[SERVER] " + e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    private void handleJobs(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().replaceAll("/+$", "").split("/");
+            String method = exchange.getRequestMethod();
+            if (path.length == 2 && method.equals("POST")) {
+                submit(exchange);
+            } else if (path.length == 2 && method.equals("GET")) {
+                StringBuilder json = new StringBuilder("[");
+                for (Job job : jobs.values()) {
+                    json.append(json.length() > 1 ? "," : "").append(job.toJson());
+                }
+                send(exchange, 200, json.append(']').toString());
+            } else if (path.length >= 3) {
+                Job job = jobs.get(path[2]);
+                if (job == null) {
+                    send(exchange, 404, error("No job " + path[2]));
+                } else if (path.length == 3 && method.equals("GET")) {
+                    send(exchange, 200, job.toJson());
+                } else if (path.length == 3 && method.equals("DELETE")) {
+                    job.cancelled = true;
+                    jobs.remove(job.id);
+                    admission.withdraw(job.reservation);
+                    if (job.isFinished()) {
+                        deleteFiles(job);
+                    }
+                    exchange.sendResponseHeaders(204, -1);
+                } else if (path.length == 4 && path[3].equals("pdf") && method.equals("GET")) {
+                    sendPdf(exchange, job);
+                } else {
+                    send(exchange, 405, error("Unsupported request"));
+                }
+            } else {
+                send(exchange, 405, error("Unsupported request"));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void submit(HttpExchange exchange) throws IOException {
+        java.util.Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String id = Integer.toString(nextId.incrementAndGet());
+        String name = query.getOrDefault("name", "image").replaceAll("[^A-Za-z0-9._-]", "_");
+        File input = new File(workDir, id + "-" + name);
+        File output = BatchTiler.outputFor(input, workDir);
+        if (!receive(exchange.getRequestBody(), input)) {
+            Files.deleteIfExists(input.toPath());
+            send(exchange, 413, error("Image larger than " + maxUploadBytes / (1024 * 1024) + " MB"));
+            return;
+        }
+
+        BatchTiler.Options options;
+        try {
+            options = BatchTiler.Options.parse(jobArguments(query, input));
+            options.useAnalysisCache = false; // the upload is deleted after the job
+        } catch (IllegalArgumentException e) {
+            Files.deleteIfExists(input.toPath());
+            send(exchange, 400, error(e.getMessage()));
+            return;
+        }
+        long estimate = estimateDecodeBytes(input);
+        MemoryAdmission.Reservation reservation = admission.offer(estimate);
+        if (reservation == null) {
+            Files.deleteIfExists(input.toPath());
+            rejected.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "5");
+            send(exchange, 503, error("Too much work queued; try again shortly"));
+            return;
+        }
+
+        Job job = new Job(id, name, input, output, options, estimate, reservation);
+        jobs.put(id, job);
+        submitted.incrementAndGet();
+        jobExecutor.execute(() -> runJob(job));
+        exchange.getResponseHeaders().set("Location", "/jobs/" + id);
+        send(exchange, 202, job.toJson());
+    }
+
+    private void runJob(Job job) {
+        boolean admitted = false;
+        try {
+            admitted = admission.acquire(job.reservation);
+            if (!admitted) {
+                job.status = Status.CANCELLED; // deleted while queued
+                return;
+            }
+            running.incrementAndGet();
+            job.startedNanos = System.nanoTime();
+            if (job.cancelled) {
+                job.status = Status.CANCELLED;
+                return;
+            }
+            job.status = Status.RUNNING;
+            BatchTiler.FileResult result = BatchTiler.tileFile(job.input, job.output, job.options, previewHeapShare,
+                                                               new TileExportService.Progress() {
+                @Override
+                public void pageDone(int pagesDone, int pageCount) {
+                    job.pagesDone = pagesDone;
+                    job.pageCount = pageCount;
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return job.cancelled;
+                }
+            });
+            job.result = result;
+            job.status = job.cancelled ? Status.CANCELLED : result.isOk() ? Status.DONE : Status.FAILED;
+        } catch (InterruptedException e) {
+            job.status = Status.CANCELLED;
+        } finally {
+            job.finishedNanos = System.nanoTime();
+            if (admitted) {
+                running.decrementAndGet();
+                admission.release(job.reservation);
+            }
+            if (job.status == Status.DONE) {
+                completed.incrementAndGet();
+                recordLatency((job.finishedNanos - job.submittedNanos) / 1_000_000);
+            } else if (job.status == Status.FAILED) {
+                failed.incrementAndGet();
+            }
+            try {
+                Files.deleteIfExists(job.input.toPath());
+                if (!jobs.containsKey(job.id)) {
+                    deleteFiles(job); // deleted while it ran
+                }
+            } catch (IOException e) {
+                System.err.println("[SERVER] Could not delete files of job " + job.id + ": " + e.getMessage());
+            }
+            if (job.startedNanos == 0) {
+                System.out.println("[SERVER] Job " + job.id + " (" + job.name + ") " + job.status + " while queued");
+            } else {
+                System.out.println("[SERVER] Job " + job.id + " (" + job.name + ") " + job.status + " in " +
+                                   (job.finishedNanos - job.startedNanos) / 1_000_000 + " ms after " +
+                                   (job.startedNanos - job.submittedNanos) / 1_000_000 + " ms queued");
+            }
+        }
+    }
+
+    /**
+     * Adds a completed job's latency, dropping the oldest once the window is full
+     */
+    private void recordLatency(long millis) {
+        synchronized (latenciesMillis) {
+            if (latenciesMillis.size() == LATENCY_WINDOW) {
+                latenciesMillis.removeFirst();
+            }
+            latenciesMillis.addLast(millis);
+        }
+    }
+
+    private void sendPdf(HttpExchange exchange, Job job) throws IOException {
+        if (job.status != Status.DONE) {
+            send(exchange, 409, error("Job " + job.id + " is " + job.status));
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/pdf");
+        exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"" + job.output.getName() + "\"");
+        exchange.sendResponseHeaders(200, job.output.length());
+        try (OutputStream body = exchange.getResponseBody()) {
+            Files.copy(job.output.toPath(), body);
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            long[] latencies;
+            synchronized (latenciesMillis) {
+                latencies = latenciesMillis.stream().mapToLong(Long::longValue).sorted().toArray();
+            }
+            String json = "{\"submitted\":" + submitted.get() +
+                          ",\"rejected\":" + rejected.get() +
+                          ",\"completed\":" + completed.get() +
+                          ",\"failed\":" + failed.get() +
+                          ",\"running\":" + running.get() +
+                          ",\"memoryUsedMB\":" + admission.getUsedBytes() / (1024 * 1024) +
+                          ",\"memoryWaitingMB\":" + admission.getWaitingBytes() / (1024 * 1024) +
+                          ",\"memoryBudgetMB\":" + admission.getCapacityBytes() / (1024 * 1024) +
+                          ",\"latencyP50Millis\":" + percentile(latencies, 0.5) +
+                          ",\"latencyP95Millis\":" + percentile(latencies, 0.95) + "}";
+            send(exchange, 200, json);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Decode memory a job is expected to need: the preview tier (capped like the loader caps
+     * it) plus a page of pixels. Only the image header is read.
+     */
+    static long estimateDecodeBytes(File image) {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(image)) {
+            java.util.Iterator<ImageReader> readers = stream != null ? ImageIO.getImageReaders(stream) : null;
+            if (readers != null && readers.hasNext()) {
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(stream, true, true);
+                    long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                    return Math.min(pixels, FileImageSource.MAX_PREVIEW_PIXELS) * 4 + PAGE_BYTES;
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[SERVER] Could not read the header of " + image.getName() + ": " + e.getMessage());
+        }
+        return BatchTiler.WORKER_BYTES;
+    }
+
+    /**
+     * Batch tiler arguments for a job: the allowed query parameters and the uploaded file
+     */
+    static String[] jobArguments(java.util.Map<String, String> query, File input) {
+        java.util.List<String> args = new java.util.ArrayList<>();
+        for (java.util.Map.Entry<String, String> entry : query.entrySet()) {
+            if (JOB_PARAMETERS.contains(entry.getKey())) {
+                args.add("--" + entry.getKey());
+                args.add(entry.getValue());
+            } else if (entry.getKey().equals("pack-edges") && Boolean.parseBoolean(entry.getValue())) {
+                args.add("--pack-edges");
+            } else if (!entry.getKey().equals("name")) {
+                throw new IllegalArgumentException("Unknown parameter " + entry.getKey());
+            }
+        }
+        args.add(input.getPath());
+        return args.toArray(new String[0]);
+    }
+
+    static java.util.Map<String, String> parseQuery(String rawQuery) {
+        java.util.Map<String, String> query = new java.util.LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "true" : pair.substring(equals + 1);
+            try {
+                query.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+            } catch (java.io.UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Copies the request body to a file
+     * @return false if it was larger than the upload limit
+     */
+    private boolean receive(InputStream body, File file) throws IOException {
+        long total = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            int read;
+            while ((read = body.read(buffer)) > 0) {
+                total += read;
+                if (total > maxUploadBytes) {
+                    return false;
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+        return true;
+    }
+
+    private static void deleteFiles(Job job) throws IOException {
+        Files.deleteIfExists(job.input.toPath());
+        Files.deleteIfExists(job.output.toPath());
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(fraction * sorted.length))];
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    static String quote(String text) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : String.valueOf(text).toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
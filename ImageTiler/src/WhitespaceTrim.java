@@ -0,0 +1,104 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the margins around an image's content so only the content is tiled.
+ * One pass over the preview counts content pixels per row and per column (parallel over
+ * row bands, each band with its own column counts); the first and last rows and columns
+ * whose count exceeds a small noise allowance give the content box. The allowance keeps
+ * scanner dust in a margin from defeating the trim.
+ */
+public class WhitespaceTrim {
+
+    /**
+     * A row or column with no more than this fraction of its length in content pixels counts as empty
+     */
+    static final double NOISE_FRACTION = 0.001;
+
+    /**
+     * Margin kept around the content, as a fraction of the content box size
+     */
+    static final double PADDING_FRACTION = 0.01;
+
+    private WhitespaceTrim() {
+    }
+
+    /**
+     * Tight box around the content of the image under the thresholds, or null if nothing is content
+     */
+    public static Rectangle findContentBounds(BufferedImage image, ContentThresholds thresholds) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int[] rowCounts = new int[h];
+        int bands = Math.max(1, Math.min(h, 4 * Runtime.getRuntime().availableProcessors()));
+        int rowsPerBand = (h + bands - 1) / bands;
+
+        int[] columnCounts = IntStream.range(0, bands).parallel()
+            .mapToObj(band -> {
+                int[] columns = new int[w];
+                int[] row = new int[w];
+                int y1 = Math.min(h, (band + 1) * rowsPerBand);
+                for (int y = band * rowsPerBand; y < y1; y++) {
+                    image.getRGB(0, y, w, 1, row, 0, w);
+                    int count = 0;
+                    for (int x = 0; x < w; x++) {
+                        if (thresholds.isContentPixel(row[x])) {
+                            columns[x]++;
+                            count++;
+                        }
+                    }
+                    rowCounts[y] = count;
+                }
+                return columns;
+            })
+            .reduce((a, b) -> {
+                for (int x = 0; x < a.length; x++) {
+                    a[x] += b[x];
+                }
+                return a;
+            })
+            .orElseGet(() -> new int[w]);
+
+        int rowNoise = (int) (w * NOISE_FRACTION);
+        int columnNoise = (int) (h * NOISE_FRACTION);
+        int top = 0;
+        while (top < h && rowCounts[top] <= rowNoise) top++;
+        if (top == h) {
+            return null;
+        }
+        int bottom = h - 1;
+        while (bottom > top && rowCounts[bottom] <= rowNoise) bottom--;
+        int left = 0;
+        while (left < w && columnCounts[left] <= columnNoise) left++;
+        if (left == w) {
+            return null;
+        }
+        int right = w - 1;
+        while (right > left && columnCounts[right] <= columnNoise) right--;
+        return new Rectangle(left, top, right - left + 1, bottom - top + 1);
+    }
+
+    /**
+     * Pads a content box by PADDING_FRACTION on each side, clipped to the image
+     */
+    public static Rectangle pad(Rectangle bounds, int imageWidth, int imageHeight) {
+        int padX = (int) Math.ceil(bounds.width * PADDING_FRACTION);
+        int padY = (int) Math.ceil(bounds.height * PADDING_FRACTION);
+        Rectangle padded = new Rectangle(bounds.x - padX, bounds.y - padY, bounds.width + 2 * padX, bounds.height + 2 * padY);
+        return padded.intersection(new Rectangle(0, 0, imageWidth, imageHeight));
+    }
+
+    /**
+     * Scales a preview-space box to full-resolution pixels, rounding outward so no content is cut
+     */
+    public static Rectangle toSourceRegion(Rectangle previewBounds, int previewWidth, int previewHeight, int sourceWidth, int sourceHeight) {
+        double scaleX = (double) sourceWidth / previewWidth;
+        double scaleY = (double) sourceHeight / previewHeight;
+        int x0 = (int) Math.floor(previewBounds.x * scaleX);
+        int y0 = (int) Math.floor(previewBounds.y * scaleY);
+        int x1 = Math.min(sourceWidth, (int) Math.ceil((previewBounds.x + previewBounds.width) * scaleX));
+        int y1 = Math.min(sourceHeight, (int) Math.ceil((previewBounds.y + previewBounds.height) * scaleY));
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+}
@@ -0,0 +1,186 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Test class for AnalysisCache: preview pyramid, statistics and tile statistics round trips, keys and eviction.
+ */
+public class AnalysisCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * A cream page with a dark block and some noise, so it neither compresses away nor has a white background
+     */
+    private static BufferedImage scan(int width, int height, long seed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(0xF0E6C8));
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.DARK_GRAY);
+        g.fillRect(width / 4, height / 4, width / 3, height / 3);
+        g.dispose();
+        Random random = new Random(seed);
+        for (int i = 0; i < width * height / 20; i++) {
+            image.setRGB(random.nextInt(width), random.nextInt(height), random.nextInt(0x1000000));
+        }
+        return image;
+    }
+
+    private File writeScan(String name, int width, int height, long seed) throws IOException {
+        File file = tempDir.resolve(name).toFile();
+        ImageIO.write(scan(width, height, seed), "png", file);
+        return file;
+    }
+
+    @Test
+    @DisplayName("A stored preview comes back with its statistics, at a coarser level for a smaller heap")
+    void testPreviewRoundTrip() throws Exception {
+        AnalysisCache cache = new AnalysisCache(tempDir.resolve("cache").toFile(), 256L * 1024 * 1024);
+        File file = writeScan("scan.png", 1200, 900, 1);
+        String key = cache.keyFor(file);
+        assertNull(cache.lookup(key, Runtime.getRuntime().maxMemory()));
+
+        BufferedImage preview = ImageIO.read(file);
+        ImageStatistics statistics = ImageStatistics.of(preview);
+        cache.store(key, preview, 1200, 900, 1);
+        cache.flush();
+
+        AnalysisCache.Preview full = cache.lookup(key, Runtime.getRuntime().maxMemory());
+        assertNotNull(full);
+        assertEquals(0, full.level);
+        assertEquals(1, full.subsampling);
+        for (int y = 0; y < 900; y += 7) {
+            for (int x = 0; x < 1200; x += 5) {
+                assertEquals(preview.getRGB(x, y), full.image.getRGB(x, y));
+            }
+        }
+        ImageStatistics cached = ImageStatistics.of(full.image);
+        assertEquals(statistics.getBackgroundRgb(), cached.getBackgroundRgb());
+        assertEquals(statistics.getColorClass(), cached.getColorClass());
+        assertArrayEquals(statistics.getLumaHistogram(), cached.getLumaHistogram());
+
+        // A heap that would have the loader subsample by 2 gets the first halving
+        long smallHeap = 1200L * 900 / 4 * 4 * 8;
+        assertEquals(2, FileImageSource.calculatePreviewSubsampling(1200, 900, smallHeap));
+        AnalysisCache.Preview half = cache.lookup(key, smallHeap);
+        assertEquals(1, half.level);
+        assertEquals(2, half.subsampling);
+        assertEquals(600, half.image.getWidth());
+        assertEquals(450, half.image.getHeight());
+        assertEquals(preview.getRGB(402, 300), half.image.getRGB(201, 150));
+    }
+
+    @Test
+    @DisplayName("A preview made for a smaller heap misses, so the image is decoded with more detail")
+    void testCoarserPreviewMisses() throws Exception {
+        AnalysisCache cache = new AnalysisCache(tempDir.resolve("cache").toFile(), 256L * 1024 * 1024);
+        File file = writeScan("scan.png", 800, 600, 2);
+        String key = cache.keyFor(file);
+        BufferedImage subsampled = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        cache.store(key, subsampled, 800, 600, 2);
+        cache.flush();
+        assertNull(cache.lookup(key, Runtime.getRuntime().maxMemory()));
+    }
+
+    @Test
+    @DisplayName("The key follows content, size and modification time, and a disabled cache has none")
+    void testKeys() throws IOException {
+        AnalysisCache cache = new AnalysisCache(tempDir.resolve("cache").toFile(), 1024 * 1024);
+        File file = writeScan("scan.png", 300, 200, 3);
+        String key = cache.keyFor(file);
+        assertEquals(key, cache.keyFor(file));
+
+        File copy = tempDir.resolve("copy.png").toFile();
+        Files.copy(file.toPath(), copy.toPath());
+        copy.setLastModified(file.lastModified());
+        assertEquals(key, cache.keyFor(copy), "Same bytes, size and time");
+        copy.setLastModified(file.lastModified() - 60_000);
+        assertNotEquals(key, cache.keyFor(copy));
+
+        ImageIO.write(scan(300, 200, 4), "png", copy);
+        copy.setLastModified(file.lastModified());
+        assertNotEquals(key, cache.keyFor(copy));
+
+        assertNull(new AnalysisCache(tempDir.toFile(), 0).keyFor(file));
+    }
+
+    @Test
+    @DisplayName("Tile statistics are reused only for the grid they were recorded on")
+    void testTileStats() throws Exception {
+        AnalysisCache cache = new AnalysisCache(tempDir.resolve("cache").toFile(), 256L * 1024 * 1024);
+        File file = writeScan("scan.png", 600, 400, 5);
+        String key = cache.keyFor(file);
+        BufferedImage preview = ImageIO.read(file);
+        cache.store(key, preview, 600, 400, 1);
+
+        TileCalculator.TilingResult tiling = new TileCalculator.TilingResult(3, 2, 200, 200, 600, 400);
+        TileContentStats stats = new TileContentStats(3, 2, 0xF0E6C8);
+        for (int row = 0; row < 2; row++) {
+            for (int col = 0; col < 3; col++) {
+                stats.record(col, row, preview, new Rectangle(col * 200, row * 200, 200, 200));
+            }
+        }
+        String grid = AnalysisCache.gridName(tiling, Orientation.NORMAL, null, 600, 400);
+        cache.storeTileStats(preview, grid, stats);
+        cache.flush();
+
+        TileContentStats restored = new TileContentStats(3, 2, 0xF0E6C8);
+        assertTrue(cache.loadTileStats(preview, grid, restored));
+        for (int row = 0; row < 2; row++) {
+            for (int col = 0; col < 3; col++) {
+                assertTrue(restored.isRecorded(col, row));
+                assertEquals(stats.contentRatio(col, row, ContentThresholds.DEFAULT),
+                             restored.contentRatio(col, row, ContentThresholds.DEFAULT));
+            }
+        }
+
+        String turned = AnalysisCache.gridName(tiling, Orientation.CLOCKWISE_90, null, 600, 400);
+        assertFalse(cache.loadTileStats(preview, turned, new TileContentStats(3, 2, 0xF0E6C8)));
+        assertFalse(cache.loadTileStats(preview, grid, new TileContentStats(3, 2)), "Measured against another background");
+        assertFalse(cache.loadTileStats(ImageIO.read(file), grid, new TileContentStats(3, 2, 0xF0E6C8)),
+                    "Only previews that came through the cache have entries");
+    }
+
+    @Test
+    @DisplayName("The folder is trimmed to its limit, least recently used entry first")
+    void testEviction() throws Exception {
+        File folder = tempDir.resolve("cache").toFile();
+        AnalysisCache probe = new AnalysisCache(folder, Long.MAX_VALUE);
+        File first = writeScan("a.png", 500, 500, 6);
+        String firstKey = probe.keyFor(first);
+        probe.store(firstKey, ImageIO.read(first), 500, 500, 1);
+        probe.flush();
+        long entryBytes = probe.sizeOnDisk();
+
+        AnalysisCache cache = new AnalysisCache(folder, entryBytes * 5 / 2);
+        File second = writeScan("b.png", 500, 500, 7);
+        File third = writeScan("c.png", 500, 500, 8);
+        String secondKey = cache.keyFor(second);
+        String thirdKey = cache.keyFor(third);
+        Thread.sleep(20);
+        cache.store(secondKey, ImageIO.read(second), 500, 500, 1);
+        cache.flush();
+        Thread.sleep(20);
+        assertNotNull(cache.lookup(firstKey, Runtime.getRuntime().maxMemory()), "Using an entry makes it recent");
+        Thread.sleep(20);
+        cache.store(thirdKey, ImageIO.read(third), 500, 500, 1);
+        cache.flush();
+
+        assertTrue(cache.sizeOnDisk() <= entryBytes * 5 / 2);
+        assertNotNull(cache.lookup(firstKey, Runtime.getRuntime().maxMemory()));
+        assertNull(cache.lookup(secondKey, Runtime.getRuntime().maxMemory()));
+        assertNotNull(cache.lookup(thirdKey, Runtime.getRuntime().maxMemory()));
+    }
+}
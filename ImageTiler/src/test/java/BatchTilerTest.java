@@ -0,0 +1,133 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Test class for BatchTiler: command-line parsing, glob expansion and headless PDF output.
+ */
+public class BatchTilerTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * A white image with a black block in its top-left quarter
+     */
+    private File writeImage(String name, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, width / 2, height / 2);
+        g.dispose();
+        File file = tempDir.resolve(name).toFile();
+        file.getParentFile().mkdirs();
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+
+    @Test
+    @DisplayName("Options are parsed and bad values are rejected")
+    void testParse() throws IOException {
+        File image = writeImage("a.png", 100, 100);
+        BatchTiler.Options options = BatchTiler.Options.parse(new String[] {
+            "--scale", "2.5", "--paper", "letter", "--min-content", "0.1", "--jobs", "3", image.getPath()});
+        assertEquals(2.5f, options.scale);
+        assertEquals(Settings.PaperSize.LETTER, options.paper);
+        assertEquals(0.1, options.minContentRatio);
+        assertEquals(1, options.workers(), "No more workers than files");
+        assertEquals(1, options.images.size());
+
+        assertThrows(IllegalArgumentException.class, () -> BatchTiler.Options.parse(new String[] {"--scale", "0", image.getPath()}));
+        assertThrows(IllegalArgumentException.class, () -> BatchTiler.Options.parse(new String[] {"--paper", "B5", image.getPath()}));
+        assertThrows(IllegalArgumentException.class, () -> BatchTiler.Options.parse(new String[] {"--scale"}));
+        assertThrows(IllegalArgumentException.class, () -> BatchTiler.Options.parse(new String[0]));
+        assertEquals(2, BatchTiler.run(new String[] {"--bogus", image.getPath()}));
+    }
+
+    @Test
+    @DisplayName("Globs expand relative to their leading directories, recursively with **")
+    void testExpand() throws IOException {
+        writeImage("scans/one.png", 10, 10);
+        writeImage("scans/two.png", 10, 10);
+        writeImage("scans/nested/three.png", 10, 10);
+        Files.write(tempDir.resolve("scans/notes.txt"), new byte[0]);
+        String base = tempDir.resolve("scans").toString() + File.separator;
+
+        List<File> flat = BatchTiler.expand(base + "*.png");
+        assertEquals(2, flat.size());
+        assertEquals("one.png", flat.get(0).getName());
+        assertEquals(3, BatchTiler.expand(base + "**.png").size());
+        assertEquals(1, BatchTiler.expand(base + "two.png").size(), "A plain path is taken as is");
+    }
+
+    @Test
+    @DisplayName("A batch writes one PDF per image with blank pages dropped")
+    void testRunWritesPdfs() throws IOException {
+        File first = writeImage("first.png", 400, 400);
+        File second = writeImage("second.png", 300, 500);
+        File out = tempDir.resolve("out").toFile();
+        BatchTiler.Options options = BatchTiler.Options.parse(new String[] {
+            "--scale", "2", "--out", out.getPath(), "--jobs", "2", first.getPath(), second.getPath()});
+        List<BatchTiler.FileResult> results = BatchTiler.run(options);
+        assertEquals(2, results.size());
+        for (BatchTiler.FileResult result : results) {
+            assertTrue(result.isOk(), String.valueOf(result.error));
+            assertTrue(result.pages > 0 && result.pages < result.tiles, "Blank pages dropped: " + result.pages + " of " + result.tiles);
+            try (PDDocument document = Loader.loadPDF(result.output)) {
+                assertEquals(result.pages, document.getNumberOfPages());
+            }
+        }
+        assertEquals(new File(out, "first_tiled.pdf"), results.get(0).output);
+    }
+
+    @Test
+    @DisplayName("Same-named images from different folders get their own PDFs, paged as the GUI selects")
+    void testSameNamesInSubfolders() throws IOException {
+        File north = writeImage("site/north/plan.png", 400, 400);
+        File south = writeImage("site/south/plan.png", 300, 500);
+        File out = tempDir.resolve("out").toFile();
+        BatchTiler.Options options = BatchTiler.Options.parse(new String[] {
+            "--scale", "2", "--out", out.getPath(), tempDir.resolve("site").toString() + File.separator + "**.png"});
+        assertEquals(List.of(north, south), options.images);
+        List<BatchTiler.FileResult> results = BatchTiler.run(options);
+        assertEquals(new File(out, "plan_tiled.pdf"), results.get(0).output);
+        assertEquals(new File(out, "plan_2_tiled.pdf"), results.get(1).output);
+
+        for (BatchTiler.FileResult result : results) {
+            assertTrue(result.isOk(), String.valueOf(result.error));
+            BufferedImage image = ImageIO.read(result.image);
+            TileCalculator.TilingResult tiling = TileCalculator.calculateTiling(image.getWidth(), image.getHeight(),
+                Settings.PaperSize.A4.getWidthPoints(), Settings.PaperSize.A4.getHeightPoints(), 2f);
+            int selected = TileCalculator.getNonBlankTiles(tiling, image, Orientation.NORMAL, options.thresholdsFor(image)).size();
+            try (PDDocument document = Loader.loadPDF(result.output)) {
+                assertEquals(selected, document.getNumberOfPages());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A missing file fails on its own without stopping the batch")
+    void testMissingFile() throws IOException {
+        File image = writeImage("present.png", 200, 200);
+        BatchTiler.Options options = BatchTiler.Options.parse(new String[] {
+            "--out", tempDir.toString(), image.getPath(), tempDir.resolve("missing.png").toString()});
+        List<BatchTiler.FileResult> results = BatchTiler.run(options);
+        assertTrue(results.get(0).isOk());
+        assertFalse(results.get(1).isOk());
+    }
+}
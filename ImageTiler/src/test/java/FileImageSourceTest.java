@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Test class for FileImageSource: full-resolution reads through stripes and the off-heap raster store.
+ */
+public class FileImageSourceTest {
+
+    // 2,097 rows per stripe at this width, so three stripes with a partial last one
+    private static final int WIDTH = 4000;
+    private static final int HEIGHT = 4500;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * White image with random coloured blocks and a gradient band across the stripe boundaries
+     */
+    private static BufferedImage createImage(int type) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        Random random = new Random(11);
+        for (int i = 0; i < 300; i++) {
+            g.setColor(new Color(random.nextInt(0x1000000)));
+            g.fillRect(random.nextInt(WIDTH), random.nextInt(HEIGHT), 1 + random.nextInt(400), 1 + random.nextInt(400));
+        }
+        g.setPaint(new GradientPaint(0, 0, Color.RED, WIDTH, HEIGHT, Color.BLUE));
+        g.fillRect(1000, 0, 300, HEIGHT);
+        g.dispose();
+        return image;
+    }
+
+    private File write(BufferedImage image, String format, boolean interlaced) throws IOException {
+        File file = tempDir.resolve("image" + (interlaced ? "-interlaced." : ".") + format).toFile();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (interlaced) {
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return file;
+    }
+
+    private static FileImageSource open(File file) {
+        return FileImageSource.withPreview(file, WIDTH, HEIGHT, new BufferedImage(WIDTH / 4, HEIGHT / 4, BufferedImage.TYPE_INT_RGB), 4);
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        int[] expectedRow = new int[expected.getWidth()];
+        int[] actualRow = new int[expected.getWidth()];
+        for (int y = 0; y < expected.getHeight(); y++) {
+            expected.getRGB(0, y, expectedRow.length, 1, expectedRow, 0, expectedRow.length);
+            actual.getRGB(0, y, actualRow.length, 1, actualRow, 0, actualRow.length);
+            assertArrayEquals(expectedRow, actualRow, "Row " + y);
+        }
+    }
+
+    private void assertSpoolMatchesDecode(File file) throws IOException {
+        FileImageSource source = open(file);
+        try {
+            assertSamePixels(ImageIO.read(file), source.getRasterStore().readRegion(new Rectangle(0, 0, WIDTH, HEIGHT)));
+        } finally {
+            source.close();
+        }
+    }
+
+    @Test
+    @DisplayName("PNG and JPEG files spool into the raster store in one decode")
+    void testSpoolSequentially() throws IOException {
+        assertTrue(HEIGHT > 2 * FileImageSource.calculateStripeHeight(WIDTH, HEIGHT), "Image spans several stripes");
+        assertSpoolMatchesDecode(write(createImage(BufferedImage.TYPE_INT_RGB), "png", false));
+        assertSpoolMatchesDecode(write(createImage(BufferedImage.TYPE_INT_RGB), "jpg", false));
+    }
+
+    @Test
+    @DisplayName("An interlaced PNG falls back to spooling stripe by stripe")
+    void testSpoolStripeByStripe() throws IOException {
+        assertSpoolMatchesDecode(write(createImage(BufferedImage.TYPE_INT_RGB), "png", true));
+    }
+
+    @Test
+    @DisplayName("With a small heap, region reads stitch decoded stripes across their boundaries")
+    void testReadRegionAcrossStripes() throws IOException {
+        // A heap too small for a full-resolution preview, but roomy enough that regions come from stripes
+        assumeTrue(MappedRasterStore.fitsInHeap(WIDTH, HEIGHT), "Heap too small for the stripe path");
+        int stripe = FileImageSource.calculateStripeHeight(WIDTH, HEIGHT);
+        File file = write(createImage(BufferedImage.TYPE_INT_RGB), "png", false);
+        BufferedImage expected = ImageIO.read(file);
+        Rectangle[] regions = {
+            new Rectangle(900, stripe - 40, 500, 80),            // across the first boundary
+            new Rectangle(0, stripe - 1, WIDTH, 2),              // one row either side of it
+            new Rectangle(950, stripe - 10, 400, stripe + 20),   // through the whole middle stripe
+            new Rectangle(1000, 2 * stripe + 5, 300, 10),        // inside the last, partial stripe
+            new Rectangle(0, 2 * stripe - 7, WIDTH, HEIGHT - 2 * stripe + 7) // down to the last row
+        };
+        FileImageSource source = open(file);
+        try {
+            for (Rectangle region : regions) {
+                assertSamePixels(expected.getSubimage(region.x, region.y, region.width, region.height), source.readRegion(region));
+            }
+        } finally {
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+/**
+ * Test class for FolderWatcher: settling of files still being written, deduplication, output names and an end-to-end drop.
+ */
+public class FolderWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static void writeImage(File file, int width, int height) throws IOException {
+        writeImage(file, width, height, "png");
+    }
+
+    private static void writeImage(File file, int width, int height, String format) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, width / 2, height / 2);
+        g.dispose();
+        ImageIO.write(image, format, file);
+    }
+
+    private FolderWatcher watcher(Path inbox, Path out, long settleMillis) throws IOException {
+        Files.createDirectories(inbox);
+        BatchTiler.Options options = new BatchTiler.Options();
+        options.scale = 2f;
+        return new FolderWatcher(inbox, out.toFile(), options, 1, settleMillis);
+    }
+
+    @Test
+    @DisplayName("A file is released once it stops changing, and only once")
+    void testSettleAndDedupe() throws IOException {
+        Path inbox = tempDir.resolve("in");
+        FolderWatcher watcher = watcher(inbox, tempDir.resolve("out"), 1000);
+        Path file = inbox.resolve("plan.png");
+        Files.write(file, new byte[] {1, 2, 3});
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000));
+
+        watcher.noticed(file, 0);
+        assertTrue(watcher.settled(500).isEmpty(), "Not settled yet");
+
+        // Still being copied: the clock restarts
+        Files.write(file, new byte[] {1, 2, 3, 4});
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_500));
+        assertTrue(watcher.settled(1200).isEmpty());
+        assertTrue(watcher.settled(2000).isEmpty());
+        assertEquals(List.of(file), watcher.settled(2300));
+        assertTrue(watcher.settled(5000).isEmpty(), "Released once");
+
+        watcher.noticed(file, 6000);
+        assertTrue(watcher.settled(9000).isEmpty(), "The same content is not tiled again");
+
+        Files.write(file, new byte[] {5, 6});
+        watcher.noticed(file, 10_000);
+        assertEquals(List.of(file), watcher.settled(11_000), "Changed content is tiled again");
+
+        Path partial = inbox.resolve("plan.png.part");
+        Files.write(partial, new byte[] {1});
+        watcher.noticed(partial, 0);
+        watcher.noticed(inbox.resolve("notes.txt"), 0);
+        assertTrue(watcher.settled(100_000).isEmpty(), "Only images are picked up");
+        assertFalse(FolderWatcher.isImage(inbox.resolve(".hidden.png")));
+        assertTrue(FolderWatcher.isImage(inbox.resolve("SCAN.TIFF")));
+    }
+
+    @Test
+    @DisplayName("A dropped image ends up as a PDF with a metrics line")
+    void testDrop() throws Exception {
+        Path inbox = tempDir.resolve("in");
+        Path out = tempDir.resolve("out");
+        FolderWatcher watcher = watcher(inbox, out, 100);
+        watcher.start();
+        try {
+            writeImage(inbox.resolve("drop.png").toFile(), 400, 400);
+            for (int i = 0; i < 200 && watcher.getMetrics().isEmpty(); i++) {
+                Thread.sleep(50);
+            }
+        } finally {
+            watcher.stop();
+        }
+        List<FolderWatcher.JobMetrics> metrics = watcher.getMetrics();
+        assertEquals(1, metrics.size());
+        assertTrue(metrics.get(0).isOk(), metrics.get(0).error);
+
+        File pdf = out.resolve("drop_tiled.pdf").toFile();
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            assertEquals(metrics.get(0).pages, document.getNumberOfPages());
+        }
+        assertEquals(0, out.toFile().list((dir, name) -> name.endsWith(".part")).length, "No partial file is left");
+        List<String> csv = Files.readAllLines(out.resolve(FolderWatcher.METRICS_FILE));
+        assertEquals(2, csv.size());
+        assertTrue(csv.get(1).contains("\"drop.png\""));
+    }
+
+    @Test
+    @DisplayName("Images with the same name but another extension get their own PDFs")
+    void testSameNamedImages() throws Exception {
+        Path inbox = tempDir.resolve("in");
+        Path out = tempDir.resolve("out");
+        FolderWatcher names = watcher(inbox, out, 100);
+        File first = names.outputFor(inbox.resolve("plan.png"));
+        File second = names.outputFor(inbox.resolve("plan.tif"));
+        assertEquals(out.resolve("plan_tiled.pdf").toFile(), first);
+        assertEquals(out.resolve("plan_2_tiled.pdf").toFile(), second);
+        assertEquals(first, names.outputFor(inbox.resolve("plan.png")), "An image keeps its name");
+
+        FolderWatcher watcher = watcher(inbox, out, 100);
+        watcher.start();
+        try {
+            writeImage(inbox.resolve("plan.png").toFile(), 400, 400);
+            writeImage(inbox.resolve("plan.jpg").toFile(), 300, 300, "jpg");
+            for (int i = 0; i < 200 && watcher.getMetrics().size() < 2; i++) {
+                Thread.sleep(50);
+            }
+        } finally {
+            watcher.stop();
+        }
+        List<FolderWatcher.JobMetrics> metrics = watcher.getMetrics();
+        assertEquals(2, metrics.size());
+        for (FolderWatcher.JobMetrics job : metrics) {
+            assertTrue(job.isOk(), job.error);
+            File pdf = watcher.outputFor(inbox.resolve(job.file)).getAbsoluteFile();
+            try (PDDocument document = Loader.loadPDF(pdf)) {
+                assertEquals(job.pages, document.getNumberOfPages(), job.file);
+            }
+        }
+        assertTrue(out.resolve("plan_tiled.pdf").toFile().isFile());
+        assertTrue(out.resolve("plan_2_tiled.pdf").toFile().isFile());
+        assertEquals(0, out.toFile().list((dir, name) -> name.endsWith(".part")).length);
+    }
+}
@@ -0,0 +1,133 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Test class for GridOptimizer and TileCalculator.GridLayout: shifted grids, the content map,
+ * and finding a placement with fewer non-blank pages.
+ */
+public class GridOptimizerTest {
+
+    private static final double A4_WIDTH = 8.27 * 72;
+    private static final double A4_HEIGHT = 11.69 * 72;
+
+    /**
+     * White square with a black block in the middle, straddling the first vertical page boundary at scale 2
+     */
+    private static BufferedImage createImage() {
+        BufferedImage image = new BufferedImage(1000, 1000, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, 1000, 1000);
+        g2d.setColor(Color.BLACK);
+        g2d.fillRect(400, 400, 200, 200);
+        g2d.dispose();
+        return image;
+    }
+
+    @Test
+    @DisplayName("A shifted grid covers the image with an extra row and column where needed")
+    void testGridLayoutApply() {
+        TileCalculator.TilingResult base = new TileCalculator.TilingResult(2, 2, 100, 200, 200, 400);
+        assertSame(base, TileCalculator.GridLayout.DEFAULT.apply(base));
+
+        TileCalculator.TilingResult shifted = new TileCalculator.GridLayout(TileCalculator.PageOrientation.PORTRAIT, 0.5, 0).apply(base);
+        assertEquals(3, shifted.tilesWide);
+        assertEquals(2, shifted.tilesHigh);
+        assertEquals(50, shifted.originX, 1e-9);
+        // The first column covers only the right half of a page
+        assertEquals(new Rectangle(0, 0, 50, 200), TileCalculator.tileSourceRegion(0, 0, shifted, 200, 400, Orientation.NORMAL));
+
+        TileCalculator.TilingResult landscape = new TileCalculator.GridLayout(TileCalculator.PageOrientation.LANDSCAPE, 0, 0).apply(base);
+        assertEquals(200, landscape.tileWidth, 1e-9);
+        assertEquals(1, landscape.tilesWide);
+        assertEquals(4, landscape.tilesHigh);
+    }
+
+    @Test
+    @DisplayName("Content map ratios match pixel counts")
+    void testContentMap() {
+        GridOptimizer.ContentMap map = GridOptimizer.ContentMap.of(createImage(), ContentThresholds.DEFAULT);
+        assertEquals(1.0, map.contentRatio(new Rectangle(400, 400, 200, 200)), 0.05);
+        assertEquals(0.0, map.contentRatio(new Rectangle(0, 0, 400, 400)), 1e-9);
+        assertEquals(0.04, map.contentRatio(new Rectangle(0, 0, 1000, 1000)), 0.002);
+    }
+
+    @Test
+    @DisplayName("Tiles judged from the content map match sampling the image")
+    void testContentMapMatchesSampling() {
+        // Odd sizes so regions end part way through a word of the map's content bits
+        BufferedImage image = new BufferedImage(1001, 777, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, 1001, 777);
+        g2d.setColor(Color.BLACK);
+        java.util.Random random = new java.util.Random(7);
+        for (int i = 0; i < 40; i++) {
+            g2d.drawLine(random.nextInt(1001), random.nextInt(777), random.nextInt(1001), random.nextInt(777));
+        }
+        g2d.fillRect(600, 100, 90, 60);
+        g2d.dispose();
+
+        for (ContentThresholds thresholds : new ContentThresholds[] {
+                 ContentThresholds.DEFAULT, new ContentThresholds(0.01, 240, 30), new ContentThresholds(0.2, 240, 30)}) {
+            GridOptimizer.ContentMap map = GridOptimizer.ContentMap.of(image, thresholds);
+            for (int i = 0; i < 2000; i++) {
+                Rectangle region = new Rectangle(random.nextInt(1100) - 50, random.nextInt(850) - 50,
+                                                 1 + random.nextInt(400), 1 + random.nextInt(400));
+                assertEquals(thresholds.isNonBlank(TileContentStats.regionContentRatio(image, region, thresholds)),
+                             GridOptimizer.isNonBlank(map, region, thresholds), "Region " + region);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Shifting the grid moves straddling content onto one page")
+    void testOptimizeFindsFewerPages() {
+        BufferedImage image = createImage();
+        GridOptimizer.ContentMap map = GridOptimizer.ContentMap.of(image, ContentThresholds.DEFAULT);
+        GridOptimizer.Recommendation recommendation = GridOptimizer.optimize(map, 1000, 1000, Orientation.NORMAL, 2.0f,
+                                                                             A4_WIDTH, A4_HEIGHT, ContentThresholds.DEFAULT);
+        assertEquals(2, recommendation.currentPages);
+        assertEquals(1, recommendation.pages);
+        assertTrue(recommendation.isImprovement());
+        assertFalse(recommendation.rotate, "A quarter turn gives no extra saving here");
+
+        // The pixel-sampling blank-tile analysis agrees with the map
+        Orientation orientation = recommendation.rotate ? Orientation.NORMAL.next() : Orientation.NORMAL;
+        TileCalculator.TilingResult tiling = recommendation.layout.apply(
+            TileCalculator.calculateTiling(1000, 1000, A4_WIDTH, A4_HEIGHT, 2.0f));
+        assertEquals(1, TileCalculator.getNonBlankTiles(tiling, image, orientation, ContentThresholds.DEFAULT).size());
+    }
+
+    @Test
+    @DisplayName("Content is never cut into pieces small enough to be dropped as blank")
+    void testOptimizeKeepsSmallContent() {
+        BufferedImage image = new BufferedImage(1000, 1000, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, 1000, 1000);
+        g2d.setColor(Color.BLACK);
+        g2d.fillRect(190, 290, 120, 120);
+        g2d.dispose();
+
+        GridOptimizer.ContentMap map = GridOptimizer.ContentMap.of(image, ContentThresholds.DEFAULT);
+        GridOptimizer.Recommendation recommendation = GridOptimizer.optimize(map, 1000, 1000, Orientation.NORMAL, 2.0f,
+                                                                             A4_WIDTH, A4_HEIGHT, ContentThresholds.DEFAULT);
+        assertEquals(1, recommendation.currentPages);
+        assertEquals(1, recommendation.pages, "The block still prints");
+
+        // The recommended page count is the one the selection shows
+        Orientation orientation = recommendation.rotate ? Orientation.NORMAL.next() : Orientation.NORMAL;
+        TileCalculator.TilingResult base = TileCalculator.calculateTiling(orientation.rotatedWidth(1000, 1000),
+                                                                       orientation.rotatedHeight(1000, 1000), A4_WIDTH, A4_HEIGHT, 2.0f);
+        TileCalculator.TilingResult tiling = recommendation.layout.apply(base);
+        assertEquals(recommendation.pages,
+                     TileCalculator.getNonBlankTiles(tiling, image, orientation, ContentThresholds.DEFAULT).size());
+        GridOptimizer.Score score = GridOptimizer.score(map, tiling, orientation, ContentThresholds.DEFAULT, Integer.MAX_VALUE);
+        assertEquals(0, score.droppedPixels, "No part of the block is left on a blank page");
+    }
+}
@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test class for ImageStatistics: background estimation, colour classification,
+ * and blank-tile detection and margin trimming against non-white paper.
+ */
+public class ImageStatisticsTest {
+
+    /**
+     * Noisy paper in the given colour with a dark block drawn in one corner
+     */
+    private static BufferedImage createScan(int paperRgb, int inkRgb) {
+        BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < 300; y++) {
+            for (int x = 0; x < 400; x++) {
+                int noise = random.nextInt(7) - 3;
+                int r = clamp(((paperRgb >> 16) & 0xFF) + noise);
+                int g = clamp(((paperRgb >> 8) & 0xFF) + noise);
+                int b = clamp((paperRgb & 0xFF) + noise);
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(new Color(inkRgb));
+        g2d.fillRect(20, 30, 60, 50);
+        g2d.dispose();
+        return image;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    @Test
+    @DisplayName("Beige and blueprint paper are detected and their empty tiles are blank")
+    void testColouredPaper() {
+        for (int[] paper : new int[][] {{0xE8DCC0, 0x202020}, {0x1F4E8C, 0xFFFFFF}}) {
+            BufferedImage scan = createScan(paper[0], paper[1]);
+            ImageStatistics statistics = ImageStatistics.of(scan);
+            int background = statistics.getBackgroundRgb();
+            assertTrue(ContentThresholds.closeness(0xFF000000 | paper[0], background) >= 250,
+                       String.format("Background #%06X should be close to #%06X", background, paper[0]));
+            assertEquals(ImageStatistics.ColorClass.COLOR, statistics.getColorClass());
+            assertEquals(new Rectangle(20, 30, 60, 50), WhitespaceTrim.findContentBounds(scan, ContentThresholds.forImage(scan)));
+
+            // 4x3 grid of 100x100 tiles: only the tile holding the block has content
+            TileCalculator.TilingResult tiling = new TileCalculator.TilingResult(4, 3, 100, 100, 400, 300);
+            List<TileCalculator.TileInfo> nonBlank = TileCalculator.getNonBlankTiles(tiling, scan, Orientation.NORMAL);
+            assertEquals(1, nonBlank.size());
+            assertEquals(0, nonBlank.get(0).col);
+            assertEquals(0, nonBlank.get(0).row);
+        }
+    }
+
+    @Test
+    @DisplayName("White paper keeps the classic near-white rule and flat artwork is not paper")
+    void testWhitePaperAndFlatColour() {
+        ImageStatistics white = ImageStatistics.of(createScan(0xFCFCFC, 0x000000));
+        assertEquals(0xFFFFFF, white.getBackgroundRgb());
+        assertEquals(ImageStatistics.ColorClass.BILEVEL, white.getColorClass());
+
+        BufferedImage red = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = red.createGraphics();
+        g2d.setColor(Color.RED);
+        g2d.fillRect(0, 0, 200, 100);
+        g2d.dispose();
+        ImageStatistics flat = ImageStatistics.of(red);
+        assertEquals(0xFFFFFF, flat.getBackgroundRgb());
+        assertEquals(new Rectangle(0, 0, 200, 100), WhitespaceTrim.findContentBounds(red, ContentThresholds.forImage(red)));
+    }
+
+    @Test
+    @DisplayName("Gray ramps are grayscale and histograms count every pixel")
+    void testGrayscaleHistograms() {
+        BufferedImage gray = new BufferedImage(256, 10, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 256; x++) {
+                gray.setRGB(x, y, (y == 0 ? 0 : 0xFF000000) | (x << 16) | (x << 8) | x);
+            }
+        }
+        ImageStatistics statistics = ImageStatistics.of(gray);
+        assertEquals(ImageStatistics.ColorClass.GRAYSCALE, statistics.getColorClass());
+        long[] alpha = statistics.getAlphaHistogram();
+        assertEquals(256, alpha[0]);
+        assertEquals(256 * 9, alpha[255]);
+        long lumaTotal = 0;
+        for (long count : statistics.getLumaHistogram()) {
+            lumaTotal += count;
+        }
+        assertEquals(256 * 9, lumaTotal, "Transparent pixels are left out of the luminance histogram");
+    }
+}
@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Test class for the off-heap tiled raster store: region reads across tile
+ * boundaries, rotated copies and downsampled previews.
+ */
+public class MappedRasterStoreTest {
+
+    // Not a multiple of the tile size, so edge tiles are partial
+    private static final int WIDTH = MappedRasterStore.TILE_SIZE * 2 + 37;
+    private static final int HEIGHT = MappedRasterStore.TILE_SIZE + 91;
+
+    private static BufferedImage createPatternImage() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.setRGB(x, y, 0xFF000000 | (x * 7 + y * 131));
+            }
+        }
+        return image;
+    }
+
+    @Test
+    @DisplayName("Region reads spanning several tiles return the stored pixels")
+    void testRegionAcrossTiles() throws IOException {
+        BufferedImage image = createPatternImage();
+        MappedRasterStore store = MappedRasterStore.create(WIDTH, HEIGHT);
+        try {
+            store.writeRegion(0, 0, image);
+            Rectangle region = new Rectangle(300, 300, 700, 250);
+            BufferedImage read = store.readRegion(region);
+
+            assertEquals(region.width, read.getWidth());
+            assertEquals(region.height, read.getHeight());
+            for (int y = 0; y < region.height; y += 3) {
+                for (int x = 0; x < region.width; x += 3) {
+                    assertEquals(image.getRGB(region.x + x, region.y + y), read.getRGB(x, y),
+                                 "Pixel mismatch at " + (region.x + x) + "," + (region.y + y));
+                }
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Quarter-turn copy matches a clockwise rotation")
+    void testRotatedCopy() throws IOException {
+        BufferedImage image = createPatternImage();
+        MappedRasterStore rotated = MappedRasterStore.rotatedCopyOf(new InMemoryImageSource(image), 1);
+        try {
+            assertEquals(HEIGHT, rotated.getWidth());
+            assertEquals(WIDTH, rotated.getHeight());
+            BufferedImage read = rotated.getFullImage();
+            for (int y = 0; y < WIDTH; y += 5) {
+                for (int x = 0; x < HEIGHT; x += 5) {
+                    // Clockwise: destination (x, y) comes from source (y, height - 1 - x)
+                    assertEquals(image.getRGB(y, HEIGHT - 1 - x), read.getRGB(x, y));
+                }
+            }
+        } finally {
+            rotated.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Downsampling takes every n-th pixel")
+    void testDownsample() throws IOException {
+        BufferedImage image = createPatternImage();
+        MappedRasterStore store = MappedRasterStore.create(WIDTH, HEIGHT);
+        try {
+            store.writeRegion(0, 0, image);
+            BufferedImage preview = store.downsample(4);
+            assertEquals((WIDTH + 3) / 4, preview.getWidth());
+            assertEquals((HEIGHT + 3) / 4, preview.getHeight());
+            for (int y = 0; y < preview.getHeight(); y++) {
+                for (int x = 0; x < preview.getWidth(); x++) {
+                    assertEquals(image.getRGB(x * 4, y * 4), preview.getRGB(x, y));
+                }
+            }
+        } finally {
+            store.close();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Test class for MixedLayoutSolver: covering content with sheets of several paper sizes
+ * and orientations.
+ */
+public class MixedLayoutSolverTest {
+
+    private static final double A4_WIDTH = 8.27 * 72;
+    private static final double A4_HEIGHT = 11.69 * 72;
+
+    /**
+     * White square with a black block, printed at scale 2 (1000 pixels become about 1190 points)
+     */
+    private static BufferedImage createImage(int blockX, int blockY, int blockSize) {
+        BufferedImage image = new BufferedImage(1000, 1000, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, 1000, 1000);
+        g2d.setColor(Color.BLACK);
+        g2d.fillRect(blockX, blockY, blockSize, blockSize);
+        g2d.dispose();
+        return image;
+    }
+
+    private static MixedLayoutSolver.SheetLayout solve(BufferedImage image, java.util.List<Settings.PaperSize> papers,
+                                                       MixedLayoutSolver.Objective objective) {
+        TileCalculator.TilingResult tiling = TileCalculator.calculateTiling(1000, 1000, A4_WIDTH, A4_HEIGHT, 2.0f);
+        GridOptimizer.ContentMap map = GridOptimizer.ContentMap.of(image, ContentThresholds.DEFAULT);
+        return MixedLayoutSolver.solve(map, Orientation.NORMAL, tiling.imageWidth, tiling.imageHeight, papers, objective, 2000);
+    }
+
+    /**
+     * Every corner of the block lies on some sheet, and every sheet's cell fits its paper
+     */
+    private static void assertCovers(MixedLayoutSolver.SheetLayout layout, Rectangle2D block) {
+        for (MixedLayoutSolver.Sheet sheet : layout.sheets) {
+            assertTrue(sheet.cell.width <= sheet.getPageWidth() + 1e-6 && sheet.cell.height <= sheet.getPageHeight() + 1e-6,
+                       "Cell fits its sheet");
+        }
+        double[][] corners = {{block.getMinX(), block.getMinY()}, {block.getMaxX() - 1, block.getMinY()},
+                              {block.getMinX(), block.getMaxY() - 1}, {block.getMaxX() - 1, block.getMaxY() - 1}};
+        for (double[] corner : corners) {
+            assertTrue(layout.sheets.stream().anyMatch(sheet -> sheet.cell.contains(corner[0], corner[1])),
+                       "Content at " + corner[0] + "," + corner[1] + " is on a sheet");
+        }
+    }
+
+    @Test
+    @DisplayName("Cutting where the content is beats a grid anchored at the corner")
+    void testSingleSizeBeatsUniformGrid() {
+        // Block at 476..714 points straddles the first A4 page boundary at 595
+        MixedLayoutSolver.SheetLayout layout = solve(createImage(400, 400, 200), Collections.singletonList(Settings.PaperSize.A4),
+                                                     MixedLayoutSolver.Objective.FEWEST_SHEETS);
+        assertEquals(2, layout.uniformSheets);
+        assertEquals(1, layout.sheets.size());
+        double pointsPerPixel = layout.renderWidth / 1000.0;
+        assertCovers(layout, new Rectangle2D.Double(400 * pointsPerPixel, 400 * pointsPerPixel, 200 * pointsPerPixel, 200 * pointsPerPixel));
+    }
+
+    @Test
+    @DisplayName("Content too large for one A4 sheet goes on a single A3 sheet")
+    void testMixedSizesSaveSheets() {
+        MixedLayoutSolver.SheetLayout a4Only = solve(createImage(100, 100, 700), Collections.singletonList(Settings.PaperSize.A4),
+                                                     MixedLayoutSolver.Objective.FEWEST_SHEETS);
+        assertEquals(2, a4Only.sheets.size());
+
+        MixedLayoutSolver.SheetLayout mixed = solve(createImage(100, 100, 700), Arrays.asList(Settings.PaperSize.A4, Settings.PaperSize.A3),
+                                                    MixedLayoutSolver.Objective.FEWEST_SHEETS);
+        assertEquals(1, mixed.sheets.size());
+        assertEquals(Settings.PaperSize.A3, mixed.sheets.get(0).paper);
+        assertEquals("1 × A3", mixed.describeSheets());
+        double pointsPerPixel = mixed.renderWidth / 1000.0;
+        assertCovers(mixed, new Rectangle2D.Double(100 * pointsPerPixel, 100 * pointsPerPixel, 700 * pointsPerPixel, 700 * pointsPerPixel));
+    }
+
+    @Test
+    @DisplayName("Least paper never uses more than the best single-size grid, and blank images need no sheets")
+    void testLeastPaperAndBlankImage() {
+        MixedLayoutSolver.SheetLayout layout = solve(createImage(300, 600, 350), Arrays.asList(Settings.PaperSize.A4, Settings.PaperSize.A3),
+                                                     MixedLayoutSolver.Objective.LEAST_PAPER);
+        assertTrue(layout.getAreaSquareInches() <= layout.uniformAreaSquareInches + 1e-6);
+
+        MixedLayoutSolver.SheetLayout blank = solve(createImage(0, 0, 0), Collections.singletonList(Settings.PaperSize.A4),
+                                                    MixedLayoutSolver.Objective.FEWEST_SHEETS);
+        assertTrue(blank.sheets.isEmpty());
+        assertEquals(0, blank.uniformSheets);
+    }
+}
@@ -0,0 +1,62 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Compares the raster rotation kernel with the previous Graphics2D rotation.
+ * Run with the compiled classes on the classpath:
+ * java -cp build/classes:build/test-classes RasterRotationBenchmark [width height]
+ */
+public class RasterRotationBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int width = args.length >= 2 ? Integer.parseInt(args[0]) : 8000;
+        int height = args.length >= 2 ? Integer.parseInt(args[1]) : 6000;
+        int[] types = {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_BYTE_GRAY};
+        String[] names = {"INT_ARGB", "3BYTE_BGR", "BYTE_GRAY"};
+
+        System.out.println("Rotating " + width + "×" + height + " images, best of " + ROUNDS + " rounds (ms)");
+        System.out.printf("%-10s %-5s %10s %10s %8s%n", "type", "angle", "Graphics2D", "kernel", "speedup");
+        for (int t = 0; t < types.length; t++) {
+            BufferedImage image = new BufferedImage(width, height, types[t]);
+            Graphics2D g = image.createGraphics();
+            g.setPaint(new java.awt.GradientPaint(0, 0, java.awt.Color.RED, width, height, java.awt.Color.BLUE));
+            g.fillRect(0, 0, width, height);
+            g.dispose();
+
+            for (Orientation orientation : new Orientation[] {Orientation.CLOCKWISE_90, Orientation.CLOCKWISE_180}) {
+                long graphicsTime = Long.MAX_VALUE;
+                long kernelTime = Long.MAX_VALUE;
+                for (int round = 0; round < ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    rotateWithGraphics(image, orientation.getDegrees());
+                    graphicsTime = Math.min(graphicsTime, System.nanoTime() - start);
+
+                    start = System.nanoTime();
+                    RasterRotation.rotate(image, orientation);
+                    kernelTime = Math.min(kernelTime, System.nanoTime() - start);
+                }
+                System.out.printf("%-10s %-5d %10.1f %10.1f %7.1fx%n", names[t], orientation.getDegrees(),
+                                  graphicsTime / 1e6, kernelTime / 1e6, (double) graphicsTime / kernelTime);
+            }
+        }
+    }
+
+    /**
+     * The rotation ImagePanel used before the kernel existed
+     */
+    private static BufferedImage rotateWithGraphics(BufferedImage img, float angle) {
+        int w = img.getWidth();
+        int h = img.getHeight();
+        int newWidth = angle == 90 || angle == 270 ? h : w;
+        int newHeight = angle == 90 || angle == 270 ? w : h;
+        BufferedImage rotated = new BufferedImage(newWidth, newHeight, img.getType());
+        Graphics2D graphic = rotated.createGraphics();
+        graphic.rotate(Math.toRadians(angle), newWidth / 2.0, newHeight / 2.0);
+        graphic.translate((newWidth - w) / 2.0, (newHeight - h) / 2.0);
+        graphic.drawImage(img, 0, 0, null);
+        graphic.dispose();
+        return rotated;
+    }
+}
@@ -0,0 +1,149 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Rectangle;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Test class for the raster rotation kernel: every orientation must move each
+ * pixel's samples to the rotated position and keep the image type. Region reads
+ * through RotatedImageSource and Orientation.toSource must agree with it.
+ */
+public class RasterRotationTest {
+
+    private static final int WIDTH = 150; // not a multiple of the block size
+    private static final int HEIGHT = 97;
+
+    private static BufferedImage randomImage(BufferedImage image) {
+        Random random = new Random(42);
+        WritableRaster raster = image.getRaster();
+        int bits = raster.getSampleModel().getSampleSize(0);
+        for (int y = 0; y < raster.getHeight(); y++) {
+            for (int x = 0; x < raster.getWidth(); x++) {
+                for (int b = 0; b < raster.getNumBands(); b++) {
+                    raster.setSample(x, y, b, random.nextInt(1 << Math.min(bits, 16)));
+                }
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Interleaved RGBA bytes with a non-standard band order, which BufferedImage reports as TYPE_CUSTOM
+     */
+    private static BufferedImage customImage() {
+        ColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), true, false,
+                                                        ColorModel.TRANSLUCENT, DataBuffer.TYPE_BYTE);
+        WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, WIDTH, HEIGHT, WIDTH * 4, 4,
+                                                               new int[] {0, 1, 2, 3}, null);
+        return randomImage(new BufferedImage(colorModel, raster, false, null));
+    }
+
+    private static void assertRotated(BufferedImage source, Orientation orientation, BufferedImage rotated) {
+        int w = source.getWidth();
+        int h = source.getHeight();
+        assertEquals(source.getType(), rotated.getType(), "Image type must be preserved");
+        assertEquals(orientation.rotatedWidth(w, h), rotated.getWidth());
+        assertEquals(orientation.rotatedHeight(w, h), rotated.getHeight());
+        Raster in = source.getRaster();
+        Raster out = rotated.getRaster();
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int dx;
+                int dy;
+                switch (orientation) {
+                    case CLOCKWISE_90: dx = h - 1 - y; dy = x; break;
+                    case CLOCKWISE_180: dx = w - 1 - x; dy = h - 1 - y; break;
+                    case CLOCKWISE_270: dx = y; dy = w - 1 - x; break;
+                    default: dx = x; dy = y; break;
+                }
+                assertArrayEquals(in.getPixel(x, y, (int[]) null), out.getPixel(dx, dy, (int[]) null),
+                                  orientation + " pixel " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Standard image types rotate in all orientations")
+    void testStandardTypes() {
+        int[] types = {
+            BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR,
+            BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_USHORT_GRAY,
+            BufferedImage.TYPE_USHORT_565_RGB, BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_INDEXED
+        };
+        for (int type : types) {
+            BufferedImage image = randomImage(new BufferedImage(WIDTH, HEIGHT, type));
+            for (Orientation orientation : Orientation.values()) {
+                assertRotated(image, orientation, RasterRotation.rotate(image, orientation));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("TYPE_CUSTOM images keep their color model")
+    void testCustomType() {
+        BufferedImage image = customImage();
+        assertEquals(BufferedImage.TYPE_CUSTOM, image.getType());
+        for (Orientation orientation : Orientation.values()) {
+            BufferedImage rotated = RasterRotation.rotate(image, orientation);
+            assertSame(image.getColorModel(), rotated.getColorModel());
+            assertRotated(image, orientation, rotated);
+        }
+    }
+
+    @Test
+    @DisplayName("Subimages rotate only their own region")
+    void testSubimage() {
+        BufferedImage image = randomImage(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB));
+        BufferedImage region = image.getSubimage(17, 9, 80, 61);
+        for (Orientation orientation : Orientation.values()) {
+            assertRotated(region, orientation, RasterRotation.rotate(region, orientation));
+        }
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual, String message) {
+        assertEquals(expected.getWidth(), actual.getWidth(), message);
+        assertEquals(expected.getHeight(), actual.getHeight(), message);
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), message + " pixel " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Rotated region reads match crops of the rotated image in all orientations")
+    void testRotatedRegions() throws IOException {
+        BufferedImage image = randomImage(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB));
+        Random random = new Random(5);
+        for (Orientation orientation : Orientation.values()) {
+            BufferedImage rotated = RasterRotation.rotate(image, orientation);
+            RotatedImageSource source = new RotatedImageSource(new InMemoryImageSource(image), orientation);
+            assertEquals(rotated.getWidth(), source.getWidth());
+            assertEquals(rotated.getHeight(), source.getHeight());
+            for (int i = 0; i < 50; i++) {
+                int x = random.nextInt(rotated.getWidth());
+                int y = random.nextInt(rotated.getHeight());
+                Rectangle region = new Rectangle(x, y, 1 + random.nextInt(rotated.getWidth() - x),
+                                                 1 + random.nextInt(rotated.getHeight() - y));
+
+                BufferedImage expected = rotated.getSubimage(region.x, region.y, region.width, region.height);
+                // toSource gives the source rectangle that rotates onto exactly the region
+                Rectangle sourceRegion = orientation.toSource(region, WIDTH, HEIGHT);
+                assertSamePixels(expected, RasterRotation.rotate(image.getSubimage(sourceRegion.x, sourceRegion.y,
+                                                                                   sourceRegion.width, sourceRegion.height), orientation),
+                                 orientation + " source of " + region);
+                assertSamePixels(expected, source.readRegion(region), orientation + " read of " + region);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for RenderPlan: shared output geometry and its memoized selection.
+ */
+public class RenderPlanTest {
+
+    private static final double PAGE_WIDTH = 8.27 * 72;
+    private static final double PAGE_HEIGHT = 11.69 * 72;
+
+    @Test
+    @DisplayName("The plan's tiling is the tiler's, with the grid layout applied")
+    void testGeometry() {
+        TileCalculator.GridLayout shifted = new TileCalculator.GridLayout(TileCalculator.PageOrientation.AUTO, 0.5, 0.25);
+        RenderPlan plan = RenderPlan.of(3000, 2000, Orientation.NORMAL, 3f, shifted, PAGE_WIDTH, PAGE_HEIGHT);
+        TileCalculator.TilingResult expected = shifted.apply(TileCalculator.calculateTiling(3000, 2000, PAGE_WIDTH, PAGE_HEIGHT, 3f));
+        assertEquals(expected.tilesWide, plan.tiling.tilesWide);
+        assertEquals(expected.tilesHigh, plan.tiling.tilesHigh);
+        assertEquals(expected.originX, plan.tiling.originX);
+        assertEquals(expected.imageWidth, plan.tiling.imageWidth);
+
+        // The exporter lays out the same grid from the plan's spec
+        TileCalculator.TilingResult exported = plan.toSpec(false).tilingFor(PAGE_WIDTH, PAGE_HEIGHT);
+        assertEquals(plan.getTileCount(), exported.tilesWide * exported.tilesHigh);
+
+        assertTrue(plan.matches(3000, 2000, Orientation.NORMAL, 3f, shifted, PAGE_WIDTH, PAGE_HEIGHT));
+        assertFalse(plan.matches(3000, 2000, Orientation.NORMAL, 2f, shifted, PAGE_WIDTH, PAGE_HEIGHT));
+        assertFalse(plan.matches(2000, 3000, Orientation.CLOCKWISE_90, 3f, shifted, PAGE_WIDTH, PAGE_HEIGHT));
+    }
+
+    @Test
+    @DisplayName("A selection is kept for its grid version and thresholds and cannot be changed")
+    void testSelection() {
+        RenderPlan plan = RenderPlan.of(1000, 1000, Orientation.NORMAL, 2f, null, PAGE_WIDTH, PAGE_HEIGHT);
+        assertNull(plan.getSelection());
+        assertFalse(plan.hasSelection(0, ContentThresholds.DEFAULT));
+
+        List<TileCalculator.TileInfo> tiles = new ArrayList<>();
+        tiles.add(new TileCalculator.TileInfo(0, 0, 1));
+        RenderPlan selected = plan.withSelection(tiles, 7, ContentThresholds.DEFAULT);
+        tiles.add(new TileCalculator.TileInfo(1, 0, 2));
+
+        assertNull(plan.getSelection(), "The original plan is unchanged");
+        assertSame(plan.tiling, selected.tiling);
+        assertEquals(1, selected.getSelection().size(), "The plan keeps its own copy");
+        assertThrows(UnsupportedOperationException.class, () -> selected.getSelection().clear());
+        assertTrue(selected.hasSelection(7, ContentThresholds.DEFAULT));
+        assertFalse(selected.hasSelection(8, ContentThresholds.DEFAULT));
+        assertFalse(selected.hasSelection(7, ContentThresholds.DEFAULT.withLevels(0.1, 240, 30)));
+    }
+
+    @Test
+    @DisplayName("The selection grid's version moves only when a tile's state changes")
+    void testGridVersion() {
+        TileSelectionGrid grid = new TileSelectionGrid();
+        grid.setDimensions(3, 2);
+        int version = grid.getVersion();
+        grid.setAnalysis(1, 1, true);
+        assertNotEquals(version, grid.getVersion());
+        version = grid.getVersion();
+        grid.setAnalysis(1, 1, true);
+        assertEquals(version, grid.getVersion(), "Recording the same analysis again is not a change");
+        grid.setSelected(0, 0, true);
+        assertNotEquals(version, grid.getVersion());
+    }
+}
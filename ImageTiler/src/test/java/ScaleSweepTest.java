@@ -0,0 +1,154 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test class for ScaleSweep and ScaleCalculator.calculateScaleForPageCount: content-aware
+ * page counts across a range of scales.
+ */
+public class ScaleSweepTest {
+
+    private static final double A4_WIDTH = 8.27 * 72;
+    private static final double A4_HEIGHT = 11.69 * 72;
+
+    /**
+     * White square with black content in the top-left quarter only
+     */
+    private static BufferedImage createImage() {
+        BufferedImage image = new BufferedImage(800, 800, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, 800, 800);
+        g2d.setColor(Color.BLACK);
+        g2d.fillRect(0, 0, 400, 400);
+        g2d.dispose();
+        return image;
+    }
+
+    @Test
+    @DisplayName("Page counts agree with the pixel-sampling blank-tile analysis")
+    void testEvaluateMatchesTileAnalysis() {
+        BufferedImage image = createImage();
+        GridOptimizer.ContentMap map = GridOptimizer.ContentMap.of(image, ContentThresholds.DEFAULT);
+        for (float scale : new float[] {1.0f, 1.5f, 2.0f, 3.0f}) {
+            ScaleSweep.Sample sample = ScaleSweep.evaluate(map, 800, 800, Orientation.NORMAL, ContentThresholds.DEFAULT,
+                                                           scale, A4_WIDTH, A4_HEIGHT);
+            TileCalculator.TilingResult tiling = TileCalculator.calculateTiling(800, 800, A4_WIDTH, A4_HEIGHT, scale);
+            assertEquals(TileCalculator.getNonBlankTiles(tiling, image, Orientation.NORMAL, ContentThresholds.DEFAULT).size(),
+                         sample.pages, "Pages at scale " + scale);
+            assertEquals(tiling.tilesWide * tiling.tilesHigh, sample.totalTiles);
+            assertTrue(sample.pages <= sample.totalTiles);
+        }
+    }
+
+    @Test
+    @DisplayName("A sweep counts fewer pages than the grid when a quarter of the image is blank")
+    void testSweep() {
+        GridOptimizer.ContentMap map = GridOptimizer.ContentMap.of(createImage(), ContentThresholds.DEFAULT);
+        List<ScaleSweep.Sample> samples = ScaleSweep.sweep(map, 800, 800, Orientation.NORMAL, ContentThresholds.DEFAULT,
+                                                           1.0f, 4.0f, 61, A4_WIDTH, A4_HEIGHT);
+        assertEquals(61, samples.size());
+        assertEquals(1.0f, samples.get(0).scale, 1e-6);
+        assertEquals(4.0f, samples.get(60).scale, 1e-6);
+        ScaleSweep.Sample last = samples.get(60);
+        assertTrue(last.pages < last.totalTiles, "Blank tiles are not counted");
+        assertEquals(4 * 8.27f, last.widthInches, 0.05f);
+
+        assertThrows(IllegalArgumentException.class, () -> ScaleSweep.sweep(map, 800, 800, Orientation.NORMAL,
+            ContentThresholds.DEFAULT, 2.0f, 1.0f, 10, A4_WIDTH, A4_HEIGHT));
+    }
+
+    @Test
+    @DisplayName("The largest scale before each page-count increase is found")
+    void testBeforeJumps() {
+        List<ScaleSweep.Sample> samples = Arrays.asList(
+            new ScaleSweep.Sample(1.0f, 1, 1, 8, 8, false),
+            new ScaleSweep.Sample(1.1f, 1, 2, 9, 9, false),
+            new ScaleSweep.Sample(1.2f, 2, 2, 10, 10, false),
+            new ScaleSweep.Sample(1.3f, 2, 4, 11, 11, false),
+            new ScaleSweep.Sample(1.4f, 4, 4, 12, 12, false));
+        List<ScaleSweep.Sample> jumps = ScaleSweep.beforeJumps(samples);
+        assertEquals(2, jumps.size());
+        assertEquals(1.1f, jumps.get(0).scale, 1e-6);
+        assertEquals(1.3f, jumps.get(1).scale, 1e-6);
+    }
+
+    @Test
+    @DisplayName("Fit to N pages finds the largest scale that prints at most N pages")
+    void testFitToPages() {
+        GridOptimizer.ContentMap map = GridOptimizer.ContentMap.of(createImage(), ContentThresholds.DEFAULT);
+        ScaleCalculator.PageFit fit = ScaleCalculator.calculateScaleForPageCount(map, 800, 800, Orientation.NORMAL,
+            ContentThresholds.DEFAULT, 4, false, A4_WIDTH, A4_HEIGHT);
+        assertTrue(fit.pages <= 4);
+        assertTrue(fit.layout.isDefault());
+        ScaleSweep.Sample at = ScaleSweep.evaluate(map, 800, 800, Orientation.NORMAL, ContentThresholds.DEFAULT, fit.scale, A4_WIDTH, A4_HEIGHT);
+        assertEquals(fit.pages, at.pages);
+        ScaleSweep.Sample above = ScaleSweep.evaluate(map, 800, 800, Orientation.NORMAL, ContentThresholds.DEFAULT,
+                                                      fit.scale * 1.01f, A4_WIDTH, A4_HEIGHT);
+        assertTrue(above.pages > 4, "Slightly larger needs more pages");
+
+        // Shifting the grid can only allow a larger scale
+        ScaleCalculator.PageFit shifted = ScaleCalculator.calculateScaleForPageCount(map, 800, 800, Orientation.NORMAL,
+            ContentThresholds.DEFAULT, 4, true, A4_WIDTH, A4_HEIGHT);
+        assertTrue(shifted.scale >= fit.scale - 1e-4f);
+
+        assertThrows(IllegalArgumentException.class, () -> ScaleCalculator.calculateScaleForPageCount(map, 800, 800,
+            Orientation.NORMAL, ContentThresholds.DEFAULT, 0, false, A4_WIDTH, A4_HEIGHT));
+    }
+
+    @Test
+    @DisplayName("Small content cut by page edges is counted as the selection counts it")
+    void testEvaluateMatchesTileAnalysisForSmallContent() {
+        BufferedImage image = new BufferedImage(1000, 1000, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, 1000, 1000);
+        g2d.setColor(Color.BLACK);
+        g2d.fillRect(190, 290, 30, 30);
+        g2d.fillRect(700, 640, 30, 30);
+        g2d.dispose();
+        GridOptimizer.ContentMap map = GridOptimizer.ContentMap.of(image, ContentThresholds.DEFAULT);
+        List<ScaleSweep.Sample> samples = ScaleSweep.sweep(map, 1000, 1000, Orientation.NORMAL, ContentThresholds.DEFAULT,
+                                                           1.0f, 14.0f, 40, A4_WIDTH, A4_HEIGHT);
+        for (ScaleSweep.Sample sample : samples) {
+            TileCalculator.TilingResult tiling = TileCalculator.calculateTiling(1000, 1000, A4_WIDTH, A4_HEIGHT, sample.scale);
+            assertEquals(TileCalculator.getNonBlankTiles(tiling, image, Orientation.NORMAL, ContentThresholds.DEFAULT).size(),
+                         sample.pages, "Pages at scale " + sample.scale);
+        }
+    }
+
+    @Test
+    @DisplayName("Fit to N pages never exceeds N pages in the selection by cutting content too small to print")
+    void testFitToPagesKeepsSmallContent() {
+        BufferedImage image = new BufferedImage(1000, 1000, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, 1000, 1000);
+        g2d.setColor(Color.BLACK);
+        g2d.fillRect(190, 290, 30, 30);
+        g2d.fillRect(700, 640, 30, 30);
+        g2d.dispose();
+        GridOptimizer.ContentMap map = GridOptimizer.ContentMap.of(image, ContentThresholds.DEFAULT);
+
+        for (int maxPages : new int[] {1, 2}) {
+            for (boolean allowGridShift : new boolean[] {false, true}) {
+                ScaleCalculator.PageFit fit = ScaleCalculator.calculateScaleForPageCount(map, 1000, 1000, Orientation.NORMAL,
+                    ContentThresholds.DEFAULT, maxPages, allowGridShift, A4_WIDTH, A4_HEIGHT);
+                TileCalculator.TilingResult tiling = fit.layout.apply(
+                    TileCalculator.calculateTiling(1000, 1000, A4_WIDTH, A4_HEIGHT, fit.scale));
+                int selected = TileCalculator.getNonBlankTiles(tiling, image, Orientation.NORMAL, ContentThresholds.DEFAULT).size();
+                String label = maxPages + " pages" + (allowGridShift ? " with grid shift" : "");
+                assertTrue(selected <= maxPages, label + ": " + fit + " selects " + selected);
+                assertEquals(fit.pages, selected, label);
+                if (maxPages == 2) {
+                    assertEquals(2, selected, "Each block gets its own page");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Test class for the native TIFF/BigTIFF decoder: tiled files in each supported
+ * compression, region reads across tile boundaries, BigTIFF headers and oversized strips.
+ */
+public class TiffImageSourceTest {
+
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 200;
+
+    @TempDir
+    Path tempDir;
+
+    private static BufferedImage createPatternImage() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                // Mostly smooth with some repetition so LZW builds long strings
+                image.setRGB(x, y, ((x / 3) << 16) | ((y / 2) << 8) | ((x + y) & 0xFF));
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Writes a tiled TIFF with the JDK's TIFF writer
+     */
+    private File writeTiledTiff(BufferedImage image, String compression) throws IOException {
+        File file = tempDir.resolve("tiled-" + compression + ".tif").toFile();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("tiff").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setTiling(128, 64, 0, 0);
+            if (!"None".equals(compression)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionType(compression);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return file;
+    }
+
+    private static void assertPixelsMatch(BufferedImage expected, Rectangle region, BufferedImage actual) {
+        assertEquals(region.width, actual.getWidth());
+        assertEquals(region.height, actual.getHeight());
+        for (int y = 0; y < region.height; y++) {
+            for (int x = 0; x < region.width; x++) {
+                assertEquals(expected.getRGB(region.x + x, region.y + y) | 0xFF000000, actual.getRGB(x, y),
+                             "Pixel mismatch at " + (region.x + x) + "," + (region.y + y));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Tiled TIFF decodes identically with no, LZW and Deflate compression")
+    void testTiledCompressions() throws IOException {
+        BufferedImage image = createPatternImage();
+        for (String compression : new String[] {"None", "LZW", "Deflate"}) {
+            File file = writeTiledTiff(image, compression);
+            assertTrue(TiffImageSource.isTiff(file));
+            try (TiffImageSource source = TiffImageSource.open(file, null)) {
+                assertEquals(WIDTH, source.getWidth());
+                assertEquals(HEIGHT, source.getHeight());
+                Rectangle region = new Rectangle(100, 50, 180, 120);
+                assertPixelsMatch(image, region, source.readRegion(region));
+                assertPixelsMatch(image, new Rectangle(0, 0, WIDTH, HEIGHT), source.getPreviewImage());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("BigTIFF header and 64-bit offsets are parsed")
+    void testBigTiff() throws IOException {
+        int width = 40;
+        int height = 30;
+        File file = tempDir.resolve("big.tif").toFile();
+        writeUncompressedBigTiff(file, width, height);
+
+        try (TiffImageSource source = TiffImageSource.open(file, null)) {
+            assertEquals(width, source.getWidth());
+            assertEquals(height, source.getHeight());
+            BufferedImage pixels = source.readRegion(new Rectangle(0, 0, width, height));
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    assertEquals(expectedPixel(x, y), pixels.getRGB(x, y));
+                }
+            }
+        }
+    }
+
+    private static int expectedPixel(int x, int y) {
+        return 0xFF000000 | ((x & 0xFF) << 16) | ((y & 0xFF) << 8) | 7;
+    }
+
+    @Test
+    @DisplayName("A whole-image uncompressed strip is read in row bands")
+    void testLargeStripReadInBands() throws IOException {
+        // 4000 × 2200 ARGB is about 35 MB, over the decoder's limit for one strip
+        int width = 4000;
+        int height = 2200;
+        File file = tempDir.resolve("one-strip.tif").toFile();
+        writeUncompressedBigTiff(file, width, height);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            TiffImageSource.Directory directory = TiffImageSource.readDirectories(channel).get(0);
+            assertEquals(1100, directory.tileHeight);
+            assertEquals(2, directory.tilesDown);
+            assertTrue((long) directory.tileWidth * directory.tileHeight * 4 <= TiffImageSource.Directory.MAX_TILE_BYTES);
+        }
+        try (TiffImageSource source = TiffImageSource.open(file, null)) {
+            Rectangle region = new Rectangle(3900, 1050, 100, 150);
+            BufferedImage pixels = source.readRegion(region);
+            for (int y = 0; y < region.height; y++) {
+                for (int x = 0; x < region.width; x++) {
+                    assertEquals(expectedPixel(region.x + x, region.y + y), pixels.getRGB(x, y),
+                                 "Pixel at " + (region.x + x) + "," + (region.y + y));
+                }
+            }
+            assertEquals(expectedPixel(3999, 2199), source.readRegion(new Rectangle(3999, 2199, 1, 1)).getRGB(0, 0));
+        }
+    }
+
+    @Test
+    @DisplayName("A compressed strip too large to decode at once is left to ImageIO")
+    void testLargeCompressedStripUnsupported() throws IOException {
+        java.util.Map<Integer, long[]> tags = new java.util.HashMap<>();
+        tags.put(256, new long[] {20000});
+        tags.put(257, new long[] {15000});
+        tags.put(258, new long[] {8, 8, 8});
+        tags.put(259, new long[] {5});
+        tags.put(262, new long[] {2});
+        tags.put(273, new long[] {1000});
+        tags.put(277, new long[] {3});
+        tags.put(278, new long[] {15000});
+        tags.put(279, new long[] {3_000_000_000L});
+        TiffImageSource.Directory directory = new TiffImageSource.Directory(tags, ByteOrder.LITTLE_ENDIAN, true);
+        assertFalse(directory.isSupported());
+        assertThrows(TiffImageSource.UnsupportedTiffException.class, directory::checkSupported);
+
+        tags.put(259, new long[] {1});
+        tags.put(279, new long[] {20000L * 15000 * 3});
+        directory = new TiffImageSource.Directory(tags, ByteOrder.LITTLE_ENDIAN, true);
+        assertTrue(directory.isSupported(), "Uncompressed, the same strip is split into bands");
+        assertEquals(15000, (long) directory.tileHeight * directory.tilesDown);
+        assertEquals(1000 + 20000L * 3 * directory.tileHeight, directory.offsets[1]);
+    }
+
+    /**
+     * Minimal little-endian BigTIFF: one 8-bit RGB strip, uncompressed
+     */
+    private static void writeUncompressedBigTiff(File file, int width, int height) throws IOException {
+        int entryCount = 9;
+        long ifdOffset = 16;
+        long dataOffset = ifdOffset + 8 + entryCount * 20L + 8;
+        int dataLength = width * height * 3;
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) dataOffset + dataLength).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 'I').put((byte) 'I').putShort((short) 43).putShort((short) 8).putShort((short) 0).putLong(ifdOffset);
+        buffer.putLong(entryCount);
+        putEntry(buffer, 256, 3, 1, width);
+        putEntry(buffer, 257, 3, 1, height);
+        // Three SHORTs fit inline in a BigTIFF entry
+        buffer.putShort((short) 258).putShort((short) 3).putLong(3);
+        buffer.putShort((short) 8).putShort((short) 8).putShort((short) 8).putShort((short) 0);
+        putEntry(buffer, 259, 3, 1, 1);
+        putEntry(buffer, 262, 3, 1, 2);
+        putEntry(buffer, 273, 16, 1, dataOffset);
+        putEntry(buffer, 277, 3, 1, 3);
+        putEntry(buffer, 278, 3, 1, height);
+        putEntry(buffer, 279, 16, 1, dataLength);
+        buffer.putLong(0);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                buffer.put((byte) x).put((byte) y).put((byte) 7);
+            }
+        }
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.write(buffer.array());
+        }
+    }
+
+    private static void putEntry(ByteBuffer buffer, int tag, int type, long count, long value) {
+        buffer.putShort((short) tag).putShort((short) type).putLong(count);
+        if (type == 3 && count == 1) {
+            buffer.putShort((short) value).putShort((short) 0).putInt(0);
+        } else {
+            buffer.putLong(value);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Test class for TileContentStats: recorded histograms must classify tiles exactly like
+ * the pixel analysis in TileCalculator, for the default and for changed thresholds.
+ */
+public class TileContentStatsTest {
+
+    /**
+     * White page with a gradient of grays, a faint translucent wash and a dark block
+     */
+    private static BufferedImage createTestImage() {
+        BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 300; y++) {
+            for (int x = 0; x < 400; x++) {
+                int argb = 0xFFFFFFFF;
+                if (x < 100) {
+                    int gray = 200 + x / 2;
+                    argb = 0xFF000000 | (gray << 16) | (gray << 8) | gray;
+                } else if (y < 100) {
+                    argb = (x % 64) << 24 | 0x404040;
+                } else if (x > 300 && y > 200 && (x + y) % 7 == 0) {
+                    argb = 0xFF102030;
+                }
+                image.setRGB(x, y, argb);
+            }
+        }
+        return image;
+    }
+
+    @Test
+    @DisplayName("Histogram classification matches pixel analysis for several thresholds")
+    void testMatchesPixelAnalysis() {
+        BufferedImage image = createTestImage();
+        TileCalculator.TilingResult tiling = new TileCalculator.TilingResult(8, 6, 50, 50, 400, 300);
+        TileContentStats stats = new TileContentStats(8, 6);
+        for (int row = 0; row < 6; row++) {
+            for (int col = 0; col < 8; col++) {
+                stats.record(col, row, image, TileCalculator.tileSourceRegion(col, row, tiling, image, Orientation.NORMAL));
+            }
+        }
+
+        ContentThresholds[] variants = {
+            ContentThresholds.DEFAULT,
+            new ContentThresholds(0.10, 240, 30),
+            new ContentThresholds(0.03, 220, 30),
+            new ContentThresholds(0.03, 240, 0),
+            new ContentThresholds(0.0, 256, 60)
+        };
+        for (ContentThresholds thresholds : variants) {
+            for (int row = 0; row < 6; row++) {
+                for (int col = 0; col < 8; col++) {
+                    assertEquals(TileCalculator.tileContainsMeaningfulContent(col, row, tiling, image, Orientation.NORMAL, thresholds),
+                                 stats.isNonBlank(col, row, thresholds),
+                                 "Tile " + col + "," + row + " with " + thresholds);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Reclassifying writes analysis flags into the selection grid")
+    void testClassifyIntoGrid() {
+        BufferedImage image = createTestImage();
+        TileContentStats stats = new TileContentStats(2, 1);
+        stats.record(0, 0, image, new Rectangle(0, 0, 100, 100));
+        stats.record(1, 0, image, new Rectangle(200, 200, 3, 3));
+
+        TileSelectionGrid grid = new TileSelectionGrid();
+        grid.setDimensions(2, 1);
+        stats.classify(ContentThresholds.DEFAULT, grid);
+        assertTrue(grid.isNonBlank(0, 0));
+        assertFalse(grid.isNonBlank(1, 0), "Regions under 5x5 pixels are always blank");
+
+        // The gradient runs from 200 to 249, so lowering near-white below 200 blanks it
+        stats.classify(new ContentThresholds(0.03, 200, 30), grid);
+        assertFalse(grid.isNonBlank(0, 0));
+        assertEquals(0, stats.countNonBlank(new ContentThresholds(0.03, 200, 30)));
+    }
+}
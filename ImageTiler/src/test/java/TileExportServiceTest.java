@@ -0,0 +1,270 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test class for TileExportService: page layout, progress and cancellation callbacks, and PDF output.
+ */
+public class TileExportServiceTest {
+
+    private static final double PAGE_WIDTH = 8.27 * 72;
+    private static final double PAGE_HEIGHT = 11.69 * 72;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Records what each page draws
+     */
+    private static class RecordingSink implements TileExportService.PageSink {
+        final List<String> events = new ArrayList<>();
+        final List<double[]> sizes = new ArrayList<>();
+        int pages;
+        int images;
+        int labels;
+
+        @Override
+        public void beginPage(double width, double height) {
+            events.add("begin");
+            sizes.add(new double[] {width, height});
+        }
+
+        @Override
+        public void drawImage(BufferedImage pixels, double x, double y, double width, double height) {
+            images++;
+        }
+
+        @Override
+        public void drawOutline(double x, double y, double width, double height) {
+        }
+
+        @Override
+        public void drawLabel(String text, double x, double y, double width, double height, boolean upward) {
+            labels++;
+        }
+
+        @Override
+        public void endPage() {
+            events.add("end");
+            pages++;
+        }
+    }
+
+    private static ImageSource source(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.DARK_GRAY);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        return new InMemoryImageSource(image);
+    }
+
+    private static List<TileCalculator.TileInfo> allTiles(TileCalculator.TilingResult tiling) {
+        List<TileCalculator.TileInfo> tiles = new ArrayList<>();
+        for (int row = 0; row < tiling.tilesHigh; row++) {
+            for (int col = 0; col < tiling.tilesWide; col++) {
+                tiles.add(new TileCalculator.TileInfo(col, row, row * tiling.tilesWide + col + 1));
+            }
+        }
+        return tiles;
+    }
+
+    @Test
+    @DisplayName("Every selected tile becomes one page and progress is reported after each")
+    void testExportWithProgress() throws IOException {
+        ImageSource source = source(600, 400);
+        TileExportService.Spec spec = new TileExportService.Spec(600, 400, 2.5f, null, false);
+        TileCalculator.TilingResult tiling = spec.tilingFor(PAGE_WIDTH, PAGE_HEIGHT);
+        List<TileCalculator.TileInfo> tiles = allTiles(tiling);
+        tiles.remove(0);
+
+        RecordingSink sink = new RecordingSink();
+        List<Integer> reported = new ArrayList<>();
+        TileExportService.Result result = TileExportService.export(
+            TileExportService.plan(source, spec, tiles, PAGE_WIDTH, PAGE_HEIGHT), sink, (done, total) -> reported.add(done));
+
+        assertEquals(tiles.size(), result.pages);
+        assertEquals(tiles.size(), sink.pages);
+        assertEquals(tiles.size(), sink.images, "One image per full tile");
+        assertEquals(tiling.tilesWide * tiling.tilesHigh, result.gridTiles);
+        assertEquals(1, result.getBlankPagesAvoided());
+        assertFalse(result.cancelled);
+        assertEquals(tiles.size(), reported.size());
+        assertEquals(tiles.size(), (int) reported.get(reported.size() - 1));
+        for (int i = 0; i < sink.events.size(); i += 2) {
+            assertEquals("begin", sink.events.get(i));
+            assertEquals("end", sink.events.get(i + 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Cancelling stops before the next page and writes no PDF")
+    void testCancellation() throws IOException {
+        ImageSource source = source(600, 400);
+        TileExportService.Spec spec = new TileExportService.Spec(600, 400, 3f, null, false);
+        List<TileCalculator.TileInfo> tiles = allTiles(spec.tilingFor(PAGE_WIDTH, PAGE_HEIGHT));
+        assertTrue(tiles.size() > 3);
+
+        TileExportService.Progress cancelAfterTwo = new TileExportService.Progress() {
+            int done;
+
+            @Override
+            public void pageDone(int pagesDone, int pageCount) {
+                done = pagesDone;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return done >= 2;
+            }
+        };
+        File output = tempDir.resolve("cancelled.pdf").toFile();
+        TileExportService.Result result = TileExportService.exportPdf(source, spec, tiles, PAGE_WIDTH, PAGE_HEIGHT,
+                                                                      output, cancelAfterTwo);
+        assertTrue(result.cancelled);
+        assertEquals(2, result.pages);
+        assertEquals(tiles.size(), result.pageCount);
+        assertFalse(output.exists(), "A cancelled export leaves no file behind");
+    }
+
+    @Test
+    @DisplayName("Packed edge tiles add labelled pieces on shared sheets, in the PDF too")
+    void testPackedEdgesToPdf() throws IOException {
+        ImageSource source = source(1000, 1000);
+        TileExportService.Spec spec = new TileExportService.Spec(1000, 1000, 1.7f, null, true);
+        List<TileCalculator.TileInfo> tiles = allTiles(spec.tilingFor(PAGE_WIDTH, PAGE_HEIGHT));
+
+        TileExportService.Plan plan = TileExportService.plan(source, spec, tiles, PAGE_WIDTH, PAGE_HEIGHT);
+        assertNotNull(plan.imposition);
+        assertTrue(plan.getPageCount() < tiles.size(), "Shared sheets save pages");
+        RecordingSink sink = new RecordingSink();
+        TileExportService.export(plan, sink, null);
+        assertEquals(plan.imposition.partialTiles, sink.labels, "Each packed piece is labelled");
+
+        File output = tempDir.resolve("packed.pdf").toFile();
+        TileExportService.Result result = TileExportService.exportPdf(source, spec, tiles, PAGE_WIDTH, PAGE_HEIGHT, output, null);
+        try (PDDocument document = Loader.loadPDF(output)) {
+            assertEquals(result.pages, document.getNumberOfPages());
+            assertEquals(plan.getPageCount(), result.pages);
+        }
+    }
+
+    @Test
+    @DisplayName("A mixed paper layout exports one page per sheet, each at its own paper size")
+    void testSheetLayoutPages() throws IOException {
+        BufferedImage image = new BufferedImage(1000, 1000, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 1000, 1000);
+        g.setColor(Color.BLACK);
+        g.fillRect(100, 100, 700, 700);
+        g.dispose();
+        TileCalculator.TilingResult tiling = TileCalculator.calculateTiling(1000, 1000, PAGE_WIDTH, PAGE_HEIGHT, 2.0f);
+        MixedLayoutSolver.SheetLayout layout = MixedLayoutSolver.solve(
+            GridOptimizer.ContentMap.of(image, ContentThresholds.DEFAULT), Orientation.NORMAL, tiling.imageWidth, tiling.imageHeight,
+            Arrays.asList(Settings.PaperSize.A4, Settings.PaperSize.A3), MixedLayoutSolver.Objective.FEWEST_SHEETS, 2000);
+
+        TileExportService.Pages pages = TileExportService.pages(new InMemoryImageSource(image), layout);
+        assertEquals(layout.sheets.size(), pages.getPageCount());
+        RecordingSink sink = new RecordingSink();
+        TileExportService.export(pages, sink, null);
+        assertEquals(layout.sheets.size(), sink.images);
+        for (int i = 0; i < layout.sheets.size(); i++) {
+            assertEquals(layout.sheets.get(i).getPageWidth(), sink.sizes.get(i)[0], 1e-6);
+            assertEquals(layout.sheets.get(i).getPageHeight(), sink.sizes.get(i)[1], 1e-6);
+        }
+
+        File output = tempDir.resolve("sheets.pdf").toFile();
+        TileExportService.Result result = TileExportService.exportPdf(pages, output, null);
+        assertEquals(layout.sheets.size(), result.pages);
+        try (PDDocument document = Loader.loadPDF(output)) {
+            assertEquals(layout.sheets.size(), document.getNumberOfPages());
+            for (int i = 0; i < layout.sheets.size(); i++) {
+                assertEquals(layout.sheets.get(i).getPageWidth(), document.getPage(i).getMediaBox().getWidth(), 0.01);
+                assertEquals(layout.sheets.get(i).getPageHeight(), document.getPage(i).getMediaBox().getHeight(), 0.01);
+            }
+        }
+    }
+
+    /**
+     * Draws one page of a plan through a sink fitted to an area at the canvas origin, on a white canvas
+     */
+    private static double drawFitted(TileExportService.Plan plan, BufferedImage canvas, double areaWidth, double areaHeight)
+            throws IOException {
+        Graphics2D g = canvas.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        TileExportService.GraphicsSink sink = new TileExportService.GraphicsSink(g, areaWidth, areaHeight);
+        plan.renderPage(0, sink);
+        g.dispose();
+        return sink.getPageScale();
+    }
+
+    @Test
+    @DisplayName("Printed pages are fitted into the imageable area, turned a quarter when that draws them larger")
+    void testGraphicsSinkFitsPages() throws IOException {
+        ImageSource image = source(2000, 2000);
+        TileExportService.Spec spec = new TileExportService.Spec(2000, 2000, 3f, null, false);
+        TileExportService.Plan portrait = TileExportService.plan(image, spec, List.of(new TileCalculator.TileInfo(0, 0, 1)),
+                                                                 PAGE_WIDTH, PAGE_HEIGHT);
+        BufferedImage canvas = new BufferedImage(900, 900, BufferedImage.TYPE_INT_RGB);
+
+        assertEquals(1.0, drawFitted(portrait, canvas, 700, 900), 1e-9, "A page that fits is drawn 1:1");
+
+        // A4 into a 540 x 780 point imageable area: shrunk to fit the width
+        double scale = drawFitted(portrait, canvas, 540, 780);
+        assertEquals(540 / PAGE_WIDTH, scale, 1e-9);
+        assertEquals(Color.DARK_GRAY.getRGB(), canvas.getRGB(535, 755));
+        assertEquals(Color.WHITE.getRGB(), canvas.getRGB(545, 100), "Nothing is drawn past the area");
+        assertEquals(Color.WHITE.getRGB(), canvas.getRGB(100, 775));
+
+        // A landscape page on the same area is turned rather than shrunk to two thirds
+        TileExportService.Spec landscapeSpec = new TileExportService.Spec(2000, 2000, 3f,
+            new TileCalculator.GridLayout(TileCalculator.PageOrientation.LANDSCAPE, 0, 0), false);
+        TileExportService.Plan landscape = TileExportService.plan(image, landscapeSpec, List.of(new TileCalculator.TileInfo(0, 0, 1)),
+                                                                  PAGE_WIDTH, PAGE_HEIGHT);
+        assertTrue(landscape.tiling.tileWidth > landscape.tiling.tileHeight);
+        assertEquals(540 / PAGE_WIDTH, drawFitted(landscape, canvas, 540, 780), 1e-9);
+        assertEquals(Color.DARK_GRAY.getRGB(), canvas.getRGB(535, 755));
+        assertEquals(Color.WHITE.getRGB(), canvas.getRGB(100, 775));
+    }
+
+    @Test
+    @DisplayName("A packed job exports its pages with every image drawn and numbered once")
+    void testJobPages() throws IOException {
+        List<TileJob.Item> items = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            TileJob.Item item = new TileJob.Item(source(400, 560), "piece" + i);
+            item.setScale(0.45f);
+            items.add(item);
+        }
+        TileJob.Layout layout = TileJob.pack(items, PAGE_WIDTH, PAGE_HEIGHT);
+        TileExportService.Pages pages = TileExportService.pages(layout);
+        assertEquals(layout.pages.size(), pages.getPageCount());
+
+        RecordingSink sink = new RecordingSink();
+        TileExportService.Result result = TileExportService.export(pages, sink, null);
+        assertEquals(layout.pages.size(), result.pages);
+        assertEquals(4, sink.images);
+        assertEquals(4, sink.labels);
+
+        File output = tempDir.resolve("job.pdf").toFile();
+        TileExportService.exportPdf(pages, output, null);
+        try (PDDocument document = Loader.loadPDF(output)) {
+            assertEquals(layout.pages.size(), document.getNumberOfPages());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test class for TileImposition: packing partial edge tiles onto shared sheets.
+ */
+public class TileImpositionTest {
+
+    private static List<TileCalculator.TileInfo> allTiles(TileCalculator.TilingResult tiling) {
+        List<TileCalculator.TileInfo> tiles = new ArrayList<>();
+        for (int row = 0; row < tiling.tilesHigh; row++) {
+            for (int col = 0; col < tiling.tilesWide; col++) {
+                tiles.add(new TileCalculator.TileInfo(col, row, row * tiling.tilesWide + col + 1));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Every piece lies on its sheet, no two pieces (with their gaps) overlap, no label band covers
+     * an image, and each partial tile is placed once
+     */
+    private static void assertValid(TileImposition.Imposition imposition) {
+        Set<Integer> placed = new HashSet<>();
+        for (List<TileImposition.Piece> sheet : imposition.sharedSheets) {
+            for (int i = 0; i < sheet.size(); i++) {
+                TileImposition.Piece piece = sheet.get(i);
+                assertTrue(placed.add(piece.tile.tileNumber), "Tile " + piece.tile.tileNumber + " placed once");
+                assertTrue(piece.x >= 0 && piece.y >= 0 &&
+                           piece.x + piece.getPlacedWidth() <= imposition.sheetWidth + 1e-6 &&
+                           piece.y + piece.getPlacedHeight() <= imposition.sheetHeight + 1e-6, "Piece on its sheet");
+                Rectangle2D.Double a = new Rectangle2D.Double(piece.x, piece.y, piece.getPlacedWidth() + TileImposition.GAP,
+                                                              piece.getPlacedHeight() + TileImposition.GAP);
+                Rectangle2D.Double band = piece.labelBand;
+                assertTrue(band.x >= 0 && band.y >= 0 && band.getMaxX() <= imposition.sheetWidth + 1e-6 &&
+                           band.getMaxY() <= imposition.sheetHeight + 1e-6, "Label band on its sheet");
+                assertEquals(TileImposition.LABEL_BAND, piece.isLabelUpward() ? band.width : band.height, 1e-9);
+                for (TileImposition.Piece other : sheet) {
+                    Rectangle2D image = new Rectangle2D.Double(other.x, other.y, other.getPlacedWidth(), other.getPlacedHeight());
+                    Rectangle2D covered = band.createIntersection(image);
+                    assertTrue(covered.getWidth() <= 1e-6 || covered.getHeight() <= 1e-6, "Label of tile " +
+                               piece.tile.tileNumber + " clear of tile " + other.tile.tileNumber);
+                }
+                for (int j = i + 1; j < sheet.size(); j++) {
+                    TileImposition.Piece other = sheet.get(j);
+                    Rectangle2D.Double b = new Rectangle2D.Double(other.x, other.y, other.getPlacedWidth() + TileImposition.GAP,
+                                                                  other.getPlacedHeight() + TileImposition.GAP);
+                    Rectangle2D overlap = a.createIntersection(b);
+                    assertTrue(overlap.getWidth() <= 1e-6 || overlap.getHeight() <= 1e-6, "Pieces do not overlap");
+                }
+            }
+        }
+        assertEquals(imposition.partialTiles, placed.size());
+    }
+
+    @Test
+    @DisplayName("Slivers at the right and bottom edges share sheets; full tiles keep their own")
+    void testEdgeSliversShareSheets() {
+        // 3 x 3 tiles of 600 x 800 over a 1300 x 1700 image: right column 100 wide, bottom row 100 high
+        TileCalculator.TilingResult tiling = new TileCalculator.TilingResult(3, 3, 600, 800, 1300, 1700);
+        TileImposition.Imposition imposition = TileImposition.impose(allTiles(tiling), tiling);
+        assertEquals(4, imposition.fullTiles.size());
+        assertEquals(5, imposition.partialTiles);
+        assertValid(imposition);
+        assertTrue(imposition.sharedSheets.size() <= 2, "Five slivers fit on two sheets");
+        assertEquals(imposition.partialTiles - imposition.sharedSheets.size(), imposition.getSheetsSaved());
+
+        TileImposition.Piece corner = imposition.sharedSheets.stream().flatMap(List::stream)
+            .filter(piece -> piece.tile.tileNumber == 9).findFirst().orElseThrow(AssertionError::new);
+        assertEquals(new Rectangle2D.Double(1200, 1600, 100, 100), corner.region);
+
+        // Full-height slivers have no room above them, so their labels run up their left side
+        TileImposition.Piece right = imposition.sharedSheets.stream().flatMap(List::stream)
+            .filter(piece -> piece.tile.tileNumber == 3).findFirst().orElseThrow(AssertionError::new);
+        assertFalse(right.rotated);
+        assertTrue(right.isLabelUpward());
+        assertEquals(new Rectangle2D.Double(right.x - TileImposition.LABEL_BAND, right.y, TileImposition.LABEL_BAND, 800),
+                     right.labelBand);
+    }
+
+    @Test
+    @DisplayName("Hundreds of pieces pack quickly and validly")
+    void testManyPieces() {
+        // A shifted grid leaving slivers along all four edges
+        TileCalculator.TilingResult base = new TileCalculator.TilingResult(60, 40, 100, 140, 5920, 5530);
+        TileCalculator.TilingResult tiling = new TileCalculator.GridLayout(TileCalculator.PageOrientation.PORTRAIT, 0.9, 0.9).apply(base);
+        long start = System.nanoTime();
+        TileImposition.Imposition imposition = TileImposition.impose(allTiles(tiling), tiling);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(imposition.partialTiles > 190, "Edge tiles: " + imposition.partialTiles);
+        assertValid(imposition);
+        assertTrue(imposition.sharedSheets.size() < imposition.partialTiles / 2);
+        assertTrue(millis < 2000, "Packing took " + millis + " ms");
+    }
+
+    @Test
+    @DisplayName("A sliver too close to a full page to take a label keeps a page of its own")
+    void testNoRoomForLabel() {
+        // Right column 595 of 600 wide and full height: no room for a band above or beside it
+        TileCalculator.TilingResult tiling = new TileCalculator.TilingResult(2, 1, 600, 800, 1195, 800);
+        TileImposition.Imposition imposition = TileImposition.impose(allTiles(tiling), tiling);
+        assertEquals(2, imposition.fullTiles.size());
+        assertEquals(0, imposition.partialTiles);
+        assertTrue(imposition.sharedSheets.isEmpty());
+        assertEquals(2, imposition.getSheetCount());
+    }
+}
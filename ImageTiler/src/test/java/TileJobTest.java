@@ -0,0 +1,117 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for TileJob: packing several images onto shared pages, and the shared DecodeBudget.
+ */
+public class TileJobTest {
+
+    private static final double PAGE_WIDTH = 8.27 * 72;
+    private static final double PAGE_HEIGHT = 11.69 * 72;
+
+    private static TileJob.Item item(String name, int width, int height, boolean blank, float scale) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(blank ? Color.WHITE : Color.BLACK);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        TileJob.Item item = new TileJob.Item(new InMemoryImageSource(image), name);
+        item.setScale(scale);
+        return item;
+    }
+
+    /**
+     * Every image lies on the canvas and no two images (with their gaps) overlap
+     */
+    private static void assertValid(TileJob.Layout layout, int items) {
+        assertEquals(items, layout.placements.size());
+        for (int i = 0; i < layout.placements.size(); i++) {
+            TileJob.Placement a = layout.placements.get(i);
+            assertTrue(a.x >= 0 && a.y >= 0 && a.x + a.renderWidth <= layout.cols * layout.pageWidth + 1e-6 &&
+                       a.y + a.renderHeight <= layout.rows * layout.pageHeight + 1e-6, "Image on the canvas");
+            Rectangle2D.Double padded = new Rectangle2D.Double(a.x, a.y, a.renderWidth + TileJob.GAP, a.renderHeight + TileJob.GAP);
+            for (int j = i + 1; j < layout.placements.size(); j++) {
+                TileJob.Placement b = layout.placements.get(j);
+                Rectangle2D overlap = padded.createIntersection(
+                    new Rectangle2D.Double(b.x, b.y, b.renderWidth + TileJob.GAP, b.renderHeight + TileJob.GAP));
+                assertTrue(overlap.getWidth() <= 1e-6 || overlap.getHeight() <= 1e-6, "Images do not overlap");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Four quarter-page images share one page without being split")
+    void testSmallImagesShareAPage() {
+        List<TileJob.Item> items = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            items.add(item("piece" + i, 400, 560, false, 0.45f));
+        }
+        TileJob.Layout layout = TileJob.pack(items, PAGE_WIDTH, PAGE_HEIGHT);
+        assertValid(layout, 4);
+        assertEquals(1, layout.pages.size());
+        assertEquals(0, layout.crossings);
+        assertTrue(layout.getSeparatePages() >= 4);
+    }
+
+    @Test
+    @DisplayName("Each image keeps its own rotation and scale")
+    void testRotationAndScaleRespected() {
+        TileJob.Item wide = item("wide", 800, 200, false, 0.5f);
+        wide.setOrientation(Orientation.CLOCKWISE_90);
+        TileJob.Item small = item("small", 300, 300, false, 0.3f);
+        TileJob.Layout layout = TileJob.pack(java.util.Arrays.asList(wide, small), PAGE_WIDTH, PAGE_HEIGHT);
+        assertValid(layout, 2);
+        for (TileJob.Placement placement : layout.placements) {
+            TileCalculator.TilingResult tiling = placement.item.getTiling();
+            assertEquals(tiling.imageWidth, placement.renderWidth);
+            assertEquals(tiling.imageHeight, placement.renderHeight);
+        }
+        TileJob.Placement turned = layout.placements.stream().filter(p -> p.item == wide).findFirst().orElseThrow(AssertionError::new);
+        assertTrue(turned.renderHeight > turned.renderWidth, "A quarter turn makes the wide image tall");
+    }
+
+    @Test
+    @DisplayName("Large images span page-aligned blocks, small ones fill around them, blank pages drop")
+    void testNestedPacking() {
+        List<TileJob.Item> items = new ArrayList<>();
+        items.add(item("large", 1000, 1400, false, 1.6f));
+        items.add(item("blank", 500, 700, true, 0.8f));
+        for (int i = 0; i < 6; i++) {
+            items.add(item("piece" + i, 300, 300, false, 0.3f));
+        }
+        TileJob.Layout layout = TileJob.pack(items, PAGE_WIDTH, PAGE_HEIGHT);
+        assertValid(layout, 8);
+        // The large image covers 2 x 2 pages and the pieces fit in its margins
+        assertEquals(4, layout.pages.size(), "Pages: " + layout.pages.size() + " of " + layout.cols + "×" + layout.rows);
+        assertEquals(0, layout.crossings);
+        assertTrue(layout.pages.size() < layout.getSeparatePages());
+        for (TileCalculator.TileInfo page : layout.pages) {
+            assertFalse(layout.placementsOn(page).isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("The decode budget evicts across owners and releases one owner's blocks")
+    void testDecodeBudget() {
+        DecodeBudget budget = new DecodeBudget(1000);
+        Object first = new Object();
+        Object second = new Object();
+        budget.put(first, 0, "a", 400);
+        budget.put(second, 0, "b", 400);
+        assertEquals("a", budget.get(first, 0));
+        budget.put(second, 1, "c", 400);
+        assertNull(budget.get(second, 0), "Least recently used block is evicted, whichever image it belongs to");
+        assertEquals("a", budget.get(first, 0));
+        assertEquals(800, budget.getUsedBytes());
+        budget.release(second);
+        assertNull(budget.get(second, 1));
+        assertEquals(400, budget.getUsedBytes());
+    }
+}
@@ -0,0 +1,127 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Set;
+
+/**
+ * Test class for TileSelectionGrid: manual state cycling, analysis flags,
+ * bulk edits and the string-key view.
+ */
+public class TileSelectionGridTest {
+
+    @Test
+    @DisplayName("Clicking cycles auto, excluded, included and back to auto")
+    void testCycle() {
+        TileSelectionGrid grid = new TileSelectionGrid();
+        grid.setDimensions(3, 2);
+        grid.setAnalysis(1, 1, true);
+
+        assertTrue(grid.isSelected(1, 1));
+        grid.cycle(1, 1);
+        assertTrue(grid.isExcluded(1, 1));
+        assertFalse(grid.isSelected(1, 1));
+        assertEquals(1, grid.countExcludedNonBlank());
+        grid.cycle(1, 1);
+        assertTrue(grid.isIncluded(1, 1));
+        grid.cycle(1, 1);
+        assertEquals(TileSelectionGrid.AUTO, grid.getManualState(1, 1));
+        assertTrue(grid.isNonBlank(1, 1));
+    }
+
+    @Test
+    @DisplayName("Resizing keeps manual choices by position and drops analysis")
+    void testResize() {
+        TileSelectionGrid grid = new TileSelectionGrid();
+        grid.setDimensions(4, 4);
+        grid.markAllNonBlank();
+        grid.setManualState(0, 0, 3, 0, TileSelectionGrid.EXCLUDED);
+        grid.setManualState(2, 3, TileSelectionGrid.INCLUDED);
+
+        grid.setDimensions(2, 5);
+        assertEquals(2, grid.countManual(TileSelectionGrid.EXCLUDED));
+        assertEquals(0, grid.countManual(TileSelectionGrid.INCLUDED));
+        assertFalse(grid.isAnalyzed(0, 1));
+        assertEquals(0, grid.countSelected());
+    }
+
+    @Test
+    @DisplayName("String-key view reads and writes the grid")
+    void testKeyView() {
+        TileSelectionGrid grid = new TileSelectionGrid();
+        grid.setDimensions(2, 2);
+        Set<String> excluded = grid.keysWithState(TileSelectionGrid.EXCLUDED);
+
+        assertTrue(excluded.add("1,0"));
+        assertFalse(excluded.add("1,0"));
+        assertTrue(excluded.add("5,3"));
+        assertEquals(6, grid.getTilesWide());
+        assertEquals(4, grid.getTilesHigh());
+        assertTrue(grid.isExcluded(1, 0));
+        assertTrue(excluded.contains("5,3"));
+        assertEquals(2, excluded.size());
+
+        assertTrue(excluded.remove("1,0"));
+        assertFalse(excluded.contains("1,0"));
+        assertFalse(excluded.contains("not a key"));
+        excluded.clear();
+        assertTrue(excluded.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Bulk operations store explicit choices and keep counts current")
+    void testBulkSelection() {
+        TileSelectionGrid grid = new TileSelectionGrid();
+        grid.setDimensions(4, 3);
+        grid.setAnalysis(0, 0, true);
+        grid.setAnalysis(1, 0, true);
+        assertEquals(2, grid.countSelected());
+
+        grid.setRowSelected(0, false);
+        assertEquals(0, grid.countSelected());
+        assertEquals(2, grid.countExcludedNonBlank());
+        assertEquals(TileSelectionGrid.EXCLUDED, grid.getManualState(2, 0));
+
+        grid.setColumnSelected(3, true);
+        assertEquals(3, grid.countManual(TileSelectionGrid.INCLUDED));
+        assertEquals(3, grid.countSelected());
+
+        grid.invertSelection();
+        assertEquals(12 - 3, grid.countSelected());
+        assertTrue(grid.isSelected(0, 0));
+        assertEquals(TileSelectionGrid.INCLUDED, grid.getManualState(0, 0));
+        assertFalse(grid.isSelected(3, 1));
+        assertEquals(TileSelectionGrid.EXCLUDED, grid.getManualState(3, 1));
+
+        grid.setSelected(-5, -5, 1, 1, false);
+        assertFalse(grid.isSelected(1, 1));
+        assertTrue(grid.isSelected(2, 1));
+    }
+
+    @Test
+    @DisplayName("A tile excluded before analysis stays excluded when analysis or thresholds find content")
+    void testExclusionSurvivesAnalysis() {
+        TileSelectionGrid grid = new TileSelectionGrid();
+        grid.setDimensions(3, 2);
+        grid.setSelected(0, 0, false); // still pending
+        grid.setAnalysis(1, 0, false);
+        grid.setRowSelected(0, false); // blank when excluded
+        grid.setSelected(2, 1, true);
+
+        grid.setAnalysis(0, 0, true);
+        grid.setAnalysis(1, 0, true);
+        grid.setAnalysis(2, 1, false);
+        assertFalse(grid.isSelected(0, 0));
+        assertFalse(grid.isSelected(1, 0));
+        assertTrue(grid.isSelected(2, 1));
+
+        // A threshold change clears and redoes the analysis
+        grid.clearAnalysis();
+        grid.setAnalysis(0, 0, true);
+        grid.setAnalysis(1, 0, true);
+        assertFalse(grid.isSelected(0, 0));
+        assertFalse(grid.isSelected(1, 0));
+        assertTrue(grid.isSelected(2, 1));
+        assertEquals(2, grid.countExcludedNonBlank());
+    }
+}
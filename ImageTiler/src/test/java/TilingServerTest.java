@@ -0,0 +1,228 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for TilingServer: job round trip over HTTP, parameter checks, memory admission, eviction of
+ * finished jobs and the load generator.
+ */
+public class TilingServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TilingServer server;
+    private String base;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new TilingServer(0, 512L * 1024 * 1024, tempDir.toFile(), 64L * 1024 * 1024);
+        server.start();
+        base = "http://127.0.0.1:" + server.getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    /**
+     * A white image with a black block in its top-left quarter, as PNG bytes
+     */
+    private static byte[] pngImage(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, width / 2, height / 2);
+        g.dispose();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+
+    private static HttpURLConnection post(String url, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        return connection;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            stream.transferTo(bytes);
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    @DisplayName("A submitted image is tiled and its PDF downloaded")
+    void testJobRoundTrip() throws Exception {
+        HttpURLConnection submit = post(base + "/jobs?scale=2&name=plan.png", pngImage(400, 400));
+        assertEquals(202, submit.getResponseCode());
+        String location = submit.getHeaderField("Location");
+        assertTrue(read(submit.getInputStream()).contains("\"status\""));
+
+        String status = "";
+        for (int i = 0; i < 200 && !status.contains("\"DONE\""); i++) {
+            Thread.sleep(25);
+            status = read(new URL(base + location).openStream());
+            assertFalse(status.contains("\"FAILED\""), status);
+        }
+        assertTrue(status.contains("\"DONE\""), status);
+
+        HttpURLConnection pdf = (HttpURLConnection) new URL(base + location + "/pdf").openConnection();
+        assertEquals(200, pdf.getResponseCode());
+        assertEquals("application/pdf", pdf.getContentType());
+        File downloaded = tempDir.resolve("downloaded.pdf").toFile();
+        try (InputStream in = pdf.getInputStream()) {
+            java.nio.file.Files.copy(in, downloaded.toPath());
+        }
+        try (PDDocument document = Loader.loadPDF(downloaded)) {
+            assertTrue(status.contains("\"pages\":" + document.getNumberOfPages()), status);
+            assertTrue(document.getNumberOfPages() > 0);
+        }
+        assertTrue(read(new URL(base + "/stats").openStream()).contains("\"completed\":1"));
+    }
+
+    @Test
+    @DisplayName("Bad parameters are refused and unknown jobs are not found")
+    void testBadRequests() throws IOException {
+        assertEquals(400, post(base + "/jobs?scale=-1", pngImage(50, 50)).getResponseCode());
+        assertEquals(400, post(base + "/jobs?out=/etc", pngImage(50, 50)).getResponseCode());
+        assertEquals(404, ((HttpURLConnection) new URL(base + "/jobs/999").openConnection()).getResponseCode());
+        assertEquals(0, tempDir.toFile().list().length, "Refused uploads are not kept");
+    }
+
+    @Test
+    @DisplayName("Jobs wait for decode memory, oversized jobs run alone and a long queue is refused")
+    void testMemoryAdmission() throws InterruptedException {
+        TilingServer.MemoryAdmission admission = new TilingServer.MemoryAdmission(100);
+        TilingServer.MemoryAdmission.Reservation first = admission.offer(60);
+        assertNotNull(first);
+        assertTrue(admission.acquire(first));
+        TilingServer.MemoryAdmission.Reservation second = admission.offer(60);
+        assertNotNull(second);
+
+        CountDownLatch admitted = new CountDownLatch(1);
+        Thread waiting = new Thread(() -> {
+            try {
+                admission.acquire(second);
+                admitted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiting.start();
+        assertFalse(admitted.await(100, TimeUnit.MILLISECONDS), "Second job waits while the first holds the memory");
+        admission.release(first);
+        assertTrue(admitted.await(5, TimeUnit.SECONDS));
+        assertEquals(60, admission.getUsedBytes());
+
+        admission.release(second);
+        TilingServer.MemoryAdmission.Reservation oversized = admission.offer(1000);
+        assertNotNull(oversized, "An estimate over the budget is cut to the budget");
+        assertTrue(admission.acquire(oversized));
+        assertEquals(100, admission.getUsedBytes());
+        for (int i = 0; i < TilingServer.QUEUE_BUDGETS; i++) {
+            assertNotNull(admission.offer(100));
+        }
+        assertNull(admission.offer(100), "Refused once the waiting jobs need more than the queue allows");
+    }
+
+    @Test
+    @DisplayName("Withdrawing a queued job gives back its reservation and wakes its wait")
+    void testWithdrawQueuedJob() throws InterruptedException {
+        TilingServer.MemoryAdmission admission = new TilingServer.MemoryAdmission(100);
+        TilingServer.MemoryAdmission.Reservation running = admission.offer(100);
+        assertTrue(admission.acquire(running));
+        TilingServer.MemoryAdmission.Reservation queued = admission.offer(80);
+        assertEquals(80, admission.getWaitingBytes());
+
+        boolean[] acquired = {true};
+        CountDownLatch returned = new CountDownLatch(1);
+        Thread waiting = new Thread(() -> {
+            try {
+                acquired[0] = admission.acquire(queued);
+                returned.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiting.start();
+        assertFalse(returned.await(100, TimeUnit.MILLISECONDS));
+
+        admission.withdraw(queued);
+        assertEquals(0, admission.getWaitingBytes(), "Released at once, not when the job would have started");
+        assertTrue(returned.await(5, TimeUnit.SECONDS));
+        assertFalse(acquired[0]);
+        admission.withdraw(queued);
+        admission.release(queued);
+        assertEquals(0, admission.getWaitingBytes());
+        assertEquals(100, admission.getUsedBytes(), "Withdrawing twice or releasing what was never held changes nothing");
+
+        admission.release(running);
+        assertEquals(0, admission.getUsedBytes());
+    }
+
+    @Test
+    @DisplayName("Finished jobs are evicted with their files once the TTL has passed")
+    void testEvictFinishedJobs() throws Exception {
+        HttpURLConnection submit = post(base + "/jobs?scale=2&name=plan.png", pngImage(400, 400));
+        assertEquals(202, submit.getResponseCode());
+        String location = submit.getHeaderField("Location");
+        String status = "";
+        for (int i = 0; i < 200 && !status.contains("\"DONE\""); i++) {
+            Thread.sleep(25);
+            status = read(new URL(base + location).openStream());
+        }
+        assertTrue(status.contains("\"DONE\""), status);
+        assertEquals(1, tempDir.toFile().list().length, "Only the PDF is kept");
+
+        assertEquals(0, server.evictExpiredJobs(System.nanoTime()), "Kept until the TTL has passed");
+        assertEquals(200, ((HttpURLConnection) new URL(base + location).openConnection()).getResponseCode());
+
+        long later = System.nanoTime() + TilingServer.DEFAULT_JOB_TTL_MILLIS * 1_000_000 + 1;
+        assertEquals(1, server.evictExpiredJobs(later));
+        assertEquals(404, ((HttpURLConnection) new URL(base + location).openConnection()).getResponseCode());
+        assertEquals(0, tempDir.toFile().list().length, "The PDF is deleted with the job");
+    }
+
+    @Test
+    @DisplayName("The load generator runs every job and reports latency")
+    void testLoadGenerator() throws Exception {
+        File image = tempDir.resolve("load.png").toFile();
+        java.nio.file.Files.write(image.toPath(), pngImage(300, 300));
+        TilingLoadGenerator.Report report = TilingLoadGenerator.run(base, image, 6, 3, "scale=2");
+        assertEquals(6, report.completed, report.toString());
+        assertEquals(0, report.failed);
+        assertTrue(report.percentile(0.5) <= report.percentile(0.95));
+        assertTrue(report.getJobsPerSecond() > 0);
+    }
+}
@@ -0,0 +1,62 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Test class for WhitespaceTrim and CroppedImageSource: content box detection,
+ * preview-to-source mapping and offset region reads.
+ */
+public class WhitespaceTrimTest {
+
+    private static BufferedImage createPage(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, width, height);
+        g2d.dispose();
+        return image;
+    }
+
+    @Test
+    @DisplayName("Content box ignores white margins and specks of dust")
+    void testFindContentBounds() {
+        BufferedImage page = createPage(2000, 1500);
+        Graphics2D g2d = page.createGraphics();
+        g2d.setColor(Color.BLACK);
+        g2d.fillRect(300, 200, 900, 700);
+        g2d.dispose();
+        page.setRGB(1900, 1400, 0x000000); // a lone speck below the noise allowance
+
+        assertEquals(new Rectangle(300, 200, 900, 700), WhitespaceTrim.findContentBounds(page, ContentThresholds.DEFAULT));
+        assertNull(WhitespaceTrim.findContentBounds(createPage(100, 100), ContentThresholds.DEFAULT));
+    }
+
+    @Test
+    @DisplayName("Padding is clipped and source regions round outward")
+    void testPadAndScale() {
+        assertEquals(new Rectangle(0, 0, 51, 51), WhitespaceTrim.pad(new Rectangle(0, 0, 50, 50), 100, 100));
+        Rectangle source = WhitespaceTrim.toSourceRegion(new Rectangle(10, 10, 33, 33), 100, 100, 300, 300);
+        assertEquals(new Rectangle(30, 30, 99, 99), source);
+        Rectangle uneven = WhitespaceTrim.toSourceRegion(new Rectangle(1, 1, 1, 1), 3, 3, 10, 10);
+        assertTrue(uneven.contains(new Rectangle(4, 4, 2, 2)), "Rounding must never cut content: " + uneven);
+    }
+
+    @Test
+    @DisplayName("Cropped source shares pixels and offsets region reads")
+    void testCroppedImageSource() throws Exception {
+        BufferedImage page = createPage(200, 100);
+        page.setRGB(60, 30, 0x123456);
+        CroppedImageSource cropped = new CroppedImageSource(new InMemoryImageSource(page),
+                                                            new Rectangle(50, 20, 100, 60), new Rectangle(50, 20, 100, 60));
+        assertEquals(100, cropped.getWidth());
+        assertEquals(60, cropped.getHeight());
+        assertEquals(0x123456, cropped.getPreviewImage().getRGB(10, 10) & 0xFFFFFF);
+        assertEquals(0x123456, cropped.readRegion(new Rectangle(10, 10, 1, 1)).getRGB(0, 0) & 0xFFFFFF);
+
+        page.setRGB(61, 30, 0x654321);
+        assertEquals(0x654321, cropped.getPreviewImage().getRGB(11, 10) & 0xFFFFFF, "The preview is a view, not a copy");
+    }
+}